@@ -15,6 +15,7 @@ import androidx.preference.PreferenceManager;
 
 import it.niedermann.android.sharedpreferences.SharedPreferenceIntLiveData;
 import it.niedermann.nextcloud.deck.model.Account;
+import it.niedermann.nextcloud.deck.persistence.sync.MaintenanceWorker;
 
 public class DeckApplication extends Application {
 
@@ -42,6 +43,7 @@ public class DeckApplication extends Application {
                 getString(R.string.shared_preference_theme_main),
                 ContextCompat.getColor(this, R.color.defaultBrand)));
         super.onCreate();
+        MaintenanceWorker.register(this);
     }
 
     @Override
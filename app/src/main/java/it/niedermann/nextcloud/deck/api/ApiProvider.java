@@ -57,6 +57,17 @@ public class ApiProvider {
         }
     }
 
+    /**
+     * @return the name of the account requests are performed for or an empty {@link String} if it is not known
+     */
+    @NonNull
+    public String getAccountName() {
+        if (ssoAccount != null) {
+            return ssoAccount.name;
+        }
+        return ssoAccountName == null ? "" : ssoAccountName;
+    }
+
     public DeckAPI getDeckAPI() {
         return deckAPI;
     }
@@ -0,0 +1,139 @@
+package it.niedermann.nextcloud.deck.api;
+
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Locale;
+import java.util.function.LongSupplier;
+
+import it.niedermann.nextcloud.deck.DeckLog;
+
+/**
+ * Stops sending requests to the server of an account after it failed repeatedly, so an overloaded server gets a chance to recover instead of being hammered by every synchronization.
+ * <ul>
+ *     <li><strong>Closed</strong>: requests are performed, consecutive server failures are counted</li>
+ *     <li><strong>Open</strong>: after {@link #failureThreshold} consecutive server failures all requests fail immediately until the open duration passed</li>
+ *     <li><strong>Half open</strong>: one single trial request is performed. If it succeeds the circuit gets closed, otherwise it gets opened again for twice the duration</li>
+ * </ul>
+ * Failures caused by the request itself, like {@link java.net.HttpURLConnection#HTTP_NOT_FOUND}, prove that the server is responsive and are therefore counted as success.
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    @NonNull
+    private final String name;
+    private final int failureThreshold;
+    private final long minOpenMillis;
+    private final long maxOpenMillis;
+    @NonNull
+    private final LongSupplier clock;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures = 0;
+    private long openMillis;
+    private long openUntil;
+    private long trialStarted;
+
+    public CircuitBreaker(@NonNull String name, int failureThreshold, long minOpenMillis, long maxOpenMillis) {
+        this(name, failureThreshold, minOpenMillis, maxOpenMillis, SystemClock::elapsedRealtime);
+    }
+
+    /**
+     * @param clock monotonic time in milliseconds
+     */
+    public CircuitBreaker(@NonNull String name, int failureThreshold, long minOpenMillis, long maxOpenMillis, @NonNull LongSupplier clock) {
+        this.name = name;
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.minOpenMillis = minOpenMillis;
+        this.maxOpenMillis = Math.max(minOpenMillis, maxOpenMillis);
+        this.openMillis = minOpenMillis;
+        this.clock = clock;
+    }
+
+    /**
+     * @return <code>0</code> if a request may be performed, otherwise the remaining time in milliseconds until requests will be allowed again
+     */
+    public synchronized long tryAcquire() {
+        final long now = clock.getAsLong();
+        switch (state) {
+            case OPEN:
+                if (now < openUntil) {
+                    return openUntil - now;
+                }
+                DeckLog.info("Circuit for", name, "is half open, performing a trial request.");
+                state = State.HALF_OPEN;
+                trialStarted = now;
+                return 0L;
+            case HALF_OPEN:
+                // Allow another trial if the previous one never reported its result, for example because it has been disposed
+                if (now - trialStarted < openMillis) {
+                    return trialStarted + openMillis - now;
+                }
+                trialStarted = now;
+                return 0L;
+            default:
+                return 0L;
+        }
+    }
+
+    public synchronized void onSuccess() {
+        if (state != State.CLOSED) {
+            DeckLog.info("Circuit for", name, "is closed again.");
+        }
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        openMillis = minOpenMillis;
+    }
+
+    /**
+     * A successful health check is performed while the circuit is open, so it only closes the circuit if the open duration passed and it is the trial request.
+     * Otherwise a single cheap request would end the pause of an overloaded server.
+     */
+    public synchronized void onHealthCheckSuccess() {
+        switch (state) {
+            case HALF_OPEN:
+                onSuccess();
+                break;
+            case CLOSED:
+                consecutiveFailures = 0;
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * @param retryAfterMillis if the server asked to wait, the circuit will at least be opened for this duration
+     */
+    public synchronized void onServerFailure(@Nullable Long retryAfterMillis) {
+        consecutiveFailures++;
+        final boolean serverAskedToWait = retryAfterMillis != null && retryAfterMillis > 0;
+        if (state == State.HALF_OPEN) {
+            openMillis = Math.min(maxOpenMillis, openMillis * 2);
+        } else if (consecutiveFailures < failureThreshold && !serverAskedToWait) {
+            return;
+        }
+        final long duration = serverAskedToWait ? Math.max(openMillis, retryAfterMillis) : openMillis;
+        DeckLog.warn("Circuit for", name, "is open after", consecutiveFailures, "consecutive failures, pausing requests for", duration, "ms.");
+        state = State.OPEN;
+        openUntil = clock.getAsLong() + duration;
+    }
+
+    @NonNull
+    public synchronized State getState() {
+        return state;
+    }
+
+    @NonNull
+    @Override
+    public synchronized String toString() {
+        return String.format(Locale.ROOT, "%s, %d consecutive failures", state, consecutiveFailures);
+    }
+}
@@ -34,7 +34,7 @@ public class GsonConfig {
     static {
         Type boardList = new TypeToken<List<FullBoard>>() {}.getType();
         Type board = new TypeToken<FullBoard>() {}.getType();
-        Type cardList = new TypeToken<FullCard>() {}.getType();
+        Type cardList = new TypeToken<List<FullCard>>() {}.getType();
         Type card = new TypeToken<FullCard>() {}.getType();
         Type labelList = new TypeToken<Label>() {}.getType();
         Type label = new TypeToken<Label>() {}.getType();
@@ -55,14 +55,14 @@ public class GsonConfig {
                 .setDateFormat(DATE_PATTERN)
                 .setLenient()
                 .registerTypeAdapter(Instant.class,     new GsonUTCInstantAdapter())
-                .registerTypeAdapter(boardList,         new NextcloudArrayDeserializer<>("boards", FullBoard.class))
-                .registerTypeAdapter(board,             new NextcloudDeserializer<>("board", FullBoard.class))
-                .registerTypeAdapter(cardList,          new NextcloudArrayDeserializer<>("cards", FullCard.class))
-                .registerTypeAdapter(card,              new NextcloudDeserializer<>("card", FullCard.class))
+                .registerTypeAdapter(boardList,         new NextcloudArrayTypeAdapter<>("boards", FullBoard.class))
+                .registerTypeAdapter(board,             new NextcloudTypeAdapter<>("board", FullBoard.class))
+                .registerTypeAdapter(cardList,          new NextcloudArrayTypeAdapter<>("cards", FullCard.class))
+                .registerTypeAdapter(card,              new NextcloudTypeAdapter<>("card", FullCard.class))
                 .registerTypeAdapter(labelList,         new NextcloudArrayDeserializer<>("labels", Label.class))
                 .registerTypeAdapter(label,             new NextcloudDeserializer<>("label", Label.class))
-                .registerTypeAdapter(stackList,         new NextcloudArrayDeserializer<>("stacks", FullStack.class))
-                .registerTypeAdapter(stack,             new NextcloudDeserializer<>("stack", FullStack.class))
+                .registerTypeAdapter(stackList,         new NextcloudArrayTypeAdapter<>("stacks", FullStack.class))
+                .registerTypeAdapter(stack,             new NextcloudTypeAdapter<>("stack", FullStack.class))
                 .registerTypeAdapter(capabilities,      new NextcloudDeserializer<>("capability", Capabilities.class))
                 .registerTypeAdapter(ocsUserList,       new NextcloudDeserializer<>("ocsUserList", OcsUserList.class))
                 .registerTypeAdapter(ocsUser,           new NextcloudDeserializer<>("ocsUser", OcsUser.class))
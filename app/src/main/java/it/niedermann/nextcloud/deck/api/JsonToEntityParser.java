@@ -577,7 +577,10 @@ public class JsonToEntityParser {
     }
 
     private static int getColorAsInt(JsonObject element, String field) {
-        String rawString = getNullAsEmptyString(element.get(field));
+        return parseColor(getNullAsEmptyString(element.get(field)));
+    }
+
+    static int parseColor(String rawString) {
         try {
             if (!rawString.trim().isEmpty()) {
                 String colorAsString = ColorUtil.INSTANCE.formatColorToParsableHexString(rawString);
@@ -0,0 +1,698 @@
+package it.niedermann.nextcloud.deck.api;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+import it.niedermann.nextcloud.deck.model.AccessControl;
+import it.niedermann.nextcloud.deck.model.Attachment;
+import it.niedermann.nextcloud.deck.model.Board;
+import it.niedermann.nextcloud.deck.model.Card;
+import it.niedermann.nextcloud.deck.model.Label;
+import it.niedermann.nextcloud.deck.model.Stack;
+import it.niedermann.nextcloud.deck.model.User;
+import it.niedermann.nextcloud.deck.model.enums.EAttachmentType;
+import it.niedermann.nextcloud.deck.model.full.FullBoard;
+import it.niedermann.nextcloud.deck.model.full.FullCard;
+import it.niedermann.nextcloud.deck.model.full.FullStack;
+
+/**
+ * Builds the same entities as {@link JsonToEntityParser} in a single pass over a {@link JsonReader}, without materializing a {@link com.google.gson.JsonElement} tree first.
+ * <p>
+ * Properties may occur in any order, therefore defaults are applied before and required properties are verified after reading an object.
+ * Unknown properties are skipped.
+ */
+public class JsonToEntityStreamParser {
+
+    private JsonToEntityStreamParser() {
+        // Util class
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> T parse(@NonNull JsonReader in, @NonNull Class<T> type) throws IOException {
+        if (type == FullBoard.class) {
+            return (T) readBoard(in);
+        } else if (type == FullStack.class) {
+            return (T) readStack(in);
+        } else if (type == FullCard.class) {
+            return (T) readCard(in);
+        }
+        throw new IllegalArgumentException("unregistered type: " + type.getCanonicalName());
+    }
+
+    private interface ElementReader<T> {
+        T read(@NonNull JsonReader in) throws IOException;
+    }
+
+    @NonNull
+    static FullBoard readBoard(@NonNull JsonReader in) throws IOException {
+        final var fullBoard = new FullBoard();
+        final var board = new Board();
+        fullBoard.setBoard(board);
+        board.setTitle("");
+        board.setArchived(false);
+        String color = "";
+        boolean hasId = false;
+
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "id":
+                    board.setId(in.nextLong());
+                    hasId = true;
+                    break;
+                case "title":
+                    board.setTitle(nextNullAsEmptyString(in));
+                    break;
+                case "color":
+                    color = nextNullAsEmptyString(in);
+                    break;
+                case "ETag":
+                    board.setEtag(nextNullAsNull(in));
+                    break;
+                case "archived":
+                    board.setArchived(!nextIsNull(in) && nextBoolean(in));
+                    break;
+                case "lastModified":
+                    board.setLastModified(nextTimestampFromLong(in));
+                    break;
+                case "deletedAt":
+                    board.setDeletedAt(nextTimestampFromLong(in));
+                    break;
+                case "labels":
+                    if (!nextIsNull(in)) {
+                        fullBoard.setLabels(readList(in, JsonToEntityStreamParser::readLabel));
+                    }
+                    break;
+                case "stacks":
+                    if (!nextIsNull(in)) {
+                        fullBoard.setStacks(readList(in, stackReader -> readStack(stackReader).getStack()));
+                    }
+                    break;
+                case "acl":
+                    if (!nextIsNull(in) && in.peek() == JsonToken.BEGIN_ARRAY) {
+                        final var acl = readList(in, JsonToEntityStreamParser::readAcl);
+                        if (acl.size() > 0) {
+                            fullBoard.setParticipants(acl);
+                        }
+                    } else {
+                        in.skipValue();
+                    }
+                    break;
+                case "permissions":
+                    if (!nextIsNull(in)) {
+                        readPermissions(in, board);
+                    }
+                    break;
+                case "owner":
+                    fullBoard.setOwner(readUser(in));
+                    break;
+                case "users":
+                    if (!nextIsNull(in) && in.peek() == JsonToken.BEGIN_ARRAY) {
+                        fullBoard.setUsers(readList(in, JsonToEntityStreamParser::readUser));
+                    } else {
+                        in.skipValue();
+                    }
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+        in.endObject();
+
+        board.setColor(color);
+        requireProperty(hasId, "id", "board", in);
+        return fullBoard;
+    }
+
+    private static void readPermissions(@NonNull JsonReader in, @NonNull Board board) throws IOException {
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "PERMISSION_READ":
+                    board.setPermissionRead(nextBoolean(in));
+                    break;
+                case "PERMISSION_EDIT":
+                    board.setPermissionEdit(nextBoolean(in));
+                    break;
+                case "PERMISSION_MANAGE":
+                    board.setPermissionManage(nextBoolean(in));
+                    break;
+                case "PERMISSION_SHARE":
+                    board.setPermissionShare(nextBoolean(in));
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+        in.endObject();
+    }
+
+    /**
+     * @return an empty {@link AccessControl} if it has no participant, like {@link JsonToEntityParser#parseAcl(com.google.gson.JsonObject)}
+     */
+    @NonNull
+    static AccessControl readAcl(@NonNull JsonReader in) throws IOException {
+        final var acl = new AccessControl();
+        User participant = null;
+        Long type = null;
+        Long boardId = null;
+        Long id = null;
+        Boolean owner = null;
+        Boolean permissionEdit = null;
+        Boolean permissionManage = null;
+        Boolean permissionShare = null;
+
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "participant":
+                    participant = readUser(in);
+                    break;
+                case "type":
+                    type = nextNullableLong(in);
+                    break;
+                case "boardId":
+                    boardId = nextNullableLong(in);
+                    break;
+                case "id":
+                    id = nextNullableLong(in);
+                    break;
+                case "owner":
+                    owner = nextNullableBoolean(in);
+                    break;
+                case "permissionEdit":
+                    permissionEdit = nextNullableBoolean(in);
+                    break;
+                case "permissionManage":
+                    permissionManage = nextNullableBoolean(in);
+                    break;
+                case "permissionShare":
+                    permissionShare = nextNullableBoolean(in);
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+        in.endObject();
+
+        if (participant != null) {
+            acl.setUser(participant);
+            acl.setType(requireValue(type, "type", "acl", in));
+            acl.setBoardId(requireValue(boardId, "boardId", "acl", in));
+            acl.setId(requireValue(id, "id", "acl", in));
+            acl.setOwner(requireValue(owner, "owner", "acl", in));
+            acl.setPermissionEdit(requireValue(permissionEdit, "permissionEdit", "acl", in));
+            acl.setPermissionManage(requireValue(permissionManage, "permissionManage", "acl", in));
+            acl.setPermissionShare(requireValue(permissionShare, "permissionShare", "acl", in));
+        }
+        return acl;
+    }
+
+    @NonNull
+    static FullStack readStack(@NonNull JsonReader in) throws IOException {
+        final var fullStack = new FullStack();
+        final var stack = new Stack();
+        fullStack.setStack(stack);
+        stack.setTitle("");
+        stack.setOrder(0);
+        boolean hasId = false;
+        boolean hasBoardId = false;
+
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "id":
+                    stack.setId(in.nextLong());
+                    hasId = true;
+                    break;
+                case "boardId":
+                    stack.setBoardId(in.nextLong());
+                    hasBoardId = true;
+                    break;
+                case "title":
+                    stack.setTitle(nextNullAsEmptyString(in));
+                    break;
+                case "ETag":
+                    stack.setEtag(nextNullAsNull(in));
+                    break;
+                case "lastModified":
+                    stack.setLastModified(nextTimestampFromLong(in));
+                    break;
+                case "deletedAt":
+                    stack.setDeletedAt(nextTimestampFromLong(in));
+                    break;
+                case "order":
+                    stack.setOrder(nextIsNull(in) ? 0 : in.nextInt());
+                    break;
+                case "cards":
+                    if (!nextIsNull(in)) {
+                        fullStack.setCards(readList(in, cardReader -> readCard(cardReader).getCard()));
+                    }
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+        in.endObject();
+
+        requireProperty(hasId, "id", "stack", in);
+        requireProperty(hasBoardId, "boardId", "stack", in);
+        return fullStack;
+    }
+
+    @NonNull
+    static FullCard readCard(@NonNull JsonReader in) throws IOException {
+        final var fullCard = new FullCard();
+        final var card = new Card();
+        fullCard.setCard(card);
+        card.setTitle("");
+        card.setDescription("");
+        card.setType("");
+        card.setOrder(0);
+        boolean hasId = false;
+        boolean hasStackId = false;
+        boolean hasOverdue = false;
+        boolean hasCommentsUnread = false;
+        boolean hasArchived = false;
+
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "id":
+                    card.setId(in.nextLong());
+                    hasId = true;
+                    break;
+                case "title":
+                    card.setTitle(nextNullAsEmptyString(in));
+                    break;
+                case "description":
+                    card.setDescription(nextNullAsEmptyString(in));
+                    break;
+                case "stackId":
+                    card.setStackId(in.nextLong());
+                    hasStackId = true;
+                    break;
+                case "type":
+                    card.setType(nextNullAsEmptyString(in));
+                    break;
+                case "ETag":
+                    card.setEtag(nextNullAsNull(in));
+                    break;
+                case "lastModified":
+                    card.setLastModified(nextTimestampFromLong(in));
+                    break;
+                case "createdAt":
+                    card.setCreatedAt(nextTimestampFromLong(in));
+                    break;
+                case "deletedAt":
+                    card.setDeletedAt(nextTimestampFromLong(in));
+                    break;
+                case "labels":
+                    if (!nextIsNull(in)) {
+                        fullCard.setLabels(readList(in, JsonToEntityStreamParser::readLabel));
+                    }
+                    break;
+                case "assignedUsers":
+                    if (!nextIsNull(in)) {
+                        fullCard.setAssignedUsers(readAssignedUsers(in));
+                    }
+                    break;
+                case "attachments":
+                    if (!nextIsNull(in)) {
+                        fullCard.setAttachments(readList(in, JsonToEntityStreamParser::readAttachment));
+                    }
+                    break;
+                case "attachmentCount":
+                    if (!nextIsNull(in)) {
+                        card.setAttachmentCount(in.nextInt());
+                    }
+                    break;
+                case "order":
+                    card.setOrder(nextIsNull(in) ? 0 : in.nextInt());
+                    break;
+                case "overdue":
+                    card.setOverdue(in.nextInt());
+                    hasOverdue = true;
+                    break;
+                case "duedate":
+                    card.setDueDate(nextTimestampFromString(in));
+                    break;
+                case "commentsUnread":
+                    card.setCommentsUnread(in.nextInt());
+                    hasCommentsUnread = true;
+                    break;
+                case "owner":
+                    final User owner = readUser(in);
+                    fullCard.setOwner(owner);
+                    break;
+                case "archived":
+                    card.setArchived(nextBoolean(in));
+                    hasArchived = true;
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+        in.endObject();
+
+        requireProperty(hasId, "id", "card", in);
+        requireProperty(hasStackId, "stackId", "card", in);
+        requireProperty(hasOverdue, "overdue", "card", in);
+        requireProperty(hasCommentsUnread, "commentsUnread", "card", in);
+        requireProperty(hasArchived, "archived", "card", in);
+        return fullCard;
+    }
+
+    /**
+     * Assignments without a participant are skipped
+     */
+    @NonNull
+    private static List<User> readAssignedUsers(@NonNull JsonReader in) throws IOException {
+        final List<User> users = new ArrayList<>();
+        in.beginArray();
+        while (in.hasNext()) {
+            in.beginObject();
+            while (in.hasNext()) {
+                if ("participant".equals(in.nextName()) && !nextIsNull(in)) {
+                    users.add(readUser(in));
+                } else {
+                    in.skipValue();
+                }
+            }
+            in.endObject();
+        }
+        in.endArray();
+        return users;
+    }
+
+    @NonNull
+    static Attachment readAttachment(@NonNull JsonReader in) throws IOException {
+        final var attachment = new Attachment();
+        Long id = null;
+        Long cardId = null;
+        String type = null;
+        String data = null;
+        String createdBy = null;
+
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "id":
+                    id = in.nextLong();
+                    break;
+                case "cardId":
+                    cardId = in.nextLong();
+                    break;
+                case "type":
+                    type = nextString(in);
+                    break;
+                case "ETag":
+                    attachment.setEtag(nextNullAsNull(in));
+                    break;
+                case "data":
+                    data = nextString(in);
+                    break;
+                case "lastModified":
+                    attachment.setLastModified(nextTimestampFromLong(in));
+                    break;
+                case "createdAt":
+                    attachment.setCreatedAt(nextTimestampFromLong(in));
+                    break;
+                case "createdBy":
+                    createdBy = nextString(in);
+                    break;
+                case "deletedAt":
+                    attachment.setDeletedAt(nextTimestampFromLong(in));
+                    break;
+                case "extendedData":
+                    // The server sends an empty array instead of an empty object
+                    if (in.peek() == JsonToken.BEGIN_OBJECT) {
+                        readExtendedData(in, attachment);
+                    } else {
+                        in.skipValue();
+                    }
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+        in.endObject();
+
+        attachment.setId(requireValue(id, "id", "attachment", in));
+        attachment.setCardId(requireValue(cardId, "cardId", "attachment", in));
+        attachment.setType(EAttachmentType.findByValue(requireValue(type, "type", "attachment", in)));
+        attachment.setData(requireValue(data, "data", "attachment", in));
+        attachment.setCreatedBy(requireValue(createdBy, "createdBy", "attachment", in));
+        return attachment;
+    }
+
+    private static void readExtendedData(@NonNull JsonReader in, @NonNull Attachment attachment) throws IOException {
+        Long filesize = null;
+        String mimetype = null;
+
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "filesize":
+                    filesize = in.nextLong();
+                    break;
+                case "mimetype":
+                    mimetype = nextString(in);
+                    break;
+                case "fileid":
+                    if (!nextIsNull(in)) {
+                        attachment.setFileId(in.nextLong());
+                    }
+                    break;
+                case "info":
+                    if (!nextIsNull(in)) {
+                        readInfo(in, attachment);
+                    }
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+        in.endObject();
+
+        attachment.setFilesize(requireValue(filesize, "filesize", "extendedData", in));
+        attachment.setMimetype(requireValue(mimetype, "mimetype", "extendedData", in));
+    }
+
+    private static void readInfo(@NonNull JsonReader in, @NonNull Attachment attachment) throws IOException {
+        String dirname = null;
+        String basename = null;
+        String filename = null;
+
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "dirname":
+                    dirname = nextString(in);
+                    break;
+                case "basename":
+                    basename = nextString(in);
+                    break;
+                case "extension":
+                    attachment.setExtension(nextString(in));
+                    break;
+                case "filename":
+                    filename = nextString(in);
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+        in.endObject();
+
+        attachment.setDirname(requireValue(dirname, "dirname", "info", in));
+        attachment.setBasename(requireValue(basename, "basename", "info", in));
+        attachment.setFilename(requireValue(filename, "filename", "info", in));
+    }
+
+    @NonNull
+    static Label readLabel(@NonNull JsonReader in) throws IOException {
+        final var label = new Label();
+        label.setTitle("");
+        String color = "";
+        boolean hasId = false;
+
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "id":
+                    label.setId(in.nextLong());
+                    hasId = true;
+                    break;
+                case "title":
+                    label.setTitle(nextNullAsEmptyString(in));
+                    break;
+                case "ETag":
+                    label.setEtag(nextNullAsNull(in));
+                    break;
+                case "color":
+                    color = nextNullAsEmptyString(in);
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+        in.endObject();
+
+        label.setColor(JsonToEntityParser.parseColor(color));
+        requireProperty(hasId, "id", "label", in);
+        return label;
+    }
+
+    /**
+     * @return <code>null</code> if the user is <code>null</code>, a {@link User} with only the uid if the user is a plain string
+     */
+    @Nullable
+    static User readUser(@NonNull JsonReader in) throws IOException {
+        switch (in.peek()) {
+            case NULL:
+                in.nextNull();
+                return null;
+            case BEGIN_OBJECT: {
+                final var user = new User();
+                user.setDisplayname("");
+                user.setPrimaryKey("");
+                user.setUid("");
+                in.beginObject();
+                while (in.hasNext()) {
+                    switch (in.nextName()) {
+                        case "displayname":
+                            user.setDisplayname(nextNullAsEmptyString(in));
+                            break;
+                        case "primaryKey":
+                            user.setPrimaryKey(nextNullAsEmptyString(in));
+                            break;
+                        case "uid":
+                            user.setUid(nextNullAsEmptyString(in));
+                            break;
+                        default:
+                            in.skipValue();
+                            break;
+                    }
+                }
+                in.endObject();
+                return user;
+            }
+            default: {
+                final var user = new User();
+                final String uid = nextString(in);
+                user.setDisplayname(uid);
+                user.setPrimaryKey(uid);
+                user.setUid(uid);
+                return user;
+            }
+        }
+    }
+
+    @NonNull
+    private static <T> List<T> readList(@NonNull JsonReader in, @NonNull ElementReader<T> elementReader) throws IOException {
+        final List<T> list = new ArrayList<>();
+        in.beginArray();
+        while (in.hasNext()) {
+            list.add(elementReader.read(in));
+        }
+        in.endArray();
+        return list;
+    }
+
+    /**
+     * Consumes the next value if it is <code>null</code>
+     */
+    private static boolean nextIsNull(@NonNull JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Like {@link com.google.gson.JsonPrimitive#getAsString()}, which also accepts numbers and booleans
+     */
+    @NonNull
+    private static String nextString(@NonNull JsonReader in) throws IOException {
+        return in.peek() == JsonToken.BOOLEAN
+                ? String.valueOf(in.nextBoolean())
+                : in.nextString();
+    }
+
+    /**
+     * Like {@link com.google.gson.JsonPrimitive#getAsBoolean()}, which also accepts strings
+     */
+    private static boolean nextBoolean(@NonNull JsonReader in) throws IOException {
+        return in.peek() == JsonToken.BOOLEAN
+                ? in.nextBoolean()
+                : Boolean.parseBoolean(in.nextString());
+    }
+
+    @Nullable
+    private static Boolean nextNullableBoolean(@NonNull JsonReader in) throws IOException {
+        return nextIsNull(in) ? null : nextBoolean(in);
+    }
+
+    @Nullable
+    private static Long nextNullableLong(@NonNull JsonReader in) throws IOException {
+        return nextIsNull(in) ? null : in.nextLong();
+    }
+
+    @NonNull
+    private static String nextNullAsEmptyString(@NonNull JsonReader in) throws IOException {
+        return nextIsNull(in) ? "" : nextString(in);
+    }
+
+    @Nullable
+    private static String nextNullAsNull(@NonNull JsonReader in) throws IOException {
+        return nextIsNull(in) ? null : nextString(in);
+    }
+
+    @Nullable
+    private static Instant nextTimestampFromString(@NonNull JsonReader in) throws IOException {
+        return nextIsNull(in)
+                ? null
+                : ZonedDateTime.from(DateTimeFormatter.ISO_DATE_TIME.parse(in.nextString())).toInstant();
+    }
+
+    @Nullable
+    private static Instant nextTimestampFromLong(@NonNull JsonReader in) throws IOException {
+        return nextIsNull(in)
+                ? null
+                : Instant.ofEpochMilli(in.nextLong() * 1000);
+    }
+
+    private static void requireProperty(boolean present, @NonNull String property, @NonNull String entity, @NonNull JsonReader in) {
+        if (!present) {
+            throw new JsonParseException("Missing property \"" + property + "\" of " + entity + " at " + in.getPath());
+        }
+    }
+
+    @NonNull
+    private static <T> T requireValue(@Nullable T value, @NonNull String property, @NonNull String entity, @NonNull JsonReader in) {
+        requireProperty(value != null, property, entity, in);
+        return value;
+    }
+}
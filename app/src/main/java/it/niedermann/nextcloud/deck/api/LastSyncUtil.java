@@ -4,7 +4,9 @@ import android.content.Context;
 import android.content.SharedPreferences;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
+import java.time.Duration;
 import java.time.Instant;
 
 import it.niedermann.nextcloud.deck.R;
@@ -12,6 +14,15 @@ import it.niedermann.nextcloud.deck.R;
 public class LastSyncUtil {
 
     private static final String LAST_SYNC_KEY = "lS_";
+    private static final String LAST_FULL_SYNC_KEY = "lFS_";
+    /**
+     * Incremental synchronizations can not detect deleted entities, so a full synchronization is performed at least once in this interval
+     */
+    private static final Duration FULL_SYNC_INTERVAL = Duration.ofHours(24);
+    /**
+     * Compensates clock differences between the device and the server. Entities which are fetched twice get skipped by their ETags anyway.
+     */
+    private static final Duration MODIFIED_SINCE_TOLERANCE = Duration.ofMinutes(5);
     private static LastSyncUtil INSTANCE;
     private final SharedPreferences lastSyncPref;
 
@@ -37,7 +48,35 @@ public class LastSyncUtil {
     }
 
     public static void resetLastSyncDate(long accountId) {
-        INSTANCE.lastSyncPref.edit().remove(getSyncKeyForAccount(accountId)).apply();
+        INSTANCE.lastSyncPref.edit()
+                .remove(getSyncKeyForAccount(accountId))
+                .remove(getFullSyncKeyForAccount(accountId))
+                .apply();
+    }
+
+    public static Instant getLastFullSyncDate(long accountId) {
+        return Instant.ofEpochMilli(INSTANCE.lastSyncPref.getLong(getFullSyncKeyForAccount(accountId), 0L));
+    }
+
+    public static void setLastFullSyncDate(long accountId, Instant value) {
+        INSTANCE.lastSyncPref.edit().putLong(getFullSyncKeyForAccount(accountId), value.toEpochMilli()).apply();
+    }
+
+    /**
+     * @return the date which should be sent as <code>If-Modified-Since</code> header for an incremental synchronization
+     * or <code>null</code> if a full synchronization is necessary, because the account has never been synchronized or the last full synchronization is too long ago
+     */
+    @Nullable
+    public static Instant getModifiedSince(long accountId) {
+        final long lastSync = getLastSync(accountId);
+        if (lastSync == 0L) {
+            return null;
+        }
+        final Instant lastFullSync = getLastFullSyncDate(accountId);
+        if (lastFullSync.plus(FULL_SYNC_INTERVAL).isBefore(Instant.now())) {
+            return null;
+        }
+        return Instant.ofEpochMilli(lastSync).minus(MODIFIED_SINCE_TOLERANCE);
     }
 
     public static void init(Context applicationContext) {
@@ -48,6 +87,10 @@ public class LastSyncUtil {
         return LAST_SYNC_KEY + accountId;
     }
 
+    private static String getFullSyncKeyForAccount(long accountId) {
+        return LAST_FULL_SYNC_KEY + accountId;
+    }
+
     public static void resetAll() {
         INSTANCE.lastSyncPref.edit().clear().apply();
     }
@@ -0,0 +1,55 @@
+package it.niedermann.nextcloud.deck.api;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming counterpart of {@link NextcloudArrayDeserializer} for large payloads, see {@link JsonToEntityStreamParser}
+ */
+public class NextcloudArrayTypeAdapter<T> extends TypeAdapter<List<T>> {
+
+    protected final String mKey;
+    protected final Class<T> mType;
+
+    public NextcloudArrayTypeAdapter(String key, Class<T> type) {
+        this.mKey = key;
+        this.mType = type;
+    }
+
+    @Override
+    public void write(JsonWriter out, List<T> value) {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " for \"" + mKey + "\" does only support deserialization");
+    }
+
+    @Override
+    public List<T> read(JsonReader in) throws IOException {
+        final List<T> items = new ArrayList<>();
+        switch (in.peek()) {
+            case NULL:
+                in.nextNull();
+                return null;
+            case BEGIN_ARRAY:
+                in.beginArray();
+                while (in.hasNext()) {
+                    items.add(JsonToEntityStreamParser.parse(in, mType));
+                }
+                in.endArray();
+                break;
+            case BEGIN_OBJECT:
+                try {
+                    items.add(JsonToEntityStreamParser.parse(in, mType));
+                } catch (Exception e) {
+                    throw new IllegalArgumentException("NextcloudArrayTypeAdapter got a Json Object, fallback parsing failed at " + in.getPath(), e);
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("NextcloudArrayTypeAdapter got a malformed Json Object at " + in.getPath() + ": " + in.peek());
+        }
+        return items;
+    }
+}
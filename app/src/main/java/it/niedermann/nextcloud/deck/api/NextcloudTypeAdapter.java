@@ -0,0 +1,36 @@
+package it.niedermann.nextcloud.deck.api;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * Streaming counterpart of {@link NextcloudDeserializer} for large payloads, see {@link JsonToEntityStreamParser}
+ */
+public class NextcloudTypeAdapter<T> extends TypeAdapter<T> {
+
+    protected final String mKey;
+    protected final Class<T> mType;
+
+    public NextcloudTypeAdapter(String key, Class<T> type) {
+        this.mKey = key;
+        this.mType = type;
+    }
+
+    @Override
+    public void write(JsonWriter out, T value) {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " for \"" + mKey + "\" does only support deserialization");
+    }
+
+    @Override
+    public T read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        return JsonToEntityStreamParser.parse(in, mType);
+    }
+}
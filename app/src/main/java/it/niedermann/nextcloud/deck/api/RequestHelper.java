@@ -1,40 +1,232 @@
 package it.niedermann.nextcloud.deck.api;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
 
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import io.reactivex.Observable;
+import io.reactivex.Scheduler;
 import io.reactivex.disposables.Disposable;
 import io.reactivex.functions.Consumer;
 import io.reactivex.plugins.RxJavaPlugins;
 import io.reactivex.schedulers.Schedulers;
 import it.niedermann.nextcloud.deck.DeckLog;
+import it.niedermann.nextcloud.deck.exceptions.ServerUnhealthyException;
+import it.niedermann.nextcloud.deck.persistence.sync.helpers.util.SyncExecutors;
 
 public class RequestHelper {
 
-    private static final ExecutorService executor = Executors.newCachedThreadPool();
+    /**
+     * Maximum amount of requests of one account which are in flight at the same time, further requests are queued
+     */
+    public static final int MAX_PARALLEL_REQUESTS_PER_ACCOUNT = 6;
+    /**
+     * Consecutive server failures of one account after which further requests fail immediately
+     */
+    public static final int CIRCUIT_BREAKER_FAILURE_THRESHOLD = 5;
+    private static final long CIRCUIT_BREAKER_MIN_OPEN_MILLIS = 30_000L;
+    private static final long CIRCUIT_BREAKER_MAX_OPEN_MILLIS = 10 * 60_000L;
+
+    private static final ExecutorService executor = SyncExecutors.getRequestExecutor();
+    private static final Scheduler scheduler = Schedulers.from(executor);
+    private static final Map<String, RequestLimiter> limiters = new ConcurrentHashMap<>();
+    private static final Map<String, Observable<?>> inFlight = new ConcurrentHashMap<>();
+    private static final Map<String, CircuitBreaker> circuitBreakers = new ConcurrentHashMap<>();
+    @NonNull
+    private static volatile RetryPolicy retryPolicy = RetryPolicy.DEFAULT;
 
     static {
         RxJavaPlugins.setErrorHandler(DeckLog::logError);
     }
 
     public static <T> Disposable request(@NonNull final ApiProvider provider, @NonNull final ObservableProvider<T> call, @NonNull final ResponseCallback<T> callback) {
+        return request(provider, null, call, callback);
+    }
+
+    /**
+     * @param key identifies an idempotent request, see {@link #key(String, Object...)}. While a request with the same key is in flight for the same account, no further request is performed.
+     *            Instead the callback gets the response of the pending request, which is the <strong>same instance</strong> for all callbacks, so callbacks must not modify it.
+     *            Use {@link #requestIdempotent(ApiProvider, String, ObservableProvider, ResponseCopier, ResponseCallback)} for responses which get modified, like everything the synchronization processes.
+     *            Pass <code>null</code> for requests which must not be coalesced, like everything which changes data on the server.
+     *            Requests with a key may also be retried after failures which do not prove that the server did not process them, see {@link RetryPolicy#classify(Throwable)}.
+     */
+    public static <T> Disposable request(@NonNull final ApiProvider provider, @Nullable final String key, @NonNull final ObservableProvider<T> call, @NonNull final ResponseCallback<T> callback) {
+        return request(provider, key, key != null, call, null, callback, false);
+    }
+
+    /**
+     * For requests which do not change data on the server, but whose response gets modified by the callback.
+     * They may be retried like requests with a key, but are never coalesced, so each callback gets its own response.
+     */
+    public static <T> Disposable requestIdempotent(@NonNull final ApiProvider provider, @NonNull final ObservableProvider<T> call, @NonNull final ResponseCallback<T> callback) {
+        return request(provider, null, true, call, null, callback, false);
+    }
+
+    /**
+     * Like {@link #request(ApiProvider, String, ObservableProvider, ResponseCallback)}, but for responses which get modified by the callback.
+     * Requests with the same key still share one call to the server, but each callback gets its own copy of the response.
+     * The shared response itself is never passed to a callback, so the copies are not affected by callbacks which got their response earlier.
+     *
+     * @param copier creates a deep copy of the response
+     */
+    public static <T> Disposable requestIdempotent(@NonNull final ApiProvider provider, @NonNull final String key, @NonNull final ObservableProvider<T> call, @NonNull final ResponseCopier<T> copier, @NonNull final ResponseCallback<T> callback) {
+        return request(provider, key, true, call, copier, callback, false);
+    }
+
+    /**
+     * Like {@link #request(ApiProvider, String, ObservableProvider, ResponseCallback)}, but the request is also performed while the {@link CircuitBreaker} of the account is open.
+     * Once the open duration passed, it is the trial request which decides whether the circuit gets closed again, so it should be a cheap request which tells whether the server is healthy.
+     * Before that its success does not close the circuit, see {@link CircuitBreaker#onHealthCheckSuccess()}.
+     */
+    public static <T> Disposable requestHealthCheck(@NonNull final ApiProvider provider, @Nullable final String key, @NonNull final ObservableProvider<T> call, @NonNull final ResponseCallback<T> callback) {
+        return request(provider, key, key != null, call, null, callback, true);
+    }
+
+    /**
+     * @param copier if not <code>null</code>, each callback of a coalesced request gets its own copy of the shared response
+     */
+    private static <T> Disposable request(@NonNull final ApiProvider provider, @Nullable final String key, boolean idempotent, @NonNull final ObservableProvider<T> call, @Nullable final ResponseCopier<T> copier, @NonNull final ResponseCallback<T> callback, boolean healthCheck) {
         if (provider.getDeckAPI() == null) {
             provider.initSsoApi(callback::onError);
         }
 
+        final String accountName = provider.getAccountName();
+        final RequestLimiter limiter = getLimiter(accountName);
         final ResponseConsumer<T> cb = new ResponseConsumer<>(callback);
-        return call.getObservableFromCall()
-                .subscribeOn(Schedulers.from(executor))
+        final Observable<T> observable;
+        if (key == null) {
+            observable = resilient(accountName, limiter, call, idempotent, healthCheck);
+        } else {
+            final Observable<T> shared = coalesce(limiter, accountName + "|" + key, () -> resilient(accountName, limiter, call, idempotent, healthCheck));
+            observable = copier == null ? shared : shared.map(copier::copy);
+        }
+        // Short circuited requests and late subscribers of coalesced requests get notified synchronously, make sure this never happens on the main thread
+        return observable
+                .subscribeOn(scheduler)
                 .subscribe(cb, cb.getExceptionConsumer());
     }
 
+    /**
+     * Each attempt acquires a slot of the {@link RequestLimiter}, which is released again while waiting for the next attempt.
+     */
+    @NonNull
+    private static <T> Observable<T> resilient(@NonNull String accountName, @NonNull RequestLimiter limiter, @NonNull ObservableProvider<T> call, boolean idempotent, boolean healthCheck) {
+        final CircuitBreaker circuitBreaker = getCircuitBreaker(accountName);
+        final RetryPolicy policy = retryPolicy;
+        final var attempts = new AtomicInteger();
+        final Runnable onSuccess = healthCheck ? circuitBreaker::onHealthCheckSuccess : circuitBreaker::onSuccess;
+        return Observable.defer(() -> {
+            final long retryInMillis = circuitBreaker.tryAcquire();
+            if (retryInMillis > 0 && !healthCheck) {
+                return Observable.<T>error(new ServerUnhealthyException(retryInMillis));
+            }
+            attempts.incrementAndGet();
+            return limiter.limit(call.getObservableFromCall().subscribeOn(scheduler))
+                    .doOnError(throwable -> {
+                        if (RetryPolicy.isMaintenance(throwable)) {
+                            DeckLog.info(accountName, "is in maintenance mode, not counting the failure for the circuit breaker.");
+                        } else if (RetryPolicy.isServerFailure(throwable)) {
+                            circuitBreaker.onServerFailure(RetryPolicy.getRetryAfterMillis(throwable, Instant.now()));
+                        } else if (RetryPolicy.getStatusCode(throwable) >= 0) {
+                            onSuccess.run();
+                        }
+                    })
+                    .doOnNext(response -> onSuccess.run())
+                    .doOnComplete(onSuccess::run);
+        }).retryWhen(errors -> errors.flatMap(throwable -> {
+            final long delayMillis = policy.getRetryDelayMillis(throwable, attempts.get(), idempotent);
+            if (delayMillis < 0) {
+                return Observable.error(throwable);
+            }
+            DeckLog.info("Attempt", attempts.get(), "failed with", throwable.getClass().getSimpleName(), RetryPolicy.getStatusCode(throwable), "- retrying in", delayMillis, "ms");
+            return Observable.timer(delayMillis, TimeUnit.MILLISECONDS, scheduler);
+        }));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Observable<T> coalesce(@NonNull RequestLimiter limiter, @NonNull String key, @NonNull ObservableProvider<T> call) {
+        final var created = new boolean[1];
+        final var shared = inFlight.computeIfAbsent(key, k -> {
+            created[0] = true;
+            final var holder = new Observable<?>[1];
+            holder[0] = call.getObservableFromCall()
+                    // Forget the request before the response is passed to the callbacks, which might take a while
+                    .doOnEach(notification -> inFlight.remove(k, holder[0]))
+                    .cache();
+            return holder[0];
+        });
+        if (!created[0]) {
+            limiter.recordCoalesced();
+        }
+        return (Observable<T>) shared;
+    }
+
+    /**
+     * @param endpoint   the called API method
+     * @param parameters all parameters which may change the response
+     * @return a key for {@link #request(ApiProvider, String, ObservableProvider, ResponseCallback)} which identifies the request within one account
+     */
+    @NonNull
+    public static String key(@NonNull String endpoint, @NonNull Object... parameters) {
+        return endpoint + Arrays.toString(parameters);
+    }
+
+    @NonNull
+    private static RequestLimiter getLimiter(@NonNull String accountName) {
+        return limiters.computeIfAbsent(accountName, key -> new RequestLimiter(MAX_PARALLEL_REQUESTS_PER_ACCOUNT));
+    }
+
+    /**
+     * @return the {@link CircuitBreaker} of the given account, which can be used to skip work while the server is unhealthy
+     */
+    @NonNull
+    public static CircuitBreaker getCircuitBreaker(@NonNull String accountName) {
+        return circuitBreakers.computeIfAbsent(accountName, key -> new CircuitBreaker(key, CIRCUIT_BREAKER_FAILURE_THRESHOLD, CIRCUIT_BREAKER_MIN_OPEN_MILLIS, CIRCUIT_BREAKER_MAX_OPEN_MILLIS));
+    }
+
+    @VisibleForTesting
+    static void setRetryPolicy(@NonNull RetryPolicy retryPolicy) {
+        RequestHelper.retryPolicy = retryPolicy;
+    }
+
+    /**
+     * @return queue depth, latency and coalescing counters for each account which performed requests since the app has been started
+     */
+    @NonNull
+    public static Map<String, RequestLimiter> getStatistics() {
+        return new TreeMap<>(limiters);
+    }
+
+    /**
+     * @return {@link #getStatistics()} as human readable text with one line per account
+     */
+    @NonNull
+    public static String getStatisticsReport() {
+        final var report = new StringBuilder();
+        for (Map.Entry<String, RequestLimiter> entry : getStatistics().entrySet()) {
+            report.append(entry.getKey()).append(": ").append(entry.getValue()).append(System.lineSeparator());
+        }
+        return report.toString();
+    }
+
     public interface ObservableProvider<T> {
         Observable<T> getObservableFromCall();
     }
 
+    public interface ResponseCopier<T> {
+        @NonNull
+        T copy(@NonNull T response);
+    }
+
     public static class ResponseConsumer<T> implements Consumer<T> {
         @NonNull
         private final ResponseCallback<T> callback;
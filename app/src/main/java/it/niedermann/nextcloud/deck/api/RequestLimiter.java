@@ -0,0 +1,239 @@
+package it.niedermann.nextcloud.deck.api;
+
+import androidx.annotation.NonNull;
+
+import java.util.Locale;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import io.reactivex.Observable;
+import io.reactivex.ObservableEmitter;
+import io.reactivex.Observer;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.disposables.Disposables;
+import it.niedermann.nextcloud.deck.persistence.sync.helpers.util.BoundedTaskQueue;
+import it.niedermann.nextcloud.deck.persistence.sync.helpers.util.SyncExecutors;
+
+/**
+ * Limits the amount of requests of one account which are in flight at the same time and counts queue depth and latencies.
+ * Further requests are queued and started in the order of their subscription as soon as a running request responded.
+ * <p>
+ * A slot is released as soon as the response arrived and <em>before</em> it is passed downstream.
+ * Many sync callbacks block on {@link java.util.concurrent.CountDownLatch}es for requests they submit themselves, holding the slot while the callback runs could therefore cause a deadlock.
+ */
+public class RequestLimiter {
+
+    private final int maxInFlight;
+    private final BoundedTaskQueue queue;
+    private int maxQueueDepth;
+    private long requests;
+    private long coalesced;
+    private long responses;
+    private long failed;
+    private long totalLatencyNanos;
+    private long maxLatencyNanos;
+    private long totalWaitNanos;
+    private long maxWaitNanos;
+
+    public RequestLimiter(int maxInFlight) {
+        this(maxInFlight, SyncExecutors.getRequestExecutor());
+    }
+
+    /**
+     * @param executor starts queued requests once a slot becomes free
+     */
+    public RequestLimiter(int maxInFlight, @NonNull Executor executor) {
+        this.maxInFlight = Math.max(1, maxInFlight);
+        this.queue = new BoundedTaskQueue(this.maxInFlight, executor);
+    }
+
+    /**
+     * @return an {@link Observable} which does not subscribe to the <code>upstream</code> before a slot is free
+     */
+    @NonNull
+    public <T> Observable<T> limit(@NonNull Observable<T> upstream) {
+        return Observable.create(emitter -> {
+            final var request = new Request<>(upstream, emitter);
+            emitter.setDisposable(request);
+            synchronized (this) {
+                requests++;
+            }
+            queue.submit(request::start);
+            synchronized (this) {
+                maxQueueDepth = Math.max(maxQueueDepth, queue.getPending());
+            }
+        });
+    }
+
+    /**
+     * Counts a request which has not been performed because an identical one has already been in flight
+     */
+    public synchronized void recordCoalesced() {
+        coalesced++;
+    }
+
+    private synchronized void recordResponse(boolean success, long waitNanos, long latencyNanos) {
+        responses++;
+        if (!success) {
+            failed++;
+        }
+        totalWaitNanos += waitNanos;
+        maxWaitNanos = Math.max(maxWaitNanos, waitNanos);
+        totalLatencyNanos += latencyNanos;
+        maxLatencyNanos = Math.max(maxLatencyNanos, latencyNanos);
+    }
+
+    public int getInFlight() {
+        return queue.getRunning();
+    }
+
+    public int getQueueDepth() {
+        return queue.getPending();
+    }
+
+    public synchronized int getMaxQueueDepth() {
+        return maxQueueDepth;
+    }
+
+    /**
+     * @return the amount of requests which have been passed to {@link #limit(Observable)}, not including coalesced ones
+     */
+    public synchronized long getRequests() {
+        return requests;
+    }
+
+    public synchronized long getCoalesced() {
+        return coalesced;
+    }
+
+    public synchronized long getResponses() {
+        return responses;
+    }
+
+    public synchronized long getFailed() {
+        return failed;
+    }
+
+    /**
+     * @return the accumulated time between starting the requests and their responses
+     */
+    public synchronized long getTotalLatencyNanos() {
+        return totalLatencyNanos;
+    }
+
+    public synchronized long getMaxLatencyNanos() {
+        return maxLatencyNanos;
+    }
+
+    /**
+     * @return the accumulated time requests have been queued until a slot was free
+     */
+    public synchronized long getTotalWaitNanos() {
+        return totalWaitNanos;
+    }
+
+    public synchronized long getMaxWaitNanos() {
+        return maxWaitNanos;
+    }
+
+    @NonNull
+    @Override
+    public synchronized String toString() {
+        final long divisor = Math.max(1, responses);
+        return String.format(Locale.ROOT, "%d requests, %d coalesced, %d failed, %d / %d in flight, %d queued (max %d), latency avg %d ms / max %d ms, wait avg %d ms / max %d ms",
+                requests, coalesced, failed, getInFlight(), maxInFlight, getQueueDepth(), maxQueueDepth,
+                TimeUnit.NANOSECONDS.toMillis(totalLatencyNanos / divisor), TimeUnit.NANOSECONDS.toMillis(maxLatencyNanos),
+                TimeUnit.NANOSECONDS.toMillis(totalWaitNanos / divisor), TimeUnit.NANOSECONDS.toMillis(maxWaitNanos));
+    }
+
+    private class Request<T> implements Disposable {
+
+        @NonNull
+        private final Observable<T> upstream;
+        @NonNull
+        private final ObservableEmitter<T> emitter;
+        private final long submittedNanos = System.nanoTime();
+        private final AtomicBoolean started = new AtomicBoolean(false);
+        private final AtomicBoolean released = new AtomicBoolean(false);
+        private volatile long startedNanos;
+        private final AtomicReference<Disposable> subscription = new AtomicReference<>();
+
+        private Request(@NonNull Observable<T> upstream, @NonNull ObservableEmitter<T> emitter) {
+            this.upstream = upstream;
+            this.emitter = emitter;
+        }
+
+        private void start() {
+            started.set(true);
+            startedNanos = System.nanoTime();
+            if (emitter.isDisposed()) {
+                // Disposed while it has been queued
+                release();
+                return;
+            }
+            upstream.subscribe(new Observer<T>() {
+                @Override
+                public void onSubscribe(@NonNull Disposable d) {
+                    // dispose() may run between the check above and this point, the upstream must not outlive its slot then
+                    if (!subscription.compareAndSet(null, d)) {
+                        d.dispose();
+                    }
+                }
+
+                @Override
+                public void onNext(@NonNull T next) {
+                    respond(true);
+                    emitter.onNext(next);
+                }
+
+                @Override
+                public void onError(@NonNull Throwable throwable) {
+                    respond(false);
+                    emitter.tryOnError(throwable);
+                }
+
+                @Override
+                public void onComplete() {
+                    respond(true);
+                    emitter.onComplete();
+                }
+            });
+        }
+
+        private void respond(boolean success) {
+            if (release()) {
+                recordResponse(success, startedNanos - submittedNanos, System.nanoTime() - startedNanos);
+            }
+        }
+
+        /**
+         * @return <code>false</code> if the slot has already been released before
+         */
+        private boolean release() {
+            if (released.compareAndSet(false, true)) {
+                queue.release();
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public void dispose() {
+            // Queued requests release their slot as soon as they get started
+            if (started.get()) {
+                final var previous = subscription.getAndSet(Disposables.disposed());
+                if (previous != null) {
+                    previous.dispose();
+                }
+                release();
+            }
+        }
+
+        @Override
+        public boolean isDisposed() {
+            return emitter.isDisposed();
+        }
+    }
+}
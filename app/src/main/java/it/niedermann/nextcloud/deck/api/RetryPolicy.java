@@ -0,0 +1,189 @@
+package it.niedermann.nextcloud.deck.api;
+
+import static java.net.HttpURLConnection.HTTP_BAD_GATEWAY;
+import static java.net.HttpURLConnection.HTTP_CLIENT_TIMEOUT;
+import static java.net.HttpURLConnection.HTTP_GATEWAY_TIMEOUT;
+import static java.net.HttpURLConnection.HTTP_INTERNAL_ERROR;
+import static java.net.HttpURLConnection.HTTP_UNAVAILABLE;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.nextcloud.android.sso.exceptions.NextcloudHttpRequestFailedException;
+
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.DoubleSupplier;
+
+import it.niedermann.nextcloud.deck.model.ocs.Capabilities;
+import retrofit2.HttpException;
+
+/**
+ * Decides whether a failed request is retried and how long to wait before the next attempt.
+ * <p>
+ * Only transient failures are retried. Requests which might have been processed by the server already (like a timeout while waiting for the response) are only retried if they are idempotent.
+ * The delay grows exponentially with each attempt and is randomized, so clients which failed at the same time do not retry at the same time.
+ * A <code>Retry-After</code> header of the response takes precedence, if it is available.
+ */
+public class RetryPolicy {
+
+    public static final int HTTP_TOO_MANY_REQUESTS = 429;
+
+    public enum Classification {
+        /**
+         * The server did not process the request, it can safely be retried
+         */
+        TRANSIENT,
+        /**
+         * The server might have processed the request, it may only be retried if it is idempotent
+         */
+        TRANSIENT_IF_IDEMPOTENT,
+        /**
+         * Retrying will not change the result, for example because the request itself is invalid
+         */
+        PERMANENT
+    }
+
+    @NonNull
+    public static final RetryPolicy DEFAULT = new RetryPolicy(3, 500L, 10_000L, () -> ThreadLocalRandom.current().nextDouble());
+
+    private final int maxAttempts;
+    private final long baseDelayMillis;
+    private final long maxDelayMillis;
+    @NonNull
+    private final DoubleSupplier random;
+
+    /**
+     * @param maxAttempts     including the first attempt
+     * @param maxDelayMillis  upper bound of the delay. If the server asks to wait longer using a <code>Retry-After</code> header, the request is not retried at all.
+     * @param random          supplies values between <code>0</code> (inclusive) and <code>1</code> (exclusive) for the jitter
+     */
+    public RetryPolicy(int maxAttempts, long baseDelayMillis, long maxDelayMillis, @NonNull DoubleSupplier random) {
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.baseDelayMillis = baseDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+        this.random = random;
+    }
+
+    @NonNull
+    public static Classification classify(@NonNull Throwable throwable) {
+        if (throwable instanceof ConnectException) {
+            return Classification.TRANSIENT;
+        } else if (throwable instanceof SocketTimeoutException) {
+            return Classification.TRANSIENT_IF_IDEMPOTENT;
+        }
+        switch (getStatusCode(throwable)) {
+            case HTTP_UNAVAILABLE:
+                return isMaintenance(throwable) ? Classification.PERMANENT : Classification.TRANSIENT;
+            case HTTP_CLIENT_TIMEOUT:
+            case HTTP_TOO_MANY_REQUESTS:
+                return Classification.TRANSIENT;
+            case HTTP_BAD_GATEWAY:
+            case HTTP_GATEWAY_TIMEOUT:
+                return Classification.TRANSIENT_IF_IDEMPOTENT;
+            default:
+                return Classification.PERMANENT;
+        }
+    }
+
+    /**
+     * @return whether the failure indicates a problem of the server rather than a problem of the request
+     */
+    public static boolean isServerFailure(@NonNull Throwable throwable) {
+        if (isMaintenance(throwable)) {
+            return false;
+        }
+        return classify(throwable) != Classification.PERMANENT || getStatusCode(throwable) >= HTTP_INTERNAL_ERROR;
+    }
+
+    /**
+     * A server in maintenance mode responds with {@link java.net.HttpURLConnection#HTTP_UNAVAILABLE} and the {@link Capabilities} as body, which the SSO library passes as message of the cause.
+     * It stays unavailable until an administrator finishes the maintenance, so retrying is pointless and the failure tells nothing about the health of the server.
+     */
+    public static boolean isMaintenance(@NonNull Throwable throwable) {
+        if (getStatusCode(throwable) != HTTP_UNAVAILABLE || throwable.getCause() == null || throwable.getCause().getMessage() == null) {
+            return false;
+        }
+        try {
+            final Capabilities capabilities = GsonConfig.getGson().fromJson(throwable.getCause().getMessage(), Capabilities.class);
+            return capabilities != null && capabilities.isMaintenanceEnabled();
+        } catch (RuntimeException e) {
+            // The body is no valid capabilities response
+            return false;
+        }
+    }
+
+    /**
+     * @param attempt the attempt which failed, starting with <code>1</code>
+     * @return the delay before the next attempt in milliseconds or a negative value if the request must not be retried
+     */
+    public long getRetryDelayMillis(@NonNull Throwable throwable, int attempt, boolean idempotent) {
+        if (attempt >= maxAttempts) {
+            return -1L;
+        }
+        final var classification = classify(throwable);
+        if (classification == Classification.PERMANENT || (classification == Classification.TRANSIENT_IF_IDEMPOTENT && !idempotent)) {
+            return -1L;
+        }
+        final Long retryAfterMillis = getRetryAfterMillis(throwable, Instant.now());
+        if (retryAfterMillis != null) {
+            return retryAfterMillis > maxDelayMillis ? -1L : retryAfterMillis;
+        }
+        final long exponentialDelay = Math.min(maxDelayMillis, baseDelayMillis << Math.min(attempt - 1, 20));
+        return exponentialDelay / 2 + (long) (random.getAsDouble() * (exponentialDelay / 2));
+    }
+
+    /**
+     * @return the HTTP status code of the failed response or <code>-1</code> if it is unknown
+     */
+    public static int getStatusCode(@NonNull Throwable throwable) {
+        if (throwable instanceof NextcloudHttpRequestFailedException) {
+            return ((NextcloudHttpRequestFailedException) throwable).getStatusCode();
+        } else if (throwable instanceof HttpException) {
+            return ((HttpException) throwable).code();
+        }
+        return -1;
+    }
+
+    /**
+     * {@link NextcloudHttpRequestFailedException}s do not provide the response headers, so the <code>Retry-After</code> header can only be respected for {@link HttpException}s.
+     *
+     * @return the amount of milliseconds the server asked to wait or <code>null</code> if it did not ask to wait
+     */
+    @Nullable
+    public static Long getRetryAfterMillis(@NonNull Throwable throwable, @NonNull Instant now) {
+        if (throwable instanceof HttpException) {
+            final var response = ((HttpException) throwable).response();
+            if (response != null) {
+                return parseRetryAfterMillis(response.headers().get("Retry-After"), now);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param retryAfter either an amount of seconds or an HTTP date
+     */
+    @Nullable
+    public static Long parseRetryAfterMillis(@Nullable String retryAfter, @NonNull Instant now) {
+        if (retryAfter == null || retryAfter.trim().isEmpty()) {
+            return null;
+        }
+        final String value = retryAfter.trim();
+        try {
+            return Math.max(0L, Long.parseLong(value) * 1_000L);
+        } catch (NumberFormatException ignored) {
+            // Might be an HTTP date
+        }
+        try {
+            return Math.max(0L, ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli() - now.toEpochMilli());
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package it.niedermann.nextcloud.deck.exceptions;
+
+/**
+ * Reported after uploading the outbox if the server rejected some of the local changes repeatedly, so they have been skipped
+ */
+public class ChangesNotUploadedException extends IllegalStateException {
+    public ChangesNotUploadedException(int count) {
+        super(count + " local changes have been rejected by the server repeatedly and will only be uploaded again by the next full synchronization.");
+    }
+}
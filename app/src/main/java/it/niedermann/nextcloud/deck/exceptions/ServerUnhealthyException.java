@@ -0,0 +1,10 @@
+package it.niedermann.nextcloud.deck.exceptions;
+
+/**
+ * Thrown instead of performing a request while the server of an account is considered unhealthy
+ */
+public class ServerUnhealthyException extends IllegalStateException {
+    public ServerUnhealthyException(long retryInMillis) {
+        super("Server failed repeatedly, requests are paused for " + retryInMillis + " ms.");
+    }
+}
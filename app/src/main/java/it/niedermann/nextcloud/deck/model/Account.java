@@ -58,6 +58,13 @@ public class Account implements Serializable {
     @ColumnInfo(defaultValue = "0.6.4")
     private String serverDeckVersion = "0.6.4";
 
+    /**
+     * Parsed representation of {@link #serverDeckVersion}, invalidated as soon as {@link #serverDeckVersion} changes
+     */
+    @Ignore
+    @Nullable
+    private transient Version serverDeckVersionAsObject;
+
     @NonNull
     @ColumnInfo(defaultValue = "0")
     private boolean maintenanceEnabled = false;
@@ -172,7 +179,13 @@ public class Account implements Serializable {
     }
 
     public Version getServerDeckVersionAsObject() {
-        return Version.of(serverDeckVersion);
+        final var cached = serverDeckVersionAsObject;
+        if (cached != null && Objects.equals(cached.getOriginalVersion(), serverDeckVersion)) {
+            return cached;
+        }
+        final var version = Version.of(serverDeckVersion);
+        serverDeckVersionAsObject = version;
+        return version;
     }
 
     @NonNull
@@ -182,6 +195,7 @@ public class Account implements Serializable {
 
     public void setServerDeckVersion(@NonNull String serverDeckVersion) {
         this.serverDeckVersion = serverDeckVersion;
+        this.serverDeckVersionAsObject = null;
     }
 
     public boolean isMaintenanceEnabled() {
@@ -46,6 +46,27 @@ public class Attachment extends AbstractRemoteEntity implements Comparable<Attac
     @Nullable
     private Long fileId;
 
+    public Attachment() {
+    }
+
+    public Attachment(Attachment attachment) {
+        super(attachment);
+        this.cardId = attachment.getCardId();
+        this.type = attachment.getType();
+        this.data = attachment.getData();
+        this.createdAt = attachment.getCreatedAt();
+        this.createdBy = attachment.getCreatedBy();
+        this.deletedAt = attachment.getDeletedAt();
+        this.filesize = attachment.getFilesize();
+        this.mimetype = attachment.getMimetype();
+        this.dirname = attachment.getDirname();
+        this.basename = attachment.getBasename();
+        this.extension = attachment.getExtension();
+        this.filename = attachment.getFilename();
+        this.localPath = attachment.getLocalPath();
+        this.fileId = attachment.getFileId();
+    }
+
     public long getCardId() {
         return cardId;
     }
@@ -18,7 +18,9 @@ import it.niedermann.nextcloud.deck.model.interfaces.AbstractRemoteEntity;
 @Entity(inheritSuperIndices = true,
         indices = {
                 @Index(value = "accountId", name = "card_accID"),
-                @Index("stackId")
+                @Index({"stackId", "order", "createdAt"}),
+                @Index({"accountId", "stackId", "archived", "order", "createdAt"}),
+                @Index({"accountId", "dueDate"})
         },
         foreignKeys = {
                 @ForeignKey(
@@ -11,7 +11,7 @@ import it.niedermann.nextcloud.deck.model.interfaces.AbstractRemoteEntity;
 
 @Entity(
         inheritSuperIndices = true,
-        indices = {@Index("boardId")},
+        indices = {@Index({"boardId", "order"})},
         foreignKeys = {
                 @ForeignKey(
                         entity = Board.class,
@@ -37,6 +37,14 @@ public class Stack extends AbstractRemoteEntity {
         this.boardId = boardId;
     }
 
+    public Stack(Stack stack) {
+        super(stack);
+        this.title = stack.getTitle();
+        this.boardId = stack.getBoardId();
+        this.deletedAt = stack.getDeletedAt();
+        this.order = stack.getOrder();
+    }
+
     private String title;
 
     private long boardId;
@@ -0,0 +1,39 @@
+package it.niedermann.nextcloud.deck.model.enums;
+
+/**
+ * Identifies what an {@link it.niedermann.nextcloud.deck.model.internal.Counter} counts.
+ * The ids are used in the triggers which maintain the counters and must therefore never change.
+ */
+public enum ECounterType {
+    /**
+     * Not locally deleted cards of the stack with the given local id
+     */
+    CARDS_IN_STACK(1),
+    /**
+     * Not locally deleted assignments of the label with the given local id
+     */
+    CARDS_WITH_LABEL(2),
+    /**
+     * Not locally deleted comments of the card with the given local id
+     */
+    COMMENTS_OF_CARD(3);
+
+    private final int id;
+
+    ECounterType(int id) {
+        this.id = id;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public static ECounterType findById(int id) {
+        for (ECounterType s : ECounterType.values()) {
+            if (s.getId() == id) {
+                return s;
+            }
+        }
+        throw new IllegalArgumentException("unknown " + ECounterType.class.getSimpleName() + " key: " + id);
+    }
+}
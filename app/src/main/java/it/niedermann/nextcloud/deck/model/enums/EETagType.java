@@ -0,0 +1,31 @@
+package it.niedermann.nextcloud.deck.model.enums;
+
+/**
+ * Identifies the request an {@link it.niedermann.nextcloud.deck.model.internal.EntityETag} belongs to
+ */
+public enum EETagType {
+    /**
+     * All stacks of the board with the given remote id
+     */
+    STACKS_OF_BOARD(1),
+    CARD(3);
+
+    private final int id;
+
+    EETagType(int id) {
+        this.id = id;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public static EETagType findById(int id) {
+        for (EETagType s : EETagType.values()) {
+            if (s.getId() == id) {
+                return s;
+            }
+        }
+        throw new IllegalArgumentException("unknown " + EETagType.class.getSimpleName() + " key: " + id);
+    }
+}
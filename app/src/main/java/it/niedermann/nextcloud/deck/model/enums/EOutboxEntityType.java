@@ -0,0 +1,41 @@
+package it.niedermann.nextcloud.deck.model.enums;
+
+/**
+ * Identifies the table an {@link it.niedermann.nextcloud.deck.model.internal.OutboxEntry} refers to
+ */
+public enum EOutboxEntityType {
+    BOARD(1),
+    STACK(2),
+    CARD(3),
+    LABEL(4),
+    ACCESS_CONTROL(5),
+    ATTACHMENT(6),
+    COMMENT(7),
+    /**
+     * The <code>entityLocalId</code> is the card, the <code>relatedLocalId</code> is the label
+     */
+    CARD_LABEL(8),
+    /**
+     * The <code>entityLocalId</code> is the card, the <code>relatedLocalId</code> is the user
+     */
+    CARD_USER(9);
+
+    private final int id;
+
+    EOutboxEntityType(int id) {
+        this.id = id;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public static EOutboxEntityType findById(int id) {
+        for (EOutboxEntityType s : EOutboxEntityType.values()) {
+            if (s.getId() == id) {
+                return s;
+            }
+        }
+        throw new IllegalArgumentException("unknown " + EOutboxEntityType.class.getSimpleName() + " key: " + id);
+    }
+}
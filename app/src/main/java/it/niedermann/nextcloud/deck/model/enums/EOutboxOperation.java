@@ -0,0 +1,29 @@
+package it.niedermann.nextcloud.deck.model.enums;
+
+/**
+ * The kind of local mutation an {@link it.niedermann.nextcloud.deck.model.internal.OutboxEntry} records
+ */
+public enum EOutboxOperation {
+    CREATE(1),
+    UPDATE(2),
+    DELETE(3);
+
+    private final int id;
+
+    EOutboxOperation(int id) {
+        this.id = id;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public static EOutboxOperation findById(int id) {
+        for (EOutboxOperation s : EOutboxOperation.values()) {
+            if (s.getId() == id) {
+                return s;
+            }
+        }
+        throw new IllegalArgumentException("unknown " + EOutboxOperation.class.getSimpleName() + " key: " + id);
+    }
+}
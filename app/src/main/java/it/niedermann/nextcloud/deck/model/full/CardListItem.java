@@ -0,0 +1,75 @@
+package it.niedermann.nextcloud.deck.model.full;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.room.Embedded;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import it.niedermann.nextcloud.deck.model.Card;
+import it.niedermann.nextcloud.deck.model.ocs.comment.DeckComment;
+
+/**
+ * Lightweight projection of a {@link Card} with everything needed to display it in a list.
+ * Instead of loading all relations like {@link FullCard} does, it only contains aggregated counts and the ids of the related entities.
+ */
+public class CardListItem {
+
+    /**
+     * Selects all columns of {@link CardListItem}, the card table is aliased as <code>c</code>
+     */
+    public static final String SELECT = "SELECT c.*, " +
+            "coalesce((select cnt.`count` from Counter cnt where cnt.type = 3 and cnt.localId = c.localId), 0) as commentCount, " +
+            // Neither the attachments, the joins nor the labels and users themselves must be LOCAL_DELETED
+            "(select count(*) from Attachment a where a.cardId = c.localId and a.status <> 3) as attachmentCount, " +
+            "(select group_concat(j.labelId) from JoinCardWithLabel j inner join Label l on l.localId = j.labelId where j.cardId = c.localId and j.status <> 3 and l.status <> 3) as labelIds, " +
+            "(select group_concat(j.userId) from JoinCardWithUser j inner join User u on u.localId = j.userId where j.cardId = c.localId and j.status <> 3 and u.status <> 3) as assignedUserIds " +
+            "FROM card c";
+
+    @Embedded
+    public Card card;
+
+    /**
+     * Amount of not locally deleted {@link DeckComment}s, read from {@link it.niedermann.nextcloud.deck.model.internal.Counter}
+     */
+    public int commentCount;
+
+    public int attachmentCount;
+
+    /**
+     * Comma separated local ids of the assigned labels
+     */
+    @Nullable
+    public String labelIds;
+
+    /**
+     * Comma separated local ids of the assigned users
+     */
+    @Nullable
+    public String assignedUserIds;
+
+    @NonNull
+    public List<Long> getLabelIds() {
+        return splitIds(labelIds);
+    }
+
+    @NonNull
+    public List<Long> getAssignedUserIds() {
+        return splitIds(assignedUserIds);
+    }
+
+    @NonNull
+    private static List<Long> splitIds(@Nullable String ids) {
+        if (ids == null || ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        final String[] split = ids.split(",");
+        final List<Long> result = new ArrayList<>(split.length);
+        for (String id : split) {
+            result.add(Long.parseLong(id));
+        }
+        return result;
+    }
+}
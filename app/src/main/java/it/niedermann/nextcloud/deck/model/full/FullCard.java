@@ -1,6 +1,7 @@
 package it.niedermann.nextcloud.deck.model.full;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.room.Embedded;
 import androidx.room.Ignore;
 import androidx.room.Junction;
@@ -46,17 +47,36 @@ public class FullCard implements IRemoteEntity, DragAndDropModel {
     @Relation(entity = DeckComment.class, parentColumn = "localId", entityColumn = "objectId", projection = "localId")
     public List<Long> commentIDs;
 
+    /**
+     * Only set if this {@link FullCard} has been created from a {@link CardListItem}, where {@link #attachments} only contains the cover images
+     */
+    @Ignore
+    @Nullable
+    private Integer attachmentCount;
+
+    /**
+     * Only set if this {@link FullCard} has been created from a {@link CardListItem}, where {@link #commentIDs} are not loaded
+     */
+    @Ignore
+    @Nullable
+    private Integer commentCount;
+
     public FullCard() {
         super();
     }
 
+    /**
+     * Creates a deep copy, so the given {@link FullCard} is not affected by modifications of the copy
+     */
     public FullCard(FullCard fullCard) {
         this.card = new Card(fullCard.getCard());
-        this.labels = copyList(fullCard.getLabels());
-        this.assignedUsers = copyList(fullCard.getAssignedUsers());
-        this.owner = copyList(fullCard.getOwner());
-        this.attachments = copyList(fullCard.getAttachments());
+        this.labels = copyList(fullCard.getLabels(), Label::new);
+        this.assignedUsers = copyList(fullCard.getAssignedUsers(), User::new);
+        this.owner = copyList(fullCard.getOwner(), User::new);
+        this.attachments = copyList(fullCard.getAttachments(), Attachment::new);
         this.commentIDs = copyList(fullCard.getCommentIDs());
+        this.attachmentCount = fullCard.attachmentCount;
+        this.commentCount = fullCard.commentCount;
     }
 
     public Card getCard() {
@@ -92,9 +112,27 @@ public class FullCard implements IRemoteEntity, DragAndDropModel {
     }
 
     public int getCommentCount() {
+        if (commentCount != null) {
+            return commentCount;
+        }
         return commentIDs == null ? 0 : commentIDs.size();
     }
 
+    public void setCommentCount(@Nullable Integer commentCount) {
+        this.commentCount = commentCount;
+    }
+
+    public int getAttachmentCount() {
+        if (attachmentCount != null) {
+            return attachmentCount;
+        }
+        return attachments == null ? 0 : attachments.size();
+    }
+
+    public void setAttachmentCount(@Nullable Integer attachmentCount) {
+        this.attachmentCount = attachmentCount;
+    }
+
     public List<User> getOwner() {
         return owner;
     }
@@ -154,6 +192,10 @@ public class FullCard implements IRemoteEntity, DragAndDropModel {
         if (owner != null ? !owner.equals(fullCard.owner) : fullCard.owner != null) return false;
         if (attachments != null ? !attachments.equals(fullCard.attachments) : fullCard.attachments != null)
             return false;
+        if (attachmentCount != null ? !attachmentCount.equals(fullCard.attachmentCount) : fullCard.attachmentCount != null)
+            return false;
+        if (commentCount != null ? !commentCount.equals(fullCard.commentCount) : fullCard.commentCount != null)
+            return false;
         return commentIDs != null ? commentIDs.equals(fullCard.commentIDs) : fullCard.commentIDs == null;
     }
 
@@ -166,6 +208,8 @@ public class FullCard implements IRemoteEntity, DragAndDropModel {
         result = 31 * result + (owner != null ? owner.hashCode() : 0);
         result = 31 * result + (attachments != null ? attachments.hashCode() : 0);
         result = 31 * result + (commentIDs != null ? commentIDs.hashCode() : 0);
+        result = 31 * result + (attachmentCount != null ? attachmentCount.hashCode() : 0);
+        result = 31 * result + (commentCount != null ? commentCount.hashCode() : 0);
         return result;
     }
 
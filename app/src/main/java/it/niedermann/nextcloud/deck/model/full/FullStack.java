@@ -18,6 +18,17 @@ public class FullStack implements IRemoteEntity {
     public List<Card> cards;
 
 
+    public FullStack() {
+    }
+
+    /**
+     * Creates a deep copy, so the given {@link FullStack} is not affected by modifications of the copy
+     */
+    public FullStack(FullStack fullStack) {
+        this.stack = new Stack(fullStack.getStack());
+        this.cards = copyList(fullStack.getCards(), Card::new);
+    }
+
     public Stack getStack() {
         return stack;
     }
@@ -51,6 +51,7 @@ public abstract class AbstractRemoteEntity implements IRemoteEntity {
         this.status = abstractRemoteEntity.getStatus();
         this.lastModified = abstractRemoteEntity.getLastModified();
         this.lastModifiedLocal = abstractRemoteEntity.getLastModifiedLocal();
+        this.etag = abstractRemoteEntity.getEtag();
     }
 
     @Ignore
@@ -3,6 +3,7 @@ package it.niedermann.nextcloud.deck.model.interfaces;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.UnaryOperator;
 
 import it.niedermann.nextcloud.deck.model.enums.DBStatus;
 
@@ -84,4 +85,18 @@ public interface IRemoteEntity {
         list.addAll(listToCopy);
         return list;
     }
+
+    /**
+     * @param copier creates a copy of each item, e.g. a copy constructor
+     */
+    default <T> List<T> copyList(List<T> listToCopy, UnaryOperator<T> copier) {
+        if (listToCopy == null) {
+            return null;
+        }
+        List<T> list = new ArrayList<>(listToCopy.size());
+        for (T item : listToCopy) {
+            list.add(copier.apply(item));
+        }
+        return list;
+    }
 }
@@ -0,0 +1,36 @@
+package it.niedermann.nextcloud.deck.model.internal;
+
+import androidx.room.Entity;
+import androidx.room.Fts4;
+import androidx.room.FtsOptions;
+
+import it.niedermann.nextcloud.deck.model.Card;
+
+/**
+ * Full text index over the title and the description of all {@link Card}s.
+ * <p>
+ * The index does not store the texts itself but refers to {@link Card} as external content, Room keeps it in sync via triggers.
+ */
+@Fts4(contentEntity = Card.class, tokenizer = FtsOptions.TOKENIZER_UNICODE61)
+@Entity
+public class CardFts {
+
+    private String title;
+    private String description;
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public void setDescription(String description) {
+        this.description = description;
+    }
+}
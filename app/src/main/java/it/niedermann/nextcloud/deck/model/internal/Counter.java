@@ -0,0 +1,62 @@
+package it.niedermann.nextcloud.deck.model.internal;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+
+import it.niedermann.nextcloud.deck.model.enums.ECounterType;
+
+/**
+ * Denormalized amount of entities related to the entity with the given local id.
+ * <p>
+ * Counters are exclusively maintained by database triggers, see {@link it.niedermann.nextcloud.deck.persistence.sync.adapters.db.CounterTriggers}.
+ * Missing rows mean a count of <code>0</code>.
+ */
+@Entity(primaryKeys = {"type", "localId"})
+public class Counter {
+
+    @NonNull
+    private ECounterType type;
+    private long localId;
+    private int count;
+
+    public Counter(@NonNull ECounterType type, long localId, int count) {
+        this.type = type;
+        this.localId = localId;
+        this.count = count;
+    }
+
+    @NonNull
+    public ECounterType getType() {
+        return type;
+    }
+
+    public void setType(@NonNull ECounterType type) {
+        this.type = type;
+    }
+
+    public long getLocalId() {
+        return localId;
+    }
+
+    public void setLocalId(long localId) {
+        this.localId = localId;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public void setCount(int count) {
+        this.count = count;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "Counter{" +
+                "type=" + type +
+                ", localId=" + localId +
+                ", count=" + count +
+                '}';
+    }
+}
@@ -0,0 +1,85 @@
+package it.niedermann.nextcloud.deck.model.internal;
+
+import androidx.annotation.NonNull;
+import androidx.room.Entity;
+import androidx.room.ForeignKey;
+import androidx.room.Index;
+
+import it.niedermann.nextcloud.deck.model.Account;
+import it.niedermann.nextcloud.deck.model.enums.EETagType;
+
+/**
+ * The last known <code>ETag</code> header of a server resource, used to send conditional requests with <code>If-None-Match</code>
+ */
+@Entity(
+        primaryKeys = {"accountId", "type", "remoteId"},
+        indices = {@Index("accountId")},
+        foreignKeys = {
+                @ForeignKey(
+                        entity = Account.class,
+                        parentColumns = "id",
+                        childColumns = "accountId", onDelete = ForeignKey.CASCADE
+                )
+        }
+)
+public class EntityETag {
+
+    private long accountId;
+    @NonNull
+    private EETagType type;
+    private long remoteId;
+    @NonNull
+    private String etag;
+
+    public EntityETag(long accountId, @NonNull EETagType type, long remoteId, @NonNull String etag) {
+        this.accountId = accountId;
+        this.type = type;
+        this.remoteId = remoteId;
+        this.etag = etag;
+    }
+
+    public long getAccountId() {
+        return accountId;
+    }
+
+    public void setAccountId(long accountId) {
+        this.accountId = accountId;
+    }
+
+    @NonNull
+    public EETagType getType() {
+        return type;
+    }
+
+    public void setType(@NonNull EETagType type) {
+        this.type = type;
+    }
+
+    public long getRemoteId() {
+        return remoteId;
+    }
+
+    public void setRemoteId(long remoteId) {
+        this.remoteId = remoteId;
+    }
+
+    @NonNull
+    public String getEtag() {
+        return etag;
+    }
+
+    public void setEtag(@NonNull String etag) {
+        this.etag = etag;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "EntityETag{" +
+                "accountId=" + accountId +
+                ", type=" + type +
+                ", remoteId=" + remoteId +
+                ", etag='" + etag + '\'' +
+                '}';
+    }
+}
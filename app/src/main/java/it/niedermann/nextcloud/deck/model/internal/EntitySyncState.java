@@ -0,0 +1,92 @@
+package it.niedermann.nextcloud.deck.model.internal;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.time.Instant;
+
+import it.niedermann.nextcloud.deck.model.interfaces.IRemoteEntity;
+
+/**
+ * Lightweight projection of the sync relevant columns of a local {@link IRemoteEntity}.
+ * Used to reconcile server responses without loading the full entities and their relations.
+ */
+public class EntitySyncState {
+
+    private Long localId;
+    private Long id;
+    @Nullable
+    private String etag;
+    private int status;
+    @Nullable
+    private Instant lastModified;
+
+    public EntitySyncState() {
+        // Default constructor
+    }
+
+    @NonNull
+    public static EntitySyncState of(@NonNull IRemoteEntity entity) {
+        final EntitySyncState state = new EntitySyncState();
+        state.setLocalId(entity.getLocalId());
+        state.setId(entity.getId());
+        state.setEtag(entity.getEtag());
+        state.setStatus(entity.getStatus());
+        state.setLastModified(entity.getLastModified());
+        return state;
+    }
+
+    public Long getLocalId() {
+        return localId;
+    }
+
+    public void setLocalId(Long localId) {
+        this.localId = localId;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    @Nullable
+    public String getEtag() {
+        return etag;
+    }
+
+    public void setEtag(@Nullable String etag) {
+        this.etag = etag;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public void setStatus(int status) {
+        this.status = status;
+    }
+
+    @Nullable
+    public Instant getLastModified() {
+        return lastModified;
+    }
+
+    public void setLastModified(@Nullable Instant lastModified) {
+        this.lastModified = lastModified;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "EntitySyncState{" +
+                "localId=" + localId +
+                ", id=" + id +
+                ", etag='" + etag + '\'' +
+                ", status=" + status +
+                ", lastModified=" + lastModified +
+                '}';
+    }
+}
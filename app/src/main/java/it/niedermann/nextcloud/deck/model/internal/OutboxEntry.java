@@ -0,0 +1,163 @@
+package it.niedermann.nextcloud.deck.model.internal;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.room.Entity;
+import androidx.room.ForeignKey;
+import androidx.room.Ignore;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+import java.time.Instant;
+
+import it.niedermann.nextcloud.deck.model.Account;
+import it.niedermann.nextcloud.deck.model.enums.EOutboxEntityType;
+import it.niedermann.nextcloud.deck.model.enums.EOutboxOperation;
+
+/**
+ * Records a local mutation which has to be uploaded to the server. Entries are only appended and removed once the referenced entity has been synchronized.
+ */
+@Entity(
+        indices = {@Index("accountId")},
+        foreignKeys = {
+                @ForeignKey(
+                        entity = Account.class,
+                        parentColumns = "id",
+                        childColumns = "accountId", onDelete = ForeignKey.CASCADE
+                )
+        }
+)
+public class OutboxEntry {
+
+    /**
+     * Entries which failed this often are skipped when draining the outbox, their entities are only uploaded by the next full synchronization
+     */
+    public static final int MAX_ATTEMPTS = 5;
+
+    @PrimaryKey(autoGenerate = true)
+    private long id;
+    private long accountId;
+    @NonNull
+    private EOutboxEntityType entityType;
+    private long entityLocalId;
+    @Nullable
+    private Long relatedLocalId;
+    @NonNull
+    private EOutboxOperation operation;
+    /**
+     * The local modification date of the entity at the time of the mutation
+     */
+    @Nullable
+    private Instant payloadVersion;
+    @NonNull
+    private Instant createdAt;
+    private int attempts;
+
+    public OutboxEntry(long accountId, @NonNull EOutboxEntityType entityType, long entityLocalId, @Nullable Long relatedLocalId, @NonNull EOutboxOperation operation, @Nullable Instant payloadVersion, @NonNull Instant createdAt) {
+        this.accountId = accountId;
+        this.entityType = entityType;
+        this.entityLocalId = entityLocalId;
+        this.relatedLocalId = relatedLocalId;
+        this.operation = operation;
+        this.payloadVersion = payloadVersion;
+        this.createdAt = createdAt;
+    }
+
+    @Ignore
+    public OutboxEntry(long accountId, @NonNull EOutboxEntityType entityType, long entityLocalId, @NonNull EOutboxOperation operation, @Nullable Instant payloadVersion) {
+        this(accountId, entityType, entityLocalId, null, operation, payloadVersion, Instant.now());
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    public long getAccountId() {
+        return accountId;
+    }
+
+    public void setAccountId(long accountId) {
+        this.accountId = accountId;
+    }
+
+    @NonNull
+    public EOutboxEntityType getEntityType() {
+        return entityType;
+    }
+
+    public void setEntityType(@NonNull EOutboxEntityType entityType) {
+        this.entityType = entityType;
+    }
+
+    public long getEntityLocalId() {
+        return entityLocalId;
+    }
+
+    public void setEntityLocalId(long entityLocalId) {
+        this.entityLocalId = entityLocalId;
+    }
+
+    @Nullable
+    public Long getRelatedLocalId() {
+        return relatedLocalId;
+    }
+
+    public void setRelatedLocalId(@Nullable Long relatedLocalId) {
+        this.relatedLocalId = relatedLocalId;
+    }
+
+    @NonNull
+    public EOutboxOperation getOperation() {
+        return operation;
+    }
+
+    public void setOperation(@NonNull EOutboxOperation operation) {
+        this.operation = operation;
+    }
+
+    @Nullable
+    public Instant getPayloadVersion() {
+        return payloadVersion;
+    }
+
+    public void setPayloadVersion(@Nullable Instant payloadVersion) {
+        this.payloadVersion = payloadVersion;
+    }
+
+    @NonNull
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(@NonNull Instant createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "OutboxEntry{" +
+                "id=" + id +
+                ", accountId=" + accountId +
+                ", entityType=" + entityType +
+                ", entityLocalId=" + entityLocalId +
+                ", relatedLocalId=" + relatedLocalId +
+                ", operation=" + operation +
+                ", payloadVersion=" + payloadVersion +
+                ", createdAt=" + createdAt +
+                ", attempts=" + attempts +
+                '}';
+    }
+}
@@ -33,6 +33,16 @@ public class Activity extends AbstractRemoteEntity {
     private String subject;
     private int type;
 
+    public Activity() {
+    }
+
+    public Activity(Activity activity) {
+        super(activity);
+        this.cardId = activity.getCardId();
+        this.subject = activity.getSubject();
+        this.type = activity.getType();
+    }
+
     public long getCardId() {
         return cardId;
     }
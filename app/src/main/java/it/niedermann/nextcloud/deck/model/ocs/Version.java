@@ -3,7 +3,9 @@ package it.niedermann.nextcloud.deck.model.ocs;
 import androidx.annotation.NonNull;
 import androidx.annotation.StringRes;
 
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -11,27 +13,45 @@ import it.niedermann.nextcloud.deck.R;
 import it.niedermann.nextcloud.deck.model.Attachment;
 import it.niedermann.nextcloud.deck.model.ocs.comment.DeckComment;
 
+/**
+ * Immutable representation of a Deck server version.
+ * <p>
+ * Instances created via {@link #of(String)} are interned and all capabilities are computed once on construction, so feature checks are simple field reads.
+ */
 public class Version implements Comparable<Version> {
     private static final Pattern NUMBER_EXTRACTION_PATTERN = Pattern.compile("[0-9]+");
+    /**
+     * Servers only report a handful of distinct versions, this limit just protects against unbounded growth in case of garbage input.
+     */
+    private static final int MAX_INTERNED_VERSIONS = 64;
+    private static final Map<String, Version> interned = new ConcurrentHashMap<>();
     private static final Version VERSION_0_6_4 = new Version("0.6.4", 0, 6, 4);
-    private static final Version VERSION_1_0_0 = new Version("1.0.0", 1, 0, 0);
-    private static final Version VERSION_1_0_3 = new Version("1.0.3", 1, 0, 3);
     private static final Version VERSION_1_3_0 = new Version("1.3.0", 1, 3, 0);
 
-    private String originalVersion = "?";
-    private int major;
-    private int minor;
-    private int patch;
+    private final String originalVersion;
+    private final int major;
+    private final int minor;
+    private final int patch;
+
+    private final boolean atLeast_0_6_4;
+    private final boolean atLeast_1_0_0;
+    private final boolean atLeast_1_0_3;
+    private final boolean atLeast_1_3_0;
 
     public Version(String originalVersion, int major, int minor, int patch) {
-        this(major, minor, patch);
         this.originalVersion = originalVersion;
-    }
-
-    public Version(int major, int minor, int patch) {
         this.major = major;
         this.minor = minor;
         this.patch = patch;
+        // Can not compare to the VERSION_* constants here because they are instances of this class themselves
+        this.atLeast_0_6_4 = isGreaterOrEqualTo(0, 6, 4);
+        this.atLeast_1_0_0 = isGreaterOrEqualTo(1, 0, 0);
+        this.atLeast_1_0_3 = isGreaterOrEqualTo(1, 0, 3);
+        this.atLeast_1_3_0 = isGreaterOrEqualTo(1, 3, 0);
+    }
+
+    public Version(int major, int minor, int patch) {
+        this("?", major, minor, patch);
     }
 
     private int getMajor() {
@@ -50,15 +70,34 @@ public class Version implements Comparable<Version> {
         return compareTo(v) >= 0;
     }
 
+    private boolean isGreaterOrEqualTo(int major, int minor, int patch) {
+        return compare(this.major, this.minor, this.patch, major, minor, patch) >= 0;
+    }
+
     public String getOriginalVersion() {
         return originalVersion;
     }
 
-    public void setOriginalVersion(String originalVersion) {
-        this.originalVersion = originalVersion;
+    /**
+     * @return a {@link Version} representing the given <code>versionString</code>. Equal strings will return the very same instance.
+     */
+    public static Version of(String versionString) {
+        if (versionString == null) {
+            return parse(null);
+        }
+        final var cached = interned.get(versionString);
+        if (cached != null) {
+            return cached;
+        }
+        final var version = parse(versionString);
+        if (interned.size() < MAX_INTERNED_VERSIONS) {
+            final var previous = interned.putIfAbsent(versionString, version);
+            return previous == null ? version : previous;
+        }
+        return version;
     }
 
-    public static Version of(String versionString) {
+    private static Version parse(String versionString) {
         int major = 0, minor = 0, micro = 0;
         if (versionString != null) {
             final String[] split = versionString.split("\\.");
@@ -89,7 +128,7 @@ public class Version implements Comparable<Version> {
     }
 
     public boolean isSupported() {
-        return isGreaterOrEqualTo(minimumSupported());
+        return atLeast_0_6_4;
     }
 
     /**
@@ -100,17 +139,21 @@ public class Version implements Comparable<Version> {
      */
     @Override
     public int compareTo(@NonNull Version compare) {
-        if (compare.getMajor() > getMajor()) {
+        return compare(getMajor(), getMinor(), getPatch(), compare.getMajor(), compare.getMinor(), compare.getPatch());
+    }
+
+    private static int compare(int major, int minor, int patch, int compareMajor, int compareMinor, int comparePatch) {
+        if (compareMajor > major) {
             return -1;
-        } else if (compare.getMajor() < getMajor()) {
+        } else if (compareMajor < major) {
             return 1;
-        } else if (compare.getMinor() > getMinor()) {
+        } else if (compareMinor > minor) {
             return -1;
-        } else if (compare.getMinor() < getMinor()) {
+        } else if (compareMinor < minor) {
             return 1;
-        } else if (compare.getPatch() > getPatch()) {
+        } else if (comparePatch > patch) {
             return -1;
-        } else if (compare.getPatch() < getPatch()) {
+        } else if (comparePatch < patch) {
             return 1;
         }
         return 0;
@@ -146,7 +189,7 @@ public class Version implements Comparable<Version> {
      * @return whether or not the server supports the {@link DeckComment} API
      */
     public boolean supportsComments() {
-        return isGreaterOrEqualTo(VERSION_1_0_0);
+        return atLeast_1_0_0;
     }
 
     /**
@@ -157,7 +200,7 @@ public class Version implements Comparable<Version> {
      * @return whether or not the server supports replying to comments
      */
     public boolean supportsCommentsReplys() {
-        return isGreaterOrEqualTo(VERSION_1_0_3);
+        return atLeast_1_0_3;
     }
 
     /**
@@ -171,7 +214,7 @@ public class Version implements Comparable<Version> {
      * @see <a href="https://github.com/nextcloud/deck/pull/2638">documentation in PR</a>
      */
     public boolean supportsFileAttachments() {
-        return isGreaterOrEqualTo(VERSION_1_3_0);
+        return atLeast_1_3_0;
     }
 
     /**
@@ -181,7 +224,7 @@ public class Version implements Comparable<Version> {
      * @see <a href="https://github.com/stefan-niedermann/nextcloud-deck/issues/422">issue</a>
      */
     public int getCardTitleMaxLength() {
-        return isGreaterOrEqualTo(VERSION_1_0_0)
+        return atLeast_1_0_0
                 ? 255
                 : 100;
     }
@@ -194,7 +237,7 @@ public class Version implements Comparable<Version> {
      */
     @StringRes
     public int getShareLinkResource() {
-        return isGreaterOrEqualTo(VERSION_1_0_0)
+        return atLeast_1_0_0
                 ? R.string.url_fragment_share_card_since_1_0_0
                 : R.string.url_fragment_share_card_pre_1_0_0;
     }
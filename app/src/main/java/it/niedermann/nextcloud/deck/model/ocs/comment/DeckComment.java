@@ -67,6 +67,23 @@ public class DeckComment extends AbstractRemoteEntity {
         setMessage(message);
     }
 
+    @Ignore
+    public DeckComment(DeckComment comment) {
+        super(comment);
+        this.objectId = comment.getObjectId();
+        this.actorType = comment.getActorType();
+        this.creationDateTime = comment.getCreationDateTime();
+        this.actorId = comment.getActorId();
+        this.actorDisplayName = comment.getActorDisplayName();
+        this.message = comment.getMessage();
+        this.parentId = comment.getParentId();
+        if (comment.getMentions() != null) {
+            for (Mention mention : comment.getMentions()) {
+                this.mentions.add(new Mention(mention));
+            }
+        }
+    }
+
     public Long getObjectId() {
         return objectId;
     }
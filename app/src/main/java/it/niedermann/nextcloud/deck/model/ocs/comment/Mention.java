@@ -37,6 +37,12 @@ public class Mention {
         this.mentionDisplayName = mentionDisplayName;
     }
 
+    @Ignore
+    public Mention(Mention mention) {
+        this(mention.getCommentId(), mention.getMentionId(), mention.getMentionType(), mention.getMentionDisplayName());
+        this.id = mention.getId();
+    }
+
     public Long getId() {
         return id;
     }
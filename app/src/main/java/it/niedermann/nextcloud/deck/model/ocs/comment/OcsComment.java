@@ -16,6 +16,13 @@ public class OcsComment implements IRemoteEntity {
         this.comments = comments;
     }
 
+    public OcsComment(OcsComment ocsComment) {
+        this();
+        for (DeckComment comment : ocsComment.getComments()) {
+            addComment(new DeckComment(comment));
+        }
+    }
+
     public List<DeckComment> getComments() {
         return comments;
     }
@@ -32,6 +32,17 @@ public class OcsProject extends AbstractRemoteEntity {
     @NonNull
     private ArrayList<OcsProjectResource> resources = new ArrayList<>();
 
+    public OcsProject() {
+    }
+
+    public OcsProject(OcsProject project) {
+        super(project);
+        this.name = project.getName();
+        for (OcsProjectResource resource : project.getResources()) {
+            this.resources.add(new OcsProjectResource(resource));
+        }
+    }
+
     public String getName() {
         return name;
     }
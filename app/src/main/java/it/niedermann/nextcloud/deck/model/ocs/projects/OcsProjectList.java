@@ -14,6 +14,13 @@ public class OcsProjectList {
         this.projects = projects;
     }
 
+    public OcsProjectList(OcsProjectList projectList) {
+        this();
+        for (OcsProject project : projectList.getProjects()) {
+            add(new OcsProject(project));
+        }
+    }
+
     public List<OcsProject> getProjects() {
         return projects;
     }
@@ -56,6 +56,22 @@ public class OcsProjectResource extends AbstractRemoteEntity implements Serializ
     @NonNull
     private Long projectId;
 
+    public OcsProjectResource() {
+    }
+
+    public OcsProjectResource(OcsProjectResource resource) {
+        super(resource);
+        this.type = resource.getType();
+        this.name = resource.getName();
+        this.link = resource.getLink();
+        this.path = resource.getPath();
+        this.iconUrl = resource.getIconUrl();
+        this.mimetype = resource.getMimetype();
+        this.previewAvailable = resource.getPreviewAvailable();
+        this.idString = resource.getIdString();
+        this.projectId = resource.getProjectId();
+    }
+
     public Long getProjectId() {
         return projectId;
     }
@@ -0,0 +1,80 @@
+package it.niedermann.nextcloud.deck.persistence.sync;
+
+import android.content.Context;
+import android.os.Build;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
+import androidx.work.Constraints;
+import androidx.work.ExistingPeriodicWorkPolicy;
+import androidx.work.PeriodicWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+import it.niedermann.nextcloud.deck.DeckLog;
+import it.niedermann.nextcloud.deck.persistence.sync.adapters.db.DataBaseAdapter;
+
+/**
+ * Keeps the database small and the query planner informed by purging tombstones, orphaned relations and old activities once a day.
+ *
+ * @see DataBaseAdapter#performMaintenanceDirectly(Instant, Instant)
+ */
+public class MaintenanceWorker extends Worker {
+
+    private static final String WORKER_TAG = "it.niedermann.nextcloud.deck.database_maintenance";
+    /**
+     * Local tombstones might still be handled by a running synchronization
+     */
+    private static final Duration TOMBSTONE_GRACE_PERIOD = Duration.ofDays(7);
+    private static final Duration ACTIVITY_RETENTION = Duration.ofDays(90);
+
+    public MaintenanceWorker(@NonNull Context context, @NonNull WorkerParameters workerParams) {
+        super(context, workerParams);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        DeckLog.info("Starting database maintenance");
+        final long start = System.currentTimeMillis();
+        try {
+            final Instant now = Instant.now();
+            new DataBaseAdapter(getApplicationContext()).performMaintenanceDirectly(now.minus(TOMBSTONE_GRACE_PERIOD), now.minus(ACTIVITY_RETENTION));
+        } catch (Throwable t) {
+            DeckLog.logError(t);
+            return Result.failure();
+        }
+        DeckLog.info("Finished database maintenance in", System.currentTimeMillis() - start, "ms");
+        return Result.success();
+    }
+
+    /**
+     * Schedules the maintenance unless it has already been scheduled
+     */
+    public static void register(@NonNull Context context) {
+        final PeriodicWorkRequest work = new PeriodicWorkRequest.Builder(MaintenanceWorker.class, 1, TimeUnit.DAYS)
+                .setConstraints(getConstraints())
+                .build();
+        WorkManager.getInstance(context.getApplicationContext()).enqueueUniquePeriodicWork(WORKER_TAG, ExistingPeriodicWorkPolicy.KEEP, work);
+    }
+
+    /**
+     * <code>VACUUM</code> rewrites the whole database file and locks it meanwhile, so only run while the device is charging and not in use
+     */
+    @NonNull
+    @VisibleForTesting
+    static Constraints getConstraints() {
+        final var builder = new Constraints.Builder()
+                .setRequiresCharging(true)
+                .setRequiresBatteryNotLow(true);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+            builder.setRequiresDeviceIdle(true);
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,60 @@
+package it.niedermann.nextcloud.deck.persistence.sync;
+
+import android.content.Context;
+
+import androidx.annotation.NonNull;
+import androidx.work.BackoffPolicy;
+import androidx.work.Constraints;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import java.util.concurrent.TimeUnit;
+
+import it.niedermann.nextcloud.deck.DeckLog;
+
+/**
+ * Uploads local mutations recorded in the outbox as soon as a network connection is available.
+ * Failed uploads are retried with an exponential backoff.
+ */
+public class OutboxWorker extends Worker {
+
+    private static final String WORKER_TAG = "it.niedermann.nextcloud.deck.outbox_upload";
+    private static final Constraints constraints = new Constraints.Builder()
+            .setRequiredNetworkType(NetworkType.CONNECTED)
+            .build();
+    /**
+     * Most mutations are propagated to the server immediately, give them a chance to finish first
+     */
+    private static final long INITIAL_DELAY_SECONDS = 15;
+    private static final long BACKOFF_DELAY_SECONDS = 30;
+
+    public OutboxWorker(@NonNull Context context, @NonNull WorkerParameters workerParams) {
+        super(context, workerParams);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        final SyncManager syncManager = new SyncManager(getApplicationContext(), null);
+        if (!syncManager.hasInternetConnection()) {
+            return Result.retry();
+        }
+        DeckLog.info("Uploading pending changes, attempt", getRunAttemptCount() + 1);
+        final boolean success = syncManager.uploadPendingChanges();
+        DeckLog.info("Finished uploading pending changes. Success:", success);
+        return success ? Result.success() : Result.retry();
+    }
+
+    public static void enqueue(@NonNull Context context) {
+        final OneTimeWorkRequest work = new OneTimeWorkRequest.Builder(OutboxWorker.class)
+                .setConstraints(constraints)
+                .setInitialDelay(INITIAL_DELAY_SECONDS, TimeUnit.SECONDS)
+                .setBackoffCriteria(BackoffPolicy.EXPONENTIAL, BACKOFF_DELAY_SECONDS, TimeUnit.SECONDS)
+                .build();
+        WorkManager.getInstance(context.getApplicationContext()).enqueueUniqueWork(WORKER_TAG, ExistingWorkPolicy.KEEP, work);
+    }
+}
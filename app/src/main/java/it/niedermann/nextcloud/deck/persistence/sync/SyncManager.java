@@ -18,6 +18,7 @@ import androidx.annotation.WorkerThread;
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MediatorLiveData;
 import androidx.lifecycle.MutableLiveData;
+import androidx.paging.PagingData;
 
 import com.nextcloud.android.sso.api.ParsedResponse;
 import com.nextcloud.android.sso.exceptions.NextcloudHttpRequestFailedException;
@@ -30,10 +31,10 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.regex.Matcher;
@@ -43,9 +44,12 @@ import it.niedermann.nextcloud.deck.DeckLog;
 import it.niedermann.nextcloud.deck.api.GsonConfig;
 import it.niedermann.nextcloud.deck.api.IResponseCallback;
 import it.niedermann.nextcloud.deck.api.LastSyncUtil;
+import it.niedermann.nextcloud.deck.api.RequestHelper;
 import it.niedermann.nextcloud.deck.api.ResponseCallback;
+import it.niedermann.nextcloud.deck.exceptions.ChangesNotUploadedException;
 import it.niedermann.nextcloud.deck.exceptions.DeckException;
 import it.niedermann.nextcloud.deck.exceptions.OfflineException;
+import it.niedermann.nextcloud.deck.exceptions.ServerUnhealthyException;
 import it.niedermann.nextcloud.deck.model.AccessControl;
 import it.niedermann.nextcloud.deck.model.Account;
 import it.niedermann.nextcloud.deck.model.Attachment;
@@ -75,8 +79,8 @@ import it.niedermann.nextcloud.deck.persistence.sync.adapters.db.DataBaseAdapter
 import it.niedermann.nextcloud.deck.persistence.sync.adapters.db.util.WrappedLiveData;
 import it.niedermann.nextcloud.deck.persistence.sync.adapters.db.util.extrawurst.UserSearchLiveData;
 import it.niedermann.nextcloud.deck.persistence.sync.helpers.DataPropagationHelper;
+import it.niedermann.nextcloud.deck.persistence.sync.helpers.OutboxHelper;
 import it.niedermann.nextcloud.deck.persistence.sync.helpers.SyncHelper;
-import it.niedermann.nextcloud.deck.persistence.sync.helpers.providers.AbstractSyncDataProvider;
 import it.niedermann.nextcloud.deck.persistence.sync.helpers.providers.AccessControlDataProvider;
 import it.niedermann.nextcloud.deck.persistence.sync.helpers.providers.ActivityDataProvider;
 import it.niedermann.nextcloud.deck.persistence.sync.helpers.providers.AttachmentDataProvider;
@@ -88,6 +92,10 @@ import it.niedermann.nextcloud.deck.persistence.sync.helpers.providers.LabelData
 import it.niedermann.nextcloud.deck.persistence.sync.helpers.providers.StackDataProvider;
 import it.niedermann.nextcloud.deck.persistence.sync.helpers.providers.partial.BoardWithAclDownSyncDataProvider;
 import it.niedermann.nextcloud.deck.persistence.sync.helpers.providers.partial.BoardWithStacksAndLabelsUpSyncDataProvider;
+import it.niedermann.nextcloud.deck.persistence.sync.helpers.util.ETagStatistics;
+import it.niedermann.nextcloud.deck.persistence.sync.helpers.util.EntityDelta;
+import it.niedermann.nextcloud.deck.persistence.sync.helpers.util.SyncCoordinator;
+import it.niedermann.nextcloud.deck.persistence.sync.helpers.util.SyncExecutors;
 import it.niedermann.nextcloud.deck.ui.upcomingcards.UpcomingCardsAdapterItem;
 
 @SuppressWarnings("WeakerAccess")
@@ -103,6 +111,8 @@ public class SyncManager {
     private final ExecutorService executor;
     @NonNull
     private final SyncHelper.Factory syncHelperFactory;
+    @NonNull
+    private final SyncCoordinator syncCoordinator;
 
     @AnyThread
     public SyncManager(@NonNull Context context) {
@@ -114,8 +124,9 @@ public class SyncManager {
         this(context,
                 new DataBaseAdapter(context.getApplicationContext()),
                 new ServerAdapter(context.getApplicationContext(), ssoAccountName),
-                Executors.newCachedThreadPool(),
-                SyncHelper::new);
+                SyncExecutors.forAccount(ssoAccountName),
+                SyncHelper::new,
+                SyncCoordinator.getInstance());
         LastSyncUtil.init(context.getApplicationContext());
     }
 
@@ -123,12 +134,14 @@ public class SyncManager {
                         @NonNull DataBaseAdapter databaseAdapter,
                         @NonNull ServerAdapter serverAdapter,
                         @NonNull ExecutorService executor,
-                        @NonNull SyncHelper.Factory syncHelperFactory) {
+                        @NonNull SyncHelper.Factory syncHelperFactory,
+                        @NonNull SyncCoordinator syncCoordinator) {
         this.appContext = context.getApplicationContext();
         this.dataBaseAdapter = databaseAdapter;
         this.serverAdapter = serverAdapter;
         this.executor = executor;
         this.syncHelperFactory = syncHelperFactory;
+        this.syncCoordinator = syncCoordinator;
     }
 
     @WorkerThread
@@ -169,6 +182,86 @@ public class SyncManager {
         return true;
     }
 
+    /**
+     * Uploads the pending changes of all accounts which have entries in the outbox.
+     *
+     * @return whether all pending changes have been uploaded
+     */
+    @WorkerThread
+    public boolean uploadPendingChanges() {
+        final List<Long> accountIds = dataBaseAdapter.getAccountIdsWithOutboxEntriesDirectly();
+        if (accountIds.isEmpty()) {
+            return true;
+        }
+        final AtomicBoolean success = new AtomicBoolean(true);
+        final CountDownLatch latch = new CountDownLatch(accountIds.size());
+        try {
+            for (Long accountId : accountIds) {
+                final Account account = dataBaseAdapter.getAccountByIdDirectly(accountId);
+                if (account == null) {
+                    latch.countDown();
+                    continue;
+                }
+                new SyncManager(dataBaseAdapter.getContext(), account.getName()).uploadPendingChanges(new ResponseCallback<>(account) {
+                    @Override
+                    public void onResponse(Boolean response) {
+                        if (dataBaseAdapter.hasPendingOutboxEntriesDirectly(accountId)) {
+                            // Changes might have been added while uploading
+                            success.set(false);
+                        }
+                        latch.countDown();
+                    }
+
+                    @Override
+                    public void onError(Throwable throwable) {
+                        // Changes which have been given up are not retried until the next full synchronization
+                        if (!(throwable instanceof ChangesNotUploadedException)) {
+                            success.set(false);
+                        }
+                        super.onError(throwable);
+                        latch.countDown();
+                    }
+                });
+            }
+            latch.await();
+            return success.get();
+        } catch (InterruptedException e) {
+            DeckLog.logError(e);
+            return false;
+        }
+    }
+
+    /**
+     * Uploads the local changes recorded in the outbox without downloading anything. Does nothing if all recorded changes have already been synchronized.
+     */
+    @AnyThread
+    public void uploadPendingChanges(@NonNull ResponseCallback<Boolean> responseCallback) {
+        executor.submit(() -> {
+            final long accountId = responseCallback.getAccount().getId();
+            dataBaseAdapter.deleteSettledOutboxEntriesDirectly(accountId);
+            if (!dataBaseAdapter.hasPendingOutboxEntriesDirectly(accountId)) {
+                responseCallback.onResponse(Boolean.FALSE);
+                return;
+            }
+            new OutboxHelper(serverAdapter, dataBaseAdapter, executor, syncHelperFactory).drain(new ResponseCallback<>(responseCallback.getAccount()) {
+                @Override
+                public void onResponse(Boolean response) {
+                    dataBaseAdapter.deleteSettledOutboxEntriesDirectly(accountId);
+                    responseCallback.onResponse(Boolean.TRUE);
+                }
+
+                @SuppressLint("MissingSuperCall")
+                @Override
+                public void onError(Throwable throwable) {
+                    if (throwable instanceof ChangesNotUploadedException) {
+                        dataBaseAdapter.deleteSettledOutboxEntriesDirectly(accountId);
+                    }
+                    responseCallback.onError(throwable);
+                }
+            });
+        });
+    }
+
     @AnyThread
     public void synchronizeBoard(long localBoardId, @NonNull ResponseCallback<Boolean> responseCallback) {
         executor.submit(() -> {
@@ -198,9 +291,15 @@ public class SyncManager {
         });
     }
 
+    /**
+     * Synchronizes the {@link Account} of the given {@link ResponseCallback}.
+     * If a synchronization for this {@link Account} is already pending or running, no further synchronization will be started, but the given {@link ResponseCallback} will be notified about its result.
+     *
+     * @return the progress of the synchronization
+     * @see SyncCoordinator
+     */
     @AnyThread
     public LiveData<Pair<Integer, Integer>> synchronize(@NonNull ResponseCallback<Boolean> responseCallback) {
-        MutableLiveData<Pair<Integer, Integer>> progress$ = new MutableLiveData<>();
         Account callbackAccount = responseCallback.getAccount();
         if (callbackAccount == null) {
             throw new IllegalArgumentException(Account.class.getSimpleName() + " object in given " + ResponseCallback.class.getSimpleName() + " must not be null.");
@@ -209,39 +308,73 @@ public class SyncManager {
         if (callbackAccountId == null) {
             throw new IllegalArgumentException(Account.class.getSimpleName() + " object in given " + ResponseCallback.class.getSimpleName() + " must contain a valid id, but given id was null.");
         }
-        executor.submit(() -> {
-            refreshCapabilities(new ResponseCallback<>(responseCallback.getAccount()) {
+        return syncCoordinator.request(callbackAccountId, responseCallback, (progress$, coordinatorCallback) -> executor.submit(() -> {
+            // The capabilities are requested anyway as health check, which would not be able to close the circuit before the pause is over
+            final long retryInMillis = RequestHelper.getCircuitBreaker(callbackAccount.getName()).tryAcquire();
+            if (retryInMillis > 0) {
+                DeckLog.warn("No sync. Server of account", callbackAccountId, "is considered unhealthy.");
+                coordinatorCallback.onError(new ServerUnhealthyException(retryInMillis));
+                return;
+            }
+            refreshCapabilities(new ResponseCallback<>(callbackAccount) {
                 @Override
                 public void onResponse(Capabilities response) {
                     if (response != null && !response.isMaintenanceEnabled()) {
                         if (response.getDeckVersion().isSupported()) {
                             long accountId = callbackAccountId;
                             Instant lastSyncDate = LastSyncUtil.getLastSyncDate(callbackAccountId);
+                            // Changes on the server which happen while we are synchronizing must be part of the next incremental sync
+                            final Instant syncStart = Instant.now();
+                            final Instant modifiedSince = LastSyncUtil.getModifiedSince(callbackAccountId);
+                            DeckLog.info("Starting", modifiedSince == null ? "full" : "incremental", "synchronization for account", accountId);
 
-                            final SyncHelper syncHelper = syncHelperFactory.create(serverAdapter, dataBaseAdapter, lastSyncDate);
+                            final SyncHelper syncHelper = syncHelperFactory.create(serverAdapter, dataBaseAdapter, lastSyncDate)
+                                    .setModifiedSince(modifiedSince);
 
                             ResponseCallback<Boolean> callback = new ResponseCallback<>(callbackAccount) {
                                 @Override
                                 public void onResponse(Boolean response) {
-                                    syncHelper.setResponseCallback(new ResponseCallback<>(account) {
+                                    final ResponseCallback<Boolean> upSyncCallback = new ResponseCallback<>(account) {
                                         @Override
                                         public void onResponse(Boolean response) {
-                                            LastSyncUtil.setLastSyncDate(accountId, Instant.now());
-                                            responseCallback.onResponse(response);
+                                            finish();
+                                            coordinatorCallback.onResponse(response);
                                         }
 
                                         @Override
                                         public void onError(Throwable throwable) {
                                             super.onError(throwable);
-                                            responseCallback.onResponse(response);
+                                            if (throwable instanceof ChangesNotUploadedException) {
+                                                // Everything else has been synchronized, but the user should know about the rejected changes
+                                                finish();
+                                                coordinatorCallback.onError(throwable);
+                                            } else {
+                                                coordinatorCallback.onResponse(response);
+                                            }
                                         }
-                                    });
+
+                                        private void finish() {
+                                            dataBaseAdapter.deleteSettledOutboxEntriesDirectly(accountId);
+                                            LastSyncUtil.setLastSyncDate(accountId, syncStart);
+                                            if (modifiedSince == null) {
+                                                LastSyncUtil.setLastFullSyncDate(accountId, syncStart);
+                                            }
+                                            DeckLog.info("Synchronization for account", accountId, "finished.", ETagStatistics.getSummary());
+                                        }
+                                    };
+                                    // Incremental synchronizations only upload the entities recorded in the outbox.
+                                    // Full synchronizations scan all tables to catch changes which have not been recorded.
+                                    if (modifiedSince != null) {
+                                        new OutboxHelper(serverAdapter, dataBaseAdapter, executor, syncHelperFactory).drain(upSyncCallback);
+                                        return;
+                                    }
+                                    syncHelper.setResponseCallback(upSyncCallback);
                                     executor.submit(() -> {
                                         try {
                                             syncHelper.doUpSyncFor(new BoardDataProvider(progress$));
                                         } catch (Throwable e) {
                                             DeckLog.logError(e);
-                                            responseCallback.onError(e);
+                                            coordinatorCallback.onError(e);
                                         }
                                     });
 
@@ -250,7 +383,7 @@ public class SyncManager {
                                 @Override
                                 public void onError(Throwable throwable) {
                                     super.onError(throwable);
-                                    responseCallback.onError(throwable);
+                                    coordinatorCallback.onError(throwable);
                                 }
                             };
 
@@ -260,14 +393,14 @@ public class SyncManager {
                                 syncHelper.doSyncFor(new BoardDataProvider(progress$));
                             } catch (Throwable e) {
                                 DeckLog.logError(e);
-                                responseCallback.onError(e);
+                                coordinatorCallback.onError(e);
                             }
                         } else {
                             DeckLog.warn("No sync. Server version not supported:", response.getDeckVersion().getOriginalVersion());
-                            responseCallback.onResponse(Boolean.FALSE);
+                            coordinatorCallback.onResponse(Boolean.FALSE);
                         }
                     } else {
-                        responseCallback.onResponse(Boolean.FALSE);
+                        coordinatorCallback.onResponse(Boolean.FALSE);
                         if (response != null) {
                             DeckLog.warn("No sync. Status maintenance mode:", response.isMaintenanceEnabled());
                         }
@@ -277,11 +410,10 @@ public class SyncManager {
                 @SuppressLint("MissingSuperCall")
                 @Override
                 public void onError(Throwable throwable) {
-                    responseCallback.onError(throwable);
+                    coordinatorCallback.onError(throwable);
                 }
             });
-        });
-        return progress$;
+        }));
     }
 
 //
@@ -960,8 +1092,8 @@ public class SyncManager {
         return dataBaseAdapter.getCardWithProjectsByLocalId(accountId, cardLocalId);
     }
 
-    public LiveData<List<FullCard>> getFullCardsForStack(long accountId, long localStackId, @Nullable FilterInformation filter) {
-        return dataBaseAdapter.getFullCardsForStack(accountId, localStackId, filter);
+    public LiveData<PagingData<FullCard>> getPagedFullCardsForStack(long accountId, long localStackId, @Nullable FilterInformation filter) {
+        return dataBaseAdapter.getPagedFullCardsForStack(accountId, localStackId, filter);
     }
 
     public void countCardsInStackDirectly(long accountId, long localStackId, @NonNull IResponseCallback<Integer> callback) {
@@ -1088,8 +1220,10 @@ public class SyncManager {
             Account account = dataBaseAdapter.getAccountByIdDirectly(card.getAccountId());
             FullStack stack = dataBaseAdapter.getFullStackByLocalIdDirectly(card.getCard().getStackId());
             Board board = dataBaseAdapter.getBoardByLocalIdDirectly(stack.getStack().getBoardId());
-            card.getCard().setArchived(true);
-            updateCardForArchive(stack, board, card, ResponseCallback.from(account, callback));
+            // The given card might only be a list item without all relations
+            FullCard fullCard = dataBaseAdapter.getFullCardByLocalIdDirectly(card.getAccountId(), card.getLocalId());
+            fullCard.getCard().setArchived(true);
+            updateCardForArchive(stack, board, fullCard, ResponseCallback.from(account, callback));
         });
     }
 
@@ -1103,8 +1237,10 @@ public class SyncManager {
             Account account = dataBaseAdapter.getAccountByIdDirectly(card.getAccountId());
             FullStack stack = dataBaseAdapter.getFullStackByLocalIdDirectly(card.getCard().getStackId());
             Board board = dataBaseAdapter.getBoardByLocalIdDirectly(stack.getStack().getBoardId());
-            card.getCard().setArchived(false);
-            updateCardForArchive(stack, board, card, ResponseCallback.from(account, callback));
+            // The given card might only be a list item without all relations
+            FullCard fullCard = dataBaseAdapter.getFullCardByLocalIdDirectly(card.getAccountId(), card.getLocalId());
+            fullCard.getCard().setArchived(false);
+            updateCardForArchive(stack, board, fullCard, ResponseCallback.from(account, callback));
         });
     }
 
@@ -1184,21 +1320,19 @@ public class SyncManager {
             }
 
             dataBaseAdapter.filterRelationsForCard(fullCardFromDB);
-            List<User> deletedUsers = AbstractSyncDataProvider.findDelta(card.getAssignedUsers(), fullCardFromDB.getAssignedUsers());
-            List<User> addedUsers = AbstractSyncDataProvider.findDelta(fullCardFromDB.getAssignedUsers(), card.getAssignedUsers());
-            for (User addedUser : addedUsers) {
+            final EntityDelta<User> userDelta = EntityDelta.of(card.getAssignedUsers(), fullCardFromDB.getAssignedUsers());
+            for (User addedUser : userDelta.getCreated()) {
                 dataBaseAdapter.createJoinCardWithUser(addedUser.getLocalId(), card.getLocalId(), DBStatus.LOCAL_EDITED);
             }
-            for (User deletedUser : deletedUsers) {
+            for (User deletedUser : userDelta.getDeleted()) {
                 dataBaseAdapter.deleteJoinedUserForCard(card.getLocalId(), deletedUser.getLocalId());
             }
 
-            List<Label> deletedLabels = AbstractSyncDataProvider.findDelta(card.getLabels(), fullCardFromDB.getLabels());
-            List<Label> addedLabels = AbstractSyncDataProvider.findDelta(fullCardFromDB.getLabels(), card.getLabels());
-            for (Label addedLabel : addedLabels) {
+            final EntityDelta<Label> labelDelta = EntityDelta.of(card.getLabels(), fullCardFromDB.getLabels());
+            for (Label addedLabel : labelDelta.getCreated()) {
                 dataBaseAdapter.createJoinCardWithLabel(addedLabel.getLocalId(), card.getLocalId(), DBStatus.LOCAL_EDITED);
             }
-            for (Label deletedLabel : deletedLabels) {
+            for (Label deletedLabel : labelDelta.getDeleted()) {
                 dataBaseAdapter.deleteJoinedLabelForCard(card.getLocalId(), deletedLabel.getLocalId());
             }
 
@@ -1638,7 +1772,7 @@ public class SyncManager {
                     return;
                 } else {
                     // we need to fix the order.
-                    cardsOfNewStack.remove(movedCard);
+                    cardsOfNewStack.removeIf(fullCard -> Objects.equals(fullCard.getLocalId(), movedCard.getLocalId()));
                     cardsOfNewStack.add(newIndex, movedCard);
                     for (int i = 0; i < cardsOfNewStack.size(); i++) {
                         Card card = cardsOfNewStack.get(i).getCard();
@@ -1766,9 +1900,9 @@ public class SyncManager {
         }
         //update the moved one first, because otherwise a bunch of livedata is fired, leading the card to dispose and reappear
         cardsToReorganize.remove(movedCard);
-        dataBaseAdapter.updateCard(movedCard, false);
+        dataBaseAdapter.updateMovedCard(movedCard);
         for (Card card : cardsToReorganize) {
-            dataBaseAdapter.updateCard(card, false);
+            dataBaseAdapter.updateMovedCard(card);
         }
     }
 
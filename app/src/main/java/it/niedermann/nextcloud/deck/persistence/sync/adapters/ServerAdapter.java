@@ -1,5 +1,6 @@
 package it.niedermann.nextcloud.deck.persistence.sync.adapters;
 
+import android.annotation.SuppressLint;
 import android.content.Context;
 import android.content.SharedPreferences;
 import android.net.ConnectivityManager;
@@ -11,13 +12,19 @@ import android.webkit.MimeTypeMap;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
 import androidx.preference.PreferenceManager;
 
 import com.nextcloud.android.sso.api.ParsedResponse;
 
 import java.io.File;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.List;
 
+import it.niedermann.nextcloud.deck.DeckLog;
 import it.niedermann.nextcloud.deck.R;
 import it.niedermann.nextcloud.deck.api.ApiProvider;
 import it.niedermann.nextcloud.deck.api.RequestHelper;
@@ -44,6 +51,7 @@ import it.niedermann.nextcloud.deck.model.ocs.user.OcsUser;
 import it.niedermann.nextcloud.deck.model.ocs.user.OcsUserList;
 import it.niedermann.nextcloud.deck.model.propagation.CardUpdate;
 import it.niedermann.nextcloud.deck.model.propagation.Reorder;
+import it.niedermann.nextcloud.deck.persistence.sync.helpers.util.SyncExecutors;
 import okhttp3.MediaType;
 import okhttp3.MultipartBody;
 import okhttp3.RequestBody;
@@ -55,6 +63,7 @@ public class ServerAdapter {
 
     private final String prefKeyWifiOnly;
     private final String prefKeyEtags;
+    private final String prefKeySyncParallelism;
     final SharedPreferences sharedPreferences;
 
     @NonNull
@@ -62,10 +71,16 @@ public class ServerAdapter {
     private final ApiProvider provider;
 
     public ServerAdapter(@NonNull Context applicationContext, @Nullable String ssoAccountName) {
+        this(applicationContext, ssoAccountName, new ApiProvider(applicationContext, ssoAccountName));
+    }
+
+    @VisibleForTesting
+    ServerAdapter(@NonNull Context applicationContext, @Nullable String ssoAccountName, @NonNull ApiProvider provider) {
         this.applicationContext = applicationContext;
         prefKeyWifiOnly = applicationContext.getResources().getString(R.string.pref_key_wifi_only);
         prefKeyEtags = applicationContext.getResources().getString(R.string.pref_key_etags);
-        provider = new ApiProvider(applicationContext, ssoAccountName);
+        prefKeySyncParallelism = applicationContext.getResources().getString(R.string.pref_key_sync_parallelism_) + ssoAccountName;
+        this.provider = provider;
         sharedPreferences = PreferenceManager.getDefaultSharedPreferences(applicationContext);
     }
 
@@ -101,56 +116,102 @@ public class ServerAdapter {
         return false;
     }
 
-    // TODO what is this?
-    private String getLastSyncDateFormatted(long accountId) {
-        return null;
-//        String lastSyncHeader = API_FORMAT.format(getLastSync(accountId));
-//        // omit Offset of timezone (e.g.: +01:00)
-//        if (lastSyncHeader.matches("^.*\\+[0-9]{2}:[0-9]{2}$")) {
-//            lastSyncHeader = lastSyncHeader.substring(0, lastSyncHeader.length()-6);
-//        }
-//        DeckLog.log("lastSync "+lastSyncHeader);
-//        return lastSyncHeader;
+    /**
+     * @return the given date formatted as HTTP-date for the <code>If-Modified-Since</code> header or <code>null</code> to request all entities
+     */
+    @Nullable
+    @VisibleForTesting
+    static String formatModifiedSince(@Nullable Instant modifiedSince) {
+        return modifiedSince == null ? null : DateTimeFormatter.RFC_1123_DATE_TIME.format(modifiedSince.atOffset(ZoneOffset.UTC));
+    }
+
+    /**
+     * Coalesced responses are shared between callbacks, so each one gets a copy with the same headers
+     */
+    @NonNull
+    private static <T> ParsedResponse<T> copyParsedResponse(@NonNull ParsedResponse<T> response, @NonNull RequestHelper.ResponseCopier<T> copier) {
+        return new ParsedResponse<>(copier.copy(response.getResponse()), response.getHeaders());
+    }
+
+    @NonNull
+    private static <T> List<T> copyList(@NonNull List<T> list, @NonNull RequestHelper.ResponseCopier<T> copier) {
+        final List<T> copy = new ArrayList<>(list.size());
+        for (T item : list) {
+            copy.add(copier.copy(item));
+        }
+        return copy;
     }
 
     public void getBoards(@NonNull ResponseCallback<ParsedResponse<List<FullBoard>>> responseCallback) {
-        RequestHelper.request(provider, () -> isEtagsEnabled()
-                ? provider.getDeckAPI().getBoards(true, getLastSyncDateFormatted(responseCallback.getAccount().getId()), responseCallback.getAccount().getBoardsEtag())
-                : provider.getDeckAPI().getBoards(true, getLastSyncDateFormatted(responseCallback.getAccount().getId())), responseCallback);
+        getBoards(null, responseCallback);
+    }
+
+    /**
+     * @param modifiedSince if not <code>null</code>, the server will omit all boards which did not change since this date
+     */
+    public void getBoards(@Nullable Instant modifiedSince, @NonNull ResponseCallback<ParsedResponse<List<FullBoard>>> responseCallback) {
+        final String eTag = isEtagsEnabled() ? responseCallback.getAccount().getBoardsEtag() : null;
+        RequestHelper.requestIdempotent(provider, () -> isEtagsEnabled()
+                ? provider.getDeckAPI().getBoards(true, formatModifiedSince(modifiedSince), eTag)
+                : provider.getDeckAPI().getBoards(true, formatModifiedSince(modifiedSince)), responseCallback);
     }
 
     public boolean isEtagsEnabled() {
         return sharedPreferences.getBoolean(prefKeyEtags, true);
     }
 
+    /**
+     * The limit can only be tuned per account via the internal preference <code>syncParallelism_&lt;account name&gt;</code>, it is not exposed in the settings.
+     *
+     * @return how many boards of this account may be synchronized in parallel
+     */
+    public int getMaxParallelBoardSyncs() {
+        return getMaxParallelBoardSyncs(sharedPreferences, prefKeySyncParallelism);
+    }
+
+    /**
+     * @return the configured value bounded to the threads available for one account or {@link SyncExecutors#DEFAULT_PARALLEL_BOARD_SYNCS} if it is not configured properly
+     */
+    @VisibleForTesting
+    static int getMaxParallelBoardSyncs(@NonNull SharedPreferences sharedPreferences, @NonNull String prefKey) {
+        int maxParallelBoardSyncs;
+        try {
+            maxParallelBoardSyncs = sharedPreferences.getInt(prefKey, SyncExecutors.DEFAULT_PARALLEL_BOARD_SYNCS);
+        } catch (ClassCastException e) {
+            DeckLog.warn("Preference", prefKey, "is not an integer, using the default parallelism.");
+            maxParallelBoardSyncs = SyncExecutors.DEFAULT_PARALLEL_BOARD_SYNCS;
+        }
+        return Math.max(1, Math.min(SyncExecutors.MAX_PARALLEL_TASKS_PER_ACCOUNT, maxParallelBoardSyncs));
+    }
+
     public void getCapabilities(String eTag, @NonNull ResponseCallback<ParsedResponse<Capabilities>> responseCallback) {
         ensureInternetConnection();
-        RequestHelper.request(provider, () -> provider.getNextcloudAPI().getCapabilities(eTag), responseCallback);
+        RequestHelper.requestHealthCheck(provider, RequestHelper.key("getCapabilities", eTag), () -> provider.getNextcloudAPI().getCapabilities(eTag), responseCallback);
     }
 
     public void getProjectsForCard(long remoteCardId, @NonNull ResponseCallback<OcsProjectList> responseCallback) {
         ensureInternetConnection();
-        RequestHelper.request(provider, () -> provider.getNextcloudAPI().getProjectsForCard(remoteCardId), responseCallback);
+        RequestHelper.requestIdempotent(provider, RequestHelper.key("getProjectsForCard", remoteCardId), () -> provider.getNextcloudAPI().getProjectsForCard(remoteCardId), OcsProjectList::new, responseCallback);
     }
 
     public void searchUser(String searchTerm, @NonNull ResponseCallback<OcsUserList> responseCallback) {
         ensureInternetConnection();
-        RequestHelper.request(provider, () -> provider.getNextcloudAPI().searchUser(searchTerm), responseCallback);
+        RequestHelper.request(provider, RequestHelper.key("searchUser", searchTerm), () -> provider.getNextcloudAPI().searchUser(searchTerm), responseCallback);
     }
 
     public void getSingleUserData(String userUid, @NonNull ResponseCallback<OcsUser> responseCallback) {
         ensureInternetConnection();
-        RequestHelper.request(provider, () -> provider.getNextcloudAPI().getSingleUserData(userUid), responseCallback);
+        RequestHelper.request(provider, RequestHelper.key("getSingleUserData", userUid), () -> provider.getNextcloudAPI().getSingleUserData(userUid), responseCallback);
     }
 
     public void searchGroupMembers(String groupUID, @NonNull ResponseCallback<GroupMemberUIDs> responseCallback) {
         ensureInternetConnection();
-        RequestHelper.request(provider, () -> provider.getNextcloudAPI().searchGroupMembers(groupUID), responseCallback);
+        RequestHelper.request(provider, RequestHelper.key("searchGroupMembers", groupUID), () -> provider.getNextcloudAPI().searchGroupMembers(groupUID), responseCallback);
     }
 
     public void getActivitiesForCard(long cardId, @NonNull ResponseCallback<List<Activity>> responseCallback) {
         ensureInternetConnection();
-        RequestHelper.request(provider, () -> provider.getNextcloudAPI().getActivitiesForCard(cardId), responseCallback);
+        RequestHelper.requestIdempotent(provider, RequestHelper.key("getActivitiesForCard", cardId), () -> provider.getNextcloudAPI().getActivitiesForCard(cardId), activities -> copyList(activities, Activity::new), responseCallback);
     }
 
     public void createBoard(Board board, @NonNull ResponseCallback<FullBoard> responseCallback) {
@@ -183,14 +244,19 @@ public class ServerAdapter {
         RequestHelper.request(provider, () -> provider.getDeckAPI().deleteAccessControl(remoteBoardId, acl.getId(), acl), responseCallback);
     }
 
-    public void getStacks(long boardId, @NonNull ResponseCallback<List<FullStack>> responseCallback) {
+    /**
+     * @param modifiedSince if not <code>null</code>, the server will omit all cards which did not change since this date
+     * @param eTag          if not <code>null</code>, the server will respond with {@link java.net.HttpURLConnection#HTTP_NOT_MODIFIED} if the stacks did not change
+     */
+    public void getStacks(long boardId, @Nullable Instant modifiedSince, @Nullable String eTag, @NonNull ResponseCallback<ParsedResponse<List<FullStack>>> responseCallback) {
         ensureInternetConnection();
-        RequestHelper.request(provider, () -> provider.getDeckAPI().getStacks(boardId, getLastSyncDateFormatted(responseCallback.getAccount().getId())), responseCallback);
+        RequestHelper.requestIdempotent(provider, RequestHelper.key("getStacks", boardId, modifiedSince, eTag), () -> provider.getDeckAPI().getStacks(boardId, formatModifiedSince(modifiedSince), eTag),
+                response -> copyParsedResponse(response, stacks -> copyList(stacks, FullStack::new)), responseCallback);
     }
 
     public void getStack(long boardId, long stackId, @NonNull ResponseCallback<FullStack> responseCallback) {
         ensureInternetConnection();
-        RequestHelper.request(provider, () -> provider.getDeckAPI().getStack(boardId, stackId, getLastSyncDateFormatted(responseCallback.getAccount().getId())), responseCallback);
+        RequestHelper.requestIdempotent(provider, RequestHelper.key("getStack", boardId, stackId), () -> provider.getDeckAPI().getStack(boardId, stackId, null), FullStack::new, responseCallback);
     }
 
     public void createStack(Board board, Stack stack, @NonNull ResponseCallback<FullStack> responseCallback) {
@@ -211,14 +277,33 @@ public class ServerAdapter {
     }
 
     public void getCard(long boardId, long stackId, long cardId, @NonNull ResponseCallback<FullCard> responseCallback) {
+        getCard(boardId, stackId, cardId, null, null, new ResponseCallback<>(responseCallback.getAccount()) {
+            @Override
+            public void onResponse(ParsedResponse<FullCard> response) {
+                responseCallback.onResponse(response.getResponse());
+            }
+
+            @SuppressLint("MissingSuperCall")
+            @Override
+            public void onError(Throwable throwable) {
+                responseCallback.onError(throwable);
+            }
+        });
+    }
+
+    /**
+     * @param modifiedSince if not <code>null</code>, the server may respond with {@link java.net.HttpURLConnection#HTTP_NOT_MODIFIED} if the card did not change since this date
+     * @param eTag          if not <code>null</code>, the server will respond with {@link java.net.HttpURLConnection#HTTP_NOT_MODIFIED} if the card did not change
+     */
+    public void getCard(long boardId, long stackId, long cardId, @Nullable Instant modifiedSince, @Nullable String eTag, @NonNull ResponseCallback<ParsedResponse<FullCard>> responseCallback) {
         ensureInternetConnection();
-        RequestHelper.request(provider, () -> {
+        RequestHelper.requestIdempotent(provider, RequestHelper.key("getCard", boardId, stackId, cardId, modifiedSince, eTag), () -> {
             final Account account = responseCallback.getAccount();
             if (account.getServerDeckVersionAsObject().supportsFileAttachments()) {
-                return provider.getDeckAPI().getCard_1_1(boardId, stackId, cardId, getLastSyncDateFormatted(responseCallback.getAccount().getId()));
+                return provider.getDeckAPI().getCard_1_1(boardId, stackId, cardId, formatModifiedSince(modifiedSince), eTag);
             }
-            return provider.getDeckAPI().getCard_1_0(boardId, stackId, cardId, getLastSyncDateFormatted(responseCallback.getAccount().getId()));
-        }, responseCallback);
+            return provider.getDeckAPI().getCard_1_0(boardId, stackId, cardId, formatModifiedSince(modifiedSince)).map(ParsedResponse::of);
+        }, response -> copyParsedResponse(response, FullCard::new), responseCallback);
     }
 
     public void createCard(long boardId, long stackId, Card card, @NonNull ResponseCallback<FullCard> responseCallback) {
@@ -335,7 +420,7 @@ public class ServerAdapter {
 
     public void getCommentsForRemoteCardId(Long remoteCardId, @NonNull ResponseCallback<OcsComment> responseCallback) {
         ensureInternetConnection();
-        RequestHelper.request(provider, () -> provider.getNextcloudAPI().getCommentsForCard(remoteCardId), responseCallback);
+        RequestHelper.requestIdempotent(provider, RequestHelper.key("getCommentsForCard", remoteCardId), () -> provider.getNextcloudAPI().getCommentsForCard(remoteCardId), OcsComment::new, responseCallback);
     }
 
     public void createCommentForCard(DeckComment comment, @NonNull ResponseCallback<OcsComment> responseCallback) {
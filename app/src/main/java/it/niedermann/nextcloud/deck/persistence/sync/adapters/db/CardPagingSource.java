@@ -0,0 +1,153 @@
+package it.niedermann.nextcloud.deck.persistence.sync.adapters.db;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+import androidx.paging.PagingState;
+import androidx.paging.rxjava2.RxPagingSource;
+import androidx.room.InvalidationTracker;
+import androidx.sqlite.db.SupportSQLiteProgram;
+import androidx.sqlite.db.SupportSQLiteQuery;
+
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+import io.reactivex.Single;
+import io.reactivex.schedulers.Schedulers;
+import it.niedermann.nextcloud.deck.model.full.CardListItem;
+import it.niedermann.nextcloud.deck.model.full.FullCard;
+import kotlin.Unit;
+
+/**
+ * Loads the result of a {@link CardListItem} query page by page using <code>LIMIT</code> and <code>OFFSET</code>.
+ * <p>
+ * Reports the total amount of cards to support placeholders and invalidates itself as soon as one of the tables the {@link CardListItem} is built from changes.
+ */
+class CardPagingSource extends RxPagingSource<Integer, FullCard> {
+
+    @NonNull
+    private final DeckDatabase db;
+    @NonNull
+    private final SupportSQLiteQuery query;
+    @NonNull
+    private final Function<List<CardListItem>, List<FullCard>> converter;
+    @NonNull
+    private final InvalidationTracker.Observer observer;
+
+    /**
+     * @param query     must select {@link CardListItem#SELECT} and must not contain a <code>LIMIT</code> clause
+     * @param converter resolves the relations of each loaded page
+     */
+    CardPagingSource(@NonNull DeckDatabase db, @NonNull SupportSQLiteQuery query, @NonNull Function<List<CardListItem>, List<FullCard>> converter) {
+        this.db = db;
+        this.query = query;
+        this.converter = converter;
+        this.observer = new InvalidationTracker.Observer("Card", "Counter", "DeckComment", "Attachment", "JoinCardWithLabel", "Label", "JoinCardWithUser", "User") {
+            @Override
+            public void onInvalidated(@NonNull Set<String> tables) {
+                invalidate();
+            }
+        };
+        db.getInvalidationTracker().addObserver(observer);
+        registerInvalidatedCallback(() -> {
+            db.getInvalidationTracker().removeObserver(observer);
+            return Unit.INSTANCE;
+        });
+    }
+
+    @NonNull
+    @Override
+    public Single<LoadResult<Integer, FullCard>> loadSingle(@NonNull LoadParams<Integer> params) {
+        return Single.fromCallable(() -> load(params)).subscribeOn(Schedulers.io());
+    }
+
+    @WorkerThread
+    @NonNull
+    private LoadResult<Integer, FullCard> load(@NonNull LoadParams<Integer> params) {
+        // Make sure pending changes of other transactions are reflected by the invalidation tracker before reading
+        db.getInvalidationTracker().refreshVersionsSync();
+        if (getInvalid()) {
+            return new LoadResult.Invalid<>();
+        }
+
+        final int count = db.getCardDao().countCardsDirectly(new ExtendedQuery(query, "SELECT count(*) FROM (" + query.getSql() + ")"));
+        final int key = params.getKey() == null ? 0 : params.getKey();
+        int limit = params.getLoadSize();
+        final int offset;
+        if (params instanceof LoadParams.Prepend) {
+            limit = Math.min(limit, key);
+            offset = Math.max(0, key - limit);
+        } else if (params instanceof LoadParams.Append) {
+            offset = key;
+        } else {
+            // Refresh: jump to the end if the list shrunk below the requested key
+            offset = key >= count ? Math.max(0, count - limit) : key;
+        }
+
+        final var items = converter.apply(db.getCardDao().getCardListItemsDirectly(new ExtendedQuery(query, query.getSql() + " LIMIT ? OFFSET ?", limit, offset)));
+        if (getInvalid()) {
+            return new LoadResult.Invalid<>();
+        }
+
+        final int nextOffset = offset + items.size();
+        return new LoadResult.Page<>(
+                items,
+                offset > 0 ? offset : null,
+                nextOffset < count ? nextOffset : null,
+                offset,
+                Math.max(0, count - nextOffset));
+    }
+
+    @Nullable
+    @Override
+    public Integer getRefreshKey(@NonNull PagingState<Integer, FullCard> state) {
+        final Integer anchorPosition = state.getAnchorPosition();
+        if (anchorPosition == null) {
+            return null;
+        }
+        return Math.max(0, anchorPosition - state.getConfig().initialLoadSize / 2);
+    }
+
+    @Override
+    public boolean getJumpingSupported() {
+        return true;
+    }
+
+    /**
+     * Wraps the given query in other SQL. Binds the arguments of the wrapped query first and the additional arguments afterwards.
+     */
+    private static class ExtendedQuery implements SupportSQLiteQuery {
+
+        @NonNull
+        private final SupportSQLiteQuery wrapped;
+        @NonNull
+        private final String sql;
+        @NonNull
+        private final long[] additionalArgs;
+
+        private ExtendedQuery(@NonNull SupportSQLiteQuery wrapped, @NonNull String sql, long... additionalArgs) {
+            this.wrapped = wrapped;
+            this.sql = sql;
+            this.additionalArgs = additionalArgs;
+        }
+
+        @Override
+        public String getSql() {
+            return sql;
+        }
+
+        @Override
+        public void bindTo(SupportSQLiteProgram statement) {
+            wrapped.bindTo(statement);
+            for (int i = 0; i < additionalArgs.length; i++) {
+                statement.bindLong(wrapped.getArgCount() + i + 1, additionalArgs[i]);
+            }
+        }
+
+        @Override
+        public int getArgCount() {
+            return wrapped.getArgCount() + additionalArgs.length;
+        }
+    }
+}
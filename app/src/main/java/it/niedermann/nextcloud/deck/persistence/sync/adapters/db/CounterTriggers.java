@@ -0,0 +1,107 @@
+package it.niedermann.nextcloud.deck.persistence.sync.adapters.db;
+
+import androidx.annotation.NonNull;
+import androidx.room.RoomDatabase;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+import it.niedermann.nextcloud.deck.model.enums.ECounterType;
+import it.niedermann.nextcloud.deck.model.internal.Counter;
+
+/**
+ * Triggers which keep the {@link Counter}s in sync with the counted tables, no matter whether a change has been made locally or by the synchronization.
+ * <p>
+ * Rows which are {@link it.niedermann.nextcloud.deck.model.enums.DBStatus#LOCAL_DELETED} are not counted.
+ * Room does not support triggers for regular entities, so they are created manually on creation of the database, after a destructive migration and in the migration which introduced them.
+ */
+public final class CounterTriggers {
+
+    /**
+     * Must be added to every {@link RoomDatabase.Builder} of {@link DeckDatabase}, otherwise the {@link Counter}s will not be updated
+     */
+    public static final RoomDatabase.Callback CALLBACK = new RoomDatabase.Callback() {
+        @Override
+        public void onCreate(@NonNull SupportSQLiteDatabase db) {
+            super.onCreate(db);
+            createTriggers(db);
+        }
+
+        /**
+         * Dropping the tables also drops their triggers, {@link #onCreate(SupportSQLiteDatabase)} is not called afterwards
+         */
+        @Override
+        public void onDestructiveMigration(@NonNull SupportSQLiteDatabase db) {
+            super.onDestructiveMigration(db);
+            createTriggers(db);
+        }
+    };
+
+    private CounterTriggers() {
+        throw new UnsupportedOperationException("Do not instantiate this util class.");
+    }
+
+    public static void createTriggers(@NonNull SupportSQLiteDatabase db) {
+        createCountingTriggers(db, ECounterType.CARDS_IN_STACK, "Card", "stackId");
+        createCountingTriggers(db, ECounterType.CARDS_WITH_LABEL, "JoinCardWithLabel", "labelId");
+        createCountingTriggers(db, ECounterType.COMMENTS_OF_CARD, "DeckComment", "objectId");
+        createCleanupTrigger(db, ECounterType.CARDS_IN_STACK, "Stack");
+        createCleanupTrigger(db, ECounterType.CARDS_WITH_LABEL, "Label");
+        createCleanupTrigger(db, ECounterType.COMMENTS_OF_CARD, "Card");
+    }
+
+    /**
+     * Fills the {@link Counter}s with the current state of the counted tables, replacing all existing {@link Counter}s
+     */
+    public static void recount(@NonNull SupportSQLiteDatabase db) {
+        db.execSQL("DELETE FROM `Counter`");
+        recount(db, ECounterType.CARDS_IN_STACK, "Card", "stackId");
+        recount(db, ECounterType.CARDS_WITH_LABEL, "JoinCardWithLabel", "labelId");
+        recount(db, ECounterType.COMMENTS_OF_CARD, "DeckComment", "objectId");
+    }
+
+    private static void recount(@NonNull SupportSQLiteDatabase db, @NonNull ECounterType type, @NonNull String table, @NonNull String column) {
+        db.execSQL("INSERT INTO `Counter` (`type`, `localId`, `count`) " +
+                "SELECT " + type.getId() + ", `" + column + "`, count(*) FROM `" + table + "` " +
+                "WHERE `status` <> 3 and `" + column + "` is not null GROUP BY `" + column + "`");
+    }
+
+    /**
+     * Counts the rows of <code>table</code> per value of <code>column</code>
+     */
+    private static void createCountingTriggers(@NonNull SupportSQLiteDatabase db, @NonNull ECounterType type, @NonNull String table, @NonNull String column) {
+        final String triggerPrefix = "counter_" + type.name() + "_" + table;
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS `" + triggerPrefix + "_AFTER_INSERT` AFTER INSERT ON `" + table + "` " +
+                "WHEN NEW.`status` <> 3 " +
+                "BEGIN " + increment(type, "NEW.`" + column + "`") + " END");
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS `" + triggerPrefix + "_AFTER_DELETE` AFTER DELETE ON `" + table + "` " +
+                "WHEN OLD.`status` <> 3 " +
+                "BEGIN " + decrement(type, "OLD.`" + column + "`") + " END");
+        // Moving a row and (un)deleting it locally are both handled as removing the old and adding the new state
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS `" + triggerPrefix + "_AFTER_UPDATE` AFTER UPDATE OF `" + column + "`, `status` ON `" + table + "` " +
+                "WHEN OLD.`" + column + "` IS NOT NEW.`" + column + "` or (OLD.`status` <> 3) <> (NEW.`status` <> 3) " +
+                "BEGIN " +
+                "UPDATE `Counter` SET `count` = `count` - 1 WHERE `type` = " + type.getId() + " and `localId` = OLD.`" + column + "` and OLD.`status` <> 3; " +
+                "INSERT OR IGNORE INTO `Counter` (`type`, `localId`, `count`) SELECT " + type.getId() + ", NEW.`" + column + "`, 0 WHERE NEW.`status` <> 3; " +
+                "UPDATE `Counter` SET `count` = `count` + 1 WHERE `type` = " + type.getId() + " and `localId` = NEW.`" + column + "` and NEW.`status` <> 3; " +
+                "END");
+    }
+
+    /**
+     * Removes the {@link Counter} of a deleted row of <code>table</code>
+     */
+    private static void createCleanupTrigger(@NonNull SupportSQLiteDatabase db, @NonNull ECounterType type, @NonNull String table) {
+        db.execSQL("CREATE TRIGGER IF NOT EXISTS `counter_" + type.name() + "_" + table + "_CLEANUP` AFTER DELETE ON `" + table + "` " +
+                "BEGIN DELETE FROM `Counter` WHERE `type` = " + type.getId() + " and `localId` = OLD.`localId`; END");
+    }
+
+    @NonNull
+    private static String increment(@NonNull ECounterType type, @NonNull String localId) {
+        // INSERT OR IGNORE with NULL ids skips the row due to the NOT NULL constraint, the UPDATE does not match anything then
+        return "INSERT OR IGNORE INTO `Counter` (`type`, `localId`, `count`) VALUES (" + type.getId() + ", " + localId + ", 0); " +
+                "UPDATE `Counter` SET `count` = `count` + 1 WHERE `type` = " + type.getId() + " and `localId` = " + localId + ";";
+    }
+
+    @NonNull
+    private static String decrement(@NonNull ECounterType type, @NonNull String localId) {
+        return "UPDATE `Counter` SET `count` = `count` - 1 WHERE `type` = " + type.getId() + " and `localId` = " + localId + ";";
+    }
+}
@@ -5,6 +5,8 @@ import static androidx.lifecycle.Transformations.distinctUntilChanged;
 import android.appwidget.AppWidgetManager;
 import android.content.Context;
 import android.content.Intent;
+import android.database.Cursor;
+import android.util.LruCache;
 
 import androidx.annotation.AnyThread;
 import androidx.annotation.ColorInt;
@@ -14,25 +16,36 @@ import androidx.annotation.Nullable;
 import androidx.annotation.UiThread;
 import androidx.annotation.WorkerThread;
 import androidx.lifecycle.LiveData;
+import androidx.paging.Pager;
+import androidx.paging.PagingConfig;
+import androidx.paging.PagingData;
+import androidx.paging.PagingLiveData;
 import androidx.sqlite.db.SimpleSQLiteQuery;
+import androidx.sqlite.db.SupportSQLiteDatabase;
 
 import org.jetbrains.annotations.NotNull;
 
 import java.time.Instant;
+import java.time.ZonedDateTime;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import it.niedermann.nextcloud.deck.DeckLog;
+import it.niedermann.nextcloud.deck.R;
 import it.niedermann.nextcloud.deck.api.IResponseCallback;
 import it.niedermann.nextcloud.deck.model.AccessControl;
 import it.niedermann.nextcloud.deck.model.Account;
@@ -47,7 +60,12 @@ import it.niedermann.nextcloud.deck.model.Stack;
 import it.niedermann.nextcloud.deck.model.User;
 import it.niedermann.nextcloud.deck.model.appwidgets.StackWidgetModel;
 import it.niedermann.nextcloud.deck.model.enums.DBStatus;
+import it.niedermann.nextcloud.deck.model.enums.ECounterType;
 import it.niedermann.nextcloud.deck.model.enums.EDueType;
+import it.niedermann.nextcloud.deck.model.enums.EETagType;
+import it.niedermann.nextcloud.deck.model.enums.EOutboxEntityType;
+import it.niedermann.nextcloud.deck.model.enums.EOutboxOperation;
+import it.niedermann.nextcloud.deck.model.full.CardListItem;
 import it.niedermann.nextcloud.deck.model.full.FullBoard;
 import it.niedermann.nextcloud.deck.model.full.FullCard;
 import it.niedermann.nextcloud.deck.model.full.FullCardWithProjects;
@@ -55,7 +73,10 @@ import it.niedermann.nextcloud.deck.model.full.FullSingleCardWidgetModel;
 import it.niedermann.nextcloud.deck.model.full.FullStack;
 import it.niedermann.nextcloud.deck.model.interfaces.AbstractRemoteEntity;
 import it.niedermann.nextcloud.deck.model.interfaces.IRemoteEntity;
+import it.niedermann.nextcloud.deck.model.internal.EntityETag;
+import it.niedermann.nextcloud.deck.model.internal.EntitySyncState;
 import it.niedermann.nextcloud.deck.model.internal.FilterInformation;
+import it.niedermann.nextcloud.deck.model.internal.OutboxEntry;
 import it.niedermann.nextcloud.deck.model.ocs.Activity;
 import it.niedermann.nextcloud.deck.model.ocs.comment.DeckComment;
 import it.niedermann.nextcloud.deck.model.ocs.comment.Mention;
@@ -76,18 +97,43 @@ import it.niedermann.nextcloud.deck.model.widget.filter.FilterWidgetStack;
 import it.niedermann.nextcloud.deck.model.widget.filter.FilterWidgetUser;
 import it.niedermann.nextcloud.deck.model.widget.filter.dto.FilterWidgetCard;
 import it.niedermann.nextcloud.deck.model.widget.singlecard.SingleCardWidgetModel;
+import it.niedermann.nextcloud.deck.persistence.sync.OutboxWorker;
+import it.niedermann.nextcloud.deck.persistence.sync.adapters.db.util.FullTextSearchUtil;
 import it.niedermann.nextcloud.deck.persistence.sync.adapters.db.util.LiveDataHelper;
 import it.niedermann.nextcloud.deck.ui.upcomingcards.UpcomingCardsAdapterItem;
 import it.niedermann.nextcloud.deck.ui.widget.singlecard.SingleCardWidget;
+import it.niedermann.nextcloud.deck.util.MimeTypeUtil;
 
 public class DataBaseAdapter {
 
+    /**
+     * SQLite limits the amount of variables bound to one statement (999 on older devices), so large <code>IN (…)</code> queries get split
+     */
+    private static final int MAX_VARIABLES_PER_QUERY = 900;
+    /**
+     * SQL of {@link #getQueryForFilter(FilterInformation, List, List)} by the shape of the filter
+     */
+    private static final LruCache<String, String> filterQueryCache = new LruCache<>(32);
+
+    /**
+     * Amount of cards loaded at once by {@link #getPagedFullCardsForStack(long, long, FilterInformation)}
+     */
+    private static final int CARD_PAGE_SIZE = 30;
+    /**
+     * Value of <code>PRAGMA auto_vacuum</code> which allows to free pages with <code>PRAGMA incremental_vacuum</code>
+     */
+    private static final int AUTO_VACUUM_INCREMENTAL = 2;
+
     @NonNull
     private final DeckDatabase db;
     @NonNull
     private final Context context;
     @NonNull
     private final ExecutorService widgetNotifierExecutor;
+    /**
+     * Widget notifications collected while the current thread is inside {@link #runInTransaction(Runnable)}, keyed to drop duplicates
+     */
+    private final ThreadLocal<Map<String, Runnable>> deferredWidgetNotifications = new ThreadLocal<>();
 
     public DataBaseAdapter(@NonNull Context appContext) {
         this(appContext, DeckDatabase.getInstance(appContext), Executors.newCachedThreadPool());
@@ -104,6 +150,304 @@ public class DataBaseAdapter {
         return context;
     }
 
+    /**
+     * Runs the given body in one database transaction.
+     * {@link LiveData} observers get invalidated by Room once the transaction has been committed.
+     * Widget notifications issued by the body are deferred until then as well and sent only once per widget and entity.
+     * If the body throws, the transaction is rolled back and no notifications are sent.
+     */
+    @WorkerThread
+    public void runInTransaction(@NonNull Runnable body) {
+        if (deferredWidgetNotifications.get() != null) {
+            // Nested call, the outermost transaction will flush the notifications
+            db.runInTransaction(body);
+            return;
+        }
+        final Map<String, Runnable> deferred = new LinkedHashMap<>();
+        deferredWidgetNotifications.set(deferred);
+        try {
+            db.runInTransaction(body);
+        } finally {
+            deferredWidgetNotifications.remove();
+        }
+        for (Runnable notification : deferred.values()) {
+            widgetNotifierExecutor.submit(notification);
+        }
+    }
+
+    private static <K, R> List<R> queryInChunks(@NonNull List<K> keys, @NonNull Function<List<K>, List<R>> query) {
+        if (keys.isEmpty()) {
+            return new ArrayList<>(0);
+        } else if (keys.size() <= MAX_VARIABLES_PER_QUERY) {
+            return query.apply(keys);
+        }
+        final List<R> result = new ArrayList<>(keys.size());
+        for (int i = 0; i < keys.size(); i += MAX_VARIABLES_PER_QUERY) {
+            result.addAll(query.apply(keys.subList(i, Math.min(i + MAX_VARIABLES_PER_QUERY, keys.size()))));
+        }
+        return result;
+    }
+
+    @WorkerThread
+    public List<EntitySyncState> getBoardSyncStatesDirectly(long accountId, @NonNull List<Long> remoteIds) {
+        return queryInChunks(remoteIds, chunk -> db.getBoardDao().getSyncStatesByRemoteIdsDirectly(accountId, chunk));
+    }
+
+    @WorkerThread
+    public List<EntitySyncState> getStackSyncStatesDirectly(long accountId, long localBoardId, @NonNull List<Long> remoteIds) {
+        return queryInChunks(remoteIds, chunk -> db.getStackDao().getSyncStatesByRemoteIdsDirectly(accountId, localBoardId, chunk));
+    }
+
+    @WorkerThread
+    public List<EntitySyncState> getCardSyncStatesDirectly(long accountId, @NonNull List<Long> remoteIds) {
+        return queryInChunks(remoteIds, chunk -> db.getCardDao().getSyncStatesByRemoteIdsDirectly(accountId, chunk));
+    }
+
+    @WorkerThread
+    public List<EntitySyncState> getCardSyncStatesForStackDirectly(long accountId, long localStackId) {
+        return db.getCardDao().getSyncStatesForStackDirectly(accountId, localStackId);
+    }
+
+    @WorkerThread
+    public List<EntitySyncState> getLabelSyncStatesDirectly(long accountId, @NonNull List<Long> remoteIds) {
+        return queryInChunks(remoteIds, chunk -> db.getLabelDao().getSyncStatesByRemoteIdsDirectly(accountId, chunk));
+    }
+
+    @WorkerThread
+    public List<EntitySyncState> getAttachmentSyncStatesDirectly(long accountId, @NonNull List<Long> remoteIds) {
+        return queryInChunks(remoteIds, chunk -> db.getAttachmentDao().getSyncStatesByRemoteIdsDirectly(accountId, chunk));
+    }
+
+    @WorkerThread
+    public List<EntitySyncState> getAccessControlSyncStatesDirectly(long accountId, @NonNull List<Long> remoteIds) {
+        return queryInChunks(remoteIds, chunk -> db.getAccessControlDao().getSyncStatesByRemoteIdsDirectly(accountId, chunk));
+    }
+
+    @WorkerThread
+    public List<EntitySyncState> getActivitySyncStatesDirectly(long accountId, @NonNull List<Long> remoteIds) {
+        return queryInChunks(remoteIds, chunk -> db.getActivityDao().getSyncStatesByRemoteIdsDirectly(accountId, chunk));
+    }
+
+    @WorkerThread
+    public List<EntitySyncState> getCommentSyncStatesDirectly(long accountId, @NonNull List<Long> remoteIds) {
+        return queryInChunks(remoteIds, chunk -> db.getCommentDao().getSyncStatesByRemoteIdsDirectly(accountId, chunk));
+    }
+
+    @WorkerThread
+    public List<EntitySyncState> getProjectSyncStatesDirectly(long accountId, @NonNull List<Long> remoteIds) {
+        return queryInChunks(remoteIds, chunk -> db.getOcsProjectDao().getSyncStatesByRemoteIdsDirectly(accountId, chunk));
+    }
+
+    @WorkerThread
+    public List<User> getUsersByUidsDirectly(long accountId, @NonNull List<String> uids) {
+        return queryInChunks(uids, chunk -> db.getUserDao().getUsersByUidsDirectly(accountId, chunk));
+    }
+
+    @Nullable
+    @WorkerThread
+    public String getETagDirectly(long accountId, @NonNull EETagType type, long remoteId) {
+        return db.getEntityETagDao().getETagDirectly(accountId, type, remoteId);
+    }
+
+    /**
+     * @return the known ETags of the given remote IDs, keyed by remote ID
+     */
+    @NonNull
+    @WorkerThread
+    public Map<Long, String> getETagsDirectly(long accountId, @NonNull EETagType type, @NonNull List<Long> remoteIds) {
+        final List<EntityETag> etags = queryInChunks(remoteIds, chunk -> db.getEntityETagDao().getETagsDirectly(accountId, type, chunk));
+        final Map<Long, String> etagsByRemoteId = new HashMap<>(etags.size());
+        for (EntityETag etag : etags) {
+            etagsByRemoteId.put(etag.getRemoteId(), etag.getEtag());
+        }
+        return etagsByRemoteId;
+    }
+
+    /**
+     * @param etags the new ETags keyed by remote ID
+     */
+    @WorkerThread
+    public void setETags(long accountId, @NonNull EETagType type, @NonNull Map<Long, String> etags) {
+        if (etags.isEmpty()) {
+            return;
+        }
+        final List<EntityETag> entities = new ArrayList<>(etags.size());
+        for (Map.Entry<Long, String> etag : etags.entrySet()) {
+            entities.add(new EntityETag(accountId, type, etag.getKey(), etag.getValue()));
+        }
+        db.getEntityETagDao().upsert(entities);
+    }
+
+    private void notifyWidgets(@NonNull String key, @NonNull Runnable notification) {
+        runAfterCommit(key, notification);
+    }
+
+    /**
+     * Runs the given task in the background, but not before the current transaction (if any) has been committed.
+     * Tasks with the same key are only executed once per transaction.
+     */
+    private void runAfterCommit(@NonNull String key, @NonNull Runnable task) {
+        final Map<String, Runnable> deferred = deferredWidgetNotifications.get();
+        if (deferred == null) {
+            widgetNotifierExecutor.submit(task);
+        } else {
+            deferred.putIfAbsent(key, task);
+        }
+    }
+
+    /**
+     * Appends a local mutation to the outbox and makes sure it will be uploaded as soon as possible
+     */
+    private void recordLocalChange(long accountId, @NonNull EOutboxEntityType type, @Nullable Long localId, @Nullable Long relatedLocalId, @NonNull EOutboxOperation operation, @Nullable Instant payloadVersion) {
+        if (localId == null) {
+            DeckLog.warn("Can not record", operation, "of", type, "without local id");
+            return;
+        }
+        db.getOutboxEntryDao().insert(new OutboxEntry(accountId, type, localId, relatedLocalId, operation, payloadVersion, Instant.now()));
+        runAfterCommit("outbox", () -> OutboxWorker.enqueue(context));
+    }
+
+    private <T extends AbstractRemoteEntity> void recordLocalCreationIfNeeded(@NonNull EOutboxEntityType type, @NonNull T entity, long localId) {
+        if (entity.getStatus() != DBStatus.UP_TO_DATE.getId()) {
+            recordLocalChange(entity.getAccountId(), type, localId, null, EOutboxOperation.CREATE, entity.getLastModifiedLocal());
+        }
+    }
+
+    private void recordLocalJoinChange(@NonNull EOutboxEntityType type, long localCardId, long relatedLocalId, @NonNull EOutboxOperation operation) {
+        final Long accountId = db.getCardDao().getAccountIdByLocalIdDirectly(localCardId);
+        if (accountId != null) {
+            recordLocalChange(accountId, type, localCardId, relatedLocalId, operation, Instant.now());
+        }
+    }
+
+    @WorkerThread
+    public boolean hasPendingOutboxEntriesDirectly(long accountId) {
+        return db.getOutboxEntryDao().hasPendingEntriesDirectly(accountId);
+    }
+
+    /**
+     * @param afterId <code>0</code> to get the first pending entry
+     * @return the oldest pending {@link OutboxEntry} which has been recorded after the one with the given <code>afterId</code> or <code>null</code>
+     */
+    @Nullable
+    @WorkerThread
+    public OutboxEntry getNextPendingOutboxEntryDirectly(long accountId, long afterId) {
+        return db.getOutboxEntryDao().getNextPendingEntryDirectly(accountId, afterId);
+    }
+
+    @WorkerThread
+    public List<Long> getAccountIdsWithOutboxEntriesDirectly() {
+        return db.getOutboxEntryDao().getAccountIdsWithEntriesDirectly();
+    }
+
+    /**
+     * Removes all outbox entries whose entities have been synchronized in the meantime
+     */
+    @WorkerThread
+    public void deleteSettledOutboxEntriesDirectly(long accountId) {
+        final int deleted = db.getOutboxEntryDao().deleteSettledEntriesDirectly(accountId);
+        if (deleted > 0) {
+            DeckLog.verbose("Removed", deleted, "settled outbox entries of account", accountId);
+        }
+    }
+
+    @WorkerThread
+    public void incrementOutboxAttemptsDirectly(@NonNull OutboxEntry entry) {
+        db.getOutboxEntryDao().incrementAttemptsDirectly(entry.getId());
+    }
+
+    /**
+     * Skips the given {@link OutboxEntry} from now on, its entity will only be uploaded by the next full synchronization
+     */
+    @WorkerThread
+    public void giveUpOutboxEntryDirectly(@NonNull OutboxEntry entry) {
+        db.getOutboxEntryDao().giveUpDirectly(entry.getId());
+    }
+
+    /**
+     * @return the amount of {@link OutboxEntry}s which have been given up while their entities are still not synchronized
+     */
+    @WorkerThread
+    public int countGivenUpOutboxEntriesDirectly(long accountId) {
+        return db.getOutboxEntryDao().countGivenUpEntriesDirectly(accountId);
+    }
+
+    /**
+     * Purges tombstones which have never been known by the server, deletes orphaned relations and old {@link Activity}s.
+     * Afterwards the statistics of the query planner are refreshed and free pages are handed back to the file system.
+     *
+     * @param tombstonesBefore only tombstones which have been deleted locally before this date are purged to not interfere with a running synchronization
+     * @param activitiesBefore {@link Activity}s which have been modified before this date are deleted
+     */
+    @WorkerThread
+    public void performMaintenanceDirectly(@NonNull Instant tombstonesBefore, @NonNull Instant activitiesBefore) {
+        final var dao = db.getMaintenanceDao();
+        final var database = db.getOpenHelper().getWritableDatabase();
+        final long bytesBefore = getDatabaseSize(database);
+
+        long start = System.currentTimeMillis();
+        // Relations first, their tombstone state depends on the remote ids of the cards and labels
+        final int tombstones = db.runInTransaction(() -> dao.purgeJoinCardWithLabelTombstones()
+                + dao.purgeJoinCardWithUserTombstones()
+                + dao.purgeCommentTombstones(tombstonesBefore)
+                + dao.purgeAttachmentTombstones(tombstonesBefore)
+                + dao.purgeCardTombstones(tombstonesBefore)
+                + dao.purgeLabelTombstones(tombstonesBefore)
+                + dao.purgeAccessControlTombstones(tombstonesBefore)
+                + dao.purgeStackTombstones(tombstonesBefore)
+                + dao.purgeBoardTombstones(tombstonesBefore));
+        DeckLog.info("Maintenance: Purged", tombstones, "tombstones in", System.currentTimeMillis() - start, "ms");
+
+        start = System.currentTimeMillis();
+        final int orphans = db.runInTransaction(() -> dao.deleteOrphanedJoinCardWithLabels()
+                + dao.deleteOrphanedJoinCardWithUsers()
+                + dao.deleteOrphanedJoinCardWithProjects()
+                + dao.deleteOrphanedMentions()
+                + dao.deleteOrphanedAttachments());
+        DeckLog.info("Maintenance: Deleted", orphans, "orphaned relations in", System.currentTimeMillis() - start, "ms");
+
+        start = System.currentTimeMillis();
+        final int activities = dao.deleteActivitiesBefore(activitiesBefore);
+        DeckLog.info("Maintenance: Deleted", activities, "activities older than", activitiesBefore, "in", System.currentTimeMillis() - start, "ms");
+
+        start = System.currentTimeMillis();
+        database.execSQL("ANALYZE");
+        DeckLog.info("Maintenance: Analyzed database in", System.currentTimeMillis() - start, "ms");
+
+        start = System.currentTimeMillis();
+        vacuum(database);
+        final long bytesAfter = getDatabaseSize(database);
+        DeckLog.info("Maintenance: Vacuumed database in", System.currentTimeMillis() - start, "ms, reclaimed", bytesBefore - bytesAfter, "bytes, current size:", bytesAfter, "bytes");
+    }
+
+    /**
+     * Frees unused pages incrementally. Switching to incremental auto vacuum requires one full <code>VACUUM</code> which is performed on the first run.
+     */
+    @WorkerThread
+    private static void vacuum(@NonNull SupportSQLiteDatabase database) {
+        if (queryLong(database, "PRAGMA auto_vacuum") == AUTO_VACUUM_INCREMENTAL) {
+            // The pragma frees one page per step, reading the cursor runs it to completion
+            try (Cursor cursor = database.query("PRAGMA incremental_vacuum")) {
+                cursor.getCount();
+            }
+        } else {
+            database.execSQL("PRAGMA auto_vacuum = " + AUTO_VACUUM_INCREMENTAL);
+            database.execSQL("VACUUM");
+        }
+    }
+
+    @WorkerThread
+    private static long getDatabaseSize(@NonNull SupportSQLiteDatabase database) {
+        return queryLong(database, "PRAGMA page_count") * queryLong(database, "PRAGMA page_size");
+    }
+
+    @WorkerThread
+    private static long queryLong(@NonNull SupportSQLiteDatabase database, @NonNull String sql) {
+        try (Cursor cursor = database.query(sql)) {
+            return cursor.moveToFirst() ? cursor.getLong(0) : 0L;
+        }
+    }
+
     private <T extends AbstractRemoteEntity> void markAsEditedIfNeeded(T entity, boolean setStatus) {
         if (!setStatus) return;
         entity.setLastModifiedLocal(Instant.now());
@@ -116,6 +460,18 @@ public class DataBaseAdapter {
         entity.setLastModifiedLocal(Instant.now());
     }
 
+    private <T extends AbstractRemoteEntity> void markAsEditedIfNeeded(@NonNull EOutboxEntityType type, T entity, boolean setStatus) {
+        if (!setStatus) return;
+        markAsEditedIfNeeded(entity, true);
+        recordLocalChange(entity.getAccountId(), type, entity.getLocalId(), null, EOutboxOperation.UPDATE, entity.getLastModifiedLocal());
+    }
+
+    private <T extends AbstractRemoteEntity> void markAsDeletedIfNeeded(@NonNull EOutboxEntityType type, T entity, boolean setStatus) {
+        if (!setStatus) return;
+        markAsDeletedIfNeeded(entity, true);
+        recordLocalChange(entity.getAccountId(), type, entity.getLocalId(), null, EOutboxOperation.DELETE, entity.getLastModifiedLocal());
+    }
+
     public LiveData<Boolean> hasAccounts() {
         return LiveDataHelper.postCustomValue(db.getAccountDao().countAccounts(), data -> data != null && data > 0);
     }
@@ -175,23 +531,8 @@ public class DataBaseAdapter {
 
     public void filterRelationsForCard(@Nullable FullCard card) {
         if (card != null) {
-            if (card.getLabels() != null && !card.getLabels().isEmpty()) {
-                List<Long> filteredIDs = db.getJoinCardWithLabelDao().filterDeleted(card.getLocalId(), getLocalIDs(card.getLabels()));
-                card.setLabels(db.getLabelDao().getLabelsByIdsDirectly(filteredIDs));
-            }
-            if (card.getAssignedUsers() != null && !card.getAssignedUsers().isEmpty()) {
-                List<Long> filteredIDs = db.getJoinCardWithUserDao().filterDeleted(card.getLocalId(), getLocalIDs(card.getAssignedUsers()));
-                card.setAssignedUsers(db.getUserDao().getUsersByIdsDirectly(filteredIDs));
-            }
-        }
-    }
-
-    private <T> List<Long> getLocalIDs(@NonNull List<? extends AbstractRemoteEntity> remoteEntityList) {
-        ArrayList<Long> ids = new ArrayList<>(remoteEntityList.size());
-        for (AbstractRemoteEntity entity : remoteEntityList) {
-            ids.add(entity.getLocalId());
+            filterRelationsForCard(Collections.singletonList(card));
         }
-        return ids;
     }
 
     public void readRelationsForACL(@Nullable List<AccessControl> acl) {
@@ -210,12 +551,48 @@ public class DataBaseAdapter {
         }
     }
 
-    private void filterRelationsForCard(@Nullable Collection<FullCard> card) {
-        if (card == null) {
+    /**
+     * Removes locally deleted {@link Label}s and assigned {@link User}s from the given cards.
+     * Fetches the remaining joins of all given cards at once instead of querying per card.
+     */
+    private void filterRelationsForCard(@Nullable Collection<FullCard> cards) {
+        if (cards == null || cards.isEmpty()) {
             return;
         }
-        for (FullCard c : card) {
-            filterRelationsForCard(c);
+        final List<Long> cardIdsWithLabels = new ArrayList<>();
+        final List<Long> cardIdsWithUsers = new ArrayList<>();
+        for (FullCard card : cards) {
+            if (card.getLabels() != null && !card.getLabels().isEmpty()) {
+                cardIdsWithLabels.add(card.getLocalId());
+            }
+            if (card.getAssignedUsers() != null && !card.getAssignedUsers().isEmpty()) {
+                cardIdsWithUsers.add(card.getLocalId());
+            }
+        }
+
+        final Map<Long, Set<Long>> labelIdsByCardId = new HashMap<>();
+        for (JoinCardWithLabel join : queryInChunks(cardIdsWithLabels, chunk -> db.getJoinCardWithLabelDao().getNotDeletedJoinsForCardsDirectly(chunk))) {
+            labelIdsByCardId.computeIfAbsent(join.getCardId(), cardId -> new HashSet<>()).add(join.getLabelId());
+        }
+        final Map<Long, Set<Long>> userIdsByCardId = new HashMap<>();
+        for (JoinCardWithUser join : queryInChunks(cardIdsWithUsers, chunk -> db.getJoinCardWithUserDao().getNotDeletedJoinsForCardsDirectly(chunk))) {
+            userIdsByCardId.computeIfAbsent(join.getCardId(), cardId -> new HashSet<>()).add(join.getUserId());
+        }
+
+        for (FullCard card : cards) {
+            if (card.getLabels() != null && !card.getLabels().isEmpty()) {
+                final Set<Long> labelIds = labelIdsByCardId.getOrDefault(card.getLocalId(), Collections.emptySet());
+                card.setLabels(card.getLabels().stream()
+                        .filter(label -> label.getStatus() != DBStatus.LOCAL_DELETED.getId() && labelIds.contains(label.getLocalId()))
+                        .sorted(Comparator.comparing(Label::getTitle, Comparator.nullsFirst(Comparator.naturalOrder())))
+                        .collect(Collectors.toList()));
+            }
+            if (card.getAssignedUsers() != null && !card.getAssignedUsers().isEmpty()) {
+                final Set<Long> userIds = userIdsByCardId.getOrDefault(card.getLocalId(), Collections.emptySet());
+                card.setAssignedUsers(card.getAssignedUsers().stream()
+                        .filter(user -> user.getStatus() != DBStatus.LOCAL_DELETED.getId() && userIds.contains(user.getLocalId()))
+                        .collect(Collectors.toList()));
+            }
         }
     }
 
@@ -224,12 +601,83 @@ public class DataBaseAdapter {
         return db.getCardDao().getCardByRemoteIdDirectly(accountId, remoteId);
     }
 
-    public LiveData<List<FullCard>> getFullCardsForStack(long accountId, long localStackId, FilterInformation filter) {
-        if (filter == null) {
-            return LiveDataHelper.interceptLiveData(db.getCardDao().getFullCardsForStack(accountId, localStackId), this::filterRelationsForCard);
+    /**
+     * Loads the cards of a stack page by page as {@link CardListItem}s and only resolves what is needed to display them in a list.
+     * The returned {@link FullCard}s contain only the cover images as {@link FullCard#getAttachments()} and no {@link FullCard#getCommentIDs()}, use {@link #getFullCardByLocalIdDirectly(long, long)} to get the complete card.
+     * The query gets rebuilt each time the {@link CardPagingSource} is invalidated, so relative due date filters stay up to date.
+     */
+    public LiveData<PagingData<FullCard>> getPagedFullCardsForStack(long accountId, long localStackId, @Nullable FilterInformation filter) {
+        final var filterInformation = filter == null ? new FilterInformation() : filter;
+        final Pager<Integer, FullCard> pager = new Pager<>(
+                new PagingConfig(CARD_PAGE_SIZE, CARD_PAGE_SIZE, true, CARD_PAGE_SIZE * 2),
+                () -> new CardPagingSource(db, getQueryForFilter(CardListItem.SELECT, filterInformation, Collections.singletonList(accountId), Collections.singletonList(localStackId)), this::toFullCards));
+        return PagingLiveData.getLiveData(pager);
+    }
+
+    /**
+     * Resolves the {@link Label}s, assigned {@link User}s, owners and cover images of all given {@link CardListItem}s with one query per entity type.
+     */
+    @WorkerThread
+    @NonNull
+    private List<FullCard> toFullCards(@Nullable List<CardListItem> items) {
+        if (items == null || items.isEmpty()) {
+            return Collections.emptyList();
+        }
+        final Set<Long> labelIds = new HashSet<>();
+        final Set<Long> userIds = new HashSet<>();
+        final List<Long> cardIdsWithAttachments = new ArrayList<>();
+        for (CardListItem item : items) {
+            labelIds.addAll(item.getLabelIds());
+            userIds.addAll(item.getAssignedUserIds());
+            if (item.card.getUserId() != null) {
+                userIds.add(item.card.getUserId());
+            }
+            if (item.attachmentCount > 0) {
+                cardIdsWithAttachments.add(item.card.getLocalId());
+            }
+        }
+
+        final Map<Long, Label> labels = new HashMap<>();
+        for (Label label : queryInChunks(new ArrayList<>(labelIds), chunk -> db.getLabelDao().getLabelsByIdsDirectly(chunk))) {
+            labels.put(label.getLocalId(), label);
+        }
+        final Map<Long, User> users = new HashMap<>();
+        for (User user : queryInChunks(new ArrayList<>(userIds), chunk -> db.getUserDao().getUsersByIdsDirectly(chunk))) {
+            users.put(user.getLocalId(), user);
+        }
+        final int maxCoverImages = context.getResources().getInteger(R.integer.max_cover_images);
+        final Map<Long, List<Attachment>> coverImages = new HashMap<>();
+        if (maxCoverImages > 0) {
+            for (Attachment attachment : queryInChunks(cardIdsWithAttachments, chunk -> db.getAttachmentDao().getImageAttachmentsForLocalCardIdsDirectly(chunk))) {
+                if (MimeTypeUtil.isImage(attachment.getMimetype())) {
+                    coverImages.computeIfAbsent(attachment.getCardId(), cardId -> new ArrayList<>()).add(attachment);
+                }
+            }
         }
-        return LiveDataHelper.interceptLiveData(db.getCardDao().getFilteredFullCardsForStack(getQueryForFilter(filter, accountId, localStackId)), this::filterRelationsForCard);
 
+        final List<FullCard> fullCards = new ArrayList<>(items.size());
+        for (CardListItem item : items) {
+            final var fullCard = new FullCard();
+            fullCard.setCard(item.card);
+            fullCard.setLabels(item.getLabelIds().stream()
+                    .map(labels::get)
+                    .filter(Objects::nonNull)
+                    .sorted(Comparator.comparing(Label::getTitle, Comparator.nullsFirst(Comparator.naturalOrder())))
+                    .collect(Collectors.toList()));
+            fullCard.setAssignedUsers(item.getAssignedUserIds().stream()
+                    .map(users::get)
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toList()));
+            final User owner = item.card.getUserId() == null ? null : users.get(item.card.getUserId());
+            fullCard.owner = owner == null ? new ArrayList<>() : new ArrayList<>(Collections.singletonList(owner));
+            final List<Attachment> attachments = coverImages.getOrDefault(item.card.getLocalId(), new ArrayList<>());
+            Collections.sort(attachments);
+            fullCard.setAttachments(attachments.size() > maxCoverImages ? new ArrayList<>(attachments.subList(0, maxCoverImages)) : attachments);
+            fullCard.setAttachmentCount(item.attachmentCount);
+            fullCard.setCommentCount(item.commentCount);
+            fullCards.add(fullCard);
+        }
+        return fullCards;
     }
 
     private void fillSqlWithEntityListValues(StringBuilder query, Collection<Object> args, @NonNull List<? extends IRemoteEntity> entities) {
@@ -259,10 +707,30 @@ public class DataBaseAdapter {
         return getQueryForFilter(filter, Collections.singletonList(accountId), Collections.singletonList(localStackId));
     }
 
+    /**
+     * Builds a query for the given {@link FilterInformation}. All values are bound as parameters, so filters of the same shape result in the very same SQL.
+     * The SQL of already seen shapes is taken from {@link #filterQueryCache}, which also allows SQLite to reuse its prepared statement.
+     */
     @AnyThread
     private SimpleSQLiteQuery getQueryForFilter(FilterInformation filter, List<Long> accountIds, List<Long> localStackIds) {
+        return getQueryForFilter("SELECT * FROM card c", filter, accountIds, localStackIds);
+    }
+
+    /**
+     * @param select the <code>SELECT … FROM</code> clause of the query, the card table must be aliased as <code>c</code>
+     */
+    @AnyThread
+    private SimpleSQLiteQuery getQueryForFilter(@NonNull String select, FilterInformation filter, List<Long> accountIds, List<Long> localStackIds) {
+        final String matchQuery = FullTextSearchUtil.toPrefixMatchQuery(filter.getFilterText());
+        final var now = ZonedDateTime.now();
+        final String shape = select + ";" + getFilterQueryShape(filter, accountIds, localStackIds, matchQuery);
+        final String cachedSql = filterQueryCache.get(shape);
+        if (cachedSql != null) {
+            return new SimpleSQLiteQuery(cachedSql, collectFilterQueryArgs(filter, accountIds, localStackIds, matchQuery, now).toArray());
+        }
+
         final Collection<Object> args = new ArrayList<>();
-        StringBuilder query = new StringBuilder("SELECT * FROM card c WHERE 1=1 ");
+        StringBuilder query = new StringBuilder(select).append(" WHERE 1=1 ");
         if (accountIds != null && !accountIds.isEmpty()) {
             query.append("and accountId in (");
             fillSqlWithListValues(query, args, accountIds);
@@ -319,32 +787,108 @@ public class DataBaseAdapter {
                     query.append("and c.dueDate is null");
                     break;
                 case OVERDUE:
-                    query.append("and datetime(c.duedate/1000, 'unixepoch', 'localtime') <= datetime('now', 'localtime')");
+                    query.append("and c.dueDate <= ?");
                     break;
                 case TODAY:
-                    query.append("and datetime(c.duedate/1000, 'unixepoch', 'localtime') between datetime('now', 'localtime') and datetime('now', '+24 hour', 'localtime')");
-                    break;
                 case WEEK:
-                    query.append("and datetime(c.duedate/1000, 'unixepoch', 'localtime') between datetime('now', 'localtime') and datetime('now', '+7 day', 'localtime')");
-                    break;
                 case MONTH:
-                    query.append("and datetime(c.duedate/1000, 'unixepoch', 'localtime') between datetime('now', 'localtime') and datetime('now', '+30 day', 'localtime')");
+                    query.append("and c.dueDate between ? and ?");
                     break;
                 default:
                     throw new IllegalArgumentException("You need to add your new EDueType value\"" + filter.getDueType() + "\" here!");
             }
+            args.addAll(getDueDateBounds(filter.getDueType(), now));
         }
         if (filter.getFilterText() != null && !filter.getFilterText().isEmpty()) {
-            query.append(" and (c.description like ? or c.title like ?) ");
-            String filterText = "%" + filter.getFilterText() + "%";
-            args.add(filterText);
-            args.add(filterText);
+            if (matchQuery == null) {
+                // Only special characters which are not part of the full text index
+                query.append(" and (c.description like ? or c.title like ?) ");
+                String filterText = "%" + filter.getFilterText() + "%";
+                args.add(filterText);
+                args.add(filterText);
+            } else {
+                query.append(" and c.localId in (select docid from CardFts where CardFts match ?) ");
+                args.add(matchQuery);
+            }
         }
         if (filter.getArchiveStatus() != FilterInformation.EArchiveStatus.ALL) {
             query.append(" and c.archived = ").append(filter.getArchiveStatus() == FilterInformation.EArchiveStatus.ARCHIVED ? 1 : 0);
         }
-        query.append(" and status<>3 order by accountId asc, stackId asc, `order`, createdAt asc;");
-        return new SimpleSQLiteQuery(query.toString(), args.toArray());
+        query.append(" and status<>3 order by accountId asc, stackId asc, `order`, createdAt asc");
+        final String sql = query.toString();
+        filterQueryCache.put(shape, sql);
+        return new SimpleSQLiteQuery(sql, args.toArray());
+    }
+
+    /**
+     * @return a key which is equal for all filters which result in the same SQL in {@link #getQueryForFilter(FilterInformation, List, List)}
+     */
+    @NonNull
+    private static String getFilterQueryShape(@NonNull FilterInformation filter, @Nullable List<Long> accountIds, @Nullable List<Long> localStackIds, @Nullable String matchQuery) {
+        final boolean hasFilterText = filter.getFilterText() != null && !filter.getFilterText().isEmpty();
+        return (accountIds == null ? 0 : accountIds.size()) + ";" +
+                (localStackIds == null ? 0 : localStackIds.size()) + ";" +
+                filter.getLabels().size() + ";" + filter.isNoAssignedLabel() + ";" +
+                filter.getUsers().size() + ";" + filter.isNoAssignedUser() + ";" +
+                filter.getProjects().size() + ";" + filter.isNoAssignedProject() + ";" +
+                filter.getDueType().getId() + ";" +
+                (hasFilterText ? (matchQuery == null ? "like" : "match") : "") + ";" +
+                filter.getArchiveStatus();
+    }
+
+    /**
+     * Collects the arguments for a cached query of {@link #getQueryForFilter(FilterInformation, List, List)}. Must bind them in the very same order.
+     */
+    @NonNull
+    private static Collection<Object> collectFilterQueryArgs(@NonNull FilterInformation filter, @Nullable List<Long> accountIds, @Nullable List<Long> localStackIds, @Nullable String matchQuery, @NonNull ZonedDateTime now) {
+        final Collection<Object> args = new ArrayList<>();
+        if (accountIds != null) {
+            args.addAll(accountIds);
+        }
+        if (localStackIds != null) {
+            args.addAll(localStackIds);
+        }
+        filter.getLabels().forEach(label -> args.add(label.getLocalId()));
+        filter.getUsers().forEach(user -> args.add(user.getLocalId()));
+        filter.getProjects().forEach(project -> args.add(project.getLocalId()));
+        if (filter.getDueType() != EDueType.NO_FILTER) {
+            args.addAll(getDueDateBounds(filter.getDueType(), now));
+        }
+        if (filter.getFilterText() != null && !filter.getFilterText().isEmpty()) {
+            if (matchQuery == null) {
+                final String filterText = "%" + filter.getFilterText() + "%";
+                args.add(filterText);
+                args.add(filterText);
+            } else {
+                args.add(matchQuery);
+            }
+        }
+        return args;
+    }
+
+    /**
+     * Calculates the bounds for the given {@link EDueType} in the local time zone, so they can be compared against the indexed <code>dueDate</code> column.
+     *
+     * @return the epoch milliseconds which need to be bound for the given {@link EDueType}
+     */
+    @NonNull
+    private static List<Long> getDueDateBounds(@NonNull EDueType dueType, @NonNull ZonedDateTime now) {
+        final long nowMillis = now.toInstant().toEpochMilli();
+        switch (dueType) {
+            case NO_FILTER:
+            case NO_DUE:
+                return Collections.emptyList();
+            case OVERDUE:
+                return Collections.singletonList(nowMillis);
+            case TODAY:
+                return List.of(nowMillis, now.plusHours(24).toInstant().toEpochMilli());
+            case WEEK:
+                return List.of(nowMillis, now.plusDays(7).toInstant().toEpochMilli());
+            case MONTH:
+                return List.of(nowMillis, now.plusDays(30).toInstant().toEpochMilli());
+            default:
+                throw new IllegalArgumentException("You need to add your new EDueType value\"" + dueType + "\" here!");
+        }
     }
 
     @WorkerThread
@@ -396,6 +940,7 @@ public class DataBaseAdapter {
     public long createLabelDirectly(long accountId, @NonNull Label label) {
         label.setAccountId(accountId);
         final long newId = db.getLabelDao().insert(label);
+        recordLocalCreationIfNeeded(EOutboxEntityType.LABEL, label, newId);
         notifyFilterWidgetsAboutChangedEntity(FilterWidget.EChangedEntityType.LABEL, newId);
         return newId;
     }
@@ -410,6 +955,7 @@ public class DataBaseAdapter {
             // readded!
             existing.setStatusEnum(DBStatus.LOCAL_EDITED);
             db.getJoinCardWithLabelDao().update(existing);
+            recordLocalJoinChange(EOutboxEntityType.CARD_LABEL, localCardId, localLabelId, EOutboxOperation.CREATE);
             notifyFilterWidgetsAboutChangedEntity(FilterWidget.EChangedEntityType.LABEL, existing.getLabelId());
         } else {
             final JoinCardWithLabel join = new JoinCardWithLabel();
@@ -417,6 +963,9 @@ public class DataBaseAdapter {
             join.setLabelId(localLabelId);
             join.setStatus(status.getId());
             db.getJoinCardWithLabelDao().insert(join);
+            if (status != DBStatus.UP_TO_DATE) {
+                recordLocalJoinChange(EOutboxEntityType.CARD_LABEL, localCardId, localLabelId, EOutboxOperation.CREATE);
+            }
             notifyFilterWidgetsAboutChangedEntity(FilterWidget.EChangedEntityType.LABEL, join.getLabelId());
         }
     }
@@ -427,11 +976,13 @@ public class DataBaseAdapter {
 
     public void deleteJoinedLabelForCard(long localCardId, long localLabelId) {
         db.getJoinCardWithLabelDao().setDbStatus(localCardId, localLabelId, DBStatus.LOCAL_DELETED.getId());
+        recordLocalJoinChange(EOutboxEntityType.CARD_LABEL, localCardId, localLabelId, EOutboxOperation.DELETE);
         notifyFilterWidgetsAboutChangedEntity(FilterWidget.EChangedEntityType.LABEL, localLabelId);
     }
 
     public void deleteJoinedUserForCard(long localCardId, long localUserId) {
         db.getJoinCardWithUserDao().setDbStatus(localCardId, localUserId, DBStatus.LOCAL_DELETED.getId());
+        recordLocalJoinChange(EOutboxEntityType.CARD_USER, localCardId, localUserId, EOutboxOperation.DELETE);
         notifyFilterWidgetsAboutChangedEntity(FilterWidget.EChangedEntityType.USER, localUserId);
     }
 
@@ -453,6 +1004,7 @@ public class DataBaseAdapter {
             // readded!
             existing.setStatusEnum(DBStatus.LOCAL_EDITED);
             db.getJoinCardWithUserDao().update(existing);
+            recordLocalJoinChange(EOutboxEntityType.CARD_USER, localCardId, localUserId, EOutboxOperation.CREATE);
             notifyFilterWidgetsAboutChangedEntity(FilterWidget.EChangedEntityType.USER, localUserId);
         } else if (existing != null) {
             return;
@@ -462,6 +1014,9 @@ public class DataBaseAdapter {
             join.setUserId(localUserId);
             join.setStatus(status.getId());
             db.getJoinCardWithUserDao().insert(join);
+            if (status != DBStatus.UP_TO_DATE) {
+                recordLocalJoinChange(EOutboxEntityType.CARD_USER, localCardId, localUserId, EOutboxOperation.CREATE);
+            }
             notifyFilterWidgetsAboutChangedEntity(FilterWidget.EChangedEntityType.USER, localUserId);
         }
     }
@@ -504,13 +1059,13 @@ public class DataBaseAdapter {
     }
 
     public void updateLabel(Label label, boolean setStatus) {
-        markAsEditedIfNeeded(label, setStatus);
+        markAsEditedIfNeeded(EOutboxEntityType.LABEL, label, setStatus);
         db.getLabelDao().update(label);
         notifyFilterWidgetsAboutChangedEntity(FilterWidget.EChangedEntityType.LABEL, label.getLocalId());
     }
 
     public void deleteLabel(Label label, boolean setStatus) {
-        markAsDeletedIfNeeded(label, setStatus);
+        markAsDeletedIfNeeded(EOutboxEntityType.LABEL, label, setStatus);
         db.getLabelDao().update(label);
         notifyFilterWidgetsAboutChangedEntity(FilterWidget.EChangedEntityType.LABEL, label.getLocalId());
     }
@@ -603,12 +1158,13 @@ public class DataBaseAdapter {
     public long createBoardDirectly(long accountId, @NonNull Board board) {
         board.setAccountId(accountId);
         final long id = db.getBoardDao().insert(board);
+        recordLocalCreationIfNeeded(EOutboxEntityType.BOARD, board, id);
         notifyFilterWidgetsAboutChangedEntity(FilterWidget.EChangedEntityType.BOARD, id);
         return id;
     }
 
     public void deleteBoard(Board board, boolean setStatus) {
-        markAsDeletedIfNeeded(board, setStatus);
+        markAsDeletedIfNeeded(EOutboxEntityType.BOARD, board, setStatus);
         db.getBoardDao().update(board);
         notifyAllWidgets();
         notifyFilterWidgetsAboutChangedEntity(FilterWidget.EChangedEntityType.BOARD, board.getLocalId());
@@ -620,7 +1176,7 @@ public class DataBaseAdapter {
     }
 
     public void updateBoard(Board board, boolean setStatus) {
-        markAsEditedIfNeeded(board, setStatus);
+        markAsEditedIfNeeded(EOutboxEntityType.BOARD, board, setStatus);
         db.getBoardDao().update(board);
         notifyFilterWidgetsAboutChangedEntity(FilterWidget.EChangedEntityType.BOARD, board.getLocalId());
     }
@@ -643,13 +1199,14 @@ public class DataBaseAdapter {
     public long createStack(long accountId, Stack stack) {
         stack.setAccountId(accountId);
         final long id = db.getStackDao().insert(stack);
+        recordLocalCreationIfNeeded(EOutboxEntityType.STACK, stack, id);
         notifyFilterWidgetsAboutChangedEntity(FilterWidget.EChangedEntityType.STACK, id);
         return id;
     }
 
     @WorkerThread
     public void deleteStack(Stack stack, boolean setStatus) {
-        markAsDeletedIfNeeded(stack, setStatus);
+        markAsDeletedIfNeeded(EOutboxEntityType.STACK, stack, setStatus);
         db.getStackDao().update(stack);
         notifyFilterWidgetsAboutChangedEntity(FilterWidget.EChangedEntityType.STACK, stack.getLocalId());
         notifyAllWidgets();
@@ -664,7 +1221,7 @@ public class DataBaseAdapter {
 
     @WorkerThread
     public void updateStack(Stack stack, boolean setStatus) {
-        markAsEditedIfNeeded(stack, setStatus);
+        markAsEditedIfNeeded(EOutboxEntityType.STACK, stack, setStatus);
         db.getStackDao().update(stack);
         notifyFilterWidgetsAboutChangedEntity(FilterWidget.EChangedEntityType.STACK, stack.getLocalId());
 //        if (db.getStackWidgetModelDao().containsStackLocalId(stack.getLocalId())) {
@@ -702,6 +1259,7 @@ public class DataBaseAdapter {
     public long createCardDirectly(long accountId, Card card) {
         card.setAccountId(accountId);
         final long newCardId = db.getCardDao().insert(card);
+        recordLocalCreationIfNeeded(EOutboxEntityType.CARD, card, newCardId);
         notifyFilterWidgetsAboutChangedEntity(FilterWidget.EChangedEntityType.STACK, card.getStackId());
         return newCardId;
     }
@@ -718,7 +1276,7 @@ public class DataBaseAdapter {
 
     @WorkerThread
     public void deleteCard(Card card, boolean setStatus) {
-        markAsDeletedIfNeeded(card, setStatus);
+        markAsDeletedIfNeeded(EOutboxEntityType.CARD, card, setStatus);
         if (setStatus) {
             db.getCardDao().update(card);
         } else {
@@ -733,12 +1291,23 @@ public class DataBaseAdapter {
         db.getCardDao().delete(card);
     }
 
+    /**
+     * Stores a {@link Card} whose position has been changed locally. The caller already set the status, but the change still has to be recorded in the outbox.
+     */
+    @WorkerThread
+    public void updateMovedCard(@NonNull Card card) {
+        updateCard(card, false);
+        if (card.getStatus() != DBStatus.UP_TO_DATE.getId()) {
+            recordLocalChange(card.getAccountId(), EOutboxEntityType.CARD, card.getLocalId(), null, EOutboxOperation.UPDATE, card.getLastModifiedLocal());
+        }
+    }
+
     @WorkerThread
     public void updateCard(@NonNull Card card, boolean setStatus) {
-        markAsEditedIfNeeded(card, setStatus);
+        markAsEditedIfNeeded(EOutboxEntityType.CARD, card, setStatus);
         final Long originalStackLocalId = db.getCardDao().getLocalStackIdByLocalCardId(card.getLocalId());
         db.getCardDao().update(card);
-        widgetNotifierExecutor.submit(() -> {
+        notifyWidgets("card_" + card.getLocalId(), () -> {
             if (db.getSingleCardWidgetModelDao().containsCardLocalId(card.getLocalId())) {
                 DeckLog.info("Notifying", SingleCardWidget.class.getSimpleName(), "about card changes for", card.getTitle());
                 SingleCardWidget.notifyDatasetChanged(context);
@@ -751,7 +1320,9 @@ public class DataBaseAdapter {
     public long createAccessControl(long accountId, @NonNull AccessControl entity) {
         entity.setAccountId(accountId);
         notifyFilterWidgetsAboutChangedEntity(FilterWidget.EChangedEntityType.ACCOUNT, accountId);
-        return db.getAccessControlDao().insert(entity);
+        final long id = db.getAccessControlDao().insert(entity);
+        recordLocalCreationIfNeeded(EOutboxEntityType.ACCESS_CONTROL, entity, id);
+        return id;
     }
 
     @WorkerThread
@@ -768,13 +1339,13 @@ public class DataBaseAdapter {
     }
 
     public void updateAccessControl(AccessControl entity, boolean setStatus) {
-        markAsEditedIfNeeded(entity, setStatus);
+        markAsEditedIfNeeded(EOutboxEntityType.ACCESS_CONTROL, entity, setStatus);
         notifyFilterWidgetsAboutChangedEntity(FilterWidget.EChangedEntityType.ACCOUNT, entity.getAccountId());
         db.getAccessControlDao().update(entity);
     }
 
     public void deleteAccessControl(AccessControl entity, boolean setStatus) {
-        markAsDeletedIfNeeded(entity, setStatus);
+        markAsDeletedIfNeeded(EOutboxEntityType.ACCESS_CONTROL, entity, setStatus);
         if (setStatus) {
             db.getAccessControlDao().update(entity);
         } else {
@@ -864,19 +1435,21 @@ public class DataBaseAdapter {
     public long createAttachment(long accountId, @NonNull Attachment attachment) {
         attachment.setAccountId(accountId);
         attachment.setCreatedAt(Instant.now());
-        return db.getAttachmentDao().insert(attachment);
+        final long id = db.getAttachmentDao().insert(attachment);
+        recordLocalCreationIfNeeded(EOutboxEntityType.ATTACHMENT, attachment, id);
+        return id;
     }
 
     public void updateAttachment(long accountId, @NonNull Attachment attachment, boolean setStatus) {
-        markAsEditedIfNeeded(attachment, setStatus);
         attachment.setAccountId(accountId);
+        markAsEditedIfNeeded(EOutboxEntityType.ATTACHMENT, attachment, setStatus);
         db.getAttachmentDao().update(attachment);
     }
 
     public void deleteAttachment(long accountId, Attachment attachment, boolean setStatus) {
         attachment.setAccountId(accountId);
         if (setStatus) {
-            markAsDeletedIfNeeded(attachment, setStatus);
+            markAsDeletedIfNeeded(EOutboxEntityType.ATTACHMENT, attachment, setStatus);
             db.getAttachmentDao().update(attachment);
         } else {
             db.getAttachmentDao().delete(attachment);
@@ -1019,6 +1592,11 @@ public class DataBaseAdapter {
         db.getActivityDao().delete(activity);
     }
 
+    @WorkerThread
+    public AccessControl getAccessControlByLocalIdDirectly(long localId) {
+        return db.getAccessControlDao().getAccessControlByLocalIdDirectly(localId);
+    }
+
     public List<AccessControl> getLocallyChangedAccessControl(long accountId, long boardId) {
         return db.getAccessControlDao().getLocallyChangedAccessControl(accountId, boardId);
     }
@@ -1058,16 +1636,18 @@ public class DataBaseAdapter {
 
     public long createComment(long accountId, DeckComment comment) {
         comment.setAccountId(accountId);
-        return db.getCommentDao().insert(comment);
+        final long id = db.getCommentDao().insert(comment);
+        recordLocalCreationIfNeeded(EOutboxEntityType.COMMENT, comment, id);
+        return id;
     }
 
     public void updateComment(DeckComment comment, boolean setStatus) {
-        markAsEditedIfNeeded(comment, setStatus);
+        markAsEditedIfNeeded(EOutboxEntityType.COMMENT, comment, setStatus);
         db.getCommentDao().update(comment);
     }
 
     public void deleteComment(DeckComment comment, boolean setStatus) {
-        markAsDeletedIfNeeded(comment, setStatus);
+        markAsDeletedIfNeeded(EOutboxEntityType.COMMENT, comment, setStatus);
         if (setStatus) {
             db.getCommentDao().update(comment);
         } else {
@@ -1119,12 +1699,12 @@ public class DataBaseAdapter {
 
     @WorkerThread
     public void countCardsInStackDirectly(long accountId, long localStackId, @NonNull IResponseCallback<Integer> callback) {
-        callback.onResponse(db.getCardDao().countCardsInStackDirectly(accountId, localStackId));
+        callback.onResponse(db.getCounterDao().getCountDirectly(ECounterType.CARDS_IN_STACK, localStackId));
     }
 
     @WorkerThread
     public void countCardsWithLabel(long localLabelId, @NonNull IResponseCallback<Integer> callback) {
-        callback.onResponse(db.getJoinCardWithLabelDao().countCardsWithLabelDirectly(localLabelId));
+        callback.onResponse(db.getCounterDao().getCountDirectly(ECounterType.CARDS_WITH_LABEL, localLabelId));
     }
 
     @WorkerThread
@@ -1482,7 +2062,7 @@ public class DataBaseAdapter {
     }
 
     private void notifyFilterWidgetsAboutChangedEntity(@NonNull FilterWidget.EChangedEntityType type, Long entityId) {
-        widgetNotifierExecutor.submit(() -> {
+        notifyWidgets(type.name() + "_" + entityId, () -> {
             final List<EWidgetType> widgetTypesToNotify = db.getFilterWidgetDao().getChangedListTypesByEntity(type.toString(), entityId);
             for (EWidgetType t : widgetTypesToNotify) {
                 DeckLog.info("Notifying", t.getWidgetClass().getSimpleName(), "about entity change:", type.name(), "with ID", entityId);
@@ -1492,7 +2072,7 @@ public class DataBaseAdapter {
     }
 
     private void notifyAllWidgets() {
-        widgetNotifierExecutor.submit(() -> SingleCardWidget.notifyDatasetChanged(context));
+        notifyWidgets("all", () -> SingleCardWidget.notifyDatasetChanged(context));
         /// FIXME StackWidget.notifyDatasetChanged(context);
 //        UpcomingWidget.notifyDatasetChanged(context);
     }
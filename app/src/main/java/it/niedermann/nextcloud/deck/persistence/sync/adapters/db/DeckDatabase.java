@@ -3,13 +3,16 @@ package it.niedermann.nextcloud.deck.persistence.sync.adapters.db;
 import android.content.Context;
 
 import androidx.annotation.NonNull;
+import androidx.preference.PreferenceManager;
 import androidx.room.Database;
 import androidx.room.Room;
 import androidx.room.RoomDatabase;
 import androidx.room.TypeConverters;
 import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.framework.FrameworkSQLiteOpenHelperFactory;
 
 import it.niedermann.nextcloud.deck.DeckLog;
+import it.niedermann.nextcloud.deck.R;
 import it.niedermann.nextcloud.deck.api.LastSyncUtil;
 import it.niedermann.nextcloud.deck.model.AccessControl;
 import it.niedermann.nextcloud.deck.model.Account;
@@ -25,6 +28,10 @@ import it.niedermann.nextcloud.deck.model.Label;
 import it.niedermann.nextcloud.deck.model.Permission;
 import it.niedermann.nextcloud.deck.model.Stack;
 import it.niedermann.nextcloud.deck.model.User;
+import it.niedermann.nextcloud.deck.model.internal.CardFts;
+import it.niedermann.nextcloud.deck.model.internal.Counter;
+import it.niedermann.nextcloud.deck.model.internal.EntityETag;
+import it.niedermann.nextcloud.deck.model.internal.OutboxEntry;
 import it.niedermann.nextcloud.deck.model.ocs.Activity;
 import it.niedermann.nextcloud.deck.model.ocs.comment.DeckComment;
 import it.niedermann.nextcloud.deck.model.ocs.comment.Mention;
@@ -51,13 +58,17 @@ import it.niedermann.nextcloud.deck.persistence.sync.adapters.db.dao.AttachmentD
 import it.niedermann.nextcloud.deck.persistence.sync.adapters.db.dao.BoardDao;
 import it.niedermann.nextcloud.deck.persistence.sync.adapters.db.dao.CardDao;
 import it.niedermann.nextcloud.deck.persistence.sync.adapters.db.dao.CommentDao;
+import it.niedermann.nextcloud.deck.persistence.sync.adapters.db.dao.CounterDao;
+import it.niedermann.nextcloud.deck.persistence.sync.adapters.db.dao.EntityETagDao;
 import it.niedermann.nextcloud.deck.persistence.sync.adapters.db.dao.JoinBoardWithLabelDao;
 import it.niedermann.nextcloud.deck.persistence.sync.adapters.db.dao.JoinBoardWithPermissionDao;
 import it.niedermann.nextcloud.deck.persistence.sync.adapters.db.dao.JoinBoardWithUserDao;
 import it.niedermann.nextcloud.deck.persistence.sync.adapters.db.dao.JoinCardWithLabelDao;
 import it.niedermann.nextcloud.deck.persistence.sync.adapters.db.dao.JoinCardWithUserDao;
 import it.niedermann.nextcloud.deck.persistence.sync.adapters.db.dao.LabelDao;
+import it.niedermann.nextcloud.deck.persistence.sync.adapters.db.dao.MaintenanceDao;
 import it.niedermann.nextcloud.deck.persistence.sync.adapters.db.dao.MentionDao;
+import it.niedermann.nextcloud.deck.persistence.sync.adapters.db.dao.OutboxEntryDao;
 import it.niedermann.nextcloud.deck.persistence.sync.adapters.db.dao.PermissionDao;
 import it.niedermann.nextcloud.deck.persistence.sync.adapters.db.dao.StackDao;
 import it.niedermann.nextcloud.deck.persistence.sync.adapters.db.dao.UserDao;
@@ -96,8 +107,16 @@ import it.niedermann.nextcloud.deck.persistence.sync.adapters.db.migration.Migra
 import it.niedermann.nextcloud.deck.persistence.sync.adapters.db.migration.Migration_28_29;
 import it.niedermann.nextcloud.deck.persistence.sync.adapters.db.migration.Migration_29_30;
 import it.niedermann.nextcloud.deck.persistence.sync.adapters.db.migration.Migration_30_31;
+import it.niedermann.nextcloud.deck.persistence.sync.adapters.db.migration.Migration_31_32;
+import it.niedermann.nextcloud.deck.persistence.sync.adapters.db.migration.Migration_32_33;
+import it.niedermann.nextcloud.deck.persistence.sync.adapters.db.migration.Migration_33_34;
+import it.niedermann.nextcloud.deck.persistence.sync.adapters.db.migration.Migration_34_35;
+import it.niedermann.nextcloud.deck.persistence.sync.adapters.db.migration.Migration_35_36;
+import it.niedermann.nextcloud.deck.persistence.sync.adapters.db.migration.Migration_36_37;
 import it.niedermann.nextcloud.deck.persistence.sync.adapters.db.migration.Migration_8_9;
 import it.niedermann.nextcloud.deck.persistence.sync.adapters.db.migration.Migration_9_10;
+import it.niedermann.nextcloud.deck.persistence.sync.adapters.db.util.InstrumentedOpenHelperFactory;
+import it.niedermann.nextcloud.deck.persistence.sync.adapters.db.util.QueryStatistics;
 
 @Database(
         entities = {
@@ -132,15 +151,20 @@ import it.niedermann.nextcloud.deck.persistence.sync.adapters.db.migration.Migra
                 FilterWidgetUser.class,
                 FilterWidgetProject.class,
                 FilterWidgetSort.class,
+                EntityETag.class,
+                OutboxEntry.class,
+                CardFts.class,
+                Counter.class,
         },
         exportSchema = false,
-        version = 31
+        version = 37
 )
 @TypeConverters({DateTypeConverter.class, EnumConverter.class})
 public abstract class DeckDatabase extends RoomDatabase {
 
     private static final String DECK_DB_NAME = "NC_DECK_DB.db";
     private static volatile DeckDatabase instance;
+    private static final QueryStatistics queryStatistics = new QueryStatistics(100);
 
     public static final RoomDatabase.Callback ON_CREATE_CALLBACK = new RoomDatabase.Callback() {
         @Override
@@ -158,7 +182,18 @@ public abstract class DeckDatabase extends RoomDatabase {
         return instance;
     }
 
+    /**
+     * @return the statistics about all statements executed on the {@link DeckDatabase} since the app has been started
+     */
+    @NonNull
+    public static QueryStatistics getQueryStatistics() {
+        return queryStatistics;
+    }
+
     private static DeckDatabase create(final Context context) {
+        final String slowQueryThreshold = PreferenceManager.getDefaultSharedPreferences(context)
+                .getString(context.getString(R.string.pref_key_slow_query_threshold), context.getString(R.string.pref_value_slow_query_threshold_default));
+        queryStatistics.setSlowQueryThresholdMillis(Long.parseLong(slowQueryThreshold));
         return Room.databaseBuilder(
                 context,
                 DeckDatabase.class,
@@ -186,8 +221,16 @@ public abstract class DeckDatabase extends RoomDatabase {
                 .addMigrations(new Migration_28_29())
                 .addMigrations(new Migration_29_30(context))
                 .addMigrations(new Migration_30_31())
+                .addMigrations(new Migration_31_32())
+                .addMigrations(new Migration_32_33())
+                .addMigrations(new Migration_33_34())
+                .addMigrations(new Migration_34_35())
+                .addMigrations(new Migration_35_36())
+                .addMigrations(new Migration_36_37())
                 .fallbackToDestructiveMigration()
+                .openHelperFactory(new InstrumentedOpenHelperFactory(new FrameworkSQLiteOpenHelperFactory(), queryStatistics))
                 .addCallback(ON_CREATE_CALLBACK)
+                .addCallback(CounterTriggers.CALLBACK)
                 .build();
     }
 
@@ -253,4 +296,12 @@ public abstract class DeckDatabase extends RoomDatabase {
 
     public abstract FilterWidgetSortDao getFilterWidgetSortDao();
 
+    public abstract EntityETagDao getEntityETagDao();
+
+    public abstract OutboxEntryDao getOutboxEntryDao();
+
+    public abstract CounterDao getCounterDao();
+
+    public abstract MaintenanceDao getMaintenanceDao();
+
 }
\ No newline at end of file
@@ -5,7 +5,11 @@ import androidx.room.TypeConverter;
 
 import it.niedermann.nextcloud.deck.DeckLog;
 import it.niedermann.nextcloud.deck.model.enums.EAttachmentType;
+import it.niedermann.nextcloud.deck.model.enums.ECounterType;
 import it.niedermann.nextcloud.deck.model.enums.EDueType;
+import it.niedermann.nextcloud.deck.model.enums.EETagType;
+import it.niedermann.nextcloud.deck.model.enums.EOutboxEntityType;
+import it.niedermann.nextcloud.deck.model.enums.EOutboxOperation;
 import it.niedermann.nextcloud.deck.model.enums.ESortCriteria;
 import it.niedermann.nextcloud.deck.model.widget.filter.EWidgetType;
 
@@ -64,4 +68,56 @@ public class EnumConverter {
     public static String fromEAttachmentType(@Nullable EAttachmentType value) {
         return value == null ? null : value.getValue();
     }
+
+    // #### EETagType
+    @TypeConverter
+    @Nullable
+    public static EETagType toETagTypeEnum(@Nullable Integer value) {
+        return value == null ? null : EETagType.findById(value);
+    }
+
+    @TypeConverter
+    @Nullable
+    public static Integer fromETagTypeEnum(@Nullable EETagType value) {
+        return value == null ? null : value.getId();
+    }
+
+    // #### ECounterType
+    @TypeConverter
+    @Nullable
+    public static ECounterType toCounterTypeEnum(@Nullable Integer value) {
+        return value == null ? null : ECounterType.findById(value);
+    }
+
+    @TypeConverter
+    @Nullable
+    public static Integer fromCounterTypeEnum(@Nullable ECounterType value) {
+        return value == null ? null : value.getId();
+    }
+
+    // #### EOutboxEntityType
+    @TypeConverter
+    @Nullable
+    public static EOutboxEntityType toOutboxEntityTypeEnum(@Nullable Integer value) {
+        return value == null ? null : EOutboxEntityType.findById(value);
+    }
+
+    @TypeConverter
+    @Nullable
+    public static Integer fromOutboxEntityTypeEnum(@Nullable EOutboxEntityType value) {
+        return value == null ? null : value.getId();
+    }
+
+    // #### EOutboxOperation
+    @TypeConverter
+    @Nullable
+    public static EOutboxOperation toOutboxOperationEnum(@Nullable Integer value) {
+        return value == null ? null : EOutboxOperation.findById(value);
+    }
+
+    @TypeConverter
+    @Nullable
+    public static Integer fromOutboxOperationEnum(@Nullable EOutboxOperation value) {
+        return value == null ? null : value.getId();
+    }
 }
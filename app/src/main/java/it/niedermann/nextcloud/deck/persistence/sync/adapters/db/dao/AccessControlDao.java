@@ -7,6 +7,7 @@ import androidx.room.Query;
 import java.util.List;
 
 import it.niedermann.nextcloud.deck.model.AccessControl;
+import it.niedermann.nextcloud.deck.model.internal.EntitySyncState;
 
 @Dao
 public interface AccessControlDao extends GenericDao<AccessControl> {
@@ -23,9 +24,15 @@ public interface AccessControlDao extends GenericDao<AccessControl> {
     @Query("SELECT * FROM AccessControl WHERE accountId = :accountId and id = :remoteId")
     AccessControl getAccessControlByRemoteIdDirectly(final long accountId, final long remoteId);
 
+    @Query("SELECT * FROM AccessControl WHERE localId = :localId")
+    AccessControl getAccessControlByLocalIdDirectly(final long localId);
+
     @Query("SELECT * FROM AccessControl WHERE accountId = :accountId and boardId = :boardId and (status<>1 or id is null or lastModified <> lastModifiedLocal)")
     List<AccessControl> getLocallyChangedAccessControl(long accountId, long boardId);
 
     @Query("SELECT distinct boardId FROM AccessControl WHERE accountId = :accountId and (status<>1 or id is null or lastModified <> lastModifiedLocal)")
     List<Long> getBoardIDsOfLocallyChangedAccessControl(long accountId);
-}
\ No newline at end of file
+
+    @Query("SELECT localId, id, etag, status, lastModified FROM AccessControl WHERE accountId = :accountId and id in (:remoteIds)")
+    List<EntitySyncState> getSyncStatesByRemoteIdsDirectly(long accountId, List<Long> remoteIds);
+}
@@ -6,6 +6,7 @@ import androidx.room.Query;
 
 import java.util.List;
 
+import it.niedermann.nextcloud.deck.model.internal.EntitySyncState;
 import it.niedermann.nextcloud.deck.model.ocs.Activity;
 
 @Dao
@@ -16,4 +17,7 @@ public interface ActivityDao extends GenericDao<Activity> {
 
     @Query("SELECT * FROM activity WHERE accountId = :accountId and id = :remoteActivityId")
     Activity getActivityByRemoteIdDirectly(long accountId, long remoteActivityId);
+
+    @Query("SELECT localId, id, etag, status, lastModified FROM activity WHERE accountId = :accountId and id in (:remoteIds)")
+    List<EntitySyncState> getSyncStatesByRemoteIdsDirectly(long accountId, List<Long> remoteIds);
 }
\ No newline at end of file
@@ -7,6 +7,7 @@ import androidx.room.Query;
 import java.util.List;
 
 import it.niedermann.nextcloud.deck.model.Attachment;
+import it.niedermann.nextcloud.deck.model.internal.EntitySyncState;
 
 @Dao
 public interface AttachmentDao extends GenericDao<Attachment> {
@@ -29,6 +30,12 @@ public interface AttachmentDao extends GenericDao<Attachment> {
             "WHERE c.stackId = :localStackId and (a.status<>1 or a.id is null or a.lastModified <> a.lastModifiedLocal)")
     List<Attachment> getLocallyChangedAttachmentsForStackDirectly(long localStackId);
 
+    @Query("SELECT * FROM attachment WHERE cardId IN (:localCardIds) and mimetype like 'image/%' and status <> 3") // not LOCAL_DELETED
+    List<Attachment> getImageAttachmentsForLocalCardIdsDirectly(List<Long> localCardIds);
+
     @Query("SELECT * FROM attachment WHERE accountId = :accountId and cardId = :localCardId")
     List<Attachment> getAttachmentsForLocalCardIdDirectly(long accountId, Long localCardId);
-}
\ No newline at end of file
+
+    @Query("SELECT localId, id, etag, status, lastModified FROM attachment WHERE accountId = :accountId and id in (:remoteIds)")
+    List<EntitySyncState> getSyncStatesByRemoteIdsDirectly(long accountId, List<Long> remoteIds);
+}
@@ -9,6 +9,7 @@ import java.util.List;
 
 import it.niedermann.nextcloud.deck.model.Board;
 import it.niedermann.nextcloud.deck.model.full.FullBoard;
+import it.niedermann.nextcloud.deck.model.internal.EntitySyncState;
 
 @Dao
 public interface BoardDao extends GenericDao<Board> {
@@ -88,4 +89,7 @@ public interface BoardDao extends GenericDao<Board> {
 
     @Query("SELECT b.color FROM board b where b.localId = :localBoardId and b.accountId = :accountId")
     Integer getBoardColorByLocalIdDirectly(long accountId, long localBoardId);
-}
\ No newline at end of file
+
+    @Query("SELECT localId, id, etag, status, lastModified FROM board WHERE accountId = :accountId and id in (:remoteIds)")
+    List<EntitySyncState> getSyncStatesByRemoteIdsDirectly(long accountId, List<Long> remoteIds);
+}
@@ -10,8 +10,10 @@ import androidx.sqlite.db.SupportSQLiteQuery;
 import java.util.List;
 
 import it.niedermann.nextcloud.deck.model.Card;
+import it.niedermann.nextcloud.deck.model.full.CardListItem;
 import it.niedermann.nextcloud.deck.model.full.FullCard;
 import it.niedermann.nextcloud.deck.model.full.FullCardWithProjects;
+import it.niedermann.nextcloud.deck.model.internal.EntitySyncState;
 
 @Dao
 public interface CardDao extends GenericDao<Card> {
@@ -43,6 +45,9 @@ public interface CardDao extends GenericDao<Card> {
     @Query("SELECT * FROM card WHERE accountId = :accountId and id = :remoteId")
     FullCard getFullCardByRemoteIdDirectly(final long accountId, final long remoteId);
 
+    @Query("SELECT accountId FROM card WHERE localId = :localCardId")
+    Long getAccountIdByLocalIdDirectly(final long localCardId);
+
     @Query("SELECT * FROM card WHERE accountId = :accountId and localId = :localId")
     Card getCardByLocalIdDirectly(final long accountId, final long localId);
 
@@ -50,13 +55,11 @@ public interface CardDao extends GenericDao<Card> {
     @Query("SELECT * FROM card WHERE accountId = :accountId and localId = :localId")
     FullCard getFullCardByLocalIdDirectly(final long accountId, final long localId);
 
-    @Transaction                                                                                // v not deleted!
-    @Query("SELECT * FROM card WHERE accountId = :accountId AND archived = 0 AND stackId = :localStackId and status<>3 order by `order`, createdAt asc")
-    LiveData<List<FullCard>> getFullCardsForStack(final long accountId, final long localStackId);
+    @RawQuery
+    List<CardListItem> getCardListItemsDirectly(SupportSQLiteQuery query);
 
-    @Transaction
-    @RawQuery(observedEntities = Card.class)
-    LiveData<List<FullCard>> getFilteredFullCardsForStack(SupportSQLiteQuery query);
+    @RawQuery
+    int countCardsDirectly(SupportSQLiteQuery query);
 
     @Transaction
     @RawQuery(observedEntities = Card.class)
@@ -94,9 +97,6 @@ public interface CardDao extends GenericDao<Card> {
     @Query("SELECT * FROM card c WHERE stackId = :localStackId and exists ( select 1 from DeckComment dc where dc.objectId = c.localId and dc.status<>1)")
     List<Card> getCardsWithLocallyChangedCommentsForStackDirectly(Long localStackId);
 
-    @Query("SELECT count(*) FROM card c WHERE accountId = :accountId and stackId = :localStackId and status <> 3")
-    int countCardsInStackDirectly(long accountId, long localStackId);
-
     @Query("SELECT coalesce(MAX(`order`), -1) FROM card c WHERE  stackId = :localStackId and status <> 3")
     Integer getHighestOrderInStack(Long localStackId);
 
@@ -121,4 +121,10 @@ public interface CardDao extends GenericDao<Card> {
     @Transaction
     @Query(QUERY_UPCOMING_CARDS)
     List<FullCard> getUpcomingCardsDirectly();
-}
\ No newline at end of file
+
+    @Query("SELECT localId, id, etag, status, lastModified FROM card WHERE accountId = :accountId and id in (:remoteIds)")
+    List<EntitySyncState> getSyncStatesByRemoteIdsDirectly(long accountId, List<Long> remoteIds);
+
+    @Query("SELECT localId, id, etag, status, lastModified FROM card WHERE accountId = :accountId and stackId = :localStackId and id is not null")
+    List<EntitySyncState> getSyncStatesForStackDirectly(long accountId, long localStackId);
+}
@@ -7,6 +7,7 @@ import androidx.room.Transaction;
 
 import java.util.List;
 
+import it.niedermann.nextcloud.deck.model.internal.EntitySyncState;
 import it.niedermann.nextcloud.deck.model.ocs.comment.DeckComment;
 import it.niedermann.nextcloud.deck.model.ocs.comment.full.FullDeckComment;
 
@@ -16,6 +17,9 @@ public interface CommentDao extends GenericDao<DeckComment> {
     @Query("SELECT * FROM DeckComment where accountId = :accountId and id = :remoteId")
     DeckComment getCommentByRemoteIdDirectly(long accountId, Long remoteId);
 
+    @Query("SELECT localId, id, etag, status, lastModified FROM DeckComment WHERE accountId = :accountId and id in (:remoteIds)")
+    List<EntitySyncState> getSyncStatesByRemoteIdsDirectly(long accountId, List<Long> remoteIds);
+
     @Query("SELECT * FROM DeckComment where accountId = :accountId and localId = :id")
     DeckComment getCommentByLocalIdDirectly(long accountId, Long id);
 
@@ -0,0 +1,16 @@
+package it.niedermann.nextcloud.deck.persistence.sync.adapters.db.dao;
+
+import androidx.room.Dao;
+import androidx.room.Query;
+
+import it.niedermann.nextcloud.deck.model.enums.ECounterType;
+
+/**
+ * Read only access to the {@link it.niedermann.nextcloud.deck.model.internal.Counter}s, which are maintained by triggers
+ */
+@Dao
+public interface CounterDao {
+
+    @Query("SELECT coalesce((SELECT `count` FROM Counter WHERE type = :type and localId = :localId), 0)")
+    int getCountDirectly(ECounterType type, long localId);
+}
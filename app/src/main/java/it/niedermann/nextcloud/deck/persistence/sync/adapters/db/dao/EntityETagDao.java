@@ -0,0 +1,24 @@
+package it.niedermann.nextcloud.deck.persistence.sync.adapters.db.dao;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+
+import java.util.List;
+
+import it.niedermann.nextcloud.deck.model.enums.EETagType;
+import it.niedermann.nextcloud.deck.model.internal.EntityETag;
+
+@Dao
+public interface EntityETagDao {
+
+    @Query("SELECT etag FROM EntityETag WHERE accountId = :accountId and type = :type and remoteId = :remoteId")
+    String getETagDirectly(long accountId, EETagType type, long remoteId);
+
+    @Query("SELECT * FROM EntityETag WHERE accountId = :accountId and type = :type and remoteId in (:remoteIds)")
+    List<EntityETag> getETagsDirectly(long accountId, EETagType type, List<Long> remoteIds);
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void upsert(List<EntityETag> etags);
+}
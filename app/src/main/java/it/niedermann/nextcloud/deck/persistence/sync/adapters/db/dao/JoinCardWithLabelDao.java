@@ -18,8 +18,8 @@ public interface JoinCardWithLabelDao extends GenericDao<JoinCardWithLabel> {
     @Query("Update joincardwithlabel set status = :status WHERE cardId = :localCardId and labelId = :localLabelId")
     void setDbStatus(long localCardId, long localLabelId, int status);
 
-    @Query("select labelId from joincardwithlabel WHERE cardId = :localCardId and labelId IN (:localLabelIds) and status <> 3") // not LOCAL_DELETED
-    List<Long> filterDeleted(long localCardId, List<Long> localLabelIds);
+    @Query("select * from joincardwithlabel WHERE cardId IN (:localCardIds) and status <> 3") // not LOCAL_DELETED
+    List<JoinCardWithLabel> getNotDeletedJoinsForCardsDirectly(List<Long> localCardIds);
 
     @Query("select * from joincardwithlabel WHERE cardId = :localCardId and labelId = :localLabelId")
     JoinCardWithLabel getJoin(Long localLabelId, Long localCardId);
@@ -46,7 +46,4 @@ public interface JoinCardWithLabelDao extends GenericDao<JoinCardWithLabel> {
             "where cardId = (select c.localId from card c where c.accountId = :accountId and c.id = :remoteCardId) " +
             "and labelId = (select l.localId from label l where l.accountId = :accountId and l.id = :remoteLabelId)")
     void deleteJoinedLabelForCardPhysicallyByRemoteIDs(Long accountId, Long remoteCardId, Long remoteLabelId);
-
-    @Query("select count(*) from joincardwithlabel WHERE labelId = :localLabelId and status <> 3") // not locally deleted
-    int countCardsWithLabelDirectly(long localLabelId);
 }
\ No newline at end of file
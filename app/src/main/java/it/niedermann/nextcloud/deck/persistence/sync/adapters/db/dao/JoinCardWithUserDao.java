@@ -18,6 +18,9 @@ public interface JoinCardWithUserDao extends GenericDao<JoinCardWithUser> {
     @Query("DELETE FROM joincardwithuser WHERE cardId = :localCardId and userId = :localUserId")
     void deleteByCardIdAndUserIdPhysically(long localCardId, long localUserId);
 
+    @Query("select * FROM joincardwithuser WHERE cardId IN (:localCardIds) and status <> 3") // not LOCAL_DELETED
+    List<JoinCardWithUser> getNotDeletedJoinsForCardsDirectly(List<Long> localCardIds);
+
     @Query("select * FROM joincardwithuser WHERE cardId = :localCardId and userId = :localUserId")
     JoinCardWithUser getJoin(Long localUserId, Long localCardId);
 
@@ -38,7 +41,4 @@ public interface JoinCardWithUserDao extends GenericDao<JoinCardWithUser> {
             "where cardId = (select c.localId from card c where c.accountId = :accountId and c.id = :remoteCardId) " +
             "and userId = (select u.localId from user u where u.accountId = :accountId and u.uid = :userUid)")
     void deleteJoinedUserForCardPhysicallyByRemoteIDs(Long accountId, Long remoteCardId, String userUid);
-
-    @Query("select userId from joincardwithuser WHERE cardId = :localCardId and userId IN (:assignedUserIDs) and status <> 3") // not LOCAL_DELETED
-    List<Long> filterDeleted(long localCardId, List<Long> assignedUserIDs);
 }
\ No newline at end of file
@@ -7,6 +7,7 @@ import androidx.room.Query;
 import java.util.List;
 
 import it.niedermann.nextcloud.deck.model.Label;
+import it.niedermann.nextcloud.deck.model.internal.EntitySyncState;
 
 @Dao
 public interface LabelDao extends GenericDao<Label> {
@@ -54,4 +55,7 @@ public interface LabelDao extends GenericDao<Label> {
 
     @Query("select * from label WHERE boardId = :boardId and title = :title")
     Label getLabelByBoardIdAndTitleDirectly(long boardId, String title);
-}
\ No newline at end of file
+
+    @Query("SELECT localId, id, etag, status, lastModified FROM label WHERE accountId = :accountId and id in (:remoteIds)")
+    List<EntitySyncState> getSyncStatesByRemoteIdsDirectly(long accountId, List<Long> remoteIds);
+}
@@ -0,0 +1,69 @@
+package it.niedermann.nextcloud.deck.persistence.sync.adapters.db.dao;
+
+import androidx.room.Dao;
+import androidx.room.Query;
+
+import java.time.Instant;
+
+/**
+ * Housekeeping queries which are not related to a specific entity. All methods return the amount of deleted rows.
+ * <p>
+ * A tombstone is a row which is {@link it.niedermann.nextcloud.deck.model.enums.DBStatus#LOCAL_DELETED}.
+ * Tombstones of entities which have a remote id still need to be propagated to the server and are therefore never purged.
+ * Tombstones without a remote id have never been known by the server and can be removed once they are older than the given date.
+ */
+@Dao
+public interface MaintenanceDao {
+
+    String TOMBSTONE = "status = 3 and id is null and (lastModifiedLocal is null or lastModifiedLocal < :before)";
+
+    @Query("DELETE FROM Board WHERE " + TOMBSTONE)
+    int purgeBoardTombstones(Instant before);
+
+    @Query("DELETE FROM Stack WHERE " + TOMBSTONE)
+    int purgeStackTombstones(Instant before);
+
+    @Query("DELETE FROM Card WHERE " + TOMBSTONE)
+    int purgeCardTombstones(Instant before);
+
+    @Query("DELETE FROM Label WHERE " + TOMBSTONE)
+    int purgeLabelTombstones(Instant before);
+
+    @Query("DELETE FROM AccessControl WHERE " + TOMBSTONE)
+    int purgeAccessControlTombstones(Instant before);
+
+    @Query("DELETE FROM Attachment WHERE " + TOMBSTONE)
+    int purgeAttachmentTombstones(Instant before);
+
+    @Query("DELETE FROM DeckComment WHERE " + TOMBSTONE)
+    int purgeCommentTombstones(Instant before);
+
+    /**
+     * Removed assignments can only be propagated if both, the card and the label, are known by the server
+     */
+    @Query("DELETE FROM JoinCardWithLabel WHERE status = 3 and (" +
+            "exists (select 1 from Card c where c.localId = cardId and c.id is null) " +
+            "or exists (select 1 from Label l where l.localId = labelId and l.id is null))")
+    int purgeJoinCardWithLabelTombstones();
+
+    @Query("DELETE FROM JoinCardWithUser WHERE status = 3 and exists (select 1 from Card c where c.localId = cardId and c.id is null)")
+    int purgeJoinCardWithUserTombstones();
+
+    @Query("DELETE FROM JoinCardWithLabel WHERE not exists (select 1 from Card c where c.localId = cardId) or not exists (select 1 from Label l where l.localId = labelId)")
+    int deleteOrphanedJoinCardWithLabels();
+
+    @Query("DELETE FROM JoinCardWithUser WHERE not exists (select 1 from Card c where c.localId = cardId) or not exists (select 1 from User u where u.localId = userId)")
+    int deleteOrphanedJoinCardWithUsers();
+
+    @Query("DELETE FROM JoinCardWithProject WHERE not exists (select 1 from Card c where c.localId = cardId) or not exists (select 1 from OcsProject p where p.localId = projectId)")
+    int deleteOrphanedJoinCardWithProjects();
+
+    @Query("DELETE FROM Mention WHERE not exists (select 1 from DeckComment dc where dc.localId = commentId)")
+    int deleteOrphanedMentions();
+
+    @Query("DELETE FROM Attachment WHERE not exists (select 1 from Card c where c.localId = cardId)")
+    int deleteOrphanedAttachments();
+
+    @Query("DELETE FROM Activity WHERE lastModified < :before")
+    int deleteActivitiesBefore(Instant before);
+}
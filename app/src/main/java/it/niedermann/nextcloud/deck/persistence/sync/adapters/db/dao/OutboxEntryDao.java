@@ -0,0 +1,68 @@
+package it.niedermann.nextcloud.deck.persistence.sync.adapters.db.dao;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.Query;
+
+import java.util.List;
+
+import it.niedermann.nextcloud.deck.model.internal.OutboxEntry;
+
+@Dao
+public interface OutboxEntryDao {
+
+    /**
+     * Whether the entity referenced by an {@link OutboxEntry} still has changes which are not known to the server.
+     * Each check is a primary key lookup, so the costs depend on the amount of entries instead of the size of the database.
+     */
+    String IS_PENDING = "(" +
+            "(OutboxEntry.entityType = 1 and exists (select 1 from Board e where e.localId = OutboxEntry.entityLocalId and (e.status<>1 or e.id is null or e.lastModified <> e.lastModifiedLocal)))" +
+            " or (OutboxEntry.entityType = 2 and exists (select 1 from Stack e where e.localId = OutboxEntry.entityLocalId and (e.status<>1 or e.id is null or e.lastModified <> e.lastModifiedLocal)))" +
+            " or (OutboxEntry.entityType = 3 and exists (select 1 from Card e where e.localId = OutboxEntry.entityLocalId and (e.status<>1 or e.id is null or e.lastModified <> e.lastModifiedLocal)))" +
+            " or (OutboxEntry.entityType = 4 and exists (select 1 from Label e where e.localId = OutboxEntry.entityLocalId and (e.status<>1 or e.id is null or e.lastModified <> e.lastModifiedLocal)))" +
+            " or (OutboxEntry.entityType = 5 and exists (select 1 from AccessControl e where e.localId = OutboxEntry.entityLocalId and (e.status<>1 or e.id is null or e.lastModified <> e.lastModifiedLocal)))" +
+            " or (OutboxEntry.entityType = 6 and exists (select 1 from Attachment e where e.localId = OutboxEntry.entityLocalId and (e.status<>1 or e.id is null or e.lastModified <> e.lastModifiedLocal)))" +
+            " or (OutboxEntry.entityType = 7 and exists (select 1 from DeckComment e where e.localId = OutboxEntry.entityLocalId and (e.status<>1 or e.id is null or e.lastModified <> e.lastModifiedLocal)))" +
+            " or (OutboxEntry.entityType = 8 and exists (select 1 from JoinCardWithLabel j where j.cardId = OutboxEntry.entityLocalId and j.labelId = OutboxEntry.relatedLocalId and j.status<>1))" +
+            " or (OutboxEntry.entityType = 9 and exists (select 1 from JoinCardWithUser j where j.cardId = OutboxEntry.entityLocalId and j.userId = OutboxEntry.relatedLocalId and j.status<>1))" +
+            ")";
+
+    /**
+     * Whether an {@link OutboxEntry} has not yet been given up after failing repeatedly
+     */
+    String IS_ALIVE = "OutboxEntry.attempts < " + OutboxEntry.MAX_ATTEMPTS;
+
+    @Insert
+    long insert(OutboxEntry entry);
+
+    /**
+     * Entries are drained in the order they have been recorded, beginning after the last processed one.
+     * An entry can still be pending after it has been processed (e.g. because it waits for a dependency), so the position must not be derived from the pending state.
+     */
+    @Query("SELECT * FROM OutboxEntry WHERE accountId = :accountId and id > :afterId and " + IS_ALIVE + " and " + IS_PENDING + " order by id asc limit 1")
+    OutboxEntry getNextPendingEntryDirectly(long accountId, long afterId);
+
+    @Query("SELECT exists (SELECT 1 FROM OutboxEntry WHERE accountId = :accountId and " + IS_ALIVE + " and " + IS_PENDING + ")")
+    boolean hasPendingEntriesDirectly(long accountId);
+
+    @Query("SELECT distinct accountId FROM OutboxEntry")
+    List<Long> getAccountIdsWithEntriesDirectly();
+
+    /**
+     * Removes all entries whose entities have been synchronized in the meantime
+     */
+    @Query("DELETE FROM OutboxEntry WHERE accountId = :accountId and not " + IS_PENDING)
+    int deleteSettledEntriesDirectly(long accountId);
+
+    @Query("UPDATE OutboxEntry SET attempts = attempts + 1 WHERE id = :id")
+    void incrementAttemptsDirectly(long id);
+
+    @Query("UPDATE OutboxEntry SET attempts = " + OutboxEntry.MAX_ATTEMPTS + " WHERE id = :id")
+    void giveUpDirectly(long id);
+
+    /**
+     * Counts the entries which have been given up while their entities still have changes which are not known to the server
+     */
+    @Query("SELECT count(*) FROM OutboxEntry WHERE accountId = :accountId and not " + IS_ALIVE + " and " + IS_PENDING)
+    int countGivenUpEntriesDirectly(long accountId);
+}
@@ -9,6 +9,7 @@ import java.util.List;
 
 import it.niedermann.nextcloud.deck.model.Stack;
 import it.niedermann.nextcloud.deck.model.full.FullStack;
+import it.niedermann.nextcloud.deck.model.internal.EntitySyncState;
 
 @Dao
 public interface StackDao extends GenericDao<Stack> {
@@ -67,4 +68,7 @@ public interface StackDao extends GenericDao<Stack> {
 
     @Query("SELECT s.localId FROM stack s join Board b on s.boardId = b.localId where b.archived <> 0 and b.accountId in (:accountIds)")
     List<Long> getLocalStackIdsInArchivedBoardsByAccountIdsDirectly(List<Long> accountIds);
-}
\ No newline at end of file
+
+    @Query("SELECT localId, id, etag, status, lastModified FROM stack WHERE accountId = :accountId and boardId = :localBoardId and id in (:remoteIds)")
+    List<EntitySyncState> getSyncStatesByRemoteIdsDirectly(long accountId, long localBoardId, List<Long> remoteIds);
+}
@@ -109,4 +109,7 @@ public interface UserDao extends GenericDao<User> {
 
     @Query("SELECT * FROM user WHERE localId IN (:userIDs) and status <> 3") // not LOCAL_DELETED
     List<User> getUsersByIdsDirectly(List<Long> userIDs);
-}
\ No newline at end of file
+
+    @Query("SELECT * FROM user WHERE accountId = :accountId and uid IN (:uids)")
+    List<User> getUsersByUidsDirectly(long accountId, List<String> uids);
+}
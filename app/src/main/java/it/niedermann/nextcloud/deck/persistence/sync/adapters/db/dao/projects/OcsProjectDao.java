@@ -3,6 +3,9 @@ package it.niedermann.nextcloud.deck.persistence.sync.adapters.db.dao.projects;
 import androidx.room.Dao;
 import androidx.room.Query;
 
+import java.util.List;
+
+import it.niedermann.nextcloud.deck.model.internal.EntitySyncState;
 import it.niedermann.nextcloud.deck.model.ocs.projects.OcsProject;
 import it.niedermann.nextcloud.deck.persistence.sync.adapters.db.dao.GenericDao;
 
@@ -10,4 +13,7 @@ import it.niedermann.nextcloud.deck.persistence.sync.adapters.db.dao.GenericDao;
 public interface OcsProjectDao  extends GenericDao<OcsProject> {
     @Query("select * from OcsProject where accountId = :accountId and id = :remoteId")
     OcsProject getProjectByRemoteIdDirectly(long accountId, Long remoteId);
+
+    @Query("SELECT localId, id, etag, status, lastModified FROM OcsProject WHERE accountId = :accountId and id in (:remoteIds)")
+    List<EntitySyncState> getSyncStatesByRemoteIdsDirectly(long accountId, List<Long> remoteIds);
 }
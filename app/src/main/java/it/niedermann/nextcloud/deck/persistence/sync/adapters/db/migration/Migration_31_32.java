@@ -0,0 +1,21 @@
+package it.niedermann.nextcloud.deck.persistence.sync.adapters.db.migration;
+
+import androidx.annotation.NonNull;
+import androidx.room.migration.Migration;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+/**
+ * Persists the <code>ETag</code>s of stacks and cards to send conditional requests
+ */
+public class Migration_31_32 extends Migration {
+
+    public Migration_31_32() {
+        super(31, 32);
+    }
+
+    @Override
+    public void migrate(@NonNull SupportSQLiteDatabase database) {
+        database.execSQL("CREATE TABLE `EntityETag` (`accountId` INTEGER NOT NULL, `type` INTEGER NOT NULL, `remoteId` INTEGER NOT NULL, `etag` TEXT NOT NULL, PRIMARY KEY(`accountId`, `type`, `remoteId`), FOREIGN KEY(`accountId`) REFERENCES `Account`(`id`) ON UPDATE NO ACTION ON DELETE CASCADE )");
+        database.execSQL("CREATE INDEX `index_EntityETag_accountId` ON `EntityETag` (`accountId`)");
+    }
+}
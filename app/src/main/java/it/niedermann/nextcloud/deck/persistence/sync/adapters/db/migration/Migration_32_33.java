@@ -0,0 +1,34 @@
+package it.niedermann.nextcloud.deck.persistence.sync.adapters.db.migration;
+
+import androidx.annotation.NonNull;
+import androidx.room.migration.Migration;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+/**
+ * Adds an outbox for local mutations and fills it with all changes which have not been synchronized yet
+ */
+public class Migration_32_33 extends Migration {
+
+    public Migration_32_33() {
+        super(32, 33);
+    }
+
+    @Override
+    public void migrate(@NonNull SupportSQLiteDatabase database) {
+        database.execSQL("CREATE TABLE `OutboxEntry` (`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, `accountId` INTEGER NOT NULL, `entityType` INTEGER NOT NULL, `entityLocalId` INTEGER NOT NULL, `relatedLocalId` INTEGER, `operation` INTEGER NOT NULL, `payloadVersion` INTEGER, `createdAt` INTEGER NOT NULL, `attempts` INTEGER NOT NULL, FOREIGN KEY(`accountId`) REFERENCES `Account`(`id`) ON UPDATE NO ACTION ON DELETE CASCADE )");
+        database.execSQL("CREATE INDEX `index_OutboxEntry_accountId` ON `OutboxEntry` (`accountId`)");
+
+        final String now = "CAST(strftime('%s', 'now') AS INTEGER) * 1000";
+        final String[][] entityTables = {{"1", "Board"}, {"2", "Stack"}, {"3", "Card"}, {"4", "Label"}, {"5", "AccessControl"}, {"6", "Attachment"}, {"7", "DeckComment"}};
+        for (String[] entityTable : entityTables) {
+            // Operation 1 is CREATE, 2 is UPDATE and 3 is DELETE, status 3 is LOCAL_DELETED
+            database.execSQL("INSERT INTO `OutboxEntry` (`accountId`, `entityType`, `entityLocalId`, `operation`, `payloadVersion`, `createdAt`, `attempts`) " +
+                    "SELECT accountId, " + entityTable[0] + ", localId, case when id is null then 1 when status = 3 then 3 else 2 end, lastModifiedLocal, " + now + ", 0 FROM `" + entityTable[1] + "` " +
+                    "WHERE status<>1 or id is null or lastModified <> lastModifiedLocal");
+        }
+        database.execSQL("INSERT INTO `OutboxEntry` (`accountId`, `entityType`, `entityLocalId`, `relatedLocalId`, `operation`, `createdAt`, `attempts`) " +
+                "SELECT c.accountId, 8, j.cardId, j.labelId, case when j.status = 3 then 3 else 1 end, " + now + ", 0 FROM `JoinCardWithLabel` j INNER JOIN `Card` c ON c.localId = j.cardId WHERE j.status<>1");
+        database.execSQL("INSERT INTO `OutboxEntry` (`accountId`, `entityType`, `entityLocalId`, `relatedLocalId`, `operation`, `createdAt`, `attempts`) " +
+                "SELECT c.accountId, 9, j.cardId, j.userId, case when j.status = 3 then 3 else 1 end, " + now + ", 0 FROM `JoinCardWithUser` j INNER JOIN `Card` c ON c.localId = j.cardId WHERE j.status<>1");
+    }
+}
@@ -0,0 +1,30 @@
+package it.niedermann.nextcloud.deck.persistence.sync.adapters.db.migration;
+
+import androidx.annotation.NonNull;
+import androidx.room.migration.Migration;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+/**
+ * Replaces single column indices with composite indices which match the filter and sort order of the card list, filter and upward synchronization queries
+ */
+public class Migration_33_34 extends Migration {
+
+    public Migration_33_34() {
+        super(33, 34);
+    }
+
+    @Override
+    public void migrate(@NonNull SupportSQLiteDatabase database) {
+        database.execSQL("DROP INDEX IF EXISTS `index_Card_stackId`");
+        database.execSQL("CREATE INDEX IF NOT EXISTS `index_Card_stackId_order_createdAt` ON `Card` (`stackId`, `order`, `createdAt`)");
+        database.execSQL("CREATE INDEX IF NOT EXISTS `index_Card_accountId_stackId_archived_order_createdAt` ON `Card` (`accountId`, `stackId`, `archived`, `order`, `createdAt`)");
+
+        database.execSQL("DROP INDEX IF EXISTS `index_Stack_boardId`");
+        database.execSQL("CREATE INDEX IF NOT EXISTS `index_Stack_boardId_order` ON `Stack` (`boardId`, `order`)");
+
+        for (String joinTable : new String[]{"JoinCardWithLabel", "JoinCardWithUser", "JoinCardWithProject"}) {
+            database.execSQL("DROP INDEX IF EXISTS `index_" + joinTable + "_cardId`");
+            database.execSQL("CREATE INDEX IF NOT EXISTS `index_" + joinTable + "_cardId_status` ON `" + joinTable + "` (`cardId`, `status`)");
+        }
+    }
+}
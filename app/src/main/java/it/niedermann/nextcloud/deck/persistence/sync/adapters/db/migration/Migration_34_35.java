@@ -0,0 +1,26 @@
+package it.niedermann.nextcloud.deck.persistence.sync.adapters.db.migration;
+
+import androidx.annotation.NonNull;
+import androidx.room.migration.Migration;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+/**
+ * Adds a full text index for the title and the description of cards and fills it with the existing cards
+ */
+public class Migration_34_35 extends Migration {
+
+    public Migration_34_35() {
+        super(34, 35);
+    }
+
+    @Override
+    public void migrate(@NonNull SupportSQLiteDatabase database) {
+        database.execSQL("CREATE VIRTUAL TABLE IF NOT EXISTS `CardFts` USING FTS4(`title` TEXT, `description` TEXT, tokenize=unicode61, content=`Card`)");
+        // Same triggers as generated by Room for external content FTS entities
+        database.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_CardFts_BEFORE_UPDATE BEFORE UPDATE ON `Card` BEGIN DELETE FROM `CardFts` WHERE `docid`=OLD.`rowid`; END");
+        database.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_CardFts_BEFORE_DELETE BEFORE DELETE ON `Card` BEGIN DELETE FROM `CardFts` WHERE `docid`=OLD.`rowid`; END");
+        database.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_CardFts_AFTER_UPDATE AFTER UPDATE ON `Card` BEGIN INSERT INTO `CardFts`(`docid`, `title`, `description`) VALUES (NEW.`rowid`, NEW.`title`, NEW.`description`); END");
+        database.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_CardFts_AFTER_INSERT AFTER INSERT ON `Card` BEGIN INSERT INTO `CardFts`(`docid`, `title`, `description`) VALUES (NEW.`rowid`, NEW.`title`, NEW.`description`); END");
+        database.execSQL("INSERT INTO `CardFts`(`CardFts`) VALUES ('rebuild')");
+    }
+}
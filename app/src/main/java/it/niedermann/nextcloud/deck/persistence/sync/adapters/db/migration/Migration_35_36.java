@@ -0,0 +1,20 @@
+package it.niedermann.nextcloud.deck.persistence.sync.adapters.db.migration;
+
+import androidx.annotation.NonNull;
+import androidx.room.migration.Migration;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+/**
+ * Adds an index to look up cards of an account by their due date
+ */
+public class Migration_35_36 extends Migration {
+
+    public Migration_35_36() {
+        super(35, 36);
+    }
+
+    @Override
+    public void migrate(@NonNull SupportSQLiteDatabase database) {
+        database.execSQL("CREATE INDEX IF NOT EXISTS `index_Card_accountId_dueDate` ON `Card` (`accountId`, `dueDate`)");
+    }
+}
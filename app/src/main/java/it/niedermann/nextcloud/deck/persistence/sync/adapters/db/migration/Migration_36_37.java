@@ -0,0 +1,24 @@
+package it.niedermann.nextcloud.deck.persistence.sync.adapters.db.migration;
+
+import androidx.annotation.NonNull;
+import androidx.room.migration.Migration;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+import it.niedermann.nextcloud.deck.persistence.sync.adapters.db.CounterTriggers;
+
+/**
+ * Adds denormalized counters for cards per stack, cards per label and comments per card which are maintained by triggers
+ */
+public class Migration_36_37 extends Migration {
+
+    public Migration_36_37() {
+        super(36, 37);
+    }
+
+    @Override
+    public void migrate(@NonNull SupportSQLiteDatabase database) {
+        database.execSQL("CREATE TABLE IF NOT EXISTS `Counter` (`type` INTEGER NOT NULL, `localId` INTEGER NOT NULL, `count` INTEGER NOT NULL, PRIMARY KEY(`type`, `localId`))");
+        CounterTriggers.createTriggers(database);
+        CounterTriggers.recount(database);
+    }
+}
@@ -0,0 +1,43 @@
+package it.niedermann.nextcloud.deck.persistence.sync.adapters.db.util;
+
+import androidx.annotation.Nullable;
+
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+public class FullTextSearchUtil {
+
+    /**
+     * Splits the same way as the <code>unicode61</code> tokenizer, so each resulting term matches the beginning of a token in the index
+     */
+    private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private FullTextSearchUtil() {
+        throw new UnsupportedOperationException("This class must not be instantiated.");
+    }
+
+    /**
+     * Converts free text as typed by the user into an expression for the <code>MATCH</code> operator.
+     * Each word of the given text is treated as prefix and all words must be present.
+     * <p>
+     * Terms are lower cased, so they can never be interpreted as <code>AND</code>, <code>OR</code>, <code>NOT</code> or <code>NEAR</code> operators.
+     *
+     * @return the <code>MATCH</code> expression or <code>null</code> if the given text does not contain any searchable word
+     */
+    @Nullable
+    public static String toPrefixMatchQuery(@Nullable String text) {
+        if (text == null) {
+            return null;
+        }
+        final var query = new StringBuilder();
+        for (String token : TOKEN_SEPARATOR.split(text)) {
+            if (!token.isEmpty()) {
+                if (query.length() > 0) {
+                    query.append(' ');
+                }
+                query.append(token.toLowerCase(Locale.ROOT)).append('*');
+            }
+        }
+        return query.length() == 0 ? null : query.toString();
+    }
+}
@@ -0,0 +1,496 @@
+package it.niedermann.nextcloud.deck.persistence.sync.adapters.db.util;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.SQLException;
+import android.database.sqlite.SQLiteTransactionListener;
+import android.os.CancellationSignal;
+import android.util.Pair;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.SupportSQLiteOpenHelper;
+import androidx.sqlite.db.SupportSQLiteProgram;
+import androidx.sqlite.db.SupportSQLiteQuery;
+import androidx.sqlite.db.SupportSQLiteStatement;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Supplier;
+
+/**
+ * Measures every statement executed on the databases created by the wrapped {@link SupportSQLiteOpenHelper.Factory} and records it in {@link QueryStatistics}.
+ * <p>
+ * {@link Cursor}s are filled lazily, so queries are forced to execute by counting their rows before they are handed to Room.
+ * Room reads all rows right away anyway, so this does not cause additional work.
+ */
+public class InstrumentedOpenHelperFactory implements SupportSQLiteOpenHelper.Factory {
+
+    private static final Object[] NO_ARGS = new Object[0];
+
+    @NonNull
+    private final SupportSQLiteOpenHelper.Factory delegate;
+    @NonNull
+    private final QueryStatistics statistics;
+
+    public InstrumentedOpenHelperFactory(@NonNull SupportSQLiteOpenHelper.Factory delegate, @NonNull QueryStatistics statistics) {
+        this.delegate = delegate;
+        this.statistics = statistics;
+    }
+
+    @NonNull
+    @Override
+    public SupportSQLiteOpenHelper create(@NonNull SupportSQLiteOpenHelper.Configuration configuration) {
+        return new InstrumentedOpenHelper(delegate.create(configuration), statistics);
+    }
+
+    private static class InstrumentedOpenHelper implements SupportSQLiteOpenHelper {
+
+        @NonNull
+        private final SupportSQLiteOpenHelper delegate;
+        @NonNull
+        private final QueryStatistics statistics;
+
+        private InstrumentedOpenHelper(@NonNull SupportSQLiteOpenHelper delegate, @NonNull QueryStatistics statistics) {
+            this.delegate = delegate;
+            this.statistics = statistics;
+        }
+
+        @Nullable
+        @Override
+        public String getDatabaseName() {
+            return delegate.getDatabaseName();
+        }
+
+        @Override
+        public void setWriteAheadLoggingEnabled(boolean enabled) {
+            delegate.setWriteAheadLoggingEnabled(enabled);
+        }
+
+        @Override
+        public SupportSQLiteDatabase getWritableDatabase() {
+            return new InstrumentedDatabase(delegate.getWritableDatabase(), statistics);
+        }
+
+        @Override
+        public SupportSQLiteDatabase getReadableDatabase() {
+            return new InstrumentedDatabase(delegate.getReadableDatabase(), statistics);
+        }
+
+        @Override
+        public void close() {
+            delegate.close();
+        }
+    }
+
+    private static class InstrumentedDatabase implements SupportSQLiteDatabase {
+
+        @NonNull
+        private final SupportSQLiteDatabase delegate;
+        @NonNull
+        private final QueryStatistics statistics;
+
+        private InstrumentedDatabase(@NonNull SupportSQLiteDatabase delegate, @NonNull QueryStatistics statistics) {
+            this.delegate = delegate;
+            this.statistics = statistics;
+        }
+
+        @Override
+        public SupportSQLiteStatement compileStatement(String sql) {
+            return new InstrumentedStatement(delegate.compileStatement(sql), sql, statistics);
+        }
+
+        @Override
+        public Cursor query(String query) {
+            return measure(query, () -> NO_ARGS, () -> delegate.query(query));
+        }
+
+        @Override
+        public Cursor query(String query, Object[] bindArgs) {
+            return measure(query, () -> bindArgs, () -> delegate.query(query, bindArgs));
+        }
+
+        @Override
+        public Cursor query(SupportSQLiteQuery query) {
+            return measure(query.getSql(), () -> getBindArgs(query), () -> delegate.query(query));
+        }
+
+        @Override
+        public Cursor query(SupportSQLiteQuery query, CancellationSignal cancellationSignal) {
+            return measure(query.getSql(), () -> getBindArgs(query), () -> delegate.query(query, cancellationSignal));
+        }
+
+        @NonNull
+        private Cursor measure(@NonNull String sql, @NonNull Supplier<Object[]> bindArgs, @NonNull Supplier<Cursor> query) {
+            final long start = System.nanoTime();
+            final Cursor cursor = query.get();
+            final int rows = cursor.getCount();
+            statistics.record(sql, bindArgs, System.nanoTime() - start, rows);
+            return cursor;
+        }
+
+        @Override
+        public long insert(String table, int conflictAlgorithm, ContentValues values) throws SQLException {
+            final long start = System.nanoTime();
+            final long rowId = delegate.insert(table, conflictAlgorithm, values);
+            statistics.record("INSERT INTO " + table, () -> new Object[]{values}, System.nanoTime() - start, rowId == -1 ? 0 : 1);
+            return rowId;
+        }
+
+        @Override
+        public int delete(String table, String whereClause, Object[] whereArgs) {
+            final long start = System.nanoTime();
+            final int rows = delegate.delete(table, whereClause, whereArgs);
+            statistics.record("DELETE FROM " + table + (whereClause == null ? "" : " WHERE " + whereClause), () -> whereArgs, System.nanoTime() - start, rows);
+            return rows;
+        }
+
+        @Override
+        public int update(String table, int conflictAlgorithm, ContentValues values, String whereClause, Object[] whereArgs) {
+            final long start = System.nanoTime();
+            final int rows = delegate.update(table, conflictAlgorithm, values, whereClause, whereArgs);
+            statistics.record("UPDATE " + table + (whereClause == null ? "" : " WHERE " + whereClause), () -> whereArgs, System.nanoTime() - start, rows);
+            return rows;
+        }
+
+        @Override
+        public void execSQL(String sql) throws SQLException {
+            final long start = System.nanoTime();
+            delegate.execSQL(sql);
+            statistics.record(sql, () -> NO_ARGS, System.nanoTime() - start, 0);
+        }
+
+        @Override
+        public void execSQL(String sql, Object[] bindArgs) throws SQLException {
+            final long start = System.nanoTime();
+            delegate.execSQL(sql, bindArgs);
+            statistics.record(sql, () -> bindArgs, System.nanoTime() - start, 0);
+        }
+
+        @Override
+        public void beginTransaction() {
+            delegate.beginTransaction();
+        }
+
+        @Override
+        public void beginTransactionNonExclusive() {
+            delegate.beginTransactionNonExclusive();
+        }
+
+        @Override
+        public void beginTransactionWithListener(SQLiteTransactionListener transactionListener) {
+            delegate.beginTransactionWithListener(transactionListener);
+        }
+
+        @Override
+        public void beginTransactionWithListenerNonExclusive(SQLiteTransactionListener transactionListener) {
+            delegate.beginTransactionWithListenerNonExclusive(transactionListener);
+        }
+
+        @Override
+        public void endTransaction() {
+            delegate.endTransaction();
+        }
+
+        @Override
+        public void setTransactionSuccessful() {
+            delegate.setTransactionSuccessful();
+        }
+
+        @Override
+        public boolean inTransaction() {
+            return delegate.inTransaction();
+        }
+
+        @Override
+        public boolean isDbLockedByCurrentThread() {
+            return delegate.isDbLockedByCurrentThread();
+        }
+
+        @Override
+        public boolean yieldIfContendedSafely() {
+            return delegate.yieldIfContendedSafely();
+        }
+
+        @Override
+        public boolean yieldIfContendedSafely(long sleepAfterYieldDelay) {
+            return delegate.yieldIfContendedSafely(sleepAfterYieldDelay);
+        }
+
+        @Override
+        public int getVersion() {
+            return delegate.getVersion();
+        }
+
+        @Override
+        public void setVersion(int version) {
+            delegate.setVersion(version);
+        }
+
+        @Override
+        public long getMaximumSize() {
+            return delegate.getMaximumSize();
+        }
+
+        @Override
+        public long setMaximumSize(long numBytes) {
+            return delegate.setMaximumSize(numBytes);
+        }
+
+        @Override
+        public long getPageSize() {
+            return delegate.getPageSize();
+        }
+
+        @Override
+        public void setPageSize(long numBytes) {
+            delegate.setPageSize(numBytes);
+        }
+
+        @Override
+        public boolean isReadOnly() {
+            return delegate.isReadOnly();
+        }
+
+        @Override
+        public boolean isOpen() {
+            return delegate.isOpen();
+        }
+
+        @Override
+        public boolean needUpgrade(int newVersion) {
+            return delegate.needUpgrade(newVersion);
+        }
+
+        @Override
+        public String getPath() {
+            return delegate.getPath();
+        }
+
+        @Override
+        public void setLocale(Locale locale) {
+            delegate.setLocale(locale);
+        }
+
+        @Override
+        public void setMaxSqlCacheSize(int cacheSize) {
+            delegate.setMaxSqlCacheSize(cacheSize);
+        }
+
+        @Override
+        public void setForeignKeyConstraintsEnabled(boolean enable) {
+            delegate.setForeignKeyConstraintsEnabled(enable);
+        }
+
+        @Override
+        public boolean enableWriteAheadLogging() {
+            return delegate.enableWriteAheadLogging();
+        }
+
+        @Override
+        public void disableWriteAheadLogging() {
+            delegate.disableWriteAheadLogging();
+        }
+
+        @Override
+        public boolean isWriteAheadLoggingEnabled() {
+            return delegate.isWriteAheadLoggingEnabled();
+        }
+
+        @Override
+        public List<Pair<String, String>> getAttachedDbs() {
+            return delegate.getAttachedDbs();
+        }
+
+        @Override
+        public boolean isDatabaseIntegrityOk() {
+            return delegate.isDatabaseIntegrityOk();
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+    }
+
+    /**
+     * Remembers the bound arguments since they can not be read from the compiled statement
+     */
+    private static class InstrumentedStatement implements SupportSQLiteStatement {
+
+        @NonNull
+        private final SupportSQLiteStatement delegate;
+        @NonNull
+        private final String sql;
+        @NonNull
+        private final QueryStatistics statistics;
+        @NonNull
+        private final List<Object> bindArgs = new ArrayList<>();
+
+        private InstrumentedStatement(@NonNull SupportSQLiteStatement delegate, @NonNull String sql, @NonNull QueryStatistics statistics) {
+            this.delegate = delegate;
+            this.sql = sql;
+            this.statistics = statistics;
+        }
+
+        @Override
+        public void execute() {
+            final long start = System.nanoTime();
+            delegate.execute();
+            record(start, 0);
+        }
+
+        @Override
+        public int executeUpdateDelete() {
+            final long start = System.nanoTime();
+            final int rows = delegate.executeUpdateDelete();
+            record(start, rows);
+            return rows;
+        }
+
+        @Override
+        public long executeInsert() {
+            final long start = System.nanoTime();
+            final long rowId = delegate.executeInsert();
+            record(start, rowId == -1 ? 0 : 1);
+            return rowId;
+        }
+
+        @Override
+        public long simpleQueryForLong() {
+            final long start = System.nanoTime();
+            final long result = delegate.simpleQueryForLong();
+            record(start, 1);
+            return result;
+        }
+
+        @Override
+        public String simpleQueryForString() {
+            final long start = System.nanoTime();
+            final String result = delegate.simpleQueryForString();
+            record(start, 1);
+            return result;
+        }
+
+        private void record(long start, int rows) {
+            final long duration = System.nanoTime() - start;
+            statistics.record(sql, bindArgs::toArray, duration, rows);
+        }
+
+        @Override
+        public void bindNull(int index) {
+            setBindArg(index, null);
+            delegate.bindNull(index);
+        }
+
+        @Override
+        public void bindLong(int index, long value) {
+            setBindArg(index, value);
+            delegate.bindLong(index, value);
+        }
+
+        @Override
+        public void bindDouble(int index, double value) {
+            setBindArg(index, value);
+            delegate.bindDouble(index, value);
+        }
+
+        @Override
+        public void bindString(int index, String value) {
+            setBindArg(index, value);
+            delegate.bindString(index, value);
+        }
+
+        @Override
+        public void bindBlob(int index, byte[] value) {
+            setBindArg(index, value);
+            delegate.bindBlob(index, value);
+        }
+
+        @Override
+        public void clearBindings() {
+            bindArgs.clear();
+            delegate.clearBindings();
+        }
+
+        /**
+         * @param index 1-based like in SQLite
+         */
+        private void setBindArg(int index, @Nullable Object value) {
+            while (bindArgs.size() < index) {
+                bindArgs.add(null);
+            }
+            bindArgs.set(index - 1, value);
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+    }
+
+    @NonNull
+    private static Object[] getBindArgs(@NonNull SupportSQLiteQuery query) {
+        final var recorder = new BindArgsRecorder(query.getArgCount());
+        query.bindTo(recorder);
+        return recorder.args;
+    }
+
+    /**
+     * Bound arguments of a {@link SupportSQLiteQuery} can only be read by letting it bind them to a program
+     */
+    private static class BindArgsRecorder implements SupportSQLiteProgram {
+
+        @NonNull
+        private final Object[] args;
+
+        private BindArgsRecorder(int argCount) {
+            this.args = new Object[argCount];
+        }
+
+        private void set(int index, @Nullable Object value) {
+            if (index > 0 && index <= args.length) {
+                args[index - 1] = value;
+            }
+        }
+
+        @Override
+        public void bindNull(int index) {
+            set(index, null);
+        }
+
+        @Override
+        public void bindLong(int index, long value) {
+            set(index, value);
+        }
+
+        @Override
+        public void bindDouble(int index, double value) {
+            set(index, value);
+        }
+
+        @Override
+        public void bindString(int index, String value) {
+            set(index, value);
+        }
+
+        @Override
+        public void bindBlob(int index, byte[] value) {
+            set(index, Arrays.toString(value));
+        }
+
+        @Override
+        public void clearBindings() {
+            Arrays.fill(args, null);
+        }
+
+        @Override
+        public void close() {
+            // Nothing to release
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package it.niedermann.nextcloud.deck.persistence.sync.adapters.db.util;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+import it.niedermann.nextcloud.deck.DeckLog;
+
+/**
+ * Aggregates the executions of SQL statements: amount, total and percentile latencies and affected rows.
+ * Executions which take longer than the slow query threshold are logged including their bind arguments.
+ * <p>
+ * Statements are identified by their SQL, so bind arguments of the same statement are aggregated.
+ */
+public class QueryStatistics {
+
+    /**
+     * Limits the memory used by dynamic SQL like the filter queries, further statements are not recorded
+     */
+    private static final int MAX_STATEMENTS = 256;
+    /**
+     * Percentiles are calculated from the most recent executions of each statement
+     */
+    @VisibleForTesting
+    static final int SAMPLES_PER_STATEMENT = 128;
+    private static final int MAX_SQL_LENGTH_IN_REPORT = 160;
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final Map<String, Entry> entries = new HashMap<>();
+    private volatile long slowQueryThresholdNanos;
+
+    public QueryStatistics(long slowQueryThresholdMillis) {
+        setSlowQueryThresholdMillis(slowQueryThresholdMillis);
+    }
+
+    public void setSlowQueryThresholdMillis(long slowQueryThresholdMillis) {
+        this.slowQueryThresholdNanos = TimeUnit.MILLISECONDS.toNanos(slowQueryThresholdMillis);
+    }
+
+    /**
+     * @param bindArgs only evaluated if the execution has been slow
+     */
+    public void record(@NonNull String sql, @NonNull Supplier<Object[]> bindArgs, long durationNanos, int rows) {
+        if (durationNanos >= slowQueryThresholdNanos) {
+            DeckLog.warn("Slow query:", TimeUnit.NANOSECONDS.toMillis(durationNanos), "ms,", rows, "rows:", sql, "with arguments", Arrays.toString(bindArgs.get()));
+        }
+        synchronized (entries) {
+            var entry = entries.get(sql);
+            if (entry == null) {
+                if (entries.size() >= MAX_STATEMENTS) {
+                    return;
+                }
+                entry = new Entry(sql);
+                entries.put(sql, entry);
+            }
+            entry.add(durationNanos, rows);
+        }
+    }
+
+    public void reset() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    @NonNull
+    public List<Entry> getEntries() {
+        final List<Entry> copy = new ArrayList<>();
+        synchronized (entries) {
+            for (Entry entry : entries.values()) {
+                copy.add(entry.copy());
+            }
+        }
+        copy.sort((a, b) -> Long.compare(b.totalNanos, a.totalNanos));
+        return copy;
+    }
+
+    /**
+     * @return a plain text table of all statements, the most expensive ones first
+     */
+    @NonNull
+    public String getReport() {
+        final var entries = getEntries();
+        final var report = new StringBuilder()
+                .append(String.format(Locale.ROOT, "%d statements, slow query threshold: %d ms%n", entries.size(), TimeUnit.NANOSECONDS.toMillis(slowQueryThresholdNanos)))
+                .append(String.format(Locale.ROOT, "%7s %10s %8s %8s %8s %8s %8s %9s  %s%n", "count", "total ms", "avg ms", "p50 ms", "p95 ms", "p99 ms", "max ms", "rows", "sql"));
+        for (Entry entry : entries) {
+            report.append(String.format(Locale.ROOT, "%7d %10.1f %8.2f %8.2f %8.2f %8.2f %8.2f %9d  %s%n",
+                    entry.count,
+                    toMillis(entry.totalNanos),
+                    toMillis(entry.totalNanos / entry.count),
+                    toMillis(entry.getPercentileNanos(50)),
+                    toMillis(entry.getPercentileNanos(95)),
+                    toMillis(entry.getPercentileNanos(99)),
+                    toMillis(entry.maxNanos),
+                    entry.rows,
+                    abbreviate(entry.sql)));
+        }
+        return report.toString();
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / 1_000_000d;
+    }
+
+    @NonNull
+    private static String abbreviate(@NonNull String sql) {
+        final String singleLine = WHITESPACE.matcher(sql).replaceAll(" ").trim();
+        return singleLine.length() > MAX_SQL_LENGTH_IN_REPORT
+                ? singleLine.substring(0, MAX_SQL_LENGTH_IN_REPORT - 1) + "…"
+                : singleLine;
+    }
+
+    public static class Entry {
+
+        @NonNull
+        private final String sql;
+        private long count;
+        private long totalNanos;
+        private long maxNanos;
+        private long rows;
+        @NonNull
+        private final long[] samples;
+        private int sampleCount;
+
+        private Entry(@NonNull String sql) {
+            this(sql, new long[SAMPLES_PER_STATEMENT]);
+        }
+
+        private Entry(@NonNull String sql, @NonNull long[] samples) {
+            this.sql = sql;
+            this.samples = samples;
+        }
+
+        private void add(long durationNanos, int rows) {
+            samples[(int) (count % samples.length)] = durationNanos;
+            sampleCount = Math.min(sampleCount + 1, samples.length);
+            count++;
+            totalNanos += durationNanos;
+            maxNanos = Math.max(maxNanos, durationNanos);
+            this.rows += rows;
+        }
+
+        @NonNull
+        private Entry copy() {
+            final var copy = new Entry(sql, samples.clone());
+            copy.count = count;
+            copy.totalNanos = totalNanos;
+            copy.maxNanos = maxNanos;
+            copy.rows = rows;
+            copy.sampleCount = sampleCount;
+            return copy;
+        }
+
+        @NonNull
+        public String getSql() {
+            return sql;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getTotalNanos() {
+            return totalNanos;
+        }
+
+        public long getMaxNanos() {
+            return maxNanos;
+        }
+
+        /**
+         * @return the total amount of rows returned by queries or changed by other statements
+         */
+        public long getRows() {
+            return rows;
+        }
+
+        /**
+         * @param percentile between <code>0</code> and <code>100</code>
+         * @return the latency of the given percentile using the nearest rank method over the most recent executions
+         */
+        public long getPercentileNanos(int percentile) {
+            if (sampleCount == 0) {
+                return 0L;
+            }
+            final long[] sorted = Arrays.copyOf(samples, sampleCount);
+            Arrays.sort(sorted);
+            final int rank = (int) Math.ceil(percentile / 100d * sorted.length);
+            return sorted[Math.max(0, rank - 1)];
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return "Entry{" +
+                    "sql='" + sql + '\'' +
+                    ", count=" + count +
+                    ", totalNanos=" + totalNanos +
+                    ", rows=" + rows +
+                    '}';
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package it.niedermann.nextcloud.deck.persistence.sync.helpers;
+
+import androidx.annotation.NonNull;
+
+import java.net.HttpURLConnection;
+import java.util.Collections;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import it.niedermann.nextcloud.deck.DeckLog;
+import it.niedermann.nextcloud.deck.api.ResponseCallback;
+import it.niedermann.nextcloud.deck.api.RetryPolicy;
+import it.niedermann.nextcloud.deck.exceptions.ChangesNotUploadedException;
+import it.niedermann.nextcloud.deck.exceptions.OfflineException;
+import it.niedermann.nextcloud.deck.exceptions.ServerUnhealthyException;
+import it.niedermann.nextcloud.deck.model.AccessControl;
+import it.niedermann.nextcloud.deck.model.Attachment;
+import it.niedermann.nextcloud.deck.model.Board;
+import it.niedermann.nextcloud.deck.model.Card;
+import it.niedermann.nextcloud.deck.model.Label;
+import it.niedermann.nextcloud.deck.model.enums.EOutboxEntityType;
+import it.niedermann.nextcloud.deck.model.full.FullBoard;
+import it.niedermann.nextcloud.deck.model.full.FullCard;
+import it.niedermann.nextcloud.deck.model.full.FullStack;
+import it.niedermann.nextcloud.deck.model.internal.OutboxEntry;
+import it.niedermann.nextcloud.deck.model.ocs.comment.DeckComment;
+import it.niedermann.nextcloud.deck.model.ocs.comment.OcsComment;
+import it.niedermann.nextcloud.deck.persistence.sync.adapters.ServerAdapter;
+import it.niedermann.nextcloud.deck.persistence.sync.adapters.db.DataBaseAdapter;
+import it.niedermann.nextcloud.deck.persistence.sync.helpers.providers.AccessControlDataProvider;
+import it.niedermann.nextcloud.deck.persistence.sync.helpers.providers.AttachmentDataProvider;
+import it.niedermann.nextcloud.deck.persistence.sync.helpers.providers.BoardDataProvider;
+import it.niedermann.nextcloud.deck.persistence.sync.helpers.providers.CardDataProvider;
+import it.niedermann.nextcloud.deck.persistence.sync.helpers.providers.DeckCommentsDataProvider;
+import it.niedermann.nextcloud.deck.persistence.sync.helpers.providers.LabelDataProvider;
+import it.niedermann.nextcloud.deck.persistence.sync.helpers.providers.StackDataProvider;
+
+/**
+ * Drains the outbox of an account: uploads the entity referenced by each pending {@link OutboxEntry} in the order the entries have been recorded.
+ * Only the referenced entity is read and uploaded, no tables get scanned for local changes.
+ */
+public class OutboxHelper {
+    @NonNull
+    private final ServerAdapter serverAdapter;
+    @NonNull
+    private final DataBaseAdapter dataBaseAdapter;
+    @NonNull
+    private final ExecutorService executor;
+    @NonNull
+    private final SyncHelper.Factory syncHelperFactory;
+
+    public OutboxHelper(@NonNull ServerAdapter serverAdapter, @NonNull DataBaseAdapter dataBaseAdapter, @NonNull ExecutorService executor, @NonNull SyncHelper.Factory syncHelperFactory) {
+        this.serverAdapter = serverAdapter;
+        this.dataBaseAdapter = dataBaseAdapter;
+        this.executor = executor;
+        this.syncHelperFactory = syncHelperFactory;
+    }
+
+    /**
+     * Uploads the pending entries one after another. Draining stops at the first entry which can not be uploaded,
+     * because the following ones might depend on it (e.g. a card on its new stack). Only the attempts of this entry are counted.
+     * An entry which has been rejected by the server or failed {@link OutboxEntry#MAX_ATTEMPTS} times is given up and skipped,
+     * so it does not block the following ones forever. Its entity is only uploaded again by the next full synchronization.
+     *
+     * @param callback gets notified once, after all entries have been processed or the first one failed.
+     *                 Receives a {@link ChangesNotUploadedException} if entries have been given up.
+     */
+    public void drain(@NonNull ResponseCallback<Boolean> callback) {
+        drainAfter(0L, callback);
+    }
+
+    private void drainAfter(long afterId, @NonNull ResponseCallback<Boolean> callback) {
+        final long accountId = callback.getAccount().getId();
+        final OutboxEntry entry = dataBaseAdapter.getNextPendingOutboxEntryDirectly(accountId, afterId);
+        if (entry == null) {
+            final int givenUp = dataBaseAdapter.countGivenUpOutboxEntriesDirectly(accountId);
+            if (givenUp > 0) {
+                callback.onError(new ChangesNotUploadedException(givenUp));
+            } else {
+                callback.onResponse(Boolean.TRUE);
+            }
+            return;
+        }
+        final AtomicBoolean done = new AtomicBoolean(false);
+        final ResponseCallback<Boolean> entryCallback = new ResponseCallback<>(callback.getAccount()) {
+            @Override
+            public void onResponse(Boolean response) {
+                // Some uploads report further results of related entities, only the first one counts
+                if (done.compareAndSet(false, true)) {
+                    executor.submit(() -> drainAfter(entry.getId(), callback));
+                }
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                if (done.compareAndSet(false, true)) {
+                    super.onError(throwable);
+                    if (isRejected(throwable) || (countsAsAttempt(throwable) && entry.getAttempts() + 1 >= OutboxEntry.MAX_ATTEMPTS)) {
+                        DeckLog.error("Giving up", entry, "- it will only be uploaded again by the next full synchronization.");
+                        dataBaseAdapter.giveUpOutboxEntryDirectly(entry);
+                        executor.submit(() -> drainAfter(entry.getId(), callback));
+                        return;
+                    }
+                    DeckLog.warn("Could not upload", entry);
+                    if (countsAsAttempt(throwable)) {
+                        dataBaseAdapter.incrementOutboxAttemptsDirectly(entry);
+                    }
+                    callback.onError(throwable);
+                }
+            }
+        };
+        try {
+            upload(entry, syncHelperFactory.create(serverAdapter, dataBaseAdapter, null).setResponseCallback(entryCallback), entryCallback);
+        } catch (Throwable throwable) {
+            entryCallback.onError(throwable);
+        }
+    }
+
+    /**
+     * @return whether the server understood and refused the upload, so uploading the same entity again will fail again
+     */
+    private static boolean isRejected(@NonNull Throwable throwable) {
+        final int statusCode = RetryPolicy.getStatusCode(throwable);
+        return statusCode >= HttpURLConnection.HTTP_BAD_REQUEST
+                && statusCode < HttpURLConnection.HTTP_INTERNAL_ERROR
+                && statusCode != HttpURLConnection.HTTP_UNAUTHORIZED
+                && RetryPolicy.classify(throwable) == RetryPolicy.Classification.PERMANENT;
+    }
+
+    /**
+     * @return <code>false</code> if the server could not be reached at all or is in maintenance mode, because the entry can not be blamed for that
+     */
+    private static boolean countsAsAttempt(@NonNull Throwable throwable) {
+        if (throwable instanceof OfflineException || throwable instanceof ServerUnhealthyException || RetryPolicy.isMaintenance(throwable)) {
+            return false;
+        }
+        return RetryPolicy.getStatusCode(throwable) >= 0 || throwable instanceof RuntimeException;
+    }
+
+    private void upload(@NonNull OutboxEntry entry, @NonNull SyncHelper syncHelper, @NonNull ResponseCallback<Boolean> callback) {
+        final long accountId = entry.getAccountId();
+        switch (entry.getEntityType()) {
+            case BOARD: {
+                final FullBoard board = dataBaseAdapter.getFullBoardByLocalIdDirectly(accountId, entry.getEntityLocalId());
+                syncHelper.doUpSyncWithoutGoingDeeperFor(new BoardDataProvider(), Collections.singletonList(board));
+                break;
+            }
+            case STACK: {
+                final FullStack stack = dataBaseAdapter.getFullStackByLocalIdDirectly(entry.getEntityLocalId());
+                final FullBoard board = dataBaseAdapter.getFullBoardByLocalIdDirectly(accountId, stack.getStack().getBoardId());
+                syncHelper.doUpSyncWithoutGoingDeeperFor(new StackDataProvider(null, board), Collections.singletonList(stack));
+                break;
+            }
+            case CARD: {
+                final FullCard card = dataBaseAdapter.getFullCardByLocalIdDirectly(accountId, entry.getEntityLocalId());
+                final FullStack stack = dataBaseAdapter.getFullStackByLocalIdDirectly(card.getCard().getStackId());
+                final Board board = dataBaseAdapter.getBoardByLocalIdDirectly(stack.getStack().getBoardId());
+                syncHelper.doUpSyncWithoutGoingDeeperFor(new CardDataProvider(null, board, stack), Collections.singletonList(card));
+                break;
+            }
+            case LABEL: {
+                final Label label = dataBaseAdapter.getLabelByLocalIdDirectly(entry.getEntityLocalId());
+                final Board board = dataBaseAdapter.getBoardByLocalIdDirectly(label.getBoardId());
+                syncHelper.doUpSyncWithoutGoingDeeperFor(new LabelDataProvider(null, board, Collections.singletonList(label)), Collections.singletonList(label));
+                break;
+            }
+            case ACCESS_CONTROL: {
+                final AccessControl accessControl = dataBaseAdapter.getAccessControlByLocalIdDirectly(entry.getEntityLocalId());
+                final FullBoard board = dataBaseAdapter.getFullBoardByLocalIdDirectly(accountId, accessControl.getBoardId());
+                syncHelper.doUpSyncWithoutGoingDeeperFor(new AccessControlDataProvider(null, board, Collections.emptyList()), Collections.singletonList(accessControl));
+                break;
+            }
+            case ATTACHMENT: {
+                final Attachment attachment = dataBaseAdapter.getAttachmentByLocalIdDirectly(accountId, entry.getEntityLocalId());
+                final FullCard card = dataBaseAdapter.getFullCardByLocalIdDirectly(accountId, attachment.getCardId());
+                final FullStack stack = dataBaseAdapter.getFullStackByLocalIdDirectly(card.getCard().getStackId());
+                final Board board = dataBaseAdapter.getBoardByLocalIdDirectly(stack.getStack().getBoardId());
+                syncHelper.doUpSyncWithoutGoingDeeperFor(new AttachmentDataProvider(null, board, stack.getStack(), card, Collections.singletonList(attachment)), Collections.singletonList(attachment));
+                break;
+            }
+            case COMMENT: {
+                final DeckComment comment = dataBaseAdapter.getCommentByLocalIdDirectly(accountId, entry.getEntityLocalId());
+                final Card card = dataBaseAdapter.getCardByLocalIdDirectly(accountId, comment.getObjectId());
+                syncHelper.doUpSyncWithoutGoingDeeperFor(new DeckCommentsDataProvider(null, card), Collections.singletonList(OcsComment.of(comment)));
+                break;
+            }
+            case CARD_LABEL:
+            case CARD_USER: {
+                final Long relatedLocalId = entry.getRelatedLocalId();
+                if (relatedLocalId == null) {
+                    throw new IllegalArgumentException(entry.getEntityType() + " without related local id");
+                }
+                final Card card = dataBaseAdapter.getCardByLocalIdDirectly(accountId, entry.getEntityLocalId());
+                if (card == null) {
+                    // The card has been deleted physically together with its assignments
+                    callback.onResponse(Boolean.TRUE);
+                    break;
+                }
+                final FullStack stack = dataBaseAdapter.getFullStackByLocalIdDirectly(card.getStackId());
+                final Board board = dataBaseAdapter.getBoardByLocalIdDirectly(stack.getStack().getBoardId());
+                final CardDataProvider provider = new CardDataProvider(null, board, stack);
+                if (entry.getEntityType() == EOutboxEntityType.CARD_LABEL) {
+                    provider.upSyncLabelJoin(serverAdapter, dataBaseAdapter, card.getLocalId(), relatedLocalId, callback);
+                } else {
+                    provider.upSyncUserJoin(serverAdapter, dataBaseAdapter, card.getLocalId(), relatedLocalId, callback);
+                }
+                break;
+            }
+            default:
+                throw new IllegalArgumentException("Unknown " + entry.getEntityType());
+        }
+    }
+}
@@ -7,18 +7,24 @@ import com.nextcloud.android.sso.exceptions.NextcloudHttpRequestFailedException;
 
 import java.net.HttpURLConnection;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import it.niedermann.nextcloud.deck.DeckLog;
 import it.niedermann.nextcloud.deck.api.ResponseCallback;
 import it.niedermann.nextcloud.deck.model.Account;
 import it.niedermann.nextcloud.deck.model.enums.DBStatus;
 import it.niedermann.nextcloud.deck.model.interfaces.IRemoteEntity;
+import it.niedermann.nextcloud.deck.model.internal.EntitySyncState;
 import it.niedermann.nextcloud.deck.persistence.sync.adapters.ServerAdapter;
 import it.niedermann.nextcloud.deck.persistence.sync.adapters.db.DataBaseAdapter;
 import it.niedermann.nextcloud.deck.persistence.sync.helpers.providers.AbstractSyncDataProvider;
 import it.niedermann.nextcloud.deck.persistence.sync.helpers.providers.IRelationshipProvider;
+import it.niedermann.nextcloud.deck.persistence.sync.helpers.util.BoundedTaskQueue;
+import it.niedermann.nextcloud.deck.persistence.sync.helpers.util.SyncExecutors;
 
 public class SyncHelper {
     @NonNull
@@ -28,6 +34,10 @@ public class SyncHelper {
     @Nullable
     private final Instant lastSync;
     private final boolean etagsEnabled;
+    @NonNull
+    private final BoundedTaskQueue boardSyncQueue;
+    @Nullable
+    private Instant modifiedSince = null;
 
     private Account account;
     private long accountId;
@@ -39,6 +49,26 @@ public class SyncHelper {
         this.lastSync = lastSync;
         // check only once per sync
         this.etagsEnabled = serverAdapter.isEtagsEnabled();
+        this.boardSyncQueue = new BoundedTaskQueue(serverAdapter.getMaxParallelBoardSyncs(), SyncExecutors.getRequestExecutor());
+    }
+
+    /**
+     * @return the queue which limits how many boards are synchronized in parallel during this sync
+     */
+    @NonNull
+    public BoundedTaskQueue getBoardSyncQueue() {
+        return boardSyncQueue;
+    }
+
+    /**
+     * Enables an incremental synchronization: the server will only respond with entities which changed since the given date.
+     * Entities missing in such a response are considered unchanged instead of deleted.
+     *
+     * @param modifiedSince <code>null</code> to perform a full synchronization
+     */
+    public SyncHelper setModifiedSince(@Nullable Instant modifiedSince) {
+        this.modifiedSince = modifiedSince;
+        return this;
     }
 
     // Sync Server -> App
@@ -49,35 +79,56 @@ public class SyncHelper {
             public void onResponse(List<T> response) {
                 if (response != null) {
                     provider.goingDeeper();
-                    for (T entityFromServer : response) {
-                        if (entityFromServer == null) {
-                            // see https://github.com/stefan-niedermann/nextcloud-deck/issues/574
-                            DeckLog.error("Skipped null value from server for DataProvider:", provider.getClass().getSimpleName());
-                            continue;
-                        }
-                        entityFromServer.setAccountId(accountId);
-                        T existingEntity = provider.getSingleFromDB(dataBaseAdapter, accountId, entityFromServer);
-
-                        if (existingEntity == null) {
-                            provider.createInDB(dataBaseAdapter, accountId, entityFromServer);
-                        } else {
-                            //TODO: how to handle deletes? what about archived?
-                            if (existingEntity.getStatus() != DBStatus.UP_TO_DATE.getId()) {
-                                DeckLog.warn("Conflicting changes on entity:", existingEntity);
-                                // TODO: what to do?
+                    final List<T> entitiesToGoDeeper = new ArrayList<>(response.size());
+                    // Reconcile the whole response in one transaction, but go deeper only after the commit:
+                    // child providers perform requests whose callbacks would otherwise wait for our write lock.
+                    dataBaseAdapter.runInTransaction(() -> {
+                        // Fetch the sync relevant columns of all known entities at once instead of querying each one separately
+                        final Map<Object, EntitySyncState> localStates = provider.getSyncStatesFromDB(dataBaseAdapter, accountId, response);
+                        for (T entityFromServer : response) {
+                            if (entityFromServer == null) {
+                                // see https://github.com/stefan-niedermann/nextcloud-deck/issues/574
+                                DeckLog.error("Skipped null value from server for DataProvider:", provider.getClass().getSimpleName());
+                                continue;
+                            }
+                            entityFromServer.setAccountId(accountId);
+                            final EntitySyncState existingState = localStates.get(provider.getSyncKey(entityFromServer));
+
+                            if (existingState == null) {
+                                entityFromServer.setLocalId(provider.createInDB(dataBaseAdapter, accountId, entityFromServer));
+                                // The same entity might be contained multiple times in one response
+                                localStates.put(provider.getSyncKey(entityFromServer), EntitySyncState.of(entityFromServer));
                             } else {
-                                if (etagsEnabled && entityFromServer.getEtag() != null && entityFromServer.getEtag().equals(existingEntity.getEtag())) {
-                                    DeckLog.log("[" + provider.getClass().getSimpleName() + "] ETags do match! skipping " + existingEntity.getClass().getSimpleName() + " with localId: " + existingEntity.getLocalId());
-                                    continue;
+                                entityFromServer.setLocalId(existingState.getLocalId());
+                                //TODO: how to handle deletes? what about archived?
+                                if (existingState.getStatus() != DBStatus.UP_TO_DATE.getId()) {
+                                    DeckLog.warn("Conflicting changes on entity:", existingState);
+                                    // TODO: what to do?
+                                } else {
+                                    if (etagsEnabled && entityFromServer.getEtag() != null && entityFromServer.getEtag().equals(existingState.getEtag())) {
+                                        DeckLog.log("[" + provider.getClass().getSimpleName() + "] ETags do match! skipping " + entityFromServer.getClass().getSimpleName() + " with localId: " + existingState.getLocalId());
+                                        continue;
+                                    }
+                                    provider.updateInDB(dataBaseAdapter, accountId, entityFromServer, false);
+                                    localStates.put(provider.getSyncKey(entityFromServer), EntitySyncState.of(entityFromServer));
                                 }
-                                provider.updateInDB(dataBaseAdapter, accountId, applyUpdatesFromRemote(provider, existingEntity, entityFromServer, accountId), false);
                             }
+                            // The entity from the server now carries the local ID and reflects the stored one, no need to read it back
+                            entitiesToGoDeeper.add(entityFromServer);
                         }
-                        existingEntity = provider.getSingleFromDB(dataBaseAdapter, accountId, entityFromServer);
-                        provider.goDeeper(SyncHelper.this, existingEntity, entityFromServer, responseCallback);
-                    }
 
-                    provider.handleDeletes(serverAdapter, dataBaseAdapter, accountId, response);
+                        // Deletes are applied before going deeper, so the local state of this level is consistent when the transaction commits.
+                        // This does not change what children see: handleDeletes only touches entities missing in the response, children only the ones contained in it.
+                        if (modifiedSince == null || !provider.isFilteredByModifiedSince()) {
+                            provider.handleDeletes(serverAdapter, dataBaseAdapter, accountId, response);
+                        }
+                    });
+
+                    // Entities the user is currently looking at go first (stable, so the server order is kept otherwise)
+                    entitiesToGoDeeper.sort((a, b) -> Integer.compare(provider.getSyncPriority(b), provider.getSyncPriority(a)));
+                    for (T entity : entitiesToGoDeeper) {
+                        provider.goDeeper(SyncHelper.this, entity, entity, responseCallback);
+                    }
 
                     provider.doneGoingDeeper(responseCallback, true);
                 } else {
@@ -100,7 +151,7 @@ public class SyncHelper {
                 provider.onError(responseCallback);
                 responseCallback.onError(throwable);
             }
-        }, lastSync);
+        }, provider.isFilteredByModifiedSince() ? modifiedSince : null);
     }
 
     // Sync App -> Server
@@ -110,35 +161,71 @@ public class SyncHelper {
 
     public <T extends IRemoteEntity> void doUpSyncFor(@NonNull AbstractSyncDataProvider<T> provider, @Nullable CountDownLatch countDownLatch) {
         final List<T> allFromDB = provider.getAllChangedFromDB(dataBaseAdapter, accountId, lastSync);
+        final Runnable goDeeper = () -> provider.goDeeperForUpSync(this, serverAdapter, dataBaseAdapter, responseCallback);
         if (allFromDB != null && !allFromDB.isEmpty()) {
             for (T entity : allFromDB) {
                 if (entity.getId() != null) {
                     if (entity.getStatusEnum() == DBStatus.LOCAL_DELETED) {
-                        provider.deleteOnServer(serverAdapter, accountId, getDeleteCallback(provider, entity), entity, dataBaseAdapter);
+                        provider.deleteOnServer(serverAdapter, accountId, getDeleteCallback(provider, entity, goDeeper), entity, dataBaseAdapter);
                         if (countDownLatch != null) {
                             countDownLatch.countDown();
                         }
                     } else {
-                        provider.updateOnServer(serverAdapter, dataBaseAdapter, accountId, getUpdateCallback(provider, entity, countDownLatch), entity);
+                        provider.updateOnServer(serverAdapter, dataBaseAdapter, accountId, getUpdateCallback(provider, entity, goDeeper, countDownLatch), entity);
                     }
                 } else {
-                    provider.createOnServer(serverAdapter, dataBaseAdapter, accountId, getUpdateCallback(provider, entity, countDownLatch), entity);
+                    provider.createOnServer(serverAdapter, dataBaseAdapter, accountId, getUpdateCallback(provider, entity, goDeeper, countDownLatch), entity);
                 }
             }
         } else {
-            provider.goDeeperForUpSync(this, serverAdapter, dataBaseAdapter, responseCallback);
+            goDeeper.run();
             if (countDownLatch != null) {
                 countDownLatch.countDown();
             }
         }
     }
 
-    private <T extends IRemoteEntity> ResponseCallback<Void> getDeleteCallback(@NonNull AbstractSyncDataProvider<T> provider, T entity) {
+    /**
+     * Uploads only the given local changes of the given provider and notifies the {@link ResponseCallback} once all of them have been uploaded.
+     * Does not go deeper, the children of an entity have their own entries in the outbox.
+     */
+    public <T extends IRemoteEntity> void doUpSyncWithoutGoingDeeperFor(@NonNull AbstractSyncDataProvider<T> provider, @NonNull List<T> entities) {
+        if (entities.isEmpty()) {
+            responseCallback.onResponse(Boolean.TRUE);
+            return;
+        }
+        final AtomicInteger pending = new AtomicInteger(entities.size());
+        final Runnable onUploaded = () -> {
+            if (pending.decrementAndGet() == 0) {
+                responseCallback.onResponse(Boolean.TRUE);
+            }
+        };
+        for (T entity : entities) {
+            if (entity.getStatusEnum() == DBStatus.LOCAL_DELETED) {
+                if (entity.getId() == null) {
+                    // Never known by the server
+                    provider.deletePhysicallyInDB(dataBaseAdapter, accountId, entity);
+                    onUploaded.run();
+                } else {
+                    provider.deleteOnServer(serverAdapter, accountId, getDeleteCallback(provider, entity, onUploaded), entity, dataBaseAdapter);
+                }
+            } else if (entity.getId() == null) {
+                provider.createOnServer(serverAdapter, dataBaseAdapter, accountId, getUpdateCallback(provider, entity, onUploaded, null), entity);
+            } else {
+                provider.updateOnServer(serverAdapter, dataBaseAdapter, accountId, getUpdateCallback(provider, entity, onUploaded, null), entity);
+            }
+        }
+    }
+
+    /**
+     * @param next called after the deletion has been applied locally
+     */
+    private <T extends IRemoteEntity> ResponseCallback<Void> getDeleteCallback(@NonNull AbstractSyncDataProvider<T> provider, T entity, @NonNull Runnable next) {
         return new ResponseCallback<>(account) {
             @Override
             public void onResponse(Void response) {
                 provider.deletePhysicallyInDB(dataBaseAdapter, accountId, entity);
-                provider.goDeeperForUpSync(SyncHelper.this, serverAdapter, dataBaseAdapter, responseCallback);
+                next.run();
             }
 
             @Override
@@ -149,7 +236,10 @@ public class SyncHelper {
         };
     }
 
-    private <T extends IRemoteEntity> ResponseCallback<T> getUpdateCallback(@NonNull AbstractSyncDataProvider<T> provider, @NonNull T entity, @Nullable CountDownLatch countDownLatch) {
+    /**
+     * @param next called after the response has been stored locally
+     */
+    private <T extends IRemoteEntity> ResponseCallback<T> getUpdateCallback(@NonNull AbstractSyncDataProvider<T> provider, @NonNull T entity, @NonNull Runnable next, @Nullable CountDownLatch countDownLatch) {
         return new ResponseCallback<>(account) {
             @Override
             public void onResponse(T response) {
@@ -158,7 +248,7 @@ public class SyncHelper {
                 update.setId(response.getId());
                 update.setStatus(DBStatus.UP_TO_DATE.getId());
                 provider.updateInDB(dataBaseAdapter, accountId, update, false);
-                provider.goDeeperForUpSync(SyncHelper.this, serverAdapter, dataBaseAdapter, responseCallback);
+                next.run();
                 if (countDownLatch != null) {
                     countDownLatch.countDown();
                 }
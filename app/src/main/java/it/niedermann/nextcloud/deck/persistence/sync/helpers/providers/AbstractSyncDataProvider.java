@@ -1,24 +1,38 @@
 package it.niedermann.nextcloud.deck.persistence.sync.helpers.providers;
 
+import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 
-import it.niedermann.nextcloud.deck.DeckLog;
 import it.niedermann.nextcloud.deck.api.ResponseCallback;
 import it.niedermann.nextcloud.deck.model.interfaces.IRemoteEntity;
+import it.niedermann.nextcloud.deck.model.internal.EntitySyncState;
 import it.niedermann.nextcloud.deck.persistence.sync.adapters.ServerAdapter;
 import it.niedermann.nextcloud.deck.persistence.sync.adapters.db.DataBaseAdapter;
 import it.niedermann.nextcloud.deck.persistence.sync.helpers.SyncHelper;
+import it.niedermann.nextcloud.deck.persistence.sync.helpers.util.BoundedTaskQueue;
+import it.niedermann.nextcloud.deck.persistence.sync.helpers.util.EntityDelta;
+import it.niedermann.nextcloud.deck.persistence.sync.helpers.util.SyncPriorities;
 
 public abstract class AbstractSyncDataProvider<T extends IRemoteEntity> {
 
     @Nullable
     protected AbstractSyncDataProvider<?> parent;
-    protected final List<AbstractSyncDataProvider<?>> children = new ArrayList<>();
-    protected boolean stillGoingDeeper = false;
+    /**
+     * Children which have been started but did not report back yet. Callbacks arrive on arbitrary threads.
+     */
+    protected final Set<AbstractSyncDataProvider<?>> children = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean stillGoingDeeper = new AtomicBoolean(false);
+    private final AtomicBoolean completed = new AtomicBoolean(false);
+    private final AtomicBoolean failed = new AtomicBoolean(false);
 
     public AbstractSyncDataProvider(@Nullable AbstractSyncDataProvider<?> parent) {
         this.parent = parent;
@@ -30,6 +44,15 @@ public abstract class AbstractSyncDataProvider<T extends IRemoteEntity> {
         }
     }
 
+    /**
+     * @return <code>true</code> if the server omits unchanged entities of this type when a <code>lastSync</code> date is passed to {@link #getAllFromServer(ServerAdapter, DataBaseAdapter, long, ResponseCallback, Instant)}.
+     * Entities missing in such a response must not be treated as deleted.
+     * Incremental synchronizations pass the <code>lastSync</code> date only to providers returning <code>true</code>.
+     */
+    public boolean isFilteredByModifiedSince() {
+        return false;
+    }
+
     public void handleDeletes(ServerAdapter serverAdapter, DataBaseAdapter dataBaseAdapter, long accountId, List<T> entitiesFromServer) {
         // do nothing as a default.
     }
@@ -40,31 +63,10 @@ public abstract class AbstractSyncDataProvider<T extends IRemoteEntity> {
      * @param listA List
      * @param listB List
      * @return all entries of <code>listB</code> missing in <code>listA</code>
+     * @see EntityDelta if you also need the created or updated entries
      */
     public static <T extends IRemoteEntity> List<T> findDelta(List<T> listA, List<T> listB) {
-        List<T> delta = new ArrayList<>();
-        for (T b : listB) {
-            if (b == null) {
-                DeckLog.error("Entry in listB is null! skipping...");
-                continue;
-            }
-            boolean found = false;
-            for (T a : listA) {
-                if (a == null) {
-                    DeckLog.error("Entry in listA is null! skipping...");
-                    continue;
-                }
-                if ((a.getLocalId() != null && b.getLocalId() != null ? (a.getLocalId().equals(b.getLocalId()))
-                        : a.getId().equals(b.getId())) && b.getAccountId() == a.getAccountId()) {
-                    found = true;
-                    break;
-                }
-            }
-            if (!found) {
-                delta.add(b);
-            }
-        }
-        return delta;
+        return EntityDelta.of(listA, listB).getDeleted();
     }
 
     public void addChild(AbstractSyncDataProvider<?> child) {
@@ -83,6 +85,51 @@ public abstract class AbstractSyncDataProvider<T extends IRemoteEntity> {
 
     public abstract T getSingleFromDB(DataBaseAdapter dataBaseAdapter, long accountId, T entity);
 
+    /**
+     * Loads the {@link EntitySyncState}s of all local entities matching the given entities from the server with as few queries as possible.
+     * The default implementation looks up each entity with {@link #getSingleFromDB(DataBaseAdapter, long, IRemoteEntity)}, providers should override it with a bulk query.
+     *
+     * @return a modifiable map of the states keyed by {@link #getSyncKey(IRemoteEntity)}
+     */
+    @NonNull
+    public Map<Object, EntitySyncState> getSyncStatesFromDB(DataBaseAdapter dataBaseAdapter, long accountId, List<T> entitiesFromServer) {
+        final Map<Object, EntitySyncState> states = new HashMap<>(entitiesFromServer.size());
+        for (T entityFromServer : entitiesFromServer) {
+            if (entityFromServer != null) {
+                final T existingEntity = getSingleFromDB(dataBaseAdapter, accountId, entityFromServer);
+                if (existingEntity != null) {
+                    states.put(getSyncKey(entityFromServer), EntitySyncState.of(existingEntity));
+                }
+            }
+        }
+        return states;
+    }
+
+    /**
+     * @return the key identifying the given entity in the result of {@link #getSyncStatesFromDB(DataBaseAdapter, long, List)}
+     */
+    public Object getSyncKey(T entity) {
+        return entity.getId();
+    }
+
+    protected static List<Long> getRemoteIds(List<? extends IRemoteEntity> entities) {
+        final List<Long> remoteIds = new ArrayList<>(entities.size());
+        for (IRemoteEntity entity : entities) {
+            if (entity != null && entity.getId() != null) {
+                remoteIds.add(entity.getId());
+            }
+        }
+        return remoteIds;
+    }
+
+    protected static Map<Object, EntitySyncState> mapByRemoteId(List<EntitySyncState> states) {
+        final Map<Object, EntitySyncState> map = new HashMap<>(states.size());
+        for (EntitySyncState state : states) {
+            map.put(state.getId(), state);
+        }
+        return map;
+    }
+
     public abstract long createInDB(DataBaseAdapter dataBaseAdapter, long accountId, T b);
 
     public void updateInDB(DataBaseAdapter dataBaseAdapter, long accountId, T t) {
@@ -101,6 +148,13 @@ public abstract class AbstractSyncDataProvider<T extends IRemoteEntity> {
         childDone(this, callback, true);
     }
 
+    /**
+     * @return entities with a higher priority will go deeper first, see {@link SyncPriorities}
+     */
+    public int getSyncPriority(@NonNull T existingEntity) {
+        return BoundedTaskQueue.PRIORITY_DEFAULT;
+    }
+
     public abstract void createOnServer(ServerAdapter serverAdapter, DataBaseAdapter dataBaseAdapter, long accountId, ResponseCallback<T> responder, T entity);
 
     public abstract void updateOnServer(ServerAdapter serverAdapter, DataBaseAdapter dataBaseAdapter, long accountId, ResponseCallback<T> callback, T entity);
@@ -109,7 +163,11 @@ public abstract class AbstractSyncDataProvider<T extends IRemoteEntity> {
 
     public void childDone(AbstractSyncDataProvider<?> child, ResponseCallback<Boolean> responseCallback, boolean syncChangedSomething) {
         removeChild(child);
-        if (!stillGoingDeeper && children.isEmpty()) {
+        // The last child and doneGoingDeeper() might race each other, make sure the parent gets notified only once
+        if (!stillGoingDeeper.get() && children.isEmpty() && completed.compareAndSet(false, true)) {
+            if (!failed.get()) {
+                onSyncCompleted();
+            }
             if (parent != null) {
                 parent.childDone(this, responseCallback, syncChangedSomething);
             } else {
@@ -123,12 +181,12 @@ public abstract class AbstractSyncDataProvider<T extends IRemoteEntity> {
     }
 
     public void doneGoingDeeper(ResponseCallback<Boolean> responseCallback, boolean syncChangedSomething) {
-        stillGoingDeeper = false;
+        stillGoingDeeper.set(false);
         childDone(this, responseCallback, syncChangedSomething);
     }
 
     public void goingDeeper() {
-        stillGoingDeeper = true;
+        stillGoingDeeper.set(true);
     }
 
     public abstract List<T> getAllChangedFromDB(DataBaseAdapter dataBaseAdapter, long accountId, Instant lastSync);
@@ -137,7 +195,22 @@ public abstract class AbstractSyncDataProvider<T extends IRemoteEntity> {
         //do nothing
     }
 
+    /**
+     * Called once after this provider and all of its children have been synchronized without any error
+     */
+    protected void onSyncCompleted() {
+        // do nothing as a default.
+    }
+
+    private void markFailed() {
+        failed.set(true);
+        if (parent != null) {
+            parent.markFailed();
+        }
+    }
+
     public void onError(ResponseCallback<Boolean> responseCallback) {
+        markFailed();
         if (parent != null) {
             parent.childDone(this, responseCallback, false);
         }
@@ -4,6 +4,7 @@ import androidx.annotation.Nullable;
 
 import java.time.Instant;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CountDownLatch;
 
 import it.niedermann.nextcloud.deck.DeckLog;
@@ -12,6 +13,7 @@ import it.niedermann.nextcloud.deck.model.AccessControl;
 import it.niedermann.nextcloud.deck.model.Account;
 import it.niedermann.nextcloud.deck.model.User;
 import it.niedermann.nextcloud.deck.model.full.FullBoard;
+import it.niedermann.nextcloud.deck.model.internal.EntitySyncState;
 import it.niedermann.nextcloud.deck.model.ocs.user.GroupMemberUIDs;
 import it.niedermann.nextcloud.deck.model.ocs.user.OcsUser;
 import it.niedermann.nextcloud.deck.persistence.sync.adapters.ServerAdapter;
@@ -96,6 +98,11 @@ public class AccessControlDataProvider extends AbstractSyncDataProvider<AccessCo
         return dataBaseAdapter.getAccessControlByRemoteIdDirectly(accountId, entity.getEntity().getId());
     }
 
+    @Override
+    public Map<Object, EntitySyncState> getSyncStatesFromDB(DataBaseAdapter dataBaseAdapter, long accountId, List<AccessControl> entitiesFromServer) {
+        return mapByRemoteId(dataBaseAdapter.getAccessControlSyncStatesDirectly(accountId, getRemoteIds(entitiesFromServer)));
+    }
+
     @Override
     public long createInDB(DataBaseAdapter dataBaseAdapter, long accountId, AccessControl entity) {
         prepareUser(dataBaseAdapter, accountId, entity);
@@ -5,9 +5,11 @@ import androidx.annotation.NonNull;
 import java.time.Instant;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 import it.niedermann.nextcloud.deck.api.ResponseCallback;
 import it.niedermann.nextcloud.deck.model.Card;
+import it.niedermann.nextcloud.deck.model.internal.EntitySyncState;
 import it.niedermann.nextcloud.deck.model.ocs.Activity;
 import it.niedermann.nextcloud.deck.persistence.sync.adapters.ServerAdapter;
 import it.niedermann.nextcloud.deck.persistence.sync.adapters.db.DataBaseAdapter;
@@ -32,6 +34,11 @@ public class ActivityDataProvider extends AbstractSyncDataProvider<Activity> {
         return dataBaseAdapter.getActivityByRemoteIdDirectly(accountId, entity.getId());
     }
 
+    @Override
+    public Map<Object, EntitySyncState> getSyncStatesFromDB(DataBaseAdapter dataBaseAdapter, long accountId, List<Activity> entitiesFromServer) {
+        return mapByRemoteId(dataBaseAdapter.getActivitySyncStatesDirectly(accountId, getRemoteIds(entitiesFromServer)));
+    }
+
     @Override
     public long createInDB(DataBaseAdapter dataBaseAdapter, long accountId, Activity activity) {
 //        activity.getType() //FIXME: filter out comments!
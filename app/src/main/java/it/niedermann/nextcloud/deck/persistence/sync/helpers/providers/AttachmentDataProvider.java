@@ -7,6 +7,7 @@ import java.io.File;
 import java.io.IOException;
 import java.time.Instant;
 import java.util.List;
+import java.util.Map;
 
 import it.niedermann.nextcloud.deck.DeckLog;
 import it.niedermann.nextcloud.deck.api.ResponseCallback;
@@ -14,6 +15,7 @@ import it.niedermann.nextcloud.deck.model.Attachment;
 import it.niedermann.nextcloud.deck.model.Board;
 import it.niedermann.nextcloud.deck.model.Stack;
 import it.niedermann.nextcloud.deck.model.full.FullCard;
+import it.niedermann.nextcloud.deck.model.internal.EntitySyncState;
 import it.niedermann.nextcloud.deck.persistence.sync.adapters.ServerAdapter;
 import it.niedermann.nextcloud.deck.persistence.sync.adapters.db.DataBaseAdapter;
 
@@ -42,6 +44,11 @@ public class AttachmentDataProvider extends AbstractSyncDataProvider<Attachment>
         return dataBaseAdapter.getAttachmentByRemoteIdDirectly(accountId, entity.getId());
     }
 
+    @Override
+    public Map<Object, EntitySyncState> getSyncStatesFromDB(DataBaseAdapter dataBaseAdapter, long accountId, List<Attachment> entitiesFromServer) {
+        return mapByRemoteId(dataBaseAdapter.getAttachmentSyncStatesDirectly(accountId, getRemoteIds(entitiesFromServer)));
+    }
+
     @Override
     public long createInDB(DataBaseAdapter dataBaseAdapter, long accountId, Attachment attachment) {
         attachment.setCardId(card.getLocalId());
@@ -3,6 +3,7 @@ package it.niedermann.nextcloud.deck.persistence.sync.helpers.providers;
 import android.annotation.SuppressLint;
 import android.util.Pair;
 
+import androidx.annotation.NonNull;
 import androidx.lifecycle.MutableLiveData;
 
 import com.nextcloud.android.sso.api.ParsedResponse;
@@ -12,6 +13,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import it.niedermann.nextcloud.deck.DeckLog;
@@ -22,16 +24,20 @@ import it.niedermann.nextcloud.deck.model.Label;
 import it.niedermann.nextcloud.deck.model.User;
 import it.niedermann.nextcloud.deck.model.full.FullBoard;
 import it.niedermann.nextcloud.deck.model.full.FullStack;
+import it.niedermann.nextcloud.deck.model.internal.EntitySyncState;
 import it.niedermann.nextcloud.deck.persistence.sync.adapters.ServerAdapter;
 import it.niedermann.nextcloud.deck.persistence.sync.adapters.db.DataBaseAdapter;
 import it.niedermann.nextcloud.deck.persistence.sync.helpers.SyncHelper;
 import it.niedermann.nextcloud.deck.persistence.sync.helpers.util.AsyncUtil;
+import it.niedermann.nextcloud.deck.persistence.sync.helpers.util.BoundedTaskQueue;
+import it.niedermann.nextcloud.deck.persistence.sync.helpers.util.SyncPriorities;
 
 public class BoardDataProvider extends AbstractSyncDataProvider<FullBoard> {
 
     private int progressTotal = 0;
     private int progressDone = 0;
     private MutableLiveData<Pair<Integer, Integer>> progress = null;
+    private volatile BoundedTaskQueue stackSyncQueue = null;
 
     public BoardDataProvider() {
         super(null);
@@ -44,7 +50,7 @@ public class BoardDataProvider extends AbstractSyncDataProvider<FullBoard> {
 
     @Override
     public void getAllFromServer(ServerAdapter serverAdapter, DataBaseAdapter dataBaseAdapter, long accountId, ResponseCallback<List<FullBoard>> responder, Instant lastSync) {
-        serverAdapter.getBoards(new ResponseCallback<>(responder.getAccount()) {
+        serverAdapter.getBoards(lastSync, new ResponseCallback<>(responder.getAccount()) {
             @Override
             public void onResponse(ParsedResponse<List<FullBoard>> response) {
                 progressTotal = response.getResponse().size();
@@ -65,6 +71,11 @@ public class BoardDataProvider extends AbstractSyncDataProvider<FullBoard> {
         });
     }
 
+    @Override
+    public boolean isFilteredByModifiedSince() {
+        return true;
+    }
+
     private void updateProgress() {
         if (progress != null) {
             DeckLog.log("New progress post", progressDone, progressTotal);
@@ -78,6 +89,9 @@ public class BoardDataProvider extends AbstractSyncDataProvider<FullBoard> {
         if (isRemoved && child.getClass() == StackDataProvider.class) {
             progressDone ++;
             updateProgress();
+            if (stackSyncQueue != null) {
+                stackSyncQueue.release();
+            }
         }
         return isRemoved;
     }
@@ -87,6 +101,11 @@ public class BoardDataProvider extends AbstractSyncDataProvider<FullBoard> {
         return dataBaseAdapter.getFullBoardByRemoteIdDirectly(accountId, entity.getEntity().getId());
     }
 
+    @Override
+    public Map<Object, EntitySyncState> getSyncStatesFromDB(DataBaseAdapter dataBaseAdapter, long accountId, List<FullBoard> entitiesFromServer) {
+        return mapByRemoteId(dataBaseAdapter.getBoardSyncStatesDirectly(accountId, getRemoteIds(entitiesFromServer)));
+    }
+
     @Override
     public long createInDB(DataBaseAdapter dataBaseAdapter, long accountId, FullBoard entity) {
         handleOwner(dataBaseAdapter, accountId, entity);
@@ -173,10 +192,20 @@ public class BoardDataProvider extends AbstractSyncDataProvider<FullBoard> {
         }
 
         if (entityFromServer.getStacks() != null && !entityFromServer.getStacks().isEmpty()) {
-            syncHelper.doSyncFor(new StackDataProvider(this, existingEntity));
+            final StackDataProvider stackDataProvider = new StackDataProvider(this, existingEntity);
+            // register immediately, so this provider doesn't finish while boards are still waiting for a free slot
+            addChild(stackDataProvider);
+            stackSyncQueue = syncHelper.getBoardSyncQueue();
+            // Evaluated lazily, so switching the board while synchronizing moves the new board to the front of the queue
+            stackSyncQueue.submit(() -> syncHelper.doSyncFor(stackDataProvider), () -> getSyncPriority(existingEntity));
         }
     }
 
+    @Override
+    public int getSyncPriority(@NonNull FullBoard existingEntity) {
+        return SyncPriorities.getBoardPriority(existingEntity.getAccountId(), existingEntity.getLocalId());
+    }
+
     @Override
     public void createOnServer(ServerAdapter serverAdapter, DataBaseAdapter dataBaseAdapter, long accountId, ResponseCallback<FullBoard> responder, FullBoard entity) {
         serverAdapter.createBoard(entity.getBoard(), responder);
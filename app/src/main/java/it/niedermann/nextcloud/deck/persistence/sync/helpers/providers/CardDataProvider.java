@@ -2,12 +2,19 @@ package it.niedermann.nextcloud.deck.persistence.sync.helpers.providers;
 
 import android.annotation.SuppressLint;
 
+import com.nextcloud.android.sso.api.ParsedResponse;
 import com.nextcloud.android.sso.exceptions.NextcloudHttpRequestFailedException;
 
+import java.net.HttpURLConnection;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import it.niedermann.nextcloud.deck.DeckLog;
 import it.niedermann.nextcloud.deck.api.ResponseCallback;
@@ -22,40 +29,93 @@ import it.niedermann.nextcloud.deck.model.JoinCardWithUser;
 import it.niedermann.nextcloud.deck.model.Label;
 import it.niedermann.nextcloud.deck.model.User;
 import it.niedermann.nextcloud.deck.model.enums.DBStatus;
+import it.niedermann.nextcloud.deck.model.enums.EETagType;
 import it.niedermann.nextcloud.deck.model.full.FullCard;
 import it.niedermann.nextcloud.deck.model.full.FullStack;
+import it.niedermann.nextcloud.deck.model.internal.EntitySyncState;
 import it.niedermann.nextcloud.deck.model.propagation.CardUpdate;
 import it.niedermann.nextcloud.deck.persistence.sync.adapters.ServerAdapter;
 import it.niedermann.nextcloud.deck.persistence.sync.adapters.db.DataBaseAdapter;
 import it.niedermann.nextcloud.deck.persistence.sync.helpers.SyncHelper;
+import it.niedermann.nextcloud.deck.persistence.sync.helpers.util.ETagStatistics;
 
 public class CardDataProvider extends AbstractSyncDataProvider<FullCard> {
 
     private static final String ALREADY_ARCHIVED_INDICATOR = "Operation not allowed. This card is archived.";
     protected Board board;
     protected FullStack stack;
+    /**
+     * Whether the {@link Card}s of {@link #stack} are the metadata embedded in the stack listing of the server
+     */
+    private final boolean stackFromServer;
+    private final Map<Long, String> eTagsFromServer = new ConcurrentHashMap<>();
+    private DataBaseAdapter dataBaseAdapter;
+    private long accountId;
 
     public CardDataProvider(AbstractSyncDataProvider<?> parent, Board board, FullStack stack) {
+        this(parent, board, stack, false);
+    }
+
+    /**
+     * @param stackFromServer pass <code>true</code> if the {@link Card}s of the given <code>stack</code> are part of a server response.
+     *                        Only {@link Card}s which changed compared to the local ones will then be fetched from the server.
+     */
+    public CardDataProvider(AbstractSyncDataProvider<?> parent, Board board, FullStack stack, boolean stackFromServer) {
         super(parent);
         this.board = board;
         this.stack = stack;
+        this.stackFromServer = stackFromServer;
     }
 
     @Override
-    public void getAllFromServer(ServerAdapter serverAdapter, long accountId, ResponseCallback<List<FullCard>> responder, Instant lastSync) {
-
-
+    public void getAllFromServer(ServerAdapter serverAdapter, DataBaseAdapter dataBaseAdapter, long accountId, ResponseCallback<List<FullCard>> responder, Instant lastSync) {
+        this.dataBaseAdapter = dataBaseAdapter;
+        this.accountId = accountId;
         if (stack.getCards() == null || stack.getCards().isEmpty()) {
             responder.onResponse(new ArrayList<>());
             return;
         }
+        final List<Card> cardsToFetch;
+        final Set<Long> knownRemoteIds = new HashSet<>();
+        final Map<Long, String> knownETags;
+        if (stackFromServer) {
+            final Map<Object, EntitySyncState> localStates = mapByRemoteId(dataBaseAdapter.getCardSyncStatesForStackDirectly(accountId, stack.getLocalId()));
+            cardsToFetch = findChangedCards(localStates, stack.getCards());
+            for (Card card : cardsToFetch) {
+                if (localStates.containsKey(card.getId())) {
+                    knownRemoteIds.add(card.getId());
+                }
+            }
+            // Only send ETags on incremental syncs and for cards we actually have
+            knownETags = lastSync != null && serverAdapter.isEtagsEnabled()
+                    ? dataBaseAdapter.getETagsDirectly(accountId, EETagType.CARD, new ArrayList<>(knownRemoteIds))
+                    : Collections.emptyMap();
+        } else {
+            cardsToFetch = stack.getCards();
+            knownETags = Collections.emptyMap();
+        }
+        if (cardsToFetch.isEmpty()) {
+            responder.onResponse(new ArrayList<>());
+            return;
+        }
         List<FullCard> result = Collections.synchronizedList(new ArrayList<>());
-        for (Card card : stack.getCards()) {
-            serverAdapter.getCard(board.getId(), stack.getId(), card.getId(), new ResponseCallback<>(responder.getAccount()) {
+        final AtomicInteger pendingCards = new AtomicInteger(cardsToFetch.size());
+        for (Card card : cardsToFetch) {
+            final String eTag = knownETags.get(card.getId());
+            // A card we do not have yet must never be answered with 304, even if it did not change since the last sync (e. g. moved from another board)
+            final Instant modifiedSince = knownRemoteIds.contains(card.getId()) ? lastSync : null;
+            serverAdapter.getCard(board.getId(), stack.getId(), card.getId(), modifiedSince, eTag, new ResponseCallback<>(responder.getAccount()) {
                 @Override
-                public void onResponse(FullCard response) {
-                    result.add(response);
-                    if (result.size() == stack.getCards().size()) {
+                public void onResponse(ParsedResponse<FullCard> response) {
+                    if (eTag != null) {
+                        ETagStatistics.recordMiss();
+                    }
+                    final String eTagFromServer = response.getHeaders() == null ? null : response.getHeaders().get("ETag");
+                    if (eTagFromServer != null) {
+                        eTagsFromServer.put(card.getId(), eTagFromServer);
+                    }
+                    result.add(response.getResponse());
+                    if (pendingCards.decrementAndGet() == 0) {
                         responder.onResponse(result);
                     }
                 }
@@ -63,17 +123,72 @@ public class CardDataProvider extends AbstractSyncDataProvider<FullCard> {
                 @SuppressLint("MissingSuperCall")
                 @Override
                 public void onError(Throwable throwable) {
-                    responder.onError(throwable);
+                    if (throwable.getClass() == NextcloudHttpRequestFailedException.class &&
+                            ((NextcloudHttpRequestFailedException) throwable).getStatusCode() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                        if (eTag != null) {
+                            ETagStatistics.recordHit();
+                        }
+                        // Unchanged since the last sync, the local card is still up to date
+                        if (pendingCards.decrementAndGet() == 0) {
+                            responder.onResponse(result);
+                        }
+                    } else {
+                        responder.onError(throwable);
+                    }
                 }
             });
         }
     }
 
+    /**
+     * The fetched cards and all of their children are persisted now, so the next sync may skip them if they did not change
+     */
+    @Override
+    protected void onSyncCompleted() {
+        if (!eTagsFromServer.isEmpty()) {
+            dataBaseAdapter.setETags(accountId, EETagType.CARD, eTagsFromServer);
+        }
+    }
+
+    /**
+     * Compares the {@link Card}s embedded in the stack listing with the local ones of this {@link #stack}.
+     * {@link Card}s which have been moved from another stack or are unknown yet are considered as changed.
+     *
+     * @return the {@link Card}s whose ETag or modification date differs from the local one
+     */
+    private List<Card> findChangedCards(Map<Object, EntitySyncState> localStates, List<Card> embeddedCards) {
+        final List<Card> changedCards = new ArrayList<>(embeddedCards.size());
+        for (Card embeddedCard : embeddedCards) {
+            final EntitySyncState localState = localStates.get(embeddedCard.getId());
+            if (localState == null) {
+                changedCards.add(embeddedCard);
+            } else if (embeddedCard.getEtag() != null && localState.getEtag() != null) {
+                if (!embeddedCard.getEtag().equals(localState.getEtag())) {
+                    changedCards.add(embeddedCard);
+                }
+            } else if (embeddedCard.getLastModified() == null || !embeddedCard.getLastModified().equals(localState.getLastModified())) {
+                changedCards.add(embeddedCard);
+            }
+        }
+        DeckLog.verbose("Fetching", changedCards.size(), "of", embeddedCards.size(), "cards of stack", stack.getLocalId(), "from the server");
+        return changedCards;
+    }
+
+    @Override
+    public boolean isFilteredByModifiedSince() {
+        return true;
+    }
+
     @Override
     public FullCard getSingleFromDB(DataBaseAdapter dataBaseAdapter, long accountId, FullCard entity) {
         return dataBaseAdapter.getFullCardByRemoteIdDirectly(accountId, entity.getEntity().getId());
     }
 
+    @Override
+    public Map<Object, EntitySyncState> getSyncStatesFromDB(DataBaseAdapter dataBaseAdapter, long accountId, List<FullCard> entitiesFromServer) {
+        return mapByRemoteId(dataBaseAdapter.getCardSyncStatesDirectly(accountId, getRemoteIds(entitiesFromServer)));
+    }
+
     @Override
     public long createInDB(DataBaseAdapter dataBaseAdapter, long accountId, FullCard entity) {
         fixRelations(dataBaseAdapter, accountId, entity);
@@ -106,17 +221,16 @@ public class CardDataProvider extends AbstractSyncDataProvider<FullCard> {
     }
 
 
-    @Override
-    public FullCard applyUpdatesFromRemote(FullCard localEntity, FullCard remoteEntity, Long accountId) {
-        if (localEntity.getCard().getUserId() != null) {
-            remoteEntity.getCard().setUserId(localEntity.getCard().getUserId());
-        }
-        return remoteEntity;
-    }
-
     @Override
     public void updateInDB(DataBaseAdapter dataBaseAdapter, long accountId, FullCard entity, boolean setStatus) {
         fixRelations(dataBaseAdapter, accountId, entity);
+        if (entity.getCard().getUserId() == null && entity.getLocalId() != null) {
+            // The server did not tell us the owner, keep the one we know
+            final Card localCard = dataBaseAdapter.getCardByLocalIdDirectly(accountId, entity.getLocalId());
+            if (localCard != null) {
+                entity.getCard().setUserId(localCard.getUserId());
+            }
+        }
         dataBaseAdapter.updateCard(entity.getCard(), setStatus);
     }
 
@@ -347,10 +461,118 @@ public class CardDataProvider extends AbstractSyncDataProvider<FullCard> {
         callback.onResponse(Boolean.TRUE);
     }
 
+    /**
+     * Uploads the assignment of a single {@link Label} to a {@link Card} of {@link #stack}.
+     * In contrast to {@link #goDeeperForUpSync(SyncHelper, ServerAdapter, DataBaseAdapter, ResponseCallback)} the <code>callback</code> only gets notified after the server responded.
+     */
+    public void upSyncLabelJoin(ServerAdapter serverAdapter, DataBaseAdapter dataBaseAdapter, long localCardId, long localLabelId, ResponseCallback<Boolean> callback) {
+        final JoinCardWithLabel join = dataBaseAdapter.getJoinCardWithLabel(localLabelId, localCardId);
+        if (join == null || join.getStatusEnum() == DBStatus.UP_TO_DATE) {
+            callback.onResponse(Boolean.TRUE);
+            return;
+        }
+        final Account account = callback.getAccount();
+        final Card card = dataBaseAdapter.getCardByLocalIdDirectly(account.getId(), localCardId);
+        final Label label = dataBaseAdapter.getLabelByLocalIdDirectly(localLabelId);
+        final boolean knownToServer = board.getId() != null && stack.getId() != null && card.getId() != null && label.getId() != null;
+        if (join.getStatusEnum() == DBStatus.LOCAL_DELETED) {
+            if (!knownToServer) {
+                // The server can not know about an assignment of entities it does not know
+                dataBaseAdapter.deleteJoinedLabelForCardPhysically(localCardId, localLabelId);
+                callback.onResponse(Boolean.TRUE);
+                return;
+            }
+            serverAdapter.unassignLabelFromCard(board.getId(), stack.getId(), card.getId(), label.getId(), new ResponseCallback<>(account) {
+                @Override
+                public void onResponse(Void response) {
+                    dataBaseAdapter.deleteJoinedLabelForCardPhysically(localCardId, localLabelId);
+                    callback.onResponse(Boolean.TRUE);
+                }
+
+                @SuppressLint("MissingSuperCall")
+                @Override
+                public void onError(Throwable throwable) {
+                    callback.onError(throwable);
+                }
+            });
+        } else if (!knownToServer) {
+            callback.onError(new DeckException(DeckException.Hint.DEPENDENCY_NOT_SYNCED_YET, "Card \"" + card.getTitle() + "\" or Label \"" +
+                    label.getTitle() + "\" is not synced yet. Perform a full sync (pull to refresh) as soon as you are online again."));
+        } else {
+            serverAdapter.assignLabelToCard(board.getId(), stack.getId(), card.getId(), label.getId(), new ResponseCallback<>(account) {
+                @Override
+                public void onResponse(Void response) {
+                    dataBaseAdapter.setStatusForJoinCardWithLabel(localCardId, localLabelId, DBStatus.UP_TO_DATE.getId());
+                    callback.onResponse(Boolean.TRUE);
+                }
+
+                @SuppressLint("MissingSuperCall")
+                @Override
+                public void onError(Throwable throwable) {
+                    callback.onError(throwable);
+                }
+            });
+        }
+    }
+
+    /**
+     * Uploads the assignment of a single {@link User} to a {@link Card} of {@link #stack}.
+     * In contrast to {@link #goDeeperForUpSync(SyncHelper, ServerAdapter, DataBaseAdapter, ResponseCallback)} the <code>callback</code> only gets notified after the server responded.
+     */
+    public void upSyncUserJoin(ServerAdapter serverAdapter, DataBaseAdapter dataBaseAdapter, long localCardId, long localUserId, ResponseCallback<Boolean> callback) {
+        final JoinCardWithUser join = dataBaseAdapter.getJoinCardWithUser(localUserId, localCardId);
+        if (join == null || join.getStatusEnum() == DBStatus.UP_TO_DATE) {
+            callback.onResponse(Boolean.TRUE);
+            return;
+        }
+        final Account account = callback.getAccount();
+        final Card card = dataBaseAdapter.getCardByLocalIdDirectly(account.getId(), localCardId);
+        final User user = dataBaseAdapter.getUserByLocalIdDirectly(localUserId);
+        final boolean knownToServer = board.getId() != null && stack.getId() != null && card.getId() != null;
+        if (join.getStatusEnum() == DBStatus.LOCAL_DELETED) {
+            if (!knownToServer) {
+                // The server can not know about an assignment to a card it does not know
+                dataBaseAdapter.deleteJoinedUserForCardPhysically(localCardId, localUserId);
+                callback.onResponse(Boolean.TRUE);
+                return;
+            }
+            serverAdapter.unassignUserFromCard(board.getId(), stack.getId(), card.getId(), user.getUid(), new ResponseCallback<>(account) {
+                @Override
+                public void onResponse(Void response) {
+                    dataBaseAdapter.deleteJoinedUserForCardPhysically(localCardId, localUserId);
+                    callback.onResponse(Boolean.TRUE);
+                }
+
+                @SuppressLint("MissingSuperCall")
+                @Override
+                public void onError(Throwable throwable) {
+                    callback.onError(throwable);
+                }
+            });
+        } else if (!knownToServer) {
+            callback.onError(new DeckException(DeckException.Hint.DEPENDENCY_NOT_SYNCED_YET, "Card \"" + card.getTitle() +
+                    "\" is not synced yet. Perform a full sync (pull to refresh) as soon as you are online again."));
+        } else {
+            serverAdapter.assignUserToCard(board.getId(), stack.getId(), card.getId(), user.getUid(), new ResponseCallback<>(account) {
+                @Override
+                public void onResponse(Void response) {
+                    dataBaseAdapter.setStatusForJoinCardWithUser(localCardId, localUserId, DBStatus.UP_TO_DATE.getId());
+                    callback.onResponse(Boolean.TRUE);
+                }
+
+                @SuppressLint("MissingSuperCall")
+                @Override
+                public void onError(Throwable throwable) {
+                    callback.onError(throwable);
+                }
+            });
+        }
+    }
+
     @Override
     public void handleDeletes(ServerAdapter serverAdapter, DataBaseAdapter dataBaseAdapter, long accountId, List<FullCard> entitiesFromServer) {
         List<FullCard> localCards = dataBaseAdapter.getFullCardsForStackDirectly(accountId, stack.getLocalId(), null);
-        List<FullCard> delta = findDelta(entitiesFromServer, localCards);
+        List<FullCard> delta = findDelta(stackFromServer ? getEmbeddedCards(accountId) : entitiesFromServer, localCards);
         for (FullCard cardToDelete : delta) {
             if (cardToDelete.getId() == null) {
                 // not pushed up yet so:
@@ -379,4 +601,18 @@ public class CardDataProvider extends AbstractSyncDataProvider<FullCard> {
             dataBaseAdapter.deleteCardPhysically(cardToDelete.getCard());
         }
     }
+
+    /**
+     * @return all {@link Card}s of the stack listing, including the ones which have not been fetched because they did not change
+     */
+    private List<FullCard> getEmbeddedCards(long accountId) {
+        final List<FullCard> embeddedCards = new ArrayList<>(stack.getCards().size());
+        for (Card card : stack.getCards()) {
+            card.setAccountId(accountId);
+            final FullCard fullCard = new FullCard();
+            fullCard.setCard(card);
+            embeddedCards.add(fullCard);
+        }
+        return embeddedCards;
+    }
 }
@@ -3,11 +3,13 @@ package it.niedermann.nextcloud.deck.persistence.sync.helpers.providers;
 import java.time.Instant;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 import it.niedermann.nextcloud.deck.DeckLog;
 import it.niedermann.nextcloud.deck.api.ResponseCallback;
 import it.niedermann.nextcloud.deck.model.Card;
+import it.niedermann.nextcloud.deck.model.internal.EntitySyncState;
 import it.niedermann.nextcloud.deck.model.ocs.projects.OcsProject;
 import it.niedermann.nextcloud.deck.model.ocs.projects.OcsProjectList;
 import it.niedermann.nextcloud.deck.model.ocs.projects.OcsProjectResource;
@@ -46,6 +48,11 @@ public class OcsProjectDataProvider extends AbstractSyncDataProvider<OcsProject>
         return dataBaseAdapter.getProjectByRemoteIdDirectly(accountId, entity.getId());
     }
 
+    @Override
+    public Map<Object, EntitySyncState> getSyncStatesFromDB(DataBaseAdapter dataBaseAdapter, long accountId, List<OcsProject> entitiesFromServer) {
+        return mapByRemoteId(dataBaseAdapter.getProjectSyncStatesDirectly(accountId, getRemoteIds(entitiesFromServer)));
+    }
+
     @Override
     public long createInDB(DataBaseAdapter dataBaseAdapter, long accountId, OcsProject entity) {
         Long newId = dataBaseAdapter.createProjectDirectly(accountId, entity);
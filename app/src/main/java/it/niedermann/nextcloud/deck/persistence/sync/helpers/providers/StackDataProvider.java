@@ -1,8 +1,18 @@
 package it.niedermann.nextcloud.deck.persistence.sync.helpers.providers;
 
+import android.annotation.SuppressLint;
+
+import androidx.annotation.NonNull;
+
+import com.nextcloud.android.sso.api.ParsedResponse;
+import com.nextcloud.android.sso.exceptions.NextcloudHttpRequestFailedException;
+
+import java.net.HttpURLConnection;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentSkipListSet;
 
@@ -10,17 +20,23 @@ import it.niedermann.nextcloud.deck.api.ResponseCallback;
 import it.niedermann.nextcloud.deck.exceptions.DeckException;
 import it.niedermann.nextcloud.deck.model.Board;
 import it.niedermann.nextcloud.deck.model.Card;
+import it.niedermann.nextcloud.deck.model.enums.EETagType;
 import it.niedermann.nextcloud.deck.model.full.FullBoard;
 import it.niedermann.nextcloud.deck.model.full.FullCard;
 import it.niedermann.nextcloud.deck.model.full.FullStack;
+import it.niedermann.nextcloud.deck.model.internal.EntitySyncState;
 import it.niedermann.nextcloud.deck.persistence.sync.adapters.ServerAdapter;
 import it.niedermann.nextcloud.deck.persistence.sync.adapters.db.DataBaseAdapter;
 import it.niedermann.nextcloud.deck.persistence.sync.helpers.SyncHelper;
+import it.niedermann.nextcloud.deck.persistence.sync.helpers.util.ETagStatistics;
+import it.niedermann.nextcloud.deck.persistence.sync.helpers.util.SyncPriorities;
 
 public class StackDataProvider extends AbstractSyncDataProvider<FullStack> {
     private FullBoard board;
 
     private Set<Long> syncedStacks = new ConcurrentSkipListSet<>();
+    private DataBaseAdapter dataBaseAdapter;
+    private volatile String eTagFromServer = null;
 
     public StackDataProvider(AbstractSyncDataProvider<?> parent, FullBoard board) {
         super(parent);
@@ -28,8 +44,47 @@ public class StackDataProvider extends AbstractSyncDataProvider<FullStack> {
     }
 
     @Override
-    public void getAllFromServer(ServerAdapter serverAdapter, long accountId, ResponseCallback<List<FullStack>> responder, Instant lastSync) {
-        serverAdapter.getStacks(board.getId(), responder);
+    public void getAllFromServer(ServerAdapter serverAdapter, DataBaseAdapter dataBaseAdapter, long accountId, ResponseCallback<List<FullStack>> responder, Instant lastSync) {
+        this.dataBaseAdapter = dataBaseAdapter;
+        // Only send the ETag on incremental syncs and if we actually have the stacks it refers to
+        final String eTag = lastSync != null && serverAdapter.isEtagsEnabled() && board.getStacks() != null && !board.getStacks().isEmpty()
+                ? dataBaseAdapter.getETagDirectly(accountId, EETagType.STACKS_OF_BOARD, board.getId())
+                : null;
+        serverAdapter.getStacks(board.getId(), lastSync, eTag, new ResponseCallback<>(responder.getAccount()) {
+            @Override
+            public void onResponse(ParsedResponse<List<FullStack>> response) {
+                if (eTag != null) {
+                    ETagStatistics.recordMiss();
+                }
+                eTagFromServer = response.getHeaders() == null ? null : response.getHeaders().get("ETag");
+                responder.onResponse(response.getResponse());
+            }
+
+            @SuppressLint("MissingSuperCall")
+            @Override
+            public void onError(Throwable throwable) {
+                if (throwable instanceof NextcloudHttpRequestFailedException && ((NextcloudHttpRequestFailedException) throwable).getStatusCode() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                    ETagStatistics.recordHit();
+                }
+                responder.onError(throwable);
+            }
+        });
+    }
+
+    /**
+     * The stacks and all of their cards are persisted now, so the next sync may skip them if they did not change
+     */
+    @Override
+    protected void onSyncCompleted() {
+        final String eTag = eTagFromServer;
+        if (eTag != null) {
+            dataBaseAdapter.setETags(board.getAccountId(), EETagType.STACKS_OF_BOARD, Collections.singletonMap(board.getId(), eTag));
+        }
+    }
+
+    @Override
+    public boolean isFilteredByModifiedSince() {
+        return true;
     }
 
     @Override
@@ -37,6 +92,11 @@ public class StackDataProvider extends AbstractSyncDataProvider<FullStack> {
         return dataBaseAdapter.getFullStackByRemoteIdDirectly(accountId, board.getLocalId(), entity.getEntity().getId());
     }
 
+    @Override
+    public Map<Object, EntitySyncState> getSyncStatesFromDB(DataBaseAdapter dataBaseAdapter, long accountId, List<FullStack> entitiesFromServer) {
+        return mapByRemoteId(dataBaseAdapter.getStackSyncStatesDirectly(accountId, board.getLocalId(), getRemoteIds(entitiesFromServer)));
+    }
+
     @Override
     public long createInDB(DataBaseAdapter dataBaseAdapter, long accountId, FullStack entity) {
         entity.getStack().setBoardId(board.getLocalId());
@@ -57,20 +117,19 @@ public class StackDataProvider extends AbstractSyncDataProvider<FullStack> {
 
     @Override
     public void goDeeper(SyncHelper syncHelper, FullStack existingEntity, FullStack entityFromServer, ResponseCallback<Boolean> callback) {
-        boolean serverHasCards = entityFromServer.getCards() != null && !entityFromServer.getCards().isEmpty();
-        boolean weHaveCards = existingEntity.getCards() != null && !existingEntity.getCards().isEmpty();
-        if (serverHasCards || weHaveCards) {
-            existingEntity.setCards(entityFromServer.getCards());
-            List<Card> cards = existingEntity.getCards();
-            if (cards != null) {
-                for (Card card : cards) {
-                    card.setStackId(existingEntity.getLocalId());
-                }
-            }
-            syncHelper.doSyncFor(new CardDataProvider(this, board.getBoard(), existingEntity));
-        } else {
-            childDone(this, callback, true);
+        // Always go deeper, even if the server did not send any cards: we might still have local ones which need to be deleted
+        if (entityFromServer.getCards() == null) {
+            existingEntity.setCards(new ArrayList<>());
+        }
+        for (Card card : existingEntity.getCards()) {
+            card.setStackId(existingEntity.getLocalId());
         }
+        syncHelper.doSyncFor(new CardDataProvider(this, board.getBoard(), existingEntity, true));
+    }
+
+    @Override
+    public int getSyncPriority(@NonNull FullStack existingEntity) {
+        return SyncPriorities.getStackPriority(existingEntity.getAccountId(), existingEntity.getLocalId());
     }
 
     @Override
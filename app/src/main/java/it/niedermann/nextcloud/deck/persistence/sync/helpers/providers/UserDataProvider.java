@@ -1,13 +1,17 @@
 package it.niedermann.nextcloud.deck.persistence.sync.helpers.providers;
 
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import it.niedermann.nextcloud.deck.api.ResponseCallback;
 import it.niedermann.nextcloud.deck.model.Board;
 import it.niedermann.nextcloud.deck.model.User;
 import it.niedermann.nextcloud.deck.model.full.FullCard;
 import it.niedermann.nextcloud.deck.model.full.FullStack;
+import it.niedermann.nextcloud.deck.model.internal.EntitySyncState;
 import it.niedermann.nextcloud.deck.persistence.sync.adapters.ServerAdapter;
 import it.niedermann.nextcloud.deck.persistence.sync.adapters.db.DataBaseAdapter;
 
@@ -36,6 +40,30 @@ public class UserDataProvider extends AbstractSyncDataProvider<User> {
         return dataBaseAdapter.getUserByUidDirectly(accountId, entity.getUid());
     }
 
+    @Override
+    public Map<Object, EntitySyncState> getSyncStatesFromDB(DataBaseAdapter dataBaseAdapter, long accountId, List<User> entitiesFromServer) {
+        final List<String> uids = new ArrayList<>(entitiesFromServer.size());
+        for (User user : entitiesFromServer) {
+            if (user != null && user.getUid() != null) {
+                uids.add(user.getUid());
+            }
+        }
+        final List<User> usersFromDB = dataBaseAdapter.getUsersByUidsDirectly(accountId, uids);
+        final Map<Object, EntitySyncState> states = new HashMap<>(usersFromDB.size());
+        for (User user : usersFromDB) {
+            states.put(user.getUid(), EntitySyncState.of(user));
+        }
+        return states;
+    }
+
+    /**
+     * {@link User}s are identified by their uid instead of a remote id
+     */
+    @Override
+    public Object getSyncKey(User entity) {
+        return entity.getUid();
+    }
+
     @Override
     public long createInDB(DataBaseAdapter dataBaseAdapter, long accountId, User entity) {
         return dataBaseAdapter.createUser(accountId, entity);
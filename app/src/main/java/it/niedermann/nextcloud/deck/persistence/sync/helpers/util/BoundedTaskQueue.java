@@ -0,0 +1,108 @@
+package it.niedermann.nextcloud.deck.persistence.sync.helpers.util;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.function.IntSupplier;
+
+/**
+ * Limits the amount of asynchronous units of work which are running at the same time without blocking any thread.
+ * <p>
+ * A task passed to {@link #submit(Runnable)} is started immediately if a slot is free, otherwise it is queued.
+ * Each started task must call {@link #release()} exactly once when its asynchronous work has been completed, which starts the next queued task.
+ * The next task is handed to the {@link Executor} instead of running it on the releasing thread, so long chains of completions do not pile up on one stack.
+ * <p>
+ * Queued tasks are started in order of their priority, which is evaluated when a slot becomes free. Tasks with the same priority are started in the order they have been submitted.
+ */
+public class BoundedTaskQueue {
+
+    public static final int PRIORITY_DEFAULT = 0;
+
+    private final int maxParallel;
+    @NonNull
+    private final Executor executor;
+    private final List<PendingTask> pending = new ArrayList<>();
+    private int running = 0;
+
+    /**
+     * @param executor runs queued tasks once a slot becomes free
+     */
+    public BoundedTaskQueue(int maxParallel, @NonNull Executor executor) {
+        this.maxParallel = Math.max(1, maxParallel);
+        this.executor = executor;
+    }
+
+    public void submit(@NonNull Runnable task) {
+        submit(task, () -> PRIORITY_DEFAULT);
+    }
+
+    /**
+     * @param priority will be asked each time a slot becomes free, so a task can be preferred even after it has been queued. Higher values are started first.
+     */
+    public void submit(@NonNull Runnable task, @NonNull IntSupplier priority) {
+        synchronized (this) {
+            if (running >= maxParallel) {
+                pending.add(new PendingTask(task, priority));
+                return;
+            }
+            running++;
+        }
+        task.run();
+    }
+
+    public void release() {
+        final Runnable next;
+        synchronized (this) {
+            next = pollHighestPriority();
+            if (next == null && running > 0) {
+                running--;
+            }
+        }
+        if (next != null) {
+            executor.execute(next);
+        }
+    }
+
+    public synchronized int getRunning() {
+        return running;
+    }
+
+    /**
+     * @return the amount of tasks which are waiting for a free slot
+     */
+    public synchronized int getPending() {
+        return pending.size();
+    }
+
+    @Nullable
+    private Runnable pollHighestPriority() {
+        if (pending.isEmpty()) {
+            return null;
+        }
+        int nextIndex = 0;
+        int nextPriority = pending.get(0).priority.getAsInt();
+        for (int i = 1; i < pending.size(); i++) {
+            final int priority = pending.get(i).priority.getAsInt();
+            if (priority > nextPriority) {
+                nextIndex = i;
+                nextPriority = priority;
+            }
+        }
+        return pending.remove(nextIndex).task;
+    }
+
+    private static class PendingTask {
+        @NonNull
+        private final Runnable task;
+        @NonNull
+        private final IntSupplier priority;
+
+        private PendingTask(@NonNull Runnable task, @NonNull IntSupplier priority) {
+            this.task = task;
+            this.priority = priority;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package it.niedermann.nextcloud.deck.persistence.sync.helpers.util;
+
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts how many conditional requests have been answered with <code>304 Not Modified</code> since the app has been started.
+ */
+public class ETagStatistics {
+
+    private static final AtomicLong hits = new AtomicLong();
+    private static final AtomicLong misses = new AtomicLong();
+
+    private ETagStatistics() {
+        throw new UnsupportedOperationException("This class must not be instantiated.");
+    }
+
+    /**
+     * A conditional request has been answered with <code>304 Not Modified</code>
+     */
+    public static void recordHit() {
+        hits.incrementAndGet();
+    }
+
+    /**
+     * A conditional request has been answered with a full response, because the resource changed
+     */
+    public static void recordMiss() {
+        misses.incrementAndGet();
+    }
+
+    public static long getHits() {
+        return hits.get();
+    }
+
+    public static long getMisses() {
+        return misses.get();
+    }
+
+    public static void reset() {
+        hits.set(0);
+        misses.set(0);
+    }
+
+    @NonNull
+    public static String getSummary() {
+        final long hitCount = hits.get();
+        final long total = hitCount + misses.get();
+        return "ETag hits: " + hitCount + " / " + total + (total == 0 ? "" : " (" + (hitCount * 100 / total) + " %)");
+    }
+}
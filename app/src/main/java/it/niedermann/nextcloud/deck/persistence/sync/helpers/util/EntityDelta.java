@@ -0,0 +1,173 @@
+package it.niedermann.nextcloud.deck.persistence.sync.helpers.util;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import it.niedermann.nextcloud.deck.DeckLog;
+import it.niedermann.nextcloud.deck.model.interfaces.IRemoteEntity;
+
+/**
+ * Compares a list of entities from the server with a list of local entities in linear time.
+ * <p>
+ * Two entities are considered the same if they belong to the same account and either both of their local IDs are equal or - if at least one of them has no local ID yet - their remote IDs are equal.
+ */
+public class EntityDelta<T extends IRemoteEntity> {
+
+    @NonNull
+    private final List<T> created = new ArrayList<>();
+    @NonNull
+    private final List<T> updated = new ArrayList<>();
+    @NonNull
+    private final List<T> unchanged = new ArrayList<>();
+    @NonNull
+    private final List<T> deleted = new ArrayList<>();
+
+    private EntityDelta() {
+        // Use EntityDelta.of(…)
+    }
+
+    /**
+     * @param remoteEntities the new state, typically the entities from the server
+     * @param localEntities  the old state, typically the entities from the database
+     */
+    @NonNull
+    public static <T extends IRemoteEntity> EntityDelta<T> of(@Nullable List<T> remoteEntities, @Nullable List<T> localEntities) {
+        final EntityDelta<T> delta = new EntityDelta<>();
+        final List<T> remotes = remoteEntities == null ? Collections.emptyList() : remoteEntities;
+        final List<T> locals = localEntities == null ? Collections.emptyList() : localEntities;
+
+        final Map<Key, List<Integer>> localsByLocalId = new HashMap<>(locals.size());
+        final Map<Key, List<Integer>> localsByRemoteId = new HashMap<>(locals.size());
+        final Map<Key, List<Integer>> localsWithoutLocalIdByRemoteId = new HashMap<>();
+        final boolean[] matched = new boolean[locals.size()];
+
+        for (int i = 0; i < locals.size(); i++) {
+            final T local = locals.get(i);
+            if (local == null) {
+                DeckLog.error("Local entry is null! skipping...");
+                matched[i] = true;
+                continue;
+            }
+            if (local.getLocalId() != null) {
+                index(localsByLocalId, new Key(local.getAccountId(), local.getLocalId()), i);
+            } else if (local.getId() != null) {
+                index(localsWithoutLocalIdByRemoteId, new Key(local.getAccountId(), local.getId()), i);
+            }
+            if (local.getId() != null) {
+                index(localsByRemoteId, new Key(local.getAccountId(), local.getId()), i);
+            }
+        }
+
+        for (T remote : remotes) {
+            if (remote == null) {
+                DeckLog.error("Remote entry is null! skipping...");
+                continue;
+            }
+            List<Integer> matches = null;
+            if (remote.getLocalId() != null) {
+                matches = localsByLocalId.get(new Key(remote.getAccountId(), remote.getLocalId()));
+                if (matches == null && remote.getId() != null) {
+                    matches = localsWithoutLocalIdByRemoteId.get(new Key(remote.getAccountId(), remote.getId()));
+                }
+            } else if (remote.getId() != null) {
+                matches = localsByRemoteId.get(new Key(remote.getAccountId(), remote.getId()));
+            }
+
+            if (matches == null) {
+                delta.created.add(remote);
+            } else {
+                boolean changed = false;
+                for (int index : matches) {
+                    matched[index] = true;
+                    changed |= hasChanged(locals.get(index), remote);
+                }
+                (changed ? delta.updated : delta.unchanged).add(remote);
+            }
+        }
+
+        for (int i = 0; i < locals.size(); i++) {
+            if (!matched[i]) {
+                delta.deleted.add(locals.get(i));
+            }
+        }
+        return delta;
+    }
+
+    private static void index(@NonNull Map<Key, List<Integer>> map, @NonNull Key key, int index) {
+        List<Integer> indices = map.get(key);
+        if (indices == null) {
+            indices = new ArrayList<>(1);
+            map.put(key, indices);
+        }
+        indices.add(index);
+    }
+
+    private static boolean hasChanged(@NonNull IRemoteEntity local, @NonNull IRemoteEntity remote) {
+        if (local.getEtag() != null && remote.getEtag() != null) {
+            return !local.getEtag().equals(remote.getEtag());
+        }
+        return !Objects.equals(local.getLastModified(), remote.getLastModified());
+    }
+
+    /**
+     * @return remote entities which have no local counterpart yet
+     */
+    @NonNull
+    public List<T> getCreated() {
+        return created;
+    }
+
+    /**
+     * @return remote entities which have a local counterpart with a different ETag or modification date
+     */
+    @NonNull
+    public List<T> getUpdated() {
+        return updated;
+    }
+
+    /**
+     * @return remote entities which have a local counterpart with the same ETag or modification date
+     */
+    @NonNull
+    public List<T> getUnchanged() {
+        return unchanged;
+    }
+
+    /**
+     * @return local entities which are not contained in the remote entities anymore
+     */
+    @NonNull
+    public List<T> getDeleted() {
+        return deleted;
+    }
+
+    private static final class Key {
+        private final long accountId;
+        private final long id;
+
+        private Key(long accountId, long id) {
+            this.accountId = accountId;
+            this.id = id;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            final Key key = (Key) o;
+            return accountId == key.accountId && id == key.id;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(accountId, id);
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package it.niedermann.nextcloud.deck.persistence.sync.helpers.util;
+
+import android.annotation.SuppressLint;
+import android.util.Pair;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import io.reactivex.Scheduler;
+import io.reactivex.schedulers.Schedulers;
+import it.niedermann.nextcloud.deck.DeckLog;
+import it.niedermann.nextcloud.deck.api.IResponseCallback;
+
+/**
+ * Makes sure that at most one full synchronization per account is running at any time and merges bursts of requests.
+ * <p>
+ * A requested synchronization does not start before {@link #DEBOUNCE_MILLIS} passed. All requests which arrive in the meantime join it (trailing debounce),
+ * so a burst of triggers (push notifications, workers, pull to refresh) results in one single synchronization.
+ * Requests which arrive while a synchronization is running can not join it, because it might already have missed their changes.
+ * They are merged into one follow-up synchronization which starts {@link #DEBOUNCE_MILLIS} after the running one finished.
+ */
+public class SyncCoordinator {
+
+    /**
+     * Time to wait for further requests before a synchronization starts
+     */
+    public static final long DEBOUNCE_MILLIS = 500L;
+
+    private static final SyncCoordinator INSTANCE = new SyncCoordinator(Schedulers.single(), DEBOUNCE_MILLIS);
+
+    @NonNull
+    private final Scheduler scheduler;
+    private final long debounceMillis;
+    private final Map<Long, AccountState> accounts = new ConcurrentHashMap<>();
+
+    /**
+     * @param scheduler      starts the synchronizations after the debounce time passed
+     * @param debounceMillis time to wait for further requests before a synchronization starts
+     */
+    public SyncCoordinator(@NonNull Scheduler scheduler, long debounceMillis) {
+        this.scheduler = scheduler;
+        this.debounceMillis = debounceMillis;
+    }
+
+    /**
+     * @return the {@link SyncCoordinator} shared by all components of the app
+     */
+    @NonNull
+    public static SyncCoordinator getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Schedules a new synchronization for the given account using the given {@link Starter} or joins the one which is already pending.
+     *
+     * @param starter  used to perform the synchronization if no other request is pending yet
+     * @param callback gets notified once about the result of the synchronization
+     * @return the progress of the synchronization, shared by all callers which joined it
+     */
+    @NonNull
+    public LiveData<Pair<Integer, Integer>> request(long accountId, @NonNull IResponseCallback<Boolean> callback, @NonNull Starter starter) {
+        final AccountState state = accounts.computeIfAbsent(accountId, AccountState::new);
+        final SyncRun run;
+        final boolean schedule;
+        synchronized (state) {
+            if (state.pending != null) {
+                DeckLog.verbose("Synchronization for account", accountId, "is already pending, joining it.");
+                state.pending.callbacks.add(callback);
+                return state.pending.progress$;
+            }
+            run = new SyncRun(starter);
+            run.callbacks.add(callback);
+            state.pending = run;
+            // Otherwise it will be scheduled as soon as the running synchronization finished
+            schedule = state.running == null;
+        }
+        if (schedule) {
+            schedule(state);
+        } else {
+            DeckLog.verbose("Synchronization for account", accountId, "is running, scheduling a follow-up synchronization.");
+        }
+        return run.progress$;
+    }
+
+    /**
+     * @return whether a synchronization for this account is currently pending or running
+     */
+    public boolean isSynchronizing(long accountId) {
+        final AccountState state = accounts.get(accountId);
+        if (state == null) {
+            return false;
+        }
+        synchronized (state) {
+            return state.pending != null || state.running != null;
+        }
+    }
+
+    private void schedule(@NonNull AccountState state) {
+        scheduler.scheduleDirect(() -> start(state), debounceMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void start(@NonNull AccountState state) {
+        final SyncRun run;
+        synchronized (state) {
+            run = state.pending;
+            state.pending = null;
+            state.running = run;
+        }
+        DeckLog.verbose("Starting synchronization for account", state.accountId, "requested by", run.callbacks.size(), "callers.");
+        try {
+            run.starter.start(run.progress$, new IResponseCallback<>() {
+                @Override
+                public void onResponse(Boolean response) {
+                    finish(state, run, callback -> callback.onResponse(response));
+                }
+
+                @SuppressLint("MissingSuperCall")
+                @Override
+                public void onError(Throwable throwable) {
+                    finish(state, run, callback -> callback.onError(throwable));
+                }
+            });
+        } catch (Throwable throwable) {
+            finish(state, run, callback -> callback.onError(throwable));
+        }
+    }
+
+    /**
+     * Notifies all callers which joined the given {@link SyncRun} and schedules the follow-up synchronization, if any. Subsequent results of the same {@link SyncRun} are ignored.
+     */
+    private void finish(@NonNull AccountState state, @NonNull SyncRun run, @NonNull Consumer<IResponseCallback<Boolean>> notifier) {
+        final Collection<IResponseCallback<Boolean>> callbacks;
+        final boolean scheduleFollowUp;
+        synchronized (state) {
+            if (run.finished) {
+                DeckLog.warn("Synchronization for account", state.accountId, "has already been finished, ignoring further results.");
+                return;
+            }
+            run.finished = true;
+            if (state.running == run) {
+                state.running = null;
+            }
+            scheduleFollowUp = state.pending != null;
+            callbacks = new ArrayList<>(run.callbacks);
+        }
+        if (scheduleFollowUp) {
+            schedule(state);
+        }
+        for (IResponseCallback<Boolean> callback : callbacks) {
+            try {
+                notifier.accept(callback);
+            } catch (Throwable throwable) {
+                DeckLog.logError(throwable);
+            }
+        }
+    }
+
+    public interface Starter {
+        /**
+         * Performs the actual synchronization.
+         *
+         * @param progress$ must be used to publish the progress of the synchronization
+         * @param callback  must be notified when the synchronization has finished
+         */
+        void start(@NonNull MutableLiveData<Pair<Integer, Integer>> progress$, @NonNull IResponseCallback<Boolean> callback);
+    }
+
+    private static class AccountState {
+        private final long accountId;
+        @Nullable
+        private SyncRun pending = null;
+        @Nullable
+        private SyncRun running = null;
+
+        private AccountState(long accountId) {
+            this.accountId = accountId;
+        }
+    }
+
+    private static class SyncRun {
+        @NonNull
+        private final Starter starter;
+        private final MutableLiveData<Pair<Integer, Integer>> progress$ = new MutableLiveData<>();
+        private final List<IResponseCallback<Boolean>> callbacks = new ArrayList<>();
+        private boolean finished = false;
+
+        private SyncRun(@NonNull Starter starter) {
+            this.starter = starter;
+        }
+    }
+}
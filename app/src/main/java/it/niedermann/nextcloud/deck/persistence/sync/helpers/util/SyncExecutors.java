@@ -0,0 +1,96 @@
+package it.niedermann.nextcloud.deck.persistence.sync.helpers.util;
+
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import it.niedermann.nextcloud.deck.DeckLog;
+
+/**
+ * Provides the thread pools used by the synchronization. In contrast to {@link Executors#newCachedThreadPool()} they never spawn more than a fixed amount of threads.
+ * <p>
+ * Tasks are handed off directly to an idle worker. If all workers are busy, the submitting thread runs the task itself, which throttles the producer (backpressure).
+ * Since many sync callbacks block on {@link java.util.concurrent.CountDownLatch}es for work they submitted themselves, tasks are never queued behind busy workers, which would risk a deadlock.
+ * Submissions from the main thread must not run the task themselves, so they get passed to a single overflow thread instead.
+ * Its queue is unbounded, because blocking the main thread until there is room again would freeze the UI. A growing backlog is logged once it exceeds {@link #OVERFLOW_WARNING_THRESHOLD} tasks.
+ */
+public class SyncExecutors {
+
+    /**
+     * Maximum amount of threads performing HTTP requests in parallel, shared across all accounts
+     */
+    public static final int MAX_PARALLEL_REQUESTS = 16;
+    /**
+     * Maximum amount of threads used by one {@link it.niedermann.nextcloud.deck.persistence.sync.SyncManager} account
+     */
+    public static final int MAX_PARALLEL_TASKS_PER_ACCOUNT = 8;
+    /**
+     * Default amount of boards which are synchronized in parallel for one account
+     */
+    public static final int DEFAULT_PARALLEL_BOARD_SYNCS = 3;
+
+    /**
+     * Amount of tasks submitted by the main thread waiting for the overflow thread, above which each further submission gets logged
+     */
+    public static final int OVERFLOW_WARNING_THRESHOLD = 128;
+
+    private static final long KEEP_ALIVE_SECONDS = 60L;
+
+    private static final BlockingQueue<Runnable> overflowQueue = new LinkedBlockingQueue<>();
+    private static final ThreadPoolExecutor overflowExecutor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, overflowQueue);
+    private static final ExecutorService requestExecutor = newBoundedExecutor(MAX_PARALLEL_REQUESTS);
+    private static final Map<String, ExecutorService> accountExecutors = new ConcurrentHashMap<>();
+
+    private SyncExecutors() {
+        throw new UnsupportedOperationException("This class must not be instantiated.");
+    }
+
+    @NonNull
+    public static ExecutorService getRequestExecutor() {
+        return requestExecutor;
+    }
+
+    /**
+     * @return the shared {@link ExecutorService} for the given account. All instances working on the same account share the same limit.
+     */
+    @NonNull
+    public static ExecutorService forAccount(@Nullable String ssoAccountName) {
+        return accountExecutors.computeIfAbsent(ssoAccountName == null ? "" : ssoAccountName, key -> newBoundedExecutor(MAX_PARALLEL_TASKS_PER_ACCOUNT));
+    }
+
+    @NonNull
+    public static ExecutorService newBoundedExecutor(int maxThreads) {
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(0, Math.max(1, maxThreads), KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new SynchronousQueue<>(), new CallerRunsUnlessMainThreadPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private static class CallerRunsUnlessMainThreadPolicy implements RejectedExecutionHandler {
+        @Override
+        public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+            if (executor.isShutdown()) {
+                return;
+            }
+            if (Looper.myLooper() == Looper.getMainLooper()) {
+                if (overflowQueue.size() >= OVERFLOW_WARNING_THRESHOLD) {
+                    DeckLog.warn(overflowQueue.size(), "tasks of the main thread are waiting for the overflow thread.");
+                }
+                overflowExecutor.execute(r);
+            } else {
+                r.run();
+            }
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package it.niedermann.nextcloud.deck.persistence.sync.helpers.util;
+
+import androidx.annotation.Nullable;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps track of the board and stack which are currently displayed for each account, so the synchronization can refresh them before everything else.
+ */
+public class SyncPriorities {
+
+    public static final int PRIORITY_FOCUSED = BoundedTaskQueue.PRIORITY_DEFAULT + 1;
+
+    private static final Map<Long, Focus> focus = new ConcurrentHashMap<>();
+
+    private SyncPriorities() {
+        throw new UnsupportedOperationException("This class must not be instantiated.");
+    }
+
+    /**
+     * @param boardLocalId <code>null</code> if no board is displayed
+     * @param stackLocalId <code>null</code> if no stack is displayed
+     */
+    public static void setFocus(long accountId, @Nullable Long boardLocalId, @Nullable Long stackLocalId) {
+        focus.put(accountId, new Focus(boardLocalId, stackLocalId));
+    }
+
+    /**
+     * Keeps the currently focused board and only changes the focused stack
+     */
+    public static void setFocusedStack(long accountId, @Nullable Long stackLocalId) {
+        final Focus current = focus.get(accountId);
+        setFocus(accountId, current == null ? null : current.boardLocalId, stackLocalId);
+    }
+
+    public static int getBoardPriority(long accountId, @Nullable Long boardLocalId) {
+        final Focus current = focus.get(accountId);
+        return current != null && boardLocalId != null && Objects.equals(current.boardLocalId, boardLocalId)
+                ? PRIORITY_FOCUSED
+                : BoundedTaskQueue.PRIORITY_DEFAULT;
+    }
+
+    public static int getStackPriority(long accountId, @Nullable Long stackLocalId) {
+        final Focus current = focus.get(accountId);
+        return current != null && stackLocalId != null && Objects.equals(current.stackLocalId, stackLocalId)
+                ? PRIORITY_FOCUSED
+                : BoundedTaskQueue.PRIORITY_DEFAULT;
+    }
+
+    private static class Focus {
+        @Nullable
+        private final Long boardLocalId;
+        @Nullable
+        private final Long stackLocalId;
+
+        private Focus(@Nullable Long boardLocalId, @Nullable Long stackLocalId) {
+            this.boardLocalId = boardLocalId;
+            this.stackLocalId = stackLocalId;
+        }
+    }
+}
@@ -8,12 +8,14 @@ import androidx.annotation.Nullable;
 import androidx.lifecycle.AndroidViewModel;
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
+import androidx.paging.PagingData;
 import androidx.preference.PreferenceManager;
 
 import java.io.File;
 import java.util.List;
 
 import it.niedermann.android.sharedpreferences.SharedPreferenceBooleanLiveData;
+import it.niedermann.nextcloud.deck.DeckApplication;
 import it.niedermann.nextcloud.deck.R;
 import it.niedermann.nextcloud.deck.api.IResponseCallback;
 import it.niedermann.nextcloud.deck.api.ResponseCallback;
@@ -32,6 +34,7 @@ import it.niedermann.nextcloud.deck.model.internal.FilterInformation;
 import it.niedermann.nextcloud.deck.model.ocs.Capabilities;
 import it.niedermann.nextcloud.deck.model.ocs.comment.DeckComment;
 import it.niedermann.nextcloud.deck.persistence.sync.SyncManager;
+import it.niedermann.nextcloud.deck.persistence.sync.helpers.util.SyncPriorities;
 
 @SuppressWarnings("WeakerAccess")
 public class MainViewModel extends AndroidViewModel {
@@ -69,6 +72,21 @@ public class MainViewModel extends AndroidViewModel {
 
     public void setCurrentBoard(@NonNull Board currentBoard) {
         this.currentBoard = currentBoard;
+        final var account = getCurrentAccount();
+        if (account != null && currentBoard.getLocalId() != null) {
+            final long stackLocalId = DeckApplication.readCurrentStackId(getApplication(), account.getId(), currentBoard.getLocalId());
+            SyncPriorities.setFocus(account.getId(), currentBoard.getLocalId(), stackLocalId == DeckApplication.NO_STACK_ID ? null : stackLocalId);
+        }
+    }
+
+    /**
+     * Makes sure the given stack will be synchronized before other stacks
+     */
+    public void setCurrentStackLocalId(long stackLocalId) {
+        final var account = getCurrentAccount();
+        if (account != null) {
+            SyncPriorities.setFocusedStack(account.getId(), stackLocalId);
+        }
     }
 
     public Long getCurrentBoardLocalId() {
@@ -261,8 +279,8 @@ public class MainViewModel extends AndroidViewModel {
         syncManager.addOrUpdateSingleCardWidget(widgetId, accountId, boardId, localCardId);
     }
 
-    public LiveData<List<FullCard>> getFullCardsForStack(long accountId, long localStackId, @Nullable FilterInformation filter) {
-        return syncManager.getFullCardsForStack(accountId, localStackId, filter);
+    public LiveData<PagingData<FullCard>> getPagedFullCardsForStack(long accountId, long localStackId, @Nullable FilterInformation filter) {
+        return syncManager.getPagedFullCardsForStack(accountId, localStackId, filter);
     }
 
     public void moveCard(long originAccountId, long originCardLocalId, long targetAccountId, long targetBoardLocalId, long targetStackLocalId, @NonNull IResponseCallback<Void> callback) {
@@ -25,8 +25,8 @@ public class ArchivedCardsAdapter extends CardAdapter {
     }
 
     @Override
-    public void onBindViewHolder(@NonNull AbstractCardViewHolder viewHolder, int position) {
-        viewHolder.bind(cardList.get(position), mainViewModel.getCurrentAccount(), mainViewModel.getCurrentBoardRemoteId(), false, R.menu.archived_card_menu, this, counterMaxValue, mainColor);
+    protected void bindCard(@NonNull AbstractCardViewHolder viewHolder, @NonNull FullCard fullCard, int position, boolean bindCoverImages) {
+        viewHolder.bind(fullCard, mainViewModel.getCurrentAccount(), mainViewModel.getCurrentBoardRemoteId(), false, R.menu.archived_card_menu, this, counterMaxValue, mainColor, bindCoverImages);
     }
 
     @Override
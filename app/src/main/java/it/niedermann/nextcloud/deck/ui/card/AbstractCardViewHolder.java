@@ -46,8 +46,17 @@ public abstract class AbstractCardViewHolder extends RecyclerView.ViewHolder {
     /**
      * Removes all {@link OnClickListener} and {@link OnLongClickListener}
      */
-    @CallSuper
     public void bind(@NonNull FullCard fullCard, @NonNull Account account, @Nullable Long boardRemoteId, boolean hasEditPermission, @MenuRes int optionsMenu, @NonNull CardOptionsItemSelectedListener optionsItemsSelectedListener, @NonNull String counterMaxValue, @ColorInt int mainColor) {
+        bind(fullCard, account, boardRemoteId, hasEditPermission, optionsMenu, optionsItemsSelectedListener, counterMaxValue, mainColor, true);
+    }
+
+    /**
+     * Removes all {@link OnClickListener} and {@link OnLongClickListener}
+     *
+     * @param bindCoverImages can be <code>false</code> if the cover images did not change since the last time this view holder has been bound, so they do not need to be requested again
+     */
+    @CallSuper
+    public void bind(@NonNull FullCard fullCard, @NonNull Account account, @Nullable Long boardRemoteId, boolean hasEditPermission, @MenuRes int optionsMenu, @NonNull CardOptionsItemSelectedListener optionsItemsSelectedListener, @NonNull String counterMaxValue, @ColorInt int mainColor, boolean bindCoverImages) {
         final var context = itemView.getContext();
 
         bindCardClickListener(null);
@@ -56,7 +65,7 @@ public abstract class AbstractCardViewHolder extends RecyclerView.ViewHolder {
         getCardMenu().setVisibility(hasEditPermission ? View.VISIBLE : View.GONE);
         getCardTitle().setText(fullCard.getCard().getTitle().trim());
 
-        DrawableCompat.setTint(getNotSyncedYet().getDrawable(), mainColor);
+        applyBrand(mainColor);
         getNotSyncedYet().setVisibility(DBStatus.LOCAL_EDITED.equals(fullCard.getStatusEnum()) ? View.VISIBLE : View.GONE);
 
         if (fullCard.getCard().getDueDate() != null) {
@@ -84,6 +93,23 @@ public abstract class AbstractCardViewHolder extends RecyclerView.ViewHolder {
         });
     }
 
+    public void applyBrand(@ColorInt int mainColor) {
+        DrawableCompat.setTint(getNotSyncedYet().getDrawable(), mainColor);
+    }
+
+    /**
+     * Clears the view for a card which has not been loaded yet
+     */
+    public void bindPlaceholder() {
+        bindCardClickListener(null);
+        bindCardLongClickListener(null);
+        getCardTitle().setText(null);
+        getCardDueDate().setVisibility(View.GONE);
+        getNotSyncedYet().setVisibility(View.GONE);
+        getCardMenu().setOnClickListener(null);
+        getCardMenu().setVisibility(View.GONE);
+    }
+
     protected abstract TextView getCardDueDate();
 
     protected abstract ImageView getNotSyncedYet();
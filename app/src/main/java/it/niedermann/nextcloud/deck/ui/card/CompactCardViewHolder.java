@@ -35,10 +35,12 @@ public class CompactCardViewHolder extends AbstractCardViewHolder {
      * Removes all {@link OnClickListener} and {@link OnLongClickListener}
      */
     @Override
-    public void bind(@NonNull FullCard fullCard, @NonNull Account account, @Nullable Long boardRemoteId, boolean hasEditPermission, @MenuRes int optionsMenu, @NonNull CardOptionsItemSelectedListener optionsItemsSelectedListener, @NonNull String counterMaxValue, @ColorInt int mainColor) {
-        super.bind(fullCard, account, boardRemoteId, hasEditPermission, optionsMenu, optionsItemsSelectedListener, counterMaxValue, mainColor);
+    public void bind(@NonNull FullCard fullCard, @NonNull Account account, @Nullable Long boardRemoteId, boolean hasEditPermission, @MenuRes int optionsMenu, @NonNull CardOptionsItemSelectedListener optionsItemsSelectedListener, @NonNull String counterMaxValue, @ColorInt int mainColor, boolean bindCoverImages) {
+        super.bind(fullCard, account, boardRemoteId, hasEditPermission, optionsMenu, optionsItemsSelectedListener, counterMaxValue, mainColor, bindCoverImages);
 
-        setupCoverImages(account, binding.coverImages, fullCard, Math.min(maxCoverImagesCount, 1));
+        if (bindCoverImages) {
+            setupCoverImages(account, binding.coverImages, fullCard, Math.min(maxCoverImagesCount, 1));
+        }
 
         final List<Label> labels = fullCard.getLabels();
         if (labels != null && labels.size() > 0) {
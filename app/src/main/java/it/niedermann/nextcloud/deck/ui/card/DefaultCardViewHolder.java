@@ -35,8 +35,8 @@ public class DefaultCardViewHolder extends AbstractCardViewHolder {
      * Removes all {@link OnClickListener} and {@link OnLongClickListener}
      */
     @Override
-    public void bind(@NonNull FullCard fullCard, @NonNull Account account, @Nullable Long boardRemoteId, boolean hasEditPermission, @MenuRes int optionsMenu, @NonNull CardOptionsItemSelectedListener optionsItemsSelectedListener, @NonNull String counterMaxValue, @ColorInt int mainColor) {
-        super.bind(fullCard, account, boardRemoteId, hasEditPermission, optionsMenu, optionsItemsSelectedListener, counterMaxValue, mainColor);
+    public void bind(@NonNull FullCard fullCard, @NonNull Account account, @Nullable Long boardRemoteId, boolean hasEditPermission, @MenuRes int optionsMenu, @NonNull CardOptionsItemSelectedListener optionsItemsSelectedListener, @NonNull String counterMaxValue, @ColorInt int mainColor, boolean bindCoverImages) {
+        super.bind(fullCard, account, boardRemoteId, hasEditPermission, optionsMenu, optionsItemsSelectedListener, counterMaxValue, mainColor, bindCoverImages);
 
         final var context = itemView.getContext();
 
@@ -47,9 +47,11 @@ public class DefaultCardViewHolder extends AbstractCardViewHolder {
             binding.overlappingAvatars.setVisibility(View.GONE);
         }
 
-        setupCoverImages(account, binding.coverImages, fullCard, maxCoverImagesCount);
+        if (bindCoverImages) {
+            setupCoverImages(account, binding.coverImages, fullCard, maxCoverImagesCount);
+        }
 
-        final int attachmentsCount = fullCard.getAttachments().size();
+        final int attachmentsCount = fullCard.getAttachmentCount();
         if (attachmentsCount == 0) {
             binding.cardCountAttachments.setVisibility(View.GONE);
         } else {
@@ -0,0 +1,37 @@
+package it.niedermann.nextcloud.deck.ui.card;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.DiffUtil;
+
+import java.util.Objects;
+
+import it.niedermann.nextcloud.deck.model.full.FullCard;
+
+public class FullCardDiffCallback extends DiffUtil.ItemCallback<FullCard> {
+
+    /**
+     * Change payload for cards whose cover images did not change, so they do not need to be requested again
+     */
+    public static final Object PAYLOAD_KEEP_COVER_IMAGES = new Object();
+
+    @Override
+    public boolean areItemsTheSame(@NonNull FullCard oldItem, @NonNull FullCard newItem) {
+        return Objects.equals(oldItem.getLocalId(), newItem.getLocalId());
+    }
+
+    @Override
+    public boolean areContentsTheSame(@NonNull FullCard oldItem, @NonNull FullCard newItem) {
+        return oldItem.equals(newItem);
+    }
+
+    @Nullable
+    @Override
+    public Object getChangePayload(@NonNull FullCard oldItem, @NonNull FullCard newItem) {
+        // The URLs of the cover images depend on the remote id of the card
+        if (Objects.equals(oldItem.getId(), newItem.getId()) && Objects.equals(oldItem.getAttachments(), newItem.getAttachments())) {
+            return PAYLOAD_KEEP_COVER_IMAGES;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,92 @@
+package it.niedermann.nextcloud.deck.ui.card;
+
+import android.app.Activity;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.fragment.app.FragmentManager;
+import androidx.lifecycle.Lifecycle;
+import androidx.paging.AsyncPagingDataDiffer;
+import androidx.paging.CombinedLoadStates;
+import androidx.paging.PagingData;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import it.niedermann.nextcloud.deck.R;
+import it.niedermann.nextcloud.deck.model.full.FullCard;
+import it.niedermann.nextcloud.deck.ui.MainViewModel;
+import kotlin.Unit;
+import kotlin.jvm.functions.Function1;
+
+/**
+ * {@link AbstractCardAdapter} for {@link PagingData}. Cards which have not been loaded yet are displayed as placeholders.
+ */
+public class PagedCardAdapter extends AbstractCardAdapter {
+
+    @NonNull
+    private final AsyncPagingDataDiffer<FullCard> differ;
+
+    public PagedCardAdapter(@NonNull Activity activity, @NonNull FragmentManager fragmentManager, long stackId, @NonNull MainViewModel mainViewModel, @Nullable SelectCardListener selectCardListener) {
+        super(activity, fragmentManager, stackId, mainViewModel, selectCardListener);
+        this.differ = new AsyncPagingDataDiffer<>(new FullCardDiffCallback(), updateCallback);
+        // Placeholders have no identity which would stay the same once they got loaded
+        setHasStableIds(false);
+    }
+
+    public void submitData(@NonNull Lifecycle lifecycle, @NonNull PagingData<FullCard> pagingData) {
+        differ.submitData(lifecycle, pagingData);
+    }
+
+    /**
+     * @see AsyncPagingDataDiffer#addLoadStateListener(Function1)
+     */
+    public void addLoadStateListener(@NonNull Function1<CombinedLoadStates, Unit> listener) {
+        differ.addLoadStateListener(listener);
+    }
+
+    /**
+     * @return <code>null</code> for placeholders
+     */
+    @Nullable
+    @Override
+    protected FullCard getItem(int position) {
+        return super.getItem(position);
+    }
+
+    /**
+     * @return <code>null</code> for placeholders
+     */
+    @Nullable
+    @Override
+    protected FullCard getCurrentItem(int position) {
+        return differ.getItem(position);
+    }
+
+    @Override
+    protected int getCurrentItemCount() {
+        return differ.getItemCount();
+    }
+
+    @NonNull
+    @Override
+    protected List<FullCard> getCurrentList() {
+        return new ArrayList<>(differ.snapshot());
+    }
+
+    @Override
+    public int getItemViewType(int position) {
+        return getItem(position) == null
+                ? R.layout.item_card_default_only_title
+                : super.getItemViewType(position);
+    }
+
+    @Override
+    public void onBindViewHolder(@NonNull AbstractCardViewHolder viewHolder, int position) {
+        if (getItem(position) == null) {
+            viewHolder.bindPlaceholder();
+        } else {
+            super.onBindViewHolder(viewHolder, position);
+        }
+    }
+}
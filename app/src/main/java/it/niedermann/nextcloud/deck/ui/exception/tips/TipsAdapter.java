@@ -35,8 +35,10 @@ import java.util.List;
 
 import it.niedermann.nextcloud.deck.BuildConfig;
 import it.niedermann.nextcloud.deck.R;
+import it.niedermann.nextcloud.deck.exceptions.ChangesNotUploadedException;
 import it.niedermann.nextcloud.deck.exceptions.DeckException;
 import it.niedermann.nextcloud.deck.exceptions.OfflineException;
+import it.niedermann.nextcloud.deck.exceptions.ServerUnhealthyException;
 import it.niedermann.nextcloud.deck.exceptions.UploadAttachmentFailedException;
 import it.niedermann.nextcloud.deck.model.Account;
 
@@ -84,6 +86,11 @@ public class TipsAdapter extends RecyclerView.Adapter<TipsViewHolder> {
         } else if (throwable instanceof OfflineException) {
             add(R.string.error_dialog_tip_offline);
             add(R.string.error_dialog_tip_sync_only_on_wifi);
+        } else if (throwable instanceof ChangesNotUploadedException) {
+            add(R.string.error_dialog_changes_not_uploaded);
+        } else if (throwable instanceof ServerUnhealthyException) {
+            add(R.string.error_dialog_server_unhealthy);
+            add(R.string.error_dialog_check_maintenance);
         } else if (throwable instanceof NextcloudApiNotRespondingException) {
             if (VERSION.SDK_INT >= VERSION_CODES.M) {
                 add(R.string.error_dialog_tip_disable_battery_optimizations, new Intent().setAction(Settings.ACTION_IGNORE_BATTERY_OPTIMIZATION_SETTINGS).putExtra(INTENT_EXTRA_BUTTON_TEXT, R.string.error_action_open_battery_settings));
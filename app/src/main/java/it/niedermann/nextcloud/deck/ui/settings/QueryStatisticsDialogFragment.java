@@ -0,0 +1,54 @@
+package it.niedermann.nextcloud.deck.ui.settings;
+
+import static it.niedermann.nextcloud.deck.util.MimeTypeUtil.TEXT_PLAIN;
+
+import android.app.Dialog;
+import android.content.Intent;
+import android.os.Bundle;
+import android.view.View;
+
+import androidx.annotation.NonNull;
+import androidx.appcompat.app.AlertDialog;
+import androidx.appcompat.app.AppCompatDialogFragment;
+import androidx.fragment.app.DialogFragment;
+
+import it.niedermann.nextcloud.deck.R;
+import it.niedermann.nextcloud.deck.api.RequestHelper;
+import it.niedermann.nextcloud.deck.databinding.DialogQueryStatisticsBinding;
+import it.niedermann.nextcloud.deck.persistence.sync.adapters.db.DeckDatabase;
+
+/**
+ * Shows the statements executed on the {@link DeckDatabase} and the requests sent to the server since the app has been started
+ */
+public class QueryStatisticsDialogFragment extends AppCompatDialogFragment {
+
+    @NonNull
+    @Override
+    public Dialog onCreateDialog(Bundle savedInstanceState) {
+        final var view = View.inflate(getContext(), R.layout.dialog_query_statistics, null);
+        final var binding = DialogQueryStatisticsBinding.bind(view);
+        final var statistics = DeckDatabase.getQueryStatistics();
+        final String report = statistics.getReport() + System.lineSeparator() + RequestHelper.getStatisticsReport();
+
+        binding.report.setText(report);
+
+        return new AlertDialog.Builder(requireActivity())
+                .setView(binding.getRoot())
+                .setTitle(R.string.settings_query_statistics)
+                .setPositiveButton(R.string.simple_share, (a, b) -> {
+                    final var shareIntent = new Intent()
+                            .setAction(Intent.ACTION_SEND)
+                            .setType(TEXT_PLAIN)
+                            .putExtra(Intent.EXTRA_SUBJECT, getString(R.string.settings_query_statistics))
+                            .putExtra(Intent.EXTRA_TEXT, report);
+                    startActivity(Intent.createChooser(shareIntent, getString(R.string.settings_query_statistics)));
+                })
+                .setNeutralButton(R.string.simple_clear, (a, b) -> statistics.reset())
+                .setNegativeButton(R.string.simple_close, null)
+                .create();
+    }
+
+    public static DialogFragment newInstance() {
+        return new QueryStatisticsDialogFragment();
+    }
+}
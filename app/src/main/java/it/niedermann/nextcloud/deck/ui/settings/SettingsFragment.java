@@ -16,6 +16,7 @@ import it.niedermann.nextcloud.deck.DeckApplication;
 import it.niedermann.nextcloud.deck.DeckLog;
 import it.niedermann.nextcloud.deck.R;
 import it.niedermann.nextcloud.deck.persistence.sync.SyncWorker;
+import it.niedermann.nextcloud.deck.persistence.sync.adapters.db.DeckDatabase;
 import it.niedermann.nextcloud.deck.ui.branding.BrandedSwitchPreference;
 
 public class SettingsFragment extends PreferenceFragmentCompat {
@@ -69,6 +70,26 @@ public class SettingsFragment extends PreferenceFragmentCompat {
         } else {
             DeckLog.error("Could not find preference with key:", getString(R.string.pref_key_dark_theme));
         }
+
+        final var slowQueryThresholdPref = findPreference(getString(R.string.pref_key_slow_query_threshold));
+        if (slowQueryThresholdPref != null) {
+            slowQueryThresholdPref.setOnPreferenceChangeListener((Preference preference, Object newValue) -> {
+                DeckDatabase.getQueryStatistics().setSlowQueryThresholdMillis(Long.parseLong((String) newValue));
+                return true;
+            });
+        } else {
+            DeckLog.error("Could not find preference with key:", getString(R.string.pref_key_slow_query_threshold));
+        }
+
+        final var queryStatisticsPref = findPreference(getString(R.string.pref_key_query_statistics));
+        if (queryStatisticsPref != null) {
+            queryStatisticsPref.setOnPreferenceClickListener((Preference preference) -> {
+                QueryStatisticsDialogFragment.newInstance().show(getChildFragmentManager(), QueryStatisticsDialogFragment.class.getSimpleName());
+                return true;
+            });
+        } else {
+            DeckLog.error("Could not find preference with key:", getString(R.string.pref_key_query_statistics));
+        }
     }
 
     @Override
@@ -13,10 +13,10 @@ import androidx.fragment.app.FragmentActivity;
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.Observer;
 import androidx.lifecycle.ViewModelProvider;
+import androidx.paging.LoadState;
+import androidx.paging.PagingData;
 import androidx.recyclerview.widget.RecyclerView;
 
-import java.util.List;
-
 import it.niedermann.android.crosstabdnd.DragAndDropTab;
 import it.niedermann.nextcloud.deck.DeckApplication;
 import it.niedermann.nextcloud.deck.DeckLog;
@@ -27,13 +27,15 @@ import it.niedermann.nextcloud.deck.model.Stack;
 import it.niedermann.nextcloud.deck.model.full.FullCard;
 import it.niedermann.nextcloud.deck.persistence.sync.SyncManager;
 import it.niedermann.nextcloud.deck.ui.MainViewModel;
-import it.niedermann.nextcloud.deck.ui.card.CardAdapter;
+import it.niedermann.nextcloud.deck.ui.card.AbstractCardAdapter;
+import it.niedermann.nextcloud.deck.ui.card.PagedCardAdapter;
 import it.niedermann.nextcloud.deck.ui.card.SelectCardListener;
 import it.niedermann.nextcloud.deck.ui.exception.ExceptionDialogFragment;
 import it.niedermann.nextcloud.deck.ui.filter.FilterViewModel;
 import it.niedermann.nextcloud.deck.ui.movecard.MoveCardListener;
+import kotlin.Unit;
 
-public class StackFragment extends Fragment implements DragAndDropTab<CardAdapter>, MoveCardListener {
+public class StackFragment extends Fragment implements DragAndDropTab<AbstractCardAdapter>, MoveCardListener {
 
     private static final String KEY_STACK_ID = "stackId";
 
@@ -43,8 +45,8 @@ public class StackFragment extends Fragment implements DragAndDropTab<CardAdapte
     private OnScrollListener onScrollListener;
 
     @Nullable
-    private CardAdapter adapter = null;
-    private LiveData<List<FullCard>> cardsLiveData;
+    private PagedCardAdapter adapter = null;
+    private LiveData<PagingData<FullCard>> cardsLiveData;
 
     private long stackId;
 
@@ -79,7 +81,7 @@ public class StackFragment extends Fragment implements DragAndDropTab<CardAdapte
             return binding.getRoot();
         }
 
-        adapter = new CardAdapter(requireActivity(), getChildFragmentManager(), stackId, mainViewModel,
+        adapter = new PagedCardAdapter(requireActivity(), getChildFragmentManager(), stackId, mainViewModel,
                 (requireActivity() instanceof SelectCardListener)
                         ? (SelectCardListener) requireActivity()
                         : null);
@@ -102,22 +104,23 @@ public class StackFragment extends Fragment implements DragAndDropTab<CardAdapte
             binding.emptyContentView.hideDescription();
         }
 
-        final Observer<List<FullCard>> cardsObserver = (fullCards) -> activity.runOnUiThread(() -> {
-            binding.loadingSpinner.hide();
-            if (fullCards != null && fullCards.size() > 0) {
-                binding.emptyContentView.setVisibility(View.GONE);
-                adapter.setCardList(fullCards);
-            } else {
-                binding.emptyContentView.setVisibility(View.VISIBLE);
+        adapter.addLoadStateListener(loadStates -> {
+            // An empty stack can only be detected after the first page has been loaded
+            if (loadStates.getRefresh() instanceof LoadState.NotLoading && (adapter.getItemCount() > 0 || loadStates.getAppend().getEndOfPaginationReached())) {
+                binding.loadingSpinner.hide();
+                binding.emptyContentView.setVisibility(adapter.getItemCount() > 0 ? View.GONE : View.VISIBLE);
             }
+            return Unit.INSTANCE;
         });
 
-        cardsLiveData = mainViewModel.getFullCardsForStack(mainViewModel.getCurrentAccount().getId(), stackId, filterViewModel.getFilterInformation().getValue());
+        final Observer<PagingData<FullCard>> cardsObserver = pagingData -> adapter.submitData(getViewLifecycleOwner().getLifecycle(), pagingData);
+
+        cardsLiveData = mainViewModel.getPagedFullCardsForStack(mainViewModel.getCurrentAccount().getId(), stackId, filterViewModel.getFilterInformation().getValue());
         cardsLiveData.observe(getViewLifecycleOwner(), cardsObserver);
 
         filterViewModel.getFilterInformation().observe(getViewLifecycleOwner(), (filterInformation -> {
             cardsLiveData.removeObserver(cardsObserver);
-            cardsLiveData = mainViewModel.getFullCardsForStack(mainViewModel.getCurrentAccount().getId(), stackId, filterInformation);
+            cardsLiveData = mainViewModel.getPagedFullCardsForStack(mainViewModel.getCurrentAccount().getId(), stackId, filterInformation);
             cardsLiveData.observe(getViewLifecycleOwner(), cardsObserver);
         }));
 
@@ -132,10 +135,19 @@ public class StackFragment extends Fragment implements DragAndDropTab<CardAdapte
 
     @Nullable
     @Override
-    public CardAdapter getAdapter() {
+    public AbstractCardAdapter getAdapter() {
         return adapter;
     }
 
+    /**
+     * Must be called when a drag and drop operation has been finished
+     */
+    public void onDragEnded() {
+        if (adapter != null) {
+            adapter.onDragEnded();
+        }
+    }
+
     @Override
     public RecyclerView getRecyclerView() {
         return binding.recyclerView;
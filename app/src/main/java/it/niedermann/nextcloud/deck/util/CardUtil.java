@@ -45,7 +45,7 @@ public class CardUtil {
     }
 
     public static boolean cardHasCommentsOrAttachments(@NonNull FullCard fullCard) {
-        return fullCard.getCommentCount() > 0 || (fullCard.getAttachments() != null && !fullCard.getAttachments().isEmpty());
+        return fullCard.getCommentCount() > 0 || fullCard.getAttachmentCount() > 0;
     }
 
     @NonNull
@@ -0,0 +1,93 @@
+package it.niedermann.nextcloud.deck.api;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+@RunWith(RobolectricTestRunner.class)
+public class CircuitBreakerTest {
+
+    private final AtomicLong now = new AtomicLong(0L);
+    private final CircuitBreaker circuitBreaker = new CircuitBreaker("test", 3, 1_000L, 3_000L, now::get);
+
+    @Test
+    public void testOpensAfterConsecutiveFailures() {
+        circuitBreaker.onServerFailure(null);
+        circuitBreaker.onServerFailure(null);
+        circuitBreaker.onSuccess();
+        circuitBreaker.onServerFailure(null);
+        circuitBreaker.onServerFailure(null);
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        assertEquals(0L, circuitBreaker.tryAcquire());
+
+        circuitBreaker.onServerFailure(null);
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertEquals(1_000L, circuitBreaker.tryAcquire());
+        now.set(400L);
+        assertEquals(600L, circuitBreaker.tryAcquire());
+    }
+
+    @Test
+    public void testHalfOpen() {
+        for (int i = 0; i < 3; i++) {
+            circuitBreaker.onServerFailure(null);
+        }
+
+        now.set(1_000L);
+        assertEquals(0L, circuitBreaker.tryAcquire());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+        // Only one trial request at a time
+        assertEquals(1_000L, circuitBreaker.tryAcquire());
+
+        // A failed trial doubles the open duration
+        circuitBreaker.onServerFailure(null);
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertEquals(2_000L, circuitBreaker.tryAcquire());
+
+        now.set(3_000L);
+        assertEquals(0L, circuitBreaker.tryAcquire());
+        circuitBreaker.onServerFailure(null);
+        // Limited by the max open duration
+        assertEquals(3_000L, circuitBreaker.tryAcquire());
+
+        now.set(6_000L);
+        assertEquals(0L, circuitBreaker.tryAcquire());
+        circuitBreaker.onSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        assertEquals(0L, circuitBreaker.tryAcquire());
+    }
+
+    @Test
+    public void testRetryAfterOpensImmediately() {
+        circuitBreaker.onServerFailure(5_000L);
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertEquals(5_000L, circuitBreaker.tryAcquire());
+    }
+
+    @Test
+    public void testHealthCheckOnlyClosesHalfOpenCircuit() {
+        for (int i = 0; i < 3; i++) {
+            circuitBreaker.onServerFailure(null);
+        }
+
+        circuitBreaker.onHealthCheckSuccess();
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertEquals(1_000L, circuitBreaker.tryAcquire());
+
+        now.set(1_000L);
+        assertEquals(0L, circuitBreaker.tryAcquire());
+        circuitBreaker.onHealthCheckSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+
+        // Resets the consecutive failures like any other success
+        circuitBreaker.onServerFailure(null);
+        circuitBreaker.onServerFailure(null);
+        circuitBreaker.onHealthCheckSuccess();
+        circuitBreaker.onServerFailure(null);
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+    }
+}
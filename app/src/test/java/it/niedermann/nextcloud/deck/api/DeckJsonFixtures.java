@@ -0,0 +1,328 @@
+package it.niedermann.nextcloud.deck.api;
+
+import androidx.annotation.NonNull;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Generates Deck API payloads of arbitrary size, shaped like the responses of a real server.
+ * The output is deterministic, so results of different runs are comparable.
+ */
+class DeckJsonFixtures {
+
+    private static final int LABELS_PER_BOARD = 12;
+    private static final int LABELS_PER_CARD = 4;
+    private static final int ASSIGNEES_PER_CARD = 3;
+    private static final int ATTACHMENTS_PER_CARD = 2;
+    private static final int MENTIONS_PER_COMMENT = 2;
+    private static final int CARDS_PER_STACK = 50;
+    private static final int USERS = 8;
+    private static final int DESCRIPTION_LENGTH = 2_000;
+    private static final long NOW = 1_641_528_026L;
+    private static final String LOREM = "Lorem ipsum dolor sit amet, **consectetur** adipiscing elit. - [ ] Task with ümläuts 🚀\n";
+
+    private final Random random = new Random(42);
+
+    /**
+     * Boards as returned with details, including stacks without cards
+     */
+    @NonNull
+    String boards(int boards, int stacksPerBoard) {
+        return write(out -> {
+            out.beginArray();
+            for (int i = 1; i <= boards; i++) {
+                writeBoard(out, i, stacksPerBoard);
+            }
+            out.endArray();
+        });
+    }
+
+    /**
+     * All stacks of a board including their cards, distributed to stacks of {@value #CARDS_PER_STACK} cards
+     */
+    @NonNull
+    String stacks(int cards) {
+        return write(out -> {
+            out.beginArray();
+            int cardId = 1;
+            for (int stackId = 1; cardId <= cards; stackId++) {
+                out.beginObject();
+                out.name("title").value("Stack " + stackId);
+                out.name("boardId").value(1);
+                out.name("deletedAt").value(0);
+                out.name("lastModified").value(NOW);
+                out.name("cards").beginArray();
+                for (int i = 0; i < CARDS_PER_STACK && cardId <= cards; i++, cardId++) {
+                    writeCard(out, cardId, stackId);
+                }
+                out.endArray();
+                out.name("order").value(stackId);
+                out.name("id").value(stackId);
+                out.name("ETag").value(etag());
+                out.endObject();
+            }
+            out.endArray();
+        });
+    }
+
+    @NonNull
+    String cards(int cards) {
+        return write(out -> {
+            out.beginArray();
+            for (int i = 1; i <= cards; i++) {
+                writeCard(out, i, 1);
+            }
+            out.endArray();
+        });
+    }
+
+    @NonNull
+    String comments(int comments) {
+        return write(out -> {
+            out.beginObject();
+            out.name("ocs").beginObject();
+            out.name("meta").beginObject();
+            out.name("status").value("ok");
+            out.name("statuscode").value(200);
+            out.name("message").value("OK");
+            out.endObject();
+            out.name("data").beginArray();
+            for (int i = 1; i <= comments; i++) {
+                out.beginObject();
+                out.name("id").value(i);
+                out.name("objectId").value(1);
+                out.name("message").value(text(200));
+                out.name("actorId").value(user(i));
+                out.name("actorDisplayName").value("User " + i % USERS);
+                out.name("actorType").value("users");
+                out.name("creationDateTime").value(DateTimeFormatter.ISO_OFFSET_DATE_TIME.format(Instant.ofEpochSecond(NOW + i).atOffset(ZoneOffset.UTC)));
+                if (i > 1) {
+                    out.name("replyTo").beginObject();
+                    out.name("id").value(i - 1);
+                    out.endObject();
+                }
+                out.name("mentions").beginArray();
+                for (int m = 0; m < MENTIONS_PER_COMMENT; m++) {
+                    out.beginObject();
+                    out.name("mentionId").value(user(i + m));
+                    out.name("mentionType").value("user");
+                    out.name("mentionDisplayName").value("User " + (i + m) % USERS);
+                    out.endObject();
+                }
+                out.endArray();
+                out.endObject();
+            }
+            out.endArray();
+            out.endObject();
+            out.endObject();
+        });
+    }
+
+    private void writeBoard(@NonNull JsonWriter out, long boardId, int stacks) throws IOException {
+        out.beginObject();
+        out.name("title").value("Board " + boardId);
+        out.name("owner");
+        writeUser(out, 0);
+        out.name("color").value(color());
+        out.name("archived").value(false);
+        out.name("labels").beginArray();
+        for (int i = 1; i <= LABELS_PER_BOARD; i++) {
+            writeLabel(out, i, boardId, null);
+        }
+        out.endArray();
+        out.name("acl").beginArray();
+        for (int i = 1; i < USERS; i++) {
+            out.beginObject();
+            out.name("participant");
+            writeUser(out, i);
+            out.name("type").value(0);
+            out.name("boardId").value(boardId);
+            out.name("permissionEdit").value(true);
+            out.name("permissionShare").value(i % 2 == 0);
+            out.name("permissionManage").value(false);
+            out.name("owner").value(false);
+            out.name("id").value(i);
+            out.endObject();
+        }
+        out.endArray();
+        out.name("permissions").beginObject();
+        out.name("PERMISSION_READ").value(true);
+        out.name("PERMISSION_EDIT").value(true);
+        out.name("PERMISSION_MANAGE").value(true);
+        out.name("PERMISSION_SHARE").value(true);
+        out.endObject();
+        out.name("users").beginArray();
+        for (int i = 1; i < USERS; i++) {
+            writeUser(out, i);
+        }
+        out.endArray();
+        out.name("shared").value(0);
+        out.name("stacks").beginArray();
+        for (int i = 1; i <= stacks; i++) {
+            out.beginObject();
+            out.name("title").value("Stack " + i);
+            out.name("boardId").value(boardId);
+            out.name("deletedAt").value(0);
+            out.name("lastModified").value(NOW);
+            out.name("order").value(i);
+            out.name("id").value(i);
+            out.name("ETag").value(etag());
+            out.endObject();
+        }
+        out.endArray();
+        out.name("deletedAt").value(0);
+        out.name("lastModified").value(NOW);
+        out.name("id").value(boardId);
+        out.name("settings").beginObject();
+        out.name("notify-due").value("assigned");
+        out.name("calendar").value(true);
+        out.endObject();
+        out.name("ETag").value(etag());
+        out.endObject();
+    }
+
+    private void writeCard(@NonNull JsonWriter out, long cardId, long stackId) throws IOException {
+        out.beginObject();
+        out.name("title").value("Card " + cardId);
+        out.name("description").value(text(DESCRIPTION_LENGTH));
+        out.name("stackId").value(stackId);
+        out.name("type").value("plain");
+        out.name("lastModified").value(NOW);
+        out.name("lastEditor").nullValue();
+        out.name("createdAt").value(NOW - cardId);
+        out.name("labels").beginArray();
+        for (int i = 0; i < LABELS_PER_CARD; i++) {
+            writeLabel(out, (cardId + i) % LABELS_PER_BOARD + 1, 1, cardId);
+        }
+        out.endArray();
+        out.name("assignedUsers").beginArray();
+        for (int i = 0; i < ASSIGNEES_PER_CARD; i++) {
+            out.beginObject();
+            out.name("id").value(cardId * ASSIGNEES_PER_CARD + i);
+            out.name("participant");
+            writeUser(out, (int) (cardId + i));
+            out.name("cardId").value(cardId);
+            out.name("type").value(0);
+            out.endObject();
+        }
+        out.endArray();
+        out.name("attachments").beginArray();
+        for (int i = 0; i < ATTACHMENTS_PER_CARD; i++) {
+            writeAttachment(out, cardId * ATTACHMENTS_PER_CARD + i, cardId);
+        }
+        out.endArray();
+        out.name("attachmentCount").value(ATTACHMENTS_PER_CARD);
+        out.name("owner");
+        writeUser(out, 0);
+        out.name("order").value(cardId);
+        out.name("archived").value(false);
+        if (cardId % 3 == 0) {
+            out.name("duedate").value(DateTimeFormatter.ISO_OFFSET_DATE_TIME.format(Instant.ofEpochSecond(NOW + cardId * 3600).atOffset(ZoneOffset.UTC)));
+        } else {
+            out.name("duedate").nullValue();
+        }
+        out.name("deletedAt").value(0);
+        out.name("commentsUnread").value(cardId % 4);
+        out.name("id").value(cardId);
+        out.name("ETag").value(etag());
+        out.name("overdue").value(0);
+        out.endObject();
+    }
+
+    private void writeAttachment(@NonNull JsonWriter out, long attachmentId, long cardId) throws IOException {
+        out.beginObject();
+        out.name("cardId").value(cardId);
+        out.name("type").value("file");
+        out.name("data").value("photo-" + attachmentId + ".jpg");
+        out.name("lastModified").value(NOW);
+        out.name("createdAt").value(NOW);
+        out.name("createdBy").value(user(0));
+        out.name("deletedAt").value(0);
+        out.name("extendedData").beginObject();
+        out.name("path").value("/Deck/photo-" + attachmentId + ".jpg");
+        out.name("fileid").value(1000 + attachmentId);
+        out.name("data").value("photo-" + attachmentId + ".jpg");
+        out.name("filesize").value(random.nextInt(5_000_000));
+        out.name("mimetype").value("image/jpeg");
+        out.name("info").beginObject();
+        out.name("dirname").value(".");
+        out.name("basename").value("photo-" + attachmentId + ".jpg");
+        out.name("extension").value("jpg");
+        out.name("filename").value("photo-" + attachmentId);
+        out.endObject();
+        out.endObject();
+        out.name("id").value(attachmentId);
+        out.name("ETag").value(etag());
+        out.endObject();
+    }
+
+    private void writeLabel(@NonNull JsonWriter out, long labelId, long boardId, Long cardId) throws IOException {
+        out.beginObject();
+        out.name("title").value("Label " + labelId);
+        out.name("color").value(color());
+        out.name("boardId").value(boardId);
+        out.name("cardId").value(cardId);
+        out.name("id").value(labelId);
+        out.name("ETag").value(etag());
+        out.endObject();
+    }
+
+    private void writeUser(@NonNull JsonWriter out, int user) throws IOException {
+        out.beginObject();
+        out.name("primaryKey").value(user(user));
+        out.name("uid").value(user(user));
+        out.name("displayname").value("User " + user % USERS);
+        out.endObject();
+    }
+
+    @NonNull
+    private static String user(int user) {
+        return "user" + user % USERS;
+    }
+
+    @NonNull
+    private String color() {
+        return String.format(Locale.ROOT, "%06x", random.nextInt(0xFFFFFF));
+    }
+
+    @NonNull
+    private String etag() {
+        return Long.toHexString(random.nextLong()) + Long.toHexString(random.nextLong());
+    }
+
+    @NonNull
+    private static String text(int length) {
+        final var text = new StringBuilder(length + LOREM.length());
+        while (text.length() < length) {
+            text.append(LOREM);
+        }
+        // Do not split the emoji surrogate pair
+        return Character.isHighSurrogate(text.charAt(length - 1))
+                ? text.substring(0, length - 1)
+                : text.substring(0, length);
+    }
+
+    private interface Writer {
+        void write(@NonNull JsonWriter out) throws IOException;
+    }
+
+    @NonNull
+    private static String write(@NonNull Writer writer) {
+        final var stringWriter = new StringWriter();
+        try (final var out = new JsonWriter(stringWriter)) {
+            writer.write(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return stringWriter.toString();
+    }
+}
@@ -0,0 +1,125 @@
+package it.niedermann.nextcloud.deck.api;
+
+import androidx.annotation.NonNull;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import com.google.gson.reflect.TypeToken;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import it.niedermann.nextcloud.deck.model.full.FullBoard;
+import it.niedermann.nextcloud.deck.model.full.FullCard;
+import it.niedermann.nextcloud.deck.model.full.FullStack;
+import it.niedermann.nextcloud.deck.model.ocs.comment.OcsComment;
+
+/**
+ * Throughput, latency and allocation baseline of the API layer: generated payloads of increasing size are parsed
+ * <ul>
+ *     <li><strong>tree</strong>: with {@link JsonParser} and {@link JsonToEntityParser#parseJsonObject(com.google.gson.JsonObject, Class)}</li>
+ *     <li><strong>gson</strong>: with the adapters registered in {@link GsonConfig} like the network layer does</li>
+ * </ul>
+ * <p>
+ * Benchmarks take several minutes and are therefore excluded from the regular test run. Run them with
+ * <pre>./gradlew :app:testDevReleaseUnitTest -Pbenchmark --tests '*Benchmark'</pre>
+ * Debug builds log every parsed entity, so use a release variant to get numbers which are representative for production.
+ * The report is printed and written to <code>app/build/reports/benchmarks</code>.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class JsonToEntityParserBenchmark {
+
+    private static final Type BOARD_LIST = new TypeToken<List<FullBoard>>() {}.getType();
+    private static final Type STACK_LIST = new TypeToken<List<FullStack>>() {}.getType();
+    private static final Type CARD_LIST = new TypeToken<List<FullCard>>() {}.getType();
+
+    private static final int[] CARDS = {10, 100, 1_000, 10_000};
+    private static final int[] BOARDS = {1, 10, 100};
+    private static final int STACKS_PER_BOARD = 10;
+    private static final int[] COMMENTS = {10, 100, 1_000};
+
+    private static MicroBenchmark benchmark;
+    private final DeckJsonFixtures fixtures = new DeckJsonFixtures();
+
+    @BeforeClass
+    public static void setup() {
+        benchmark = new MicroBenchmark(
+                Long.getLong("benchmark.warmupMillis", 2_000),
+                Long.getLong("benchmark.measurementMillis", 5_000),
+                TimeUnit.MILLISECONDS);
+    }
+
+    @AfterClass
+    public static void report() throws IOException {
+        final String report = benchmark.getReport();
+        System.out.println(report);
+        final String reportDir = System.getProperty("benchmark.reportDir");
+        if (reportDir != null) {
+            final Path dir = Paths.get(reportDir);
+            Files.createDirectories(dir);
+            Files.write(dir.resolve(JsonToEntityParserBenchmark.class.getSimpleName() + ".txt"), report.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void benchmarkBoards() {
+        for (int boards : BOARDS) {
+            final String json = fixtures.boards(boards, STACKS_PER_BOARD);
+            benchmark.run("boards[" + boards + "] tree", boards, bytes(json), () -> parseTree(json, FullBoard.class));
+            benchmark.run("boards[" + boards + "] gson", boards, bytes(json), () -> GsonConfig.getGson().fromJson(json, BOARD_LIST));
+        }
+    }
+
+    @Test
+    public void benchmarkStacks() {
+        for (int cards : CARDS) {
+            final String json = fixtures.stacks(cards);
+            benchmark.run("stacks[" + cards + " cards] tree", cards, bytes(json), () -> parseTree(json, FullStack.class));
+            benchmark.run("stacks[" + cards + " cards] gson", cards, bytes(json), () -> GsonConfig.getGson().fromJson(json, STACK_LIST));
+        }
+    }
+
+    @Test
+    public void benchmarkCards() {
+        for (int cards : CARDS) {
+            final String json = fixtures.cards(cards);
+            benchmark.run("cards[" + cards + "] tree", cards, bytes(json), () -> parseTree(json, FullCard.class));
+            benchmark.run("cards[" + cards + "] gson", cards, bytes(json), () -> GsonConfig.getGson().fromJson(json, CARD_LIST));
+        }
+    }
+
+    @Test
+    public void benchmarkComments() {
+        for (int comments : COMMENTS) {
+            final String json = fixtures.comments(comments);
+            benchmark.run("comments[" + comments + "] tree", comments, bytes(json), () -> JsonToEntityParser.parseJsonObject(JsonParser.parseString(json).getAsJsonObject(), OcsComment.class));
+            benchmark.run("comments[" + comments + "] gson", comments, bytes(json), () -> GsonConfig.getGson().fromJson(json, OcsComment.class));
+        }
+    }
+
+    private static long bytes(@NonNull String json) {
+        return json.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    @NonNull
+    private static <T> List<T> parseTree(@NonNull String json, @NonNull Class<T> type) {
+        final List<T> result = new ArrayList<>();
+        for (JsonElement element : JsonParser.parseString(json).getAsJsonArray()) {
+            result.add(JsonToEntityParser.parseJsonObject(element.getAsJsonObject(), type));
+        }
+        return result;
+    }
+}
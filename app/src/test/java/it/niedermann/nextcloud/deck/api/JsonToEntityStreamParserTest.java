@@ -0,0 +1,143 @@
+package it.niedermann.nextcloud.deck.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+
+import androidx.annotation.NonNull;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.reflect.TypeToken;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import it.niedermann.nextcloud.deck.model.enums.EAttachmentType;
+import it.niedermann.nextcloud.deck.model.full.FullBoard;
+import it.niedermann.nextcloud.deck.model.full.FullCard;
+import it.niedermann.nextcloud.deck.model.full.FullStack;
+
+/**
+ * Verifies that the streaming {@link NextcloudTypeAdapter}s produce exactly the same entities as the tree based {@link JsonToEntityParser}
+ */
+@RunWith(RobolectricTestRunner.class)
+public class JsonToEntityStreamParserTest {
+
+    private static final Type BOARD_LIST = new TypeToken<List<FullBoard>>() {}.getType();
+    private static final Type STACK_LIST = new TypeToken<List<FullStack>>() {}.getType();
+    private static final Type CARD_LIST = new TypeToken<List<FullCard>>() {}.getType();
+
+    /**
+     * Serializes all fields of the entities, also those which are not covered by their equals implementations
+     */
+    private final Gson reflectiveGson = new GsonBuilder()
+            .registerTypeAdapter(Instant.class, new GsonUTCInstantAdapter())
+            .serializeNulls()
+            .create();
+
+    @Test
+    public void testBoardsParity() throws IOException {
+        final String json = readFixture("api/boards.json");
+        final List<FullBoard> expected = parseTree(json, FullBoard.class);
+        final List<FullBoard> actual = GsonConfig.getGson().fromJson(json, BOARD_LIST);
+
+        assertEquals(3, actual.size());
+        assertEquals(expected, actual);
+        assertParity(expected, actual);
+
+        assertEquals(2, actual.get(0).getParticipants().size());
+        assertEquals(2, actual.get(0).getUsers().size());
+        assertEquals("carol", actual.get(0).getUsers().get(1).getUid());
+        assertNull(actual.get(1).getParticipants());
+        assertEquals(0, actual.get(1).getStacks().size());
+    }
+
+    @Test
+    public void testStacksParity() throws IOException {
+        final String json = readFixture("api/stacks.json");
+        final List<FullStack> expected = parseTree(json, FullStack.class);
+        final List<FullStack> actual = GsonConfig.getGson().fromJson(json, STACK_LIST);
+
+        assertEquals(2, actual.size());
+        assertEquals(expected, actual);
+        assertParity(expected, actual);
+
+        assertEquals("", actual.get(0).getCards().get(0).getDescription());
+        assertEquals(0, actual.get(0).getCards().get(0).getOrder());
+        assertNull(actual.get(1).getCards());
+    }
+
+    @Test
+    public void testCardParity() throws IOException {
+        final String json = readFixture("api/card.json");
+        final var expected = JsonToEntityParser.parseJsonObject(JsonParser.parseString(json).getAsJsonObject(), FullCard.class);
+        final FullCard actual = GsonConfig.getGson().fromJson(json, FullCard.class);
+
+        assertEquals(expected, actual);
+        assertParity(expected, actual);
+
+        assertEquals(1, actual.getAssignedUsers().size());
+        assertEquals(2, actual.getAttachments().size());
+        assertEquals(EAttachmentType.FILE, actual.getAttachments().get(0).getType());
+        assertEquals(Long.valueOf(263), actual.getAttachments().get(0).getFileId());
+        assertNull(actual.getAttachments().get(1).getMimetype());
+        assertEquals(Instant.parse("2022-12-24T19:29:30Z"), actual.getCard().getDueDate());
+    }
+
+    @Test
+    public void testSingleObjectAsList() throws IOException {
+        final String json = readFixture("api/card.json");
+        final List<FullCard> cards = GsonConfig.getGson().fromJson(json, CARD_LIST);
+
+        assertEquals(1, cards.size());
+        assertEquals(81L, (long) cards.get(0).getId());
+    }
+
+    @Test
+    public void testNull() {
+        assertNull(GsonConfig.getGson().fromJson("null", FullBoard.class));
+        assertNull(GsonConfig.getGson().fromJson("null", BOARD_LIST));
+    }
+
+    @Test
+    public void testMissingRequiredProperty() {
+        assertThrows(JsonParseException.class, () -> GsonConfig.getGson().fromJson("{\"title\": \"No id\"}", FullBoard.class));
+        assertThrows(JsonParseException.class, () -> GsonConfig.getGson().fromJson("{\"id\": 1, \"title\": \"No boardId\"}", FullStack.class));
+        assertThrows(JsonParseException.class, () -> GsonConfig.getGson().fromJson("[{\"id\": 1, \"stackId\": 2}]", CARD_LIST));
+    }
+
+    private void assertParity(@NonNull Object expected, @NonNull Object actual) {
+        final JsonElement expectedJson = reflectiveGson.toJsonTree(expected);
+        final JsonElement actualJson = reflectiveGson.toJsonTree(actual);
+        assertEquals(expectedJson, actualJson);
+    }
+
+    @NonNull
+    private static <T> List<T> parseTree(@NonNull String json, @NonNull Class<T> type) {
+        final List<T> result = new ArrayList<>();
+        for (JsonElement element : JsonParser.parseString(json).getAsJsonArray()) {
+            result.add(JsonToEntityParser.parseJsonObject(element.getAsJsonObject(), type));
+        }
+        return result;
+    }
+
+    @NonNull
+    private String readFixture(@NonNull String path) throws IOException {
+        try (InputStream inputStream = getClass().getClassLoader().getResourceAsStream(path)) {
+            return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package it.niedermann.nextcloud.deck.api;
+
+import androidx.annotation.NonNull;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Minimal time boxed micro benchmark harness which runs on every JVM without additional tooling.
+ * <p>
+ * Each operation is warmed up first so the JIT compiler has a chance to optimize it.
+ * Afterwards it is executed repeatedly until the measurement time is over, but at least {@link #MIN_SAMPLES} times.
+ * Allocations are measured per thread using the HotSpot specific {@link com.sun.management.ThreadMXBean}, if available.
+ */
+class MicroBenchmark {
+
+    private static final int MIN_SAMPLES = 5;
+
+    private final long warmupNanos;
+    private final long measurementNanos;
+    private final List<Result> results = new ArrayList<>();
+    /**
+     * Prevents the JIT compiler from eliminating operations whose results are not used
+     */
+    @SuppressWarnings({"FieldCanBeLocal", "unused"})
+    private volatile int blackhole;
+
+    MicroBenchmark(long warmup, long measurement, @NonNull TimeUnit unit) {
+        this.warmupNanos = unit.toNanos(warmup);
+        this.measurementNanos = unit.toNanos(measurement);
+    }
+
+    /**
+     * @param objectsPerOperation amount of entities which are parsed by one execution of the operation
+     * @param bytesPerOperation   size of the payload which is parsed by one execution of the operation
+     */
+    @NonNull
+    Result run(@NonNull String name, int objectsPerOperation, long bytesPerOperation, @NonNull Supplier<?> operation) {
+        final long warmupEnd = System.nanoTime() + warmupNanos;
+        int warmupIterations = 0;
+        while (warmupIterations < MIN_SAMPLES || System.nanoTime() < warmupEnd) {
+            consume(operation.get());
+            warmupIterations++;
+        }
+        System.gc();
+
+        final long[] samples = new long[1024];
+        int count = 0;
+        final long allocatedBefore = getAllocatedBytes();
+        final long measurementStart = System.nanoTime();
+        final long measurementEnd = measurementStart + measurementNanos;
+        long now = measurementStart;
+        while (count < samples.length && (count < MIN_SAMPLES || now < measurementEnd)) {
+            final long start = System.nanoTime();
+            consume(operation.get());
+            now = System.nanoTime();
+            samples[count++] = now - start;
+        }
+        final long allocated = getAllocatedBytes() - allocatedBefore;
+
+        final var result = new Result(name, objectsPerOperation, bytesPerOperation, Arrays.copyOf(samples, count), now - measurementStart, allocated < 0 ? -1 : allocated);
+        results.add(result);
+        return result;
+    }
+
+    private void consume(Object result) {
+        blackhole ^= System.identityHashCode(result);
+    }
+
+    /**
+     * @return the amount of bytes allocated by the current thread so far or a negative value if not supported by the JVM
+     */
+    private static long getAllocatedBytes() {
+        final var bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return Long.MIN_VALUE;
+    }
+
+    @NonNull
+    String getReport() {
+        final var report = new StringBuilder()
+                .append(String.format(Locale.ROOT, "%-40s %7s %10s %12s %9s %9s %9s %11s %12s%n",
+                        "benchmark", "ops", "ops/s", "objects/s", "MB/s", "p50 ms", "p99 ms", "alloc MB/s", "alloc B/obj"));
+        for (Result result : results) {
+            report.append(result).append(System.lineSeparator());
+        }
+        return report.toString();
+    }
+
+    static class Result {
+
+        @NonNull
+        private final String name;
+        private final int objectsPerOperation;
+        private final long bytesPerOperation;
+        @NonNull
+        private final long[] sortedSamples;
+        private final long totalNanos;
+        private final long allocatedBytes;
+
+        private Result(@NonNull String name, int objectsPerOperation, long bytesPerOperation, @NonNull long[] samples, long totalNanos, long allocatedBytes) {
+            this.name = name;
+            this.objectsPerOperation = objectsPerOperation;
+            this.bytesPerOperation = bytesPerOperation;
+            this.sortedSamples = samples;
+            Arrays.sort(this.sortedSamples);
+            this.totalNanos = totalNanos;
+            this.allocatedBytes = allocatedBytes;
+        }
+
+        double getOperationsPerSecond() {
+            return sortedSamples.length / (totalNanos / 1_000_000_000d);
+        }
+
+        /**
+         * @param percentile between <code>0</code> and <code>100</code>
+         */
+        double getPercentileMillis(int percentile) {
+            final int rank = (int) Math.ceil(percentile / 100d * sortedSamples.length);
+            return sortedSamples[Math.max(0, rank - 1)] / 1_000_000d;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            final double seconds = totalNanos / 1_000_000_000d;
+            final double opsPerSecond = getOperationsPerSecond();
+            return String.format(Locale.ROOT, "%-40s %7d %10.2f %12.0f %9.2f %9.3f %9.3f %11s %12s",
+                    name,
+                    sortedSamples.length,
+                    opsPerSecond,
+                    opsPerSecond * objectsPerOperation,
+                    opsPerSecond * bytesPerOperation / 1_048_576d,
+                    getPercentileMillis(50),
+                    getPercentileMillis(99),
+                    allocatedBytes < 0 ? "n/a" : String.format(Locale.ROOT, "%.1f", allocatedBytes / seconds / 1_048_576d),
+                    allocatedBytes < 0 ? "n/a" : String.format(Locale.ROOT, "%d", allocatedBytes / ((long) sortedSamples.length * objectsPerOperation)));
+        }
+    }
+}
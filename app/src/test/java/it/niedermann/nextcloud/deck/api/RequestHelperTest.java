@@ -0,0 +1,280 @@
+package it.niedermann.nextcloud.deck.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.nextcloud.android.sso.exceptions.NextcloudHttpRequestFailedException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.reactivex.Observable;
+import it.niedermann.nextcloud.deck.exceptions.ServerUnhealthyException;
+import it.niedermann.nextcloud.deck.model.Account;
+
+@RunWith(RobolectricTestRunner.class)
+public class RequestHelperTest {
+
+    private final ApiProvider provider = mock(ApiProvider.class);
+    private final Account account = new Account(1L);
+
+    @Before
+    public void setup() {
+        when(provider.getDeckAPI()).thenReturn(mock(DeckAPI.class));
+        when(provider.getAccountName()).thenReturn("test@example.com");
+        RequestHelper.setRetryPolicy(new RetryPolicy(3, 1L, 10L, () -> 0.5));
+    }
+
+    @After
+    public void teardown() {
+        RequestHelper.setRetryPolicy(RetryPolicy.DEFAULT);
+    }
+
+    @Test
+    public void testCoalescesIdenticalRequests() throws InterruptedException {
+        final var upstreamCalls = new AtomicInteger();
+        final var gate = new CountDownLatch(1);
+        final var responded = new CountDownLatch(3);
+        final List<Object> responses = new CopyOnWriteArrayList<>();
+        final RequestHelper.ObservableProvider<Object> call = () -> Observable.fromCallable(() -> {
+            upstreamCalls.incrementAndGet();
+            assertTrue(gate.await(5, TimeUnit.SECONDS));
+            return new Object();
+        });
+
+        for (int i = 0; i < 3; i++) {
+            RequestHelper.request(provider, RequestHelper.key("searchUser", "foo"), call, callback(responses, responded));
+        }
+        gate.countDown();
+
+        assertTrue(responded.await(5, TimeUnit.SECONDS));
+        assertEquals(1, upstreamCalls.get());
+        assertSame(responses.get(0), responses.get(1));
+        assertSame(responses.get(0), responses.get(2));
+
+        // A completed request is not reused
+        final var respondedAgain = new CountDownLatch(1);
+        RequestHelper.request(provider, RequestHelper.key("searchUser", "foo"), call, callback(responses, respondedAgain));
+        assertTrue(respondedAgain.await(5, TimeUnit.SECONDS));
+        assertEquals(2, upstreamCalls.get());
+        assertNotEquals(responses.get(0), responses.get(3));
+    }
+
+    @Test
+    public void testDoesNotCoalesceDifferentRequests() throws InterruptedException {
+        final var upstreamCalls = new AtomicInteger();
+        final var responded = new CountDownLatch(3);
+        final List<Object> responses = new CopyOnWriteArrayList<>();
+        final RequestHelper.ObservableProvider<Object> call = () -> Observable.fromCallable(() -> {
+            upstreamCalls.incrementAndGet();
+            return new Object();
+        });
+
+        RequestHelper.request(provider, RequestHelper.key("searchUser", "foo"), call, callback(responses, responded));
+        RequestHelper.request(provider, RequestHelper.key("searchUser", "bar"), call, callback(responses, responded));
+        RequestHelper.request(provider, call, callback(responses, responded));
+
+        assertTrue(responded.await(5, TimeUnit.SECONDS));
+        assertEquals(3, upstreamCalls.get());
+    }
+
+    @Test
+    public void testDoesNotShareResponsesOfIdempotentRequests() throws InterruptedException {
+        final var upstreamCalls = new AtomicInteger();
+        final var gate = new CountDownLatch(1);
+        final var responded = new CountDownLatch(2);
+        final List<List<String>> responses = new CopyOnWriteArrayList<>();
+        final RequestHelper.ObservableProvider<List<String>> call = () -> Observable.fromCallable(() -> {
+            upstreamCalls.incrementAndGet();
+            assertTrue(gate.await(5, TimeUnit.SECONDS));
+            return new ArrayList<>();
+        });
+
+        for (int i = 0; i < 2; i++) {
+            final String value = String.valueOf(i);
+            RequestHelper.requestIdempotent(provider, call, new ResponseCallback<>(account) {
+                @Override
+                public void onResponse(List<String> response) {
+                    // Like the synchronization, which sets local IDs on the received entities
+                    response.add(value);
+                    responses.add(response);
+                    responded.countDown();
+                }
+            });
+        }
+        gate.countDown();
+
+        assertTrue(responded.await(5, TimeUnit.SECONDS));
+        assertEquals(2, upstreamCalls.get());
+        assertEquals(1, responses.get(0).size());
+        assertEquals(1, responses.get(1).size());
+        assertNotSame(responses.get(0), responses.get(1));
+    }
+
+    @Test
+    public void testCoalescesIdempotentRequestsWithACopyPerCallback() throws InterruptedException {
+        final var upstreamCalls = new AtomicInteger();
+        final var gate = new CountDownLatch(1);
+        final var responded = new CountDownLatch(2);
+        final List<List<String>> responses = new CopyOnWriteArrayList<>();
+        final List<String> shared = new ArrayList<>();
+        final RequestHelper.ObservableProvider<List<String>> call = () -> Observable.fromCallable(() -> {
+            upstreamCalls.incrementAndGet();
+            assertTrue(gate.await(5, TimeUnit.SECONDS));
+            return shared;
+        });
+
+        for (int i = 0; i < 2; i++) {
+            final String value = String.valueOf(i);
+            RequestHelper.requestIdempotent(provider, RequestHelper.key("getCard", 1L), call, ArrayList::new, new ResponseCallback<>(account) {
+                @Override
+                public void onResponse(List<String> response) {
+                    response.add(value);
+                    responses.add(response);
+                    responded.countDown();
+                }
+            });
+        }
+        gate.countDown();
+
+        assertTrue(responded.await(5, TimeUnit.SECONDS));
+        assertEquals(1, upstreamCalls.get());
+        assertEquals(1, responses.get(0).size());
+        assertEquals(1, responses.get(1).size());
+        assertNotSame(responses.get(0), responses.get(1));
+        assertTrue(shared.isEmpty());
+    }
+
+    @Test
+    public void testRetriesTransientFailures() throws InterruptedException {
+        when(provider.getAccountName()).thenReturn("retry@example.com");
+        final var upstreamCalls = new AtomicInteger();
+        final var responded = new CountDownLatch(1);
+        final List<Object> responses = new CopyOnWriteArrayList<>();
+        final RequestHelper.ObservableProvider<Object> call = () -> Observable.fromCallable(() -> {
+            if (upstreamCalls.incrementAndGet() < 3) {
+                throw new NextcloudHttpRequestFailedException(503, new RuntimeException());
+            }
+            return new Object();
+        });
+
+        RequestHelper.request(provider, call, callback(responses, responded));
+
+        assertTrue(responded.await(5, TimeUnit.SECONDS));
+        assertEquals(3, upstreamCalls.get());
+        assertEquals(1, responses.size());
+        assertEquals(CircuitBreaker.State.CLOSED, RequestHelper.getCircuitBreaker("retry@example.com").getState());
+        assertTrue(RequestHelper.getStatisticsReport().contains("retry@example.com: 3 requests"));
+    }
+
+    @Test
+    public void testDoesNotRetryPermanentFailures() throws InterruptedException {
+        when(provider.getAccountName()).thenReturn("permanent@example.com");
+        final var upstreamCalls = new AtomicInteger();
+        final List<Throwable> errors = new CopyOnWriteArrayList<>();
+        final var failed = new CountDownLatch(1);
+
+        RequestHelper.request(provider, RequestHelper.key("getSingleUserData", "foo"), () -> Observable.fromCallable(() -> {
+            upstreamCalls.incrementAndGet();
+            throw new NextcloudHttpRequestFailedException(404, new RuntimeException());
+        }), errorCallback(errors, failed));
+
+        assertTrue(failed.await(5, TimeUnit.SECONDS));
+        assertEquals(1, upstreamCalls.get());
+        assertTrue(errors.get(0) instanceof NextcloudHttpRequestFailedException);
+    }
+
+    @Test
+    public void testCircuitBreakerShortCircuitsRequests() throws InterruptedException {
+        final String accountName = "unhealthy@example.com";
+        when(provider.getAccountName()).thenReturn(accountName);
+        final var upstreamCalls = new AtomicInteger();
+        final List<Throwable> errors = new CopyOnWriteArrayList<>();
+        final RequestHelper.ObservableProvider<Object> call = () -> Observable.fromCallable(() -> {
+            upstreamCalls.incrementAndGet();
+            throw new NextcloudHttpRequestFailedException(500, new RuntimeException());
+        });
+
+        for (int i = 0; i < RequestHelper.CIRCUIT_BREAKER_FAILURE_THRESHOLD; i++) {
+            final var failed = new CountDownLatch(1);
+            RequestHelper.request(provider, call, errorCallback(errors, failed));
+            assertTrue(failed.await(5, TimeUnit.SECONDS));
+        }
+        assertEquals(RequestHelper.CIRCUIT_BREAKER_FAILURE_THRESHOLD, upstreamCalls.get());
+        assertEquals(CircuitBreaker.State.OPEN, RequestHelper.getCircuitBreaker(accountName).getState());
+
+        final var shortCircuited = new CountDownLatch(1);
+        RequestHelper.request(provider, call, errorCallback(errors, shortCircuited));
+        assertTrue(shortCircuited.await(5, TimeUnit.SECONDS));
+        assertEquals(RequestHelper.CIRCUIT_BREAKER_FAILURE_THRESHOLD, upstreamCalls.get());
+        assertTrue(errors.get(errors.size() - 1) instanceof ServerUnhealthyException);
+
+        // Health checks are performed anyway, but do not end the pause of the server
+        final var responded = new CountDownLatch(1);
+        RequestHelper.requestHealthCheck(provider, null, () -> Observable.just(new Object()), callback(new CopyOnWriteArrayList<>(), responded));
+        assertTrue(responded.await(5, TimeUnit.SECONDS));
+        assertEquals(CircuitBreaker.State.OPEN, RequestHelper.getCircuitBreaker(accountName).getState());
+    }
+
+    @Test
+    public void testDoesNotRetryMaintenance() throws InterruptedException {
+        final String accountName = "maintenance@example.com";
+        when(provider.getAccountName()).thenReturn(accountName);
+        final var upstreamCalls = new AtomicInteger();
+        final List<Throwable> errors = new CopyOnWriteArrayList<>();
+        final RequestHelper.ObservableProvider<Object> call = () -> Observable.fromCallable(() -> {
+            upstreamCalls.incrementAndGet();
+            throw new NextcloudHttpRequestFailedException(503, new RuntimeException("{\"ocs\":{\"meta\":{\"status\":\"failure\",\"statuscode\":503,\"message\":\"\"},\"data\":[]}}"));
+        });
+
+        for (int i = 0; i < RequestHelper.CIRCUIT_BREAKER_FAILURE_THRESHOLD; i++) {
+            final var failed = new CountDownLatch(1);
+            RequestHelper.requestHealthCheck(provider, RequestHelper.key("getCapabilities"), call, errorCallback(errors, failed));
+            assertTrue(failed.await(5, TimeUnit.SECONDS));
+        }
+
+        assertEquals(RequestHelper.CIRCUIT_BREAKER_FAILURE_THRESHOLD, upstreamCalls.get());
+        assertEquals(CircuitBreaker.State.CLOSED, RequestHelper.getCircuitBreaker(accountName).getState());
+    }
+
+    private ResponseCallback<Object> errorCallback(List<Throwable> errors, CountDownLatch latch) {
+        return new ResponseCallback<>(account) {
+            @Override
+            public void onResponse(Object response) {
+                latch.countDown();
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                super.onError(throwable);
+                errors.add(throwable);
+                latch.countDown();
+            }
+        };
+    }
+
+    private ResponseCallback<Object> callback(List<Object> responses, CountDownLatch latch) {
+        return new ResponseCallback<>(account) {
+            @Override
+            public void onResponse(Object response) {
+                responses.add(response);
+                latch.countDown();
+            }
+        };
+    }
+}
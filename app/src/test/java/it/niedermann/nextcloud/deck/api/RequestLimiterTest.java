@@ -0,0 +1,128 @@
+package it.niedermann.nextcloud.deck.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import androidx.annotation.NonNull;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import io.reactivex.Observable;
+import io.reactivex.Observer;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.disposables.Disposables;
+import io.reactivex.subjects.PublishSubject;
+
+public class RequestLimiterTest {
+
+    @Test
+    public void testLimitsRequestsInFlight() {
+        final var limiter = new RequestLimiter(2, Runnable::run);
+        final List<PublishSubject<String>> upstreams = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            final PublishSubject<String> upstream = PublishSubject.create();
+            upstreams.add(upstream);
+            limiter.limit(upstream).subscribe();
+        }
+
+        assertTrue(upstreams.get(0).hasObservers());
+        assertTrue(upstreams.get(1).hasObservers());
+        assertFalse(upstreams.get(2).hasObservers());
+        assertEquals(2, limiter.getInFlight());
+        assertEquals(2, limiter.getQueueDepth());
+
+        upstreams.get(0).onNext("foo");
+        upstreams.get(0).onComplete();
+        assertTrue(upstreams.get(2).hasObservers());
+        assertFalse(upstreams.get(3).hasObservers());
+
+        upstreams.get(1).onError(new RuntimeException());
+        assertTrue(upstreams.get(3).hasObservers());
+        assertEquals(0, limiter.getQueueDepth());
+
+        upstreams.get(2).onComplete();
+        upstreams.get(3).onComplete();
+        assertEquals(0, limiter.getInFlight());
+        assertEquals(2, limiter.getMaxQueueDepth());
+        assertEquals(4, limiter.getRequests());
+        assertEquals(4, limiter.getResponses());
+        assertEquals(1, limiter.getFailed());
+    }
+
+    @Test
+    public void testReleasesSlotBeforePassingResponseDownstream() {
+        final var limiter = new RequestLimiter(1, Runnable::run);
+        final PublishSubject<String> first = PublishSubject.create();
+        final PublishSubject<String> second = PublishSubject.create();
+        final List<Boolean> secondStarted = new ArrayList<>();
+
+        limiter.limit(first).subscribe(response -> secondStarted.add(second.hasObservers()));
+        limiter.limit(second).subscribe();
+        assertFalse(second.hasObservers());
+
+        first.onNext("foo");
+        assertEquals(List.of(true), secondStarted);
+    }
+
+    @Test
+    public void testDisposeQueuedRequest() {
+        final var limiter = new RequestLimiter(1, Runnable::run);
+        final PublishSubject<String> first = PublishSubject.create();
+        final PublishSubject<String> queued = PublishSubject.create();
+        final PublishSubject<String> third = PublishSubject.create();
+
+        final var firstDisposable = limiter.limit(first).subscribe();
+        limiter.limit(queued).subscribe().dispose();
+        limiter.limit(third).subscribe();
+
+        firstDisposable.dispose();
+        assertFalse(first.hasObservers());
+        assertFalse(queued.hasObservers());
+        assertTrue(third.hasObservers());
+        assertEquals(1, limiter.getInFlight());
+        assertEquals(0, limiter.getResponses());
+    }
+
+    @Test
+    public void testDisposeWhileSubscribingToUpstream() {
+        final var limiter = new RequestLimiter(1, Runnable::run);
+        final AtomicReference<Disposable> downstream = new AtomicReference<>();
+        final AtomicBoolean upstreamDisposed = new AtomicBoolean(false);
+        final Observable<String> upstream = new Observable<>() {
+            @Override
+            protected void subscribeActual(Observer<? super String> observer) {
+                // The request gets disposed after it has been started, but before the upstream passed its disposable
+                downstream.get().dispose();
+                observer.onSubscribe(Disposables.fromAction(() -> upstreamDisposed.set(true)));
+            }
+        };
+
+        limiter.limit(upstream).subscribe(new Observer<String>() {
+            @Override
+            public void onSubscribe(@NonNull Disposable d) {
+                downstream.set(d);
+            }
+
+            @Override
+            public void onNext(@NonNull String s) {
+            }
+
+            @Override
+            public void onError(@NonNull Throwable e) {
+            }
+
+            @Override
+            public void onComplete() {
+            }
+        });
+
+        assertTrue(upstreamDisposed.get());
+        assertEquals(0, limiter.getInFlight());
+    }
+}
@@ -0,0 +1,114 @@
+package it.niedermann.nextcloud.deck.api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import androidx.annotation.NonNull;
+
+import com.nextcloud.android.sso.exceptions.NextcloudHttpRequestFailedException;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.time.Instant;
+
+import okhttp3.Headers;
+import okhttp3.MediaType;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.ResponseBody;
+import retrofit2.HttpException;
+import retrofit2.Response;
+
+@RunWith(RobolectricTestRunner.class)
+public class RetryPolicyTest {
+
+    private final RetryPolicy policy = new RetryPolicy(3, 1_000L, 10_000L, () -> 0.5);
+
+    @Test
+    public void testClassify() {
+        assertEquals(RetryPolicy.Classification.TRANSIENT, RetryPolicy.classify(new ConnectException()));
+        assertEquals(RetryPolicy.Classification.TRANSIENT, RetryPolicy.classify(new NextcloudHttpRequestFailedException(503, new RuntimeException())));
+        assertEquals(RetryPolicy.Classification.TRANSIENT, RetryPolicy.classify(new NextcloudHttpRequestFailedException(429, new RuntimeException())));
+        assertEquals(RetryPolicy.Classification.TRANSIENT_IF_IDEMPOTENT, RetryPolicy.classify(new SocketTimeoutException()));
+        assertEquals(RetryPolicy.Classification.TRANSIENT_IF_IDEMPOTENT, RetryPolicy.classify(new NextcloudHttpRequestFailedException(502, new RuntimeException())));
+        assertEquals(RetryPolicy.Classification.PERMANENT, RetryPolicy.classify(new NextcloudHttpRequestFailedException(500, new RuntimeException())));
+        assertEquals(RetryPolicy.Classification.PERMANENT, RetryPolicy.classify(new NextcloudHttpRequestFailedException(304, new RuntimeException())));
+        assertEquals(RetryPolicy.Classification.PERMANENT, RetryPolicy.classify(new IllegalArgumentException()));
+    }
+
+    @Test
+    public void testIsServerFailure() {
+        assertTrue(RetryPolicy.isServerFailure(new NextcloudHttpRequestFailedException(500, new RuntimeException())));
+        assertTrue(RetryPolicy.isServerFailure(new SocketTimeoutException()));
+        assertFalse(RetryPolicy.isServerFailure(new NextcloudHttpRequestFailedException(404, new RuntimeException())));
+        assertFalse(RetryPolicy.isServerFailure(new NextcloudHttpRequestFailedException(304, new RuntimeException())));
+    }
+
+    @Test
+    public void testMaintenance() {
+        final var maintenance = new NextcloudHttpRequestFailedException(503, new RuntimeException("{\"ocs\":{\"meta\":{\"status\":\"failure\",\"statuscode\":503,\"message\":\"\"},\"data\":[]}}"));
+        assertTrue(RetryPolicy.isMaintenance(maintenance));
+        assertEquals(RetryPolicy.Classification.PERMANENT, RetryPolicy.classify(maintenance));
+        assertFalse(RetryPolicy.isServerFailure(maintenance));
+        assertEquals(-1L, policy.getRetryDelayMillis(maintenance, 1, true));
+
+        assertFalse(RetryPolicy.isMaintenance(new NextcloudHttpRequestFailedException(503, new RuntimeException())));
+        assertFalse(RetryPolicy.isMaintenance(new NextcloudHttpRequestFailedException(503, new RuntimeException("<html>Service Unavailable</html>"))));
+        assertFalse(RetryPolicy.isMaintenance(new NextcloudHttpRequestFailedException(500, new RuntimeException("{\"ocs\":{\"meta\":{\"statuscode\":503}}}"))));
+    }
+
+    @Test
+    public void testExponentialBackoffWithJitter() {
+        final var unavailable = new NextcloudHttpRequestFailedException(503, new RuntimeException());
+        assertEquals(750L, policy.getRetryDelayMillis(unavailable, 1, false));
+        assertEquals(1_500L, policy.getRetryDelayMillis(unavailable, 2, false));
+        assertEquals(-1L, policy.getRetryDelayMillis(unavailable, 3, false));
+
+        final var longPolicy = new RetryPolicy(10, 1_000L, 10_000L, () -> 0.0);
+        assertEquals(5_000L, longPolicy.getRetryDelayMillis(unavailable, 9, false));
+    }
+
+    @Test
+    public void testRetriesOnlyIdempotentRequestsWhichMightHaveBeenProcessed() {
+        assertEquals(-1L, policy.getRetryDelayMillis(new SocketTimeoutException(), 1, false));
+        assertEquals(750L, policy.getRetryDelayMillis(new SocketTimeoutException(), 1, true));
+        assertEquals(-1L, policy.getRetryDelayMillis(new NextcloudHttpRequestFailedException(404, new RuntimeException()), 1, true));
+    }
+
+    @Test
+    public void testRetryAfter() {
+        assertEquals(3_000L, policy.getRetryDelayMillis(httpException(429, "3"), 1, false));
+        // The server asks to wait longer than the policy allows
+        assertEquals(-1L, policy.getRetryDelayMillis(httpException(503, "120"), 1, false));
+    }
+
+    @Test
+    public void testParseRetryAfter() {
+        final var now = Instant.parse("2022-01-07T10:00:00Z");
+        assertEquals(Long.valueOf(120_000L), RetryPolicy.parseRetryAfterMillis("120", now));
+        assertEquals(Long.valueOf(90_000L), RetryPolicy.parseRetryAfterMillis("Fri, 07 Jan 2022 10:01:30 GMT", now));
+        assertEquals(Long.valueOf(0L), RetryPolicy.parseRetryAfterMillis("Fri, 07 Jan 2022 09:00:00 GMT", now));
+        assertNull(RetryPolicy.parseRetryAfterMillis(null, now));
+        assertNull(RetryPolicy.parseRetryAfterMillis("soon", now));
+        assertEquals(Long.valueOf(5_000L), RetryPolicy.getRetryAfterMillis(httpException(503, "5"), now));
+        assertNull(RetryPolicy.getRetryAfterMillis(new NextcloudHttpRequestFailedException(503, new RuntimeException()), now));
+    }
+
+    @NonNull
+    static HttpException httpException(int code, @NonNull String retryAfter) {
+        final var rawResponse = new okhttp3.Response.Builder()
+                .request(new Request.Builder().url("https://nextcloud.example.com/").build())
+                .protocol(Protocol.HTTP_1_1)
+                .code(code)
+                .message("Error")
+                .headers(Headers.of("Retry-After", retryAfter))
+                .build();
+        return new HttpException(Response.error(ResponseBody.create(MediaType.get("text/plain"), ""), rawResponse));
+    }
+}
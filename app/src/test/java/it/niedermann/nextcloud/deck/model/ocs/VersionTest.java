@@ -0,0 +1,60 @@
+package it.niedermann.nextcloud.deck.model.ocs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import it.niedermann.nextcloud.deck.model.Account;
+
+@RunWith(RobolectricTestRunner.class)
+public class VersionTest {
+
+    @Test
+    public void testOfReturnsInternedInstances() {
+        final var version = Version.of("1.2.3");
+        assertSame(version, Version.of("1.2.3"));
+        assertEquals(new Version("1.2.3", 1, 2, 3), version);
+        assertEquals("1.2.3", version.getOriginalVersion());
+    }
+
+    @Test
+    public void testCapabilities() {
+        final var v_0_6_3 = Version.of("0.6.3");
+        assertFalse(v_0_6_3.isSupported());
+        assertFalse(v_0_6_3.supportsComments());
+        assertEquals(100, v_0_6_3.getCardTitleMaxLength());
+
+        final var v_1_0_0 = Version.of("1.0.0-alpha1");
+        assertTrue(v_1_0_0.isSupported());
+        assertTrue(v_1_0_0.supportsComments());
+        assertFalse(v_1_0_0.supportsCommentsReplys());
+        assertEquals(255, v_1_0_0.getCardTitleMaxLength());
+
+        final var v_1_3_0 = Version.of("1.3.0");
+        assertTrue(v_1_3_0.supportsCommentsReplys());
+        assertTrue(v_1_3_0.supportsFileAttachments());
+        assertFalse(new Version(1, 2, 99).supportsFileAttachments());
+    }
+
+    @Test
+    public void testAccountInvalidatesCachedVersion() {
+        final var account = new Account();
+        account.setServerDeckVersion("1.0.0");
+
+        final var first = account.getServerDeckVersionAsObject();
+        assertSame(first, account.getServerDeckVersionAsObject());
+        assertTrue(first.supportsComments());
+        assertFalse(first.supportsFileAttachments());
+
+        account.setServerDeckVersion("1.3.0");
+        final var second = account.getServerDeckVersionAsObject();
+        assertNotSame(first, second);
+        assertTrue(second.supportsFileAttachments());
+    }
+}
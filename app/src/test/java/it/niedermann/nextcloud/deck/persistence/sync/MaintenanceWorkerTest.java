@@ -0,0 +1,32 @@
+package it.niedermann.nextcloud.deck.persistence.sync;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import android.os.Build;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+@RunWith(RobolectricTestRunner.class)
+public class MaintenanceWorkerTest {
+
+    @Test
+    @Config(sdk = Build.VERSION_CODES.P)
+    public void testRequiresDeviceIdle() {
+        final var constraints = MaintenanceWorker.getConstraints();
+        assertTrue(constraints.requiresCharging());
+        assertTrue(constraints.requiresBatteryNotLow());
+        assertTrue(constraints.requiresDeviceIdle());
+    }
+
+    @Test
+    @Config(sdk = Build.VERSION_CODES.LOLLIPOP_MR1)
+    public void testDeviceIdleNotAvailable() {
+        final var constraints = MaintenanceWorker.getConstraints();
+        assertTrue(constraints.requiresCharging());
+        assertFalse(constraints.requiresDeviceIdle());
+    }
+}
@@ -7,6 +7,7 @@ import static org.junit.Assert.assertThrows;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.argThat;
@@ -14,6 +15,7 @@ import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.reset;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
@@ -40,24 +42,33 @@ import org.robolectric.RobolectricTestRunner;
 
 import java.lang.reflect.InvocationTargetException;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 
+import io.reactivex.schedulers.Schedulers;
 import it.niedermann.nextcloud.deck.TestUtil;
 import it.niedermann.nextcloud.deck.api.IResponseCallback;
 import it.niedermann.nextcloud.deck.api.LastSyncUtil;
+import it.niedermann.nextcloud.deck.api.RequestHelper;
 import it.niedermann.nextcloud.deck.api.ResponseCallback;
 import it.niedermann.nextcloud.deck.exceptions.OfflineException;
+import it.niedermann.nextcloud.deck.exceptions.ServerUnhealthyException;
 import it.niedermann.nextcloud.deck.model.Account;
 import it.niedermann.nextcloud.deck.model.Board;
 import it.niedermann.nextcloud.deck.model.Card;
 import it.niedermann.nextcloud.deck.model.Stack;
+import it.niedermann.nextcloud.deck.model.enums.DBStatus;
+import it.niedermann.nextcloud.deck.model.enums.EOutboxEntityType;
+import it.niedermann.nextcloud.deck.model.enums.EOutboxOperation;
 import it.niedermann.nextcloud.deck.model.full.FullBoard;
+import it.niedermann.nextcloud.deck.model.full.FullCard;
 import it.niedermann.nextcloud.deck.model.full.FullStack;
 import it.niedermann.nextcloud.deck.model.interfaces.IRemoteEntity;
+import it.niedermann.nextcloud.deck.model.internal.OutboxEntry;
 import it.niedermann.nextcloud.deck.model.ocs.Capabilities;
 import it.niedermann.nextcloud.deck.model.ocs.Version;
 import it.niedermann.nextcloud.deck.persistence.sync.adapters.ServerAdapter;
@@ -67,6 +78,7 @@ import it.niedermann.nextcloud.deck.persistence.sync.helpers.SyncHelper;
 import it.niedermann.nextcloud.deck.persistence.sync.helpers.providers.AbstractSyncDataProvider;
 import it.niedermann.nextcloud.deck.persistence.sync.helpers.providers.CardDataProvider;
 import it.niedermann.nextcloud.deck.persistence.sync.helpers.providers.StackDataProvider;
+import it.niedermann.nextcloud.deck.persistence.sync.helpers.util.SyncCoordinator;
 
 @RunWith(RobolectricTestRunner.class)
 public class SyncManagerTest {
@@ -87,13 +99,15 @@ public class SyncManagerTest {
                 DataBaseAdapter.class,
                 ServerAdapter.class,
                 ExecutorService.class,
-                SyncHelper.Factory.class);
+                SyncHelper.Factory.class,
+                SyncCoordinator.class);
         constructor.setAccessible(true);
         syncManager = constructor.newInstance(context,
                 dataBaseAdapter,
                 serverAdapter,
                 MoreExecutors.newDirectExecutorService(),
-                syncHelperFactory);
+                syncHelperFactory,
+                new SyncCoordinator(Schedulers.trampoline(), 0));
     }
 
     @Test
@@ -492,12 +506,104 @@ public class SyncManagerTest {
         verify(finalCallback, times(1)).onError(any());
     }
 
+    @Test
+    public void testDoNotSynchronizeWhileServerIsUnhealthy() {
+        final var syncManagerSpy = spy(syncManager);
+        final var account = new Account(1338L, "Unhealthy", "Peter", "example.com");
+        RequestHelper.getCircuitBreaker(account.getName()).onServerFailure(60_000L);
+
+        final var finalCallback = spy(new ResponseCallback<Boolean>(account) {
+            @Override
+            public void onResponse(Boolean response) {
+            }
+        });
+
+        syncManagerSpy.synchronize(finalCallback);
+
+        verify(finalCallback).onError(argThat(throwable -> throwable instanceof ServerUnhealthyException));
+        verify(finalCallback, never()).onResponse(any());
+        verify(syncManagerSpy, never()).refreshCapabilities(any());
+    }
+
+    @Test
+    public void testUploadsCardsReorderedOfflineWithTheNextIncrementalSynchronization() {
+        final var syncManagerSpy = spy(syncManager);
+        final var account = new Account(1339L, "Offline", "Peter", "example.com");
+        final var capabilities = new Capabilities();
+        capabilities.setDeckVersion(Version.minimumSupported());
+        doAnswer((invocation -> {
+            //noinspection unchecked
+            ((IResponseCallback<Capabilities>) invocation.getArgument(0)).onResponse(capabilities);
+            return null;
+        })).when(syncManagerSpy).refreshCapabilities(any());
+
+        final var board = new Board();
+        board.setLocalId(10L);
+        final var stack = new FullStack();
+        final var stackEntity = new Stack();
+        stackEntity.setLocalId(20L);
+        stackEntity.setBoardId(10L);
+        stack.setStack(stackEntity);
+        final List<FullCard> cards = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            final var card = new Card();
+            card.setLocalId(30L + i);
+            card.setAccountId(account.getId());
+            card.setStackId(20L);
+            card.setOrder(i);
+            card.setStatusEnum(DBStatus.UP_TO_DATE);
+            final var fullCard = new FullCard();
+            fullCard.setCard(card);
+            cards.add(fullCard);
+        }
+        final var movedCard = cards.get(2);
+
+        // Move the last card to the top without internet connection
+        when(serverAdapter.hasInternetConnection()).thenReturn(false);
+        when(dataBaseAdapter.getFullCardsForStackDirectly(account.getId(), 20L, null)).thenReturn(new ArrayList<>(cards));
+
+        syncManagerSpy.reorder(account.getId(), movedCard, 20L, 0);
+
+        for (FullCard card : cards) {
+            verify(dataBaseAdapter).updateMovedCard(card.getCard());
+        }
+        verify(dataBaseAdapter, never()).updateCard(any(), anyBoolean());
+        assertEquals(0, movedCard.getCard().getOrder());
+        assertEquals(DBStatus.LOCAL_EDITED, movedCard.getCard().getStatusEnum());
+        assertEquals(DBStatus.LOCAL_EDITED_SILENT, cards.get(0).getCard().getStatusEnum());
+
+        // The outbox entry recorded for the moved card is uploaded by the next incremental synchronization
+        final var entry = new OutboxEntry(account.getId(), EOutboxEntityType.CARD, movedCard.getLocalId(), EOutboxOperation.UPDATE, movedCard.getCard().getLastModifiedLocal());
+        entry.setId(1L);
+        when(dataBaseAdapter.getNextPendingOutboxEntryDirectly(account.getId(), 0L)).thenReturn(entry);
+        when(dataBaseAdapter.getFullCardByLocalIdDirectly(account.getId(), movedCard.getLocalId())).thenReturn(movedCard);
+        when(dataBaseAdapter.getFullStackByLocalIdDirectly(20L)).thenReturn(stack);
+        when(dataBaseAdapter.getBoardByLocalIdDirectly(10L)).thenReturn(board);
+        LastSyncUtil.init(ApplicationProvider.getApplicationContext());
+        LastSyncUtil.setLastSyncDate(account.getId(), Instant.now());
+        LastSyncUtil.setLastFullSyncDate(account.getId(), Instant.now());
+        final var syncHelper = new SyncHelperMock(true);
+        when(syncHelperFactory.create(any(), any(), any())).thenReturn(syncHelper);
+        final var finalCallback = spy(new ResponseCallback<Boolean>(account) {
+            @Override
+            public void onResponse(Boolean response) {
+            }
+        });
+
+        syncManagerSpy.synchronize(finalCallback);
+
+        assertEquals(Collections.singletonList(movedCard), syncHelper.uploadedEntities);
+        verify(finalCallback).onResponse(any());
+        verify(finalCallback, never()).onError(any());
+    }
+
     /**
      * A simple {@link SyncHelper} implementation which directly responds to sync requests
      */
     private class SyncHelperMock extends SyncHelper {
         private IResponseCallback<Boolean> cb;
         private final boolean success;
+        private final List<IRemoteEntity> uploadedEntities = new ArrayList<>();
 
         private SyncHelperMock(boolean success) {
             super(serverAdapter, dataBaseAdapter, Instant.now());
@@ -527,5 +633,15 @@ public class SyncManagerTest {
                 cb.onError(new RuntimeException("Bad path mocking"));
             }
         }
+
+        @Override
+        public <T extends IRemoteEntity> void doUpSyncWithoutGoingDeeperFor(@NonNull AbstractSyncDataProvider<T> provider, @NonNull List<T> entities) {
+            uploadedEntities.addAll(entities);
+            if (success) {
+                cb.onResponse(true);
+            } else {
+                cb.onError(new RuntimeException("Bad path mocking"));
+            }
+        }
     }
 }
@@ -0,0 +1,123 @@
+package it.niedermann.nextcloud.deck.persistence.sync.adapters;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import android.content.SharedPreferences;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import com.nextcloud.android.sso.api.ParsedResponse;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.reactivex.Observable;
+import it.niedermann.nextcloud.deck.api.ApiProvider;
+import it.niedermann.nextcloud.deck.api.DeckAPI;
+import it.niedermann.nextcloud.deck.api.ResponseCallback;
+import it.niedermann.nextcloud.deck.model.Account;
+import it.niedermann.nextcloud.deck.model.Card;
+import it.niedermann.nextcloud.deck.model.Label;
+import it.niedermann.nextcloud.deck.model.full.FullCard;
+import it.niedermann.nextcloud.deck.persistence.sync.helpers.util.SyncExecutors;
+
+@RunWith(RobolectricTestRunner.class)
+public class ServerAdapterTest {
+
+    @Test
+    public void testFormatModifiedSince() {
+        assertNull("No header for full synchronizations", ServerAdapter.formatModifiedSince(null));
+        assertEquals("Sun, 6 Nov 1994 08:49:37 GMT", ServerAdapter.formatModifiedSince(Instant.parse("1994-11-06T08:49:37Z")));
+        assertEquals("Always formatted in GMT", "Mon, 18 Oct 2021 22:05:00 GMT", ServerAdapter.formatModifiedSince(OffsetDateTime.parse("2021-10-19T00:05:00+02:00").toInstant()));
+    }
+
+    @Test
+    public void testGetMaxParallelBoardSyncs() {
+        final var sharedPreferences = mock(SharedPreferences.class);
+        when(sharedPreferences.getInt(eq("foo"), anyInt())).thenAnswer(invocation -> invocation.getArgument(1));
+        assertEquals(SyncExecutors.DEFAULT_PARALLEL_BOARD_SYNCS, ServerAdapter.getMaxParallelBoardSyncs(sharedPreferences, "foo"));
+
+        when(sharedPreferences.getInt(eq("foo"), anyInt())).thenReturn(0);
+        assertEquals(1, ServerAdapter.getMaxParallelBoardSyncs(sharedPreferences, "foo"));
+
+        when(sharedPreferences.getInt(eq("foo"), anyInt())).thenReturn(1_000);
+        assertEquals(SyncExecutors.MAX_PARALLEL_TASKS_PER_ACCOUNT, ServerAdapter.getMaxParallelBoardSyncs(sharedPreferences, "foo"));
+
+        when(sharedPreferences.getInt(eq("foo"), anyInt())).thenThrow(new ClassCastException());
+        assertEquals(SyncExecutors.DEFAULT_PARALLEL_BOARD_SYNCS, ServerAdapter.getMaxParallelBoardSyncs(sharedPreferences, "foo"));
+    }
+
+    @Test
+    public void testCoalescesOverlappingGetCardRequests() throws InterruptedException {
+        final var provider = mock(ApiProvider.class);
+        final var deckAPI = mock(DeckAPI.class);
+        when(provider.getDeckAPI()).thenReturn(deckAPI);
+        when(provider.getAccountName()).thenReturn("coalesce@example.com");
+        final var serverAdapter = new ServerAdapter(ApplicationProvider.getApplicationContext(), "coalesce@example.com", provider);
+
+        final var card = new FullCard();
+        card.setCard(new Card("Foo", "Bar", 2L));
+        final var label = new Label();
+        label.setTitle("Baz");
+        card.getLabels().add(label);
+        final var upstreamCalls = new AtomicInteger();
+        final var gate = new CountDownLatch(1);
+        when(deckAPI.getCard_1_0(anyLong(), anyLong(), anyLong(), any())).thenAnswer(invocation -> Observable.fromCallable(() -> {
+            upstreamCalls.incrementAndGet();
+            assertTrue(gate.await(5, TimeUnit.SECONDS));
+            return card;
+        }));
+        when(deckAPI.getCard_1_1(anyLong(), anyLong(), anyLong(), any(), any())).thenAnswer(invocation -> Observable.fromCallable(() -> {
+            upstreamCalls.incrementAndGet();
+            assertTrue(gate.await(5, TimeUnit.SECONDS));
+            return new ParsedResponse<>(card, Map.of("ETag", "foo"));
+        }));
+
+        final var responded = new CountDownLatch(2);
+        final List<ParsedResponse<FullCard>> responses = new CopyOnWriteArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            serverAdapter.getCard(1L, 2L, 3L, null, null, new ResponseCallback<>(new Account(1L)) {
+                @Override
+                public void onResponse(ParsedResponse<FullCard> response) {
+                    // Like the synchronization, which sets local IDs on the received entities
+                    response.getResponse().getCard().setLocalId((long) responses.size());
+                    response.getResponse().getLabels().get(0).setLocalId((long) responses.size());
+                    responses.add(response);
+                    responded.countDown();
+                }
+            });
+        }
+        gate.countDown();
+
+        assertTrue(responded.await(5, TimeUnit.SECONDS));
+        assertEquals(1, upstreamCalls.get());
+        final FullCard first = responses.get(0).getResponse();
+        final FullCard second = responses.get(1).getResponse();
+        assertNotSame(first, second);
+        assertNotSame(first.getCard(), second.getCard());
+        assertNotSame(first.getLabels().get(0), second.getLabels().get(0));
+        assertEquals("Foo", second.getCard().getTitle());
+        assertEquals("Baz", second.getLabels().get(0).getTitle());
+        assertEquals(responses.get(0).getHeaders(), responses.get(1).getHeaders());
+        assertNull("The shared response must not be passed to a callback", card.getLocalId());
+    }
+}
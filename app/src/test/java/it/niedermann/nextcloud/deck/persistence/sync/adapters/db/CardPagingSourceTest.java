@@ -0,0 +1,139 @@
+package it.niedermann.nextcloud.deck.persistence.sync.adapters.db;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static it.niedermann.nextcloud.deck.persistence.sync.adapters.db.DeckDatabaseTestUtil.createAccount;
+import static it.niedermann.nextcloud.deck.persistence.sync.adapters.db.DeckDatabaseTestUtil.createBoard;
+import static it.niedermann.nextcloud.deck.persistence.sync.adapters.db.DeckDatabaseTestUtil.createCard;
+import static it.niedermann.nextcloud.deck.persistence.sync.adapters.db.DeckDatabaseTestUtil.createStack;
+import static it.niedermann.nextcloud.deck.persistence.sync.adapters.db.DeckDatabaseTestUtil.createUser;
+
+import androidx.arch.core.executor.testing.InstantTaskExecutorRule;
+import androidx.paging.PagingSource;
+import androidx.room.Room;
+import androidx.sqlite.db.SimpleSQLiteQuery;
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import it.niedermann.nextcloud.deck.model.Account;
+import it.niedermann.nextcloud.deck.model.Card;
+import it.niedermann.nextcloud.deck.model.Stack;
+import it.niedermann.nextcloud.deck.model.full.CardListItem;
+import it.niedermann.nextcloud.deck.model.full.FullCard;
+
+@RunWith(RobolectricTestRunner.class)
+public class CardPagingSourceTest {
+
+    @Rule
+    public InstantTaskExecutorRule instantTaskExecutorRule = new InstantTaskExecutorRule();
+
+    private DeckDatabase db;
+    private Account account;
+    private Stack stack;
+    private final List<Card> cards = new ArrayList<>();
+
+    @Before
+    public void createDb() {
+        db = Room
+                .inMemoryDatabaseBuilder(ApplicationProvider.getApplicationContext(), DeckDatabase.class)
+                .allowMainThreadQueries()
+                .addCallback(CounterTriggers.CALLBACK)
+                .build();
+        account = createAccount(db.getAccountDao());
+        final var user = createUser(db.getUserDao(), account);
+        final var board = createBoard(db.getBoardDao(), account, user);
+        stack = createStack(db.getStackDao(), account, board);
+        for (int i = 0; i < 5; i++) {
+            cards.add(createCard(db.getCardDao(), account, stack));
+        }
+    }
+
+    @After
+    public void closeDb() {
+        db.close();
+    }
+
+    @Test
+    public void testLoad() {
+        final var source = createPagingSource();
+
+        final var refresh = load(source, new PagingSource.LoadParams.Refresh<>(null, 2, true));
+        assertEquals(getLocalIds(0, 2), getLocalIds(refresh));
+        assertNull(refresh.getPrevKey());
+        assertEquals(Integer.valueOf(2), refresh.getNextKey());
+        assertEquals(0, refresh.getItemsBefore());
+        assertEquals(3, refresh.getItemsAfter());
+
+        final var append = load(source, new PagingSource.LoadParams.Append<>(4, 2, true));
+        assertEquals(getLocalIds(4, 5), getLocalIds(append));
+        assertEquals(Integer.valueOf(4), append.getPrevKey());
+        assertNull(append.getNextKey());
+        assertEquals(4, append.getItemsBefore());
+        assertEquals(0, append.getItemsAfter());
+
+        final var prepend = load(source, new PagingSource.LoadParams.Prepend<>(1, 2, true));
+        assertEquals(getLocalIds(0, 1), getLocalIds(prepend));
+        assertNull(prepend.getPrevKey());
+        assertEquals(Integer.valueOf(1), prepend.getNextKey());
+    }
+
+    @Test
+    public void testRefreshBeyondEnd() {
+        final var refresh = load(createPagingSource(), new PagingSource.LoadParams.Refresh<>(10, 2, true));
+        assertEquals(getLocalIds(3, 5), getLocalIds(refresh));
+        assertEquals(3, refresh.getItemsBefore());
+        assertEquals(0, refresh.getItemsAfter());
+    }
+
+    @Test
+    public void testInvalidateOnChange() {
+        final var source = createPagingSource();
+        assertFalse(source.getInvalid());
+        createCard(db.getCardDao(), account, stack);
+        db.getInvalidationTracker().refreshVersionsSync();
+        assertTrue(source.getInvalid());
+    }
+
+    @Test
+    public void testInvalidateOnCounterChange() {
+        final var source = createPagingSource();
+        // Counters are maintained by triggers, the comment count is read from them
+        db.getOpenHelper().getWritableDatabase().execSQL("UPDATE Counter SET `count` = `count` + 1");
+        db.getInvalidationTracker().refreshVersionsSync();
+        assertTrue(source.getInvalid());
+    }
+
+    private CardPagingSource createPagingSource() {
+        return new CardPagingSource(db,
+                new SimpleSQLiteQuery(CardListItem.SELECT + " WHERE c.stackId = ? order by c.localId", new Object[]{stack.getLocalId()}),
+                items -> items.stream().map(item -> {
+                    final var fullCard = new FullCard();
+                    fullCard.setCard(item.card);
+                    return fullCard;
+                }).collect(Collectors.toList()));
+    }
+
+    private static PagingSource.LoadResult.Page<Integer, FullCard> load(CardPagingSource source, PagingSource.LoadParams<Integer> params) {
+        return (PagingSource.LoadResult.Page<Integer, FullCard>) source.loadSingle(params).blockingGet();
+    }
+
+    private List<Long> getLocalIds(int fromIndex, int toIndex) {
+        return cards.subList(fromIndex, toIndex).stream().map(Card::getLocalId).collect(Collectors.toList());
+    }
+
+    private static List<Long> getLocalIds(PagingSource.LoadResult.Page<Integer, FullCard> page) {
+        return page.getData().stream().map(FullCard::getLocalId).collect(Collectors.toList());
+    }
+}
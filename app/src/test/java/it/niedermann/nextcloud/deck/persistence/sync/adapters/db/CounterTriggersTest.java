@@ -0,0 +1,254 @@
+package it.niedermann.nextcloud.deck.persistence.sync.adapters.db;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static java.lang.reflect.Modifier.isPrivate;
+import static it.niedermann.nextcloud.deck.persistence.sync.adapters.db.DeckDatabaseTestUtil.createAccount;
+import static it.niedermann.nextcloud.deck.persistence.sync.adapters.db.DeckDatabaseTestUtil.createBoard;
+import static it.niedermann.nextcloud.deck.persistence.sync.adapters.db.DeckDatabaseTestUtil.createCard;
+import static it.niedermann.nextcloud.deck.persistence.sync.adapters.db.DeckDatabaseTestUtil.createLabel;
+import static it.niedermann.nextcloud.deck.persistence.sync.adapters.db.DeckDatabaseTestUtil.createStack;
+import static it.niedermann.nextcloud.deck.persistence.sync.adapters.db.DeckDatabaseTestUtil.createUser;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.annotation.NonNull;
+import androidx.arch.core.executor.testing.InstantTaskExecutorRule;
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.google.common.util.concurrent.MoreExecutors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+import it.niedermann.nextcloud.deck.model.Account;
+import it.niedermann.nextcloud.deck.model.Board;
+import it.niedermann.nextcloud.deck.model.Card;
+import it.niedermann.nextcloud.deck.model.Stack;
+import it.niedermann.nextcloud.deck.model.enums.DBStatus;
+import it.niedermann.nextcloud.deck.model.enums.ECounterType;
+import it.niedermann.nextcloud.deck.model.ocs.comment.DeckComment;
+
+@RunWith(RobolectricTestRunner.class)
+public class CounterTriggersTest {
+
+    @Rule
+    public InstantTaskExecutorRule instantTaskExecutorRule = new InstantTaskExecutorRule();
+
+    private DeckDatabase db;
+    private DataBaseAdapter adapter;
+    private Account account;
+    private Board board;
+    private Stack stack;
+
+    @Before
+    public void createAdapter() throws NoSuchMethodException, IllegalAccessException, InvocationTargetException, InstantiationException {
+        final var constructor = DataBaseAdapter.class.getDeclaredConstructor(Context.class, DeckDatabase.class, ExecutorService.class);
+        if (isPrivate(constructor.getModifiers())) {
+            constructor.setAccessible(true);
+            db = Room
+                    .inMemoryDatabaseBuilder(ApplicationProvider.getApplicationContext(), DeckDatabase.class)
+                    .allowMainThreadQueries()
+                    .addCallback(CounterTriggers.CALLBACK)
+                    .build();
+            adapter = constructor.newInstance(ApplicationProvider.getApplicationContext(), db, MoreExecutors.newDirectExecutorService());
+            account = createAccount(db.getAccountDao());
+            board = createBoard(db.getBoardDao(), account, createUser(db.getUserDao(), account));
+            stack = createStack(db.getStackDao(), account, board);
+        }
+    }
+
+    @After
+    public void closeDb() {
+        if (db != null) {
+            db.close();
+        }
+    }
+
+    @Test
+    public void testCardsInStack() {
+        final var otherStack = createStack(db.getStackDao(), account, board);
+        final var card = createCard(db.getCardDao(), account, stack);
+        final var otherCard = createCard(db.getCardDao(), account, stack);
+        createCard(db.getCardDao(), account, stack);
+        assertEquals(3, getCount(ECounterType.CARDS_IN_STACK, stack.getLocalId()));
+        assertEquals(0, getCount(ECounterType.CARDS_IN_STACK, otherStack.getLocalId()));
+
+        // Local edits
+        adapter.deleteCard(card, true);
+        assertEquals(2, getCount(ECounterType.CARDS_IN_STACK, stack.getLocalId()));
+
+        otherCard.setStackId(otherStack.getLocalId());
+        adapter.updateCard(otherCard, true);
+        assertEquals(1, getCount(ECounterType.CARDS_IN_STACK, stack.getLocalId()));
+        assertEquals(1, getCount(ECounterType.CARDS_IN_STACK, otherStack.getLocalId()));
+
+        otherCard.setTitle("Foo");
+        adapter.updateCard(otherCard, true);
+        assertEquals(1, getCount(ECounterType.CARDS_IN_STACK, otherStack.getLocalId()));
+
+        // Synchronization
+        adapter.deleteCardPhysically(card);
+        assertEquals(1, getCount(ECounterType.CARDS_IN_STACK, stack.getLocalId()));
+
+        otherCard.setStackId(stack.getLocalId());
+        adapter.updateCard(otherCard, false);
+        assertEquals(2, getCount(ECounterType.CARDS_IN_STACK, stack.getLocalId()));
+        assertEquals(0, getCount(ECounterType.CARDS_IN_STACK, otherStack.getLocalId()));
+
+        adapter.deleteStackPhysically(stack);
+        assertEquals(0, getCount(ECounterType.CARDS_IN_STACK, stack.getLocalId()));
+        assertConsistent();
+    }
+
+    @Test
+    public void testCardsWithLabel() {
+        final var label = createLabel(db.getLabelDao(), account, board, "Foo", DBStatus.UP_TO_DATE);
+        final var card = createCard(db.getCardDao(), account, stack);
+        final var otherCard = createCard(db.getCardDao(), account, stack);
+        adapter.createJoinCardWithLabel(label.getLocalId(), card.getLocalId());
+        adapter.createJoinCardWithLabel(label.getLocalId(), otherCard.getLocalId(), DBStatus.LOCAL_EDITED);
+        assertEquals(2, getCount(ECounterType.CARDS_WITH_LABEL, label.getLocalId()));
+
+        // Local edits
+        adapter.deleteJoinedLabelForCard(card.getLocalId(), label.getLocalId());
+        assertEquals(1, getCount(ECounterType.CARDS_WITH_LABEL, label.getLocalId()));
+
+        adapter.createJoinCardWithLabel(label.getLocalId(), card.getLocalId());
+        assertEquals(2, getCount(ECounterType.CARDS_WITH_LABEL, label.getLocalId()));
+
+        // Synchronization
+        adapter.setStatusForJoinCardWithLabel(otherCard.getLocalId(), label.getLocalId(), DBStatus.UP_TO_DATE.getId());
+        assertEquals(2, getCount(ECounterType.CARDS_WITH_LABEL, label.getLocalId()));
+
+        adapter.deleteJoinedLabelForCardPhysically(card.getLocalId(), label.getLocalId());
+        assertEquals(1, getCount(ECounterType.CARDS_WITH_LABEL, label.getLocalId()));
+
+        adapter.deleteCardPhysically(otherCard);
+        assertEquals(0, getCount(ECounterType.CARDS_WITH_LABEL, label.getLocalId()));
+        assertConsistent();
+    }
+
+    @Test
+    public void testCommentsOfCard() {
+        final var card = createCard(db.getCardDao(), account, stack);
+        final var comment = createComment(card);
+        createComment(card);
+        assertEquals(2, getCount(ECounterType.COMMENTS_OF_CARD, card.getLocalId()));
+
+        // Local edits
+        adapter.deleteComment(comment, true);
+        assertEquals(1, getCount(ECounterType.COMMENTS_OF_CARD, card.getLocalId()));
+
+        // Synchronization
+        adapter.deleteComment(comment, false);
+        assertEquals(1, getCount(ECounterType.COMMENTS_OF_CARD, card.getLocalId()));
+        assertConsistent();
+
+        adapter.deleteCardPhysically(card);
+        assertEquals(0, getCount(ECounterType.COMMENTS_OF_CARD, card.getLocalId()));
+        assertConsistent();
+    }
+
+    @Test
+    public void testRecount() {
+        final var label = createLabel(db.getLabelDao(), account, board, "Foo", DBStatus.UP_TO_DATE);
+        for (int i = 0; i < 5; i++) {
+            final var card = createCard(db.getCardDao(), account, stack);
+            createComment(card);
+            adapter.createJoinCardWithLabel(label.getLocalId(), card.getLocalId());
+            if (i % 2 == 0) {
+                adapter.deleteCard(card, true);
+            }
+        }
+        assertConsistent();
+    }
+
+    @Test
+    public void testTriggersAfterDestructiveMigration() {
+        final Context context = ApplicationProvider.getApplicationContext();
+        final String name = "destructive_migration.db";
+        context.deleteDatabase(name);
+        // There is no migration path from this version
+        try (SQLiteDatabase oldDb = context.openOrCreateDatabase(name, Context.MODE_PRIVATE, null)) {
+            oldDb.execSQL("CREATE TABLE `Foo` (`id` INTEGER PRIMARY KEY)");
+            oldDb.setVersion(1);
+        }
+
+        final var migratedDb = Room
+                .databaseBuilder(context, DeckDatabase.class, name)
+                .allowMainThreadQueries()
+                .fallbackToDestructiveMigration()
+                .addCallback(CounterTriggers.CALLBACK)
+                .build();
+        try {
+            assertEquals(getTriggerNames(db), getTriggerNames(migratedDb));
+
+            final var migratedAccount = createAccount(migratedDb.getAccountDao());
+            final var migratedBoard = createBoard(migratedDb.getBoardDao(), migratedAccount, createUser(migratedDb.getUserDao(), migratedAccount));
+            final var migratedStack = createStack(migratedDb.getStackDao(), migratedAccount, migratedBoard);
+            createCard(migratedDb.getCardDao(), migratedAccount, migratedStack);
+            assertEquals(1, migratedDb.getCounterDao().getCountDirectly(ECounterType.CARDS_IN_STACK, migratedStack.getLocalId()));
+        } finally {
+            migratedDb.close();
+            context.deleteDatabase(name);
+        }
+    }
+
+    /**
+     * Asserts that the {@link it.niedermann.nextcloud.deck.model.internal.Counter}s maintained by the triggers equal the ones calculated from scratch
+     */
+    private void assertConsistent() {
+        final var maintained = getNonZeroCounters();
+        CounterTriggers.recount(db.getOpenHelper().getWritableDatabase());
+        assertEquals(getNonZeroCounters(), maintained);
+    }
+
+    @NonNull
+    private List<String> getNonZeroCounters() {
+        final List<String> counters = new ArrayList<>();
+        try (Cursor cursor = db.getOpenHelper().getReadableDatabase().query("SELECT type, localId, `count` FROM Counter WHERE `count` <> 0 ORDER BY type, localId")) {
+            while (cursor.moveToNext()) {
+                counters.add(cursor.getInt(0) + "/" + cursor.getLong(1) + "=" + cursor.getInt(2));
+            }
+        }
+        return counters;
+    }
+
+    @NonNull
+    private static List<String> getTriggerNames(@NonNull DeckDatabase db) {
+        final List<String> names = new ArrayList<>();
+        try (Cursor cursor = db.getOpenHelper().getReadableDatabase().query("SELECT name FROM sqlite_master WHERE type = 'trigger' and name LIKE 'counter_%' ORDER BY name")) {
+            while (cursor.moveToNext()) {
+                names.add(cursor.getString(0));
+            }
+        }
+        assertFalse(names.isEmpty());
+        return names;
+    }
+
+    private int getCount(@NonNull ECounterType type, long localId) {
+        return db.getCounterDao().getCountDirectly(type, localId);
+    }
+
+    private DeckComment createComment(@NonNull Card card) {
+        final var comment = new DeckComment();
+        comment.setAccountId(card.getAccountId());
+        comment.setObjectId(card.getLocalId());
+        comment.setMessage("Foo");
+        comment.setLocalId(db.getCommentDao().insert(comment));
+        return comment;
+    }
+}
@@ -1,37 +1,74 @@
 package it.niedermann.nextcloud.deck.persistence.sync.adapters.db;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 import static java.lang.reflect.Modifier.isPrivate;
 import static it.niedermann.nextcloud.deck.persistence.sync.adapters.db.DeckDatabaseTestUtil.createAccount;
 import static it.niedermann.nextcloud.deck.persistence.sync.adapters.db.DeckDatabaseTestUtil.createBoard;
+import static it.niedermann.nextcloud.deck.persistence.sync.adapters.db.DeckDatabaseTestUtil.createCard;
+import static it.niedermann.nextcloud.deck.persistence.sync.adapters.db.DeckDatabaseTestUtil.createLabel;
+import static it.niedermann.nextcloud.deck.persistence.sync.adapters.db.DeckDatabaseTestUtil.createStack;
 import static it.niedermann.nextcloud.deck.persistence.sync.adapters.db.DeckDatabaseTestUtil.createUser;
+import static it.niedermann.nextcloud.deck.persistence.sync.adapters.db.DeckDatabaseTestUtil.joinLabel;
+import static it.niedermann.nextcloud.deck.persistence.sync.adapters.db.DeckDatabaseTestUtil.joinUser;
 
 import android.content.Context;
 
+import androidx.arch.core.executor.testing.InstantTaskExecutorRule;
 import androidx.room.Room;
+import androidx.sqlite.db.SimpleSQLiteQuery;
+import androidx.sqlite.db.SupportSQLiteProgram;
 import androidx.test.core.app.ApplicationProvider;
 
 import com.google.common.util.concurrent.MoreExecutors;
 
 import org.junit.After;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.robolectric.RobolectricTestRunner;
 
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ExecutorService;
+import java.util.stream.Collectors;
 
+import it.niedermann.nextcloud.deck.R;
+import it.niedermann.nextcloud.deck.TestUtil;
+import it.niedermann.nextcloud.deck.model.Attachment;
+import it.niedermann.nextcloud.deck.model.Board;
+import it.niedermann.nextcloud.deck.model.Card;
+import it.niedermann.nextcloud.deck.model.Label;
+import it.niedermann.nextcloud.deck.model.User;
+import it.niedermann.nextcloud.deck.model.enums.DBStatus;
+import it.niedermann.nextcloud.deck.model.enums.EDueType;
+import it.niedermann.nextcloud.deck.model.enums.EETagType;
+import it.niedermann.nextcloud.deck.model.full.CardListItem;
+import it.niedermann.nextcloud.deck.model.full.FullCard;
 import it.niedermann.nextcloud.deck.model.interfaces.IRemoteEntity;
+import it.niedermann.nextcloud.deck.model.internal.FilterInformation;
+import it.niedermann.nextcloud.deck.model.ocs.Activity;
+import it.niedermann.nextcloud.deck.model.ocs.comment.DeckComment;
 
 @RunWith(RobolectricTestRunner.class)
 public class DataBaseAdapterTest {
 
+    @Rule
+    public InstantTaskExecutorRule instantTaskExecutorRule = new InstantTaskExecutorRule();
+
     private DeckDatabase db;
     private DataBaseAdapter adapter;
 
@@ -43,6 +80,7 @@ public class DataBaseAdapterTest {
             db = Room
                     .inMemoryDatabaseBuilder(ApplicationProvider.getApplicationContext(), DeckDatabase.class)
                     .allowMainThreadQueries()
+                    .addCallback(CounterTriggers.CALLBACK)
                     .build();
             adapter = constructor.newInstance(ApplicationProvider.getApplicationContext(), db, MoreExecutors.newDirectExecutorService());
         }
@@ -109,4 +147,345 @@ public class DataBaseAdapterTest {
         assertEquals(leet + 1, args.get(1));
     }
 
+    @Test
+    public void testFilterText() {
+        final var account = createAccount(db.getAccountDao());
+        final var user = createUser(db.getUserDao(), account);
+        final var board = createBoard(db.getBoardDao(), account, user);
+        final var stack = createStack(db.getStackDao(), account, board);
+
+        final var groceries = createCard(db.getCardDao(), account, stack);
+        groceries.setTitle("Grocery shopping");
+        groceries.setDescription(null);
+        db.getCardDao().update(groceries);
+
+        final var milk = createCard(db.getCardDao(), account, stack);
+        milk.setTitle("Errands");
+        milk.setDescription("Buy milk & bread - 50% off");
+        db.getCardDao().update(milk);
+
+        final var filter = new FilterInformation();
+
+        filter.setFilterText("groc");
+        assertEquals(List.of(groceries.getLocalId()), filterCardIds(account.getId(), stack.getLocalId(), filter));
+
+        filter.setFilterText("SHOP groc");
+        assertEquals(List.of(groceries.getLocalId()), filterCardIds(account.getId(), stack.getLocalId(), filter));
+
+        filter.setFilterText("milk");
+        assertEquals(List.of(milk.getLocalId()), filterCardIds(account.getId(), stack.getLocalId(), filter));
+
+        filter.setFilterText("er");
+        assertEquals(List.of(milk.getLocalId()), filterCardIds(account.getId(), stack.getLocalId(), filter));
+
+        filter.setFilterText("&");
+        assertEquals(List.of(milk.getLocalId()), filterCardIds(account.getId(), stack.getLocalId(), filter));
+
+        db.getCardDao().delete(milk);
+        filter.setFilterText("milk");
+        assertEquals(List.of(), filterCardIds(account.getId(), stack.getLocalId(), filter));
+    }
+
+    @Test
+    public void testFilterDueType() {
+        final var account = createAccount(db.getAccountDao());
+        final var user = createUser(db.getUserDao(), account);
+        final var board = createBoard(db.getBoardDao(), account, user);
+        final var stack = createStack(db.getStackDao(), account, board);
+        final var now = Instant.now();
+
+        final var yesterday = createCard(db.getCardDao(), account, stack);
+        yesterday.setDueDate(now.minus(Duration.ofDays(1)));
+        db.getCardDao().update(yesterday);
+
+        final var inTwoDays = createCard(db.getCardDao(), account, stack);
+        inTwoDays.setDueDate(now.plus(Duration.ofDays(2)));
+        db.getCardDao().update(inTwoDays);
+
+        final var inTwentyDays = createCard(db.getCardDao(), account, stack);
+        inTwentyDays.setDueDate(now.plus(Duration.ofDays(20)));
+        db.getCardDao().update(inTwentyDays);
+
+        final var withoutDueDate = createCard(db.getCardDao(), account, stack);
+
+        final var filter = new FilterInformation();
+        // Run twice to cover building the query as well as taking it from the cache
+        for (int i = 0; i < 2; i++) {
+            filter.setDueType(EDueType.OVERDUE);
+            assertEquals(List.of(yesterday.getLocalId()), filterCardIds(account.getId(), stack.getLocalId(), filter));
+
+            filter.setDueType(EDueType.TODAY);
+            assertEquals(List.of(), filterCardIds(account.getId(), stack.getLocalId(), filter));
+
+            filter.setDueType(EDueType.WEEK);
+            assertEquals(List.of(inTwoDays.getLocalId()), filterCardIds(account.getId(), stack.getLocalId(), filter));
+
+            filter.setDueType(EDueType.MONTH);
+            assertEquals(List.of(inTwoDays.getLocalId(), inTwentyDays.getLocalId()), filterCardIds(account.getId(), stack.getLocalId(), filter));
+
+            filter.setDueType(EDueType.NO_DUE);
+            assertEquals(List.of(withoutDueDate.getLocalId()), filterCardIds(account.getId(), stack.getLocalId(), filter));
+        }
+    }
+
+    @Test
+    public void testQueryForFilterIsCachedByShape() throws NoSuchMethodException, InvocationTargetException, IllegalAccessException {
+        final var getQueryForFilter = DataBaseAdapter.class.getDeclaredMethod("getQueryForFilter", FilterInformation.class, List.class, List.class);
+        getQueryForFilter.setAccessible(true);
+
+        final var label = new Label();
+        label.setLocalId(3L);
+        final var user = new User();
+        user.setLocalId(4L);
+        final var filter = new FilterInformation();
+        filter.setLabels(List.of(label));
+        filter.setUsers(List.of(user));
+        filter.setFilterText("foo bar");
+
+        final var built = (SimpleSQLiteQuery) getQueryForFilter.invoke(adapter, filter, List.of(1L), List.of(2L));
+        final var cached = (SimpleSQLiteQuery) getQueryForFilter.invoke(adapter, filter, List.of(1L), List.of(2L));
+
+        assertSame(built.getSql(), cached.getSql());
+        assertEquals(List.of(1L, 2L, 3L, 4L, "foo* bar*"), collectArgs(built));
+        assertEquals(collectArgs(built), collectArgs(cached));
+
+        label.setLocalId(5L);
+        final var otherValues = (SimpleSQLiteQuery) getQueryForFilter.invoke(adapter, filter, List.of(6L), List.of(7L));
+        assertSame(built.getSql(), otherValues.getSql());
+        assertEquals(List.of(6L, 7L, 5L, 4L, "foo* bar*"), collectArgs(otherValues));
+    }
+
+    private static List<Object> collectArgs(SimpleSQLiteQuery query) {
+        final List<Object> args = new ArrayList<>();
+        query.bindTo(new SupportSQLiteProgram() {
+            @Override
+            public void bindNull(int index) {
+                args.add(null);
+            }
+
+            @Override
+            public void bindLong(int index, long value) {
+                args.add(value);
+            }
+
+            @Override
+            public void bindDouble(int index, double value) {
+                args.add(value);
+            }
+
+            @Override
+            public void bindString(int index, String value) {
+                args.add(value);
+            }
+
+            @Override
+            public void bindBlob(int index, byte[] value) {
+                args.add(value);
+            }
+
+            @Override
+            public void clearBindings() {
+                args.clear();
+            }
+
+            @Override
+            public void close() {
+                // Nothing to release
+            }
+        });
+        return args;
+    }
+
+    @Test
+    public void testFilterRelationsForCards() throws NoSuchMethodException, InvocationTargetException, IllegalAccessException {
+        final var account = createAccount(db.getAccountDao());
+        final var user = createUser(db.getUserDao(), account);
+        final var otherUser = createUser(db.getUserDao(), account);
+        final var board = createBoard(db.getBoardDao(), account, user);
+        final var stack = createStack(db.getStackDao(), account, board);
+        final var card = createCard(db.getCardDao(), account, stack);
+        final var otherCard = createCard(db.getCardDao(), account, stack);
+
+        final var labelB = createLabel(db.getLabelDao(), account, board, "B", DBStatus.UP_TO_DATE);
+        final var labelA = createLabel(db.getLabelDao(), account, board, "A", DBStatus.UP_TO_DATE);
+        final var deletedLabel = createLabel(db.getLabelDao(), account, board, "C", DBStatus.LOCAL_DELETED);
+        final var labelWithDeletedJoin = createLabel(db.getLabelDao(), account, board, "D", DBStatus.UP_TO_DATE);
+
+        joinLabel(db.getJoinCardWithLabelDao(), card, labelB, DBStatus.UP_TO_DATE);
+        joinLabel(db.getJoinCardWithLabelDao(), card, labelA, DBStatus.LOCAL_EDITED);
+        joinLabel(db.getJoinCardWithLabelDao(), card, deletedLabel, DBStatus.UP_TO_DATE);
+        joinLabel(db.getJoinCardWithLabelDao(), card, labelWithDeletedJoin, DBStatus.LOCAL_DELETED);
+        joinLabel(db.getJoinCardWithLabelDao(), otherCard, labelA, DBStatus.LOCAL_DELETED);
+
+        joinUser(db.getJoinCardWithUserDao(), card, user, DBStatus.LOCAL_DELETED);
+        joinUser(db.getJoinCardWithUserDao(), card, otherUser, DBStatus.UP_TO_DATE);
+        joinUser(db.getJoinCardWithUserDao(), otherCard, user, DBStatus.UP_TO_DATE);
+
+        final var fullCards = db.getCardDao().getFullCardsForStackDirectly(account.getId(), stack.getLocalId());
+        final var filterRelationsForCard = DataBaseAdapter.class.getDeclaredMethod("filterRelationsForCard", Collection.class);
+        filterRelationsForCard.setAccessible(true);
+        filterRelationsForCard.invoke(adapter, fullCards);
+
+        final var fullCard = fullCards.stream().filter(c -> c.getLocalId().equals(card.getLocalId())).findAny().orElseThrow();
+        final var otherFullCard = fullCards.stream().filter(c -> c.getLocalId().equals(otherCard.getLocalId())).findAny().orElseThrow();
+
+        assertEquals(List.of(labelA.getLocalId(), labelB.getLocalId()), fullCard.getLabels().stream().map(Label::getLocalId).collect(Collectors.toList()));
+        assertEquals(List.of(otherUser.getLocalId()), fullCard.getAssignedUsers().stream().map(User::getLocalId).collect(Collectors.toList()));
+        assertEquals(List.of(), otherFullCard.getLabels());
+        assertEquals(List.of(user.getLocalId()), otherFullCard.getAssignedUsers().stream().map(User::getLocalId).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testGetCardListItemsForStack() throws NoSuchMethodException, InvocationTargetException, IllegalAccessException {
+        final var account = createAccount(db.getAccountDao());
+        final var user = createUser(db.getUserDao(), account);
+        final var otherUser = createUser(db.getUserDao(), account);
+        final var board = createBoard(db.getBoardDao(), account, user);
+        final var stack = createStack(db.getStackDao(), account, board);
+        final var card = createCard(db.getCardDao(), account, stack);
+        final var otherCard = createCard(db.getCardDao(), account, stack);
+        card.setUserId(user.getLocalId());
+        db.getCardDao().update(card);
+
+        final var labelB = createLabel(db.getLabelDao(), account, board, "B", DBStatus.UP_TO_DATE);
+        final var labelA = createLabel(db.getLabelDao(), account, board, "A", DBStatus.UP_TO_DATE);
+        final var deletedLabel = createLabel(db.getLabelDao(), account, board, "C", DBStatus.LOCAL_DELETED);
+        joinLabel(db.getJoinCardWithLabelDao(), card, labelB, DBStatus.UP_TO_DATE);
+        joinLabel(db.getJoinCardWithLabelDao(), card, labelA, DBStatus.UP_TO_DATE);
+        joinLabel(db.getJoinCardWithLabelDao(), card, deletedLabel, DBStatus.UP_TO_DATE);
+        joinUser(db.getJoinCardWithUserDao(), card, user, DBStatus.LOCAL_DELETED);
+        joinUser(db.getJoinCardWithUserDao(), card, otherUser, DBStatus.UP_TO_DATE);
+
+        for (int i = 0; i < 5; i++) {
+            createAttachment(card, "image/png", DBStatus.UP_TO_DATE);
+        }
+        createAttachment(card, "application/pdf", DBStatus.UP_TO_DATE);
+        createAttachment(card, "image/png", DBStatus.LOCAL_DELETED);
+        createComment(card);
+        createComment(card);
+
+        final var items = db.getCardDao().getCardListItemsDirectly(new SimpleSQLiteQuery(CardListItem.SELECT + " WHERE c.stackId = ?", new Object[]{stack.getLocalId()}));
+        assertEquals(2, items.size());
+        final var item = items.stream().filter(i -> i.card.getLocalId().equals(card.getLocalId())).findAny().orElseThrow();
+        final var otherItem = items.stream().filter(i -> i.card.getLocalId().equals(otherCard.getLocalId())).findAny().orElseThrow();
+        assertEquals(6, item.attachmentCount);
+        assertEquals(2, item.commentCount);
+        assertEquals(Set.of(labelA.getLocalId(), labelB.getLocalId()), new HashSet<>(item.getLabelIds()));
+        assertEquals(List.of(otherUser.getLocalId()), item.getAssignedUserIds());
+        assertEquals(0, otherItem.attachmentCount);
+        assertEquals(0, otherItem.commentCount);
+        assertEquals(List.of(), otherItem.getLabelIds());
+        assertEquals(List.of(), otherItem.getAssignedUserIds());
+
+        final var toFullCards = DataBaseAdapter.class.getDeclaredMethod("toFullCards", List.class);
+        toFullCards.setAccessible(true);
+        @SuppressWarnings("unchecked") final var fullCards = (List<FullCard>) toFullCards.invoke(adapter, items);
+        assertEquals(2, fullCards.size());
+        final var fullCard = fullCards.stream().filter(c -> c.getLocalId().equals(card.getLocalId())).findAny().orElseThrow();
+        assertEquals(List.of(labelA.getLocalId(), labelB.getLocalId()), fullCard.getLabels().stream().map(Label::getLocalId).collect(Collectors.toList()));
+        assertEquals(List.of(otherUser.getLocalId()), fullCard.getAssignedUsers().stream().map(User::getLocalId).collect(Collectors.toList()));
+        assertEquals(user.getLocalId(), fullCard.getOwner().get(0).getLocalId());
+        assertEquals(ApplicationProvider.getApplicationContext().getResources().getInteger(R.integer.max_cover_images), fullCard.getAttachments().size());
+        assertTrue(fullCard.getAttachments().stream().allMatch(attachment -> "image/png".equals(attachment.getMimetype())));
+        assertEquals(6, fullCard.getAttachmentCount());
+        assertEquals(2, fullCard.getCommentCount());
+    }
+
+    @Test
+    public void testPerformMaintenance() {
+        final var account = createAccount(db.getAccountDao());
+        final var board = createBoard(db.getBoardDao(), account, createUser(db.getUserDao(), account));
+        final var stack = createStack(db.getStackDao(), account, board);
+        final var longAgo = Instant.now().minus(Duration.ofDays(30));
+
+        final var remoteTombstone = createCard(db.getCardDao(), account, stack);
+        remoteTombstone.setStatusEnum(DBStatus.LOCAL_DELETED);
+        remoteTombstone.setLastModifiedLocal(longAgo);
+        db.getCardDao().update(remoteTombstone);
+
+        final var localTombstone = createCard(db.getCardDao(), account, stack);
+        localTombstone.setId(null);
+        localTombstone.setStatusEnum(DBStatus.LOCAL_DELETED);
+        localTombstone.setLastModifiedLocal(longAgo);
+        db.getCardDao().update(localTombstone);
+        createComment(localTombstone);
+
+        final var recentLocalTombstone = createCard(db.getCardDao(), account, stack);
+        recentLocalTombstone.setId(null);
+        recentLocalTombstone.setStatusEnum(DBStatus.LOCAL_DELETED);
+        recentLocalTombstone.setLastModifiedLocal(Instant.now());
+        db.getCardDao().update(recentLocalTombstone);
+
+        final var card = createCard(db.getCardDao(), account, stack);
+        final var oldActivity = new Activity();
+        oldActivity.setAccountId(account.getId());
+        oldActivity.setCardId(card.getLocalId());
+        oldActivity.setLastModified(longAgo);
+        db.getActivityDao().insert(oldActivity);
+        final var recentActivity = new Activity();
+        recentActivity.setAccountId(account.getId());
+        recentActivity.setCardId(card.getLocalId());
+        recentActivity.setLastModified(Instant.now());
+        db.getActivityDao().insert(recentActivity);
+
+        adapter.performMaintenanceDirectly(Instant.now().minus(Duration.ofDays(7)), Instant.now().minus(Duration.ofDays(7)));
+
+        assertNotNull(db.getCardDao().getCardByLocalIdDirectly(account.getId(), remoteTombstone.getLocalId()));
+        assertNull(db.getCardDao().getCardByLocalIdDirectly(account.getId(), localTombstone.getLocalId()));
+        assertNotNull(db.getCardDao().getCardByLocalIdDirectly(account.getId(), recentLocalTombstone.getLocalId()));
+        assertNotNull(db.getCardDao().getCardByLocalIdDirectly(account.getId(), card.getLocalId()));
+        assertEquals(1, TestUtil.getOrAwaitValue(db.getActivityDao().getActivitiesForCard(card.getLocalId())).size());
+    }
+
+    @Test
+    public void testETags() {
+        final var account = createAccount(db.getAccountDao());
+        final var otherAccount = createAccount(db.getAccountDao());
+
+        assertNull(adapter.getETagDirectly(account.getId(), EETagType.CARD, 1L));
+        assertTrue(adapter.getETagsDirectly(account.getId(), EETagType.CARD, List.of(1L, 2L)).isEmpty());
+
+        adapter.setETags(account.getId(), EETagType.CARD, Map.of(1L, "\"a\"", 2L, "\"b\""));
+        adapter.setETags(account.getId(), EETagType.STACKS_OF_BOARD, Map.of(1L, "\"stacks\""));
+        adapter.setETags(otherAccount.getId(), EETagType.CARD, Map.of(1L, "\"other\""));
+
+        assertEquals("\"a\"", adapter.getETagDirectly(account.getId(), EETagType.CARD, 1L));
+        assertEquals("\"stacks\"", adapter.getETagDirectly(account.getId(), EETagType.STACKS_OF_BOARD, 1L));
+        assertEquals("\"other\"", adapter.getETagDirectly(otherAccount.getId(), EETagType.CARD, 1L));
+        assertEquals(Map.of(1L, "\"a\"", 2L, "\"b\""), adapter.getETagsDirectly(account.getId(), EETagType.CARD, List.of(1L, 2L, 3L)));
+
+        // Stored again after the next successful sync
+        adapter.setETags(account.getId(), EETagType.CARD, Map.of(1L, "\"c\""));
+        assertEquals(Map.of(1L, "\"c\"", 2L, "\"b\""), adapter.getETagsDirectly(account.getId(), EETagType.CARD, List.of(1L, 2L)));
+
+        // ETags must not survive the account
+        db.getAccountDao().delete(otherAccount);
+        assertNull(adapter.getETagDirectly(otherAccount.getId(), EETagType.CARD, 1L));
+    }
+
+    private void createAttachment(Card card, String mimetype, DBStatus status) {
+        final var attachment = new Attachment();
+        attachment.setAccountId(card.getAccountId());
+        attachment.setCardId(card.getLocalId());
+        attachment.setMimetype(mimetype);
+        attachment.setStatusEnum(status);
+        attachment.setCreatedAt(Instant.now());
+        db.getAttachmentDao().insert(attachment);
+    }
+
+    private void createComment(Card card) {
+        final var comment = new DeckComment();
+        comment.setAccountId(card.getAccountId());
+        comment.setObjectId(card.getLocalId());
+        comment.setMessage("Foo");
+        db.getCommentDao().insert(comment);
+    }
+
+    private List<Long> filterCardIds(long accountId, long localStackId, FilterInformation filter) {
+        return adapter.getFullCardsForStackDirectly(accountId, localStackId, filter)
+                .stream()
+                .map(fullCard -> fullCard.getCard().getLocalId())
+                .collect(Collectors.toList());
+    }
+
 }
@@ -7,11 +7,18 @@ import java.util.Random;
 import it.niedermann.nextcloud.deck.model.Account;
 import it.niedermann.nextcloud.deck.model.Board;
 import it.niedermann.nextcloud.deck.model.Card;
+import it.niedermann.nextcloud.deck.model.JoinCardWithLabel;
+import it.niedermann.nextcloud.deck.model.JoinCardWithUser;
+import it.niedermann.nextcloud.deck.model.Label;
 import it.niedermann.nextcloud.deck.model.Stack;
 import it.niedermann.nextcloud.deck.model.User;
+import it.niedermann.nextcloud.deck.model.enums.DBStatus;
 import it.niedermann.nextcloud.deck.persistence.sync.adapters.db.dao.AccountDao;
 import it.niedermann.nextcloud.deck.persistence.sync.adapters.db.dao.BoardDao;
 import it.niedermann.nextcloud.deck.persistence.sync.adapters.db.dao.CardDao;
+import it.niedermann.nextcloud.deck.persistence.sync.adapters.db.dao.JoinCardWithLabelDao;
+import it.niedermann.nextcloud.deck.persistence.sync.adapters.db.dao.JoinCardWithUserDao;
+import it.niedermann.nextcloud.deck.persistence.sync.adapters.db.dao.LabelDao;
 import it.niedermann.nextcloud.deck.persistence.sync.adapters.db.dao.StackDao;
 import it.niedermann.nextcloud.deck.persistence.sync.adapters.db.dao.UserDao;
 
@@ -73,6 +80,33 @@ public class DeckDatabaseTestUtil {
         return dao.getCardByLocalIdDirectly(account.getId(), id);
     }
 
+    public static Label createLabel(@NonNull LabelDao dao, @NonNull Account account, @NonNull Board board, @NonNull String title, @NonNull DBStatus status) {
+        final var labelToCreate = new Label();
+        labelToCreate.setAccountId(account.getId());
+        labelToCreate.setBoardId(board.getLocalId());
+        labelToCreate.setTitle(title);
+        labelToCreate.setColor(0);
+        labelToCreate.setStatusEnum(status);
+        labelToCreate.setLocalId(dao.insert(labelToCreate));
+        return labelToCreate;
+    }
+
+    public static void joinLabel(@NonNull JoinCardWithLabelDao dao, @NonNull Card card, @NonNull Label label, @NonNull DBStatus status) {
+        final var join = new JoinCardWithLabel();
+        join.setCardId(card.getLocalId());
+        join.setLabelId(label.getLocalId());
+        join.setStatus(status.getId());
+        dao.insert(join);
+    }
+
+    public static void joinUser(@NonNull JoinCardWithUserDao dao, @NonNull Card card, @NonNull User user, @NonNull DBStatus status) {
+        final var join = new JoinCardWithUser();
+        join.setCardId(card.getLocalId());
+        join.setUserId(user.getLocalId());
+        join.setStatus(status.getId());
+        dao.insert(join);
+    }
+
     private static String randomString(int length) {
         final int leftLimit = 48; // numeral '0'
         final int rightLimit = 122; // letter 'z'
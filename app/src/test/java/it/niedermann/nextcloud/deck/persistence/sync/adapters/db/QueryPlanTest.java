@@ -0,0 +1,243 @@
+package it.niedermann.nextcloud.deck.persistence.sync.adapters.db;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+import android.content.Context;
+import android.database.Cursor;
+
+import androidx.annotation.NonNull;
+import androidx.arch.core.executor.testing.InstantTaskExecutorRule;
+import androidx.room.Room;
+import androidx.sqlite.db.SimpleSQLiteQuery;
+import androidx.sqlite.db.SupportSQLiteProgram;
+import androidx.sqlite.db.SupportSQLiteQuery;
+import androidx.sqlite.db.framework.FrameworkSQLiteOpenHelperFactory;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.google.common.util.concurrent.MoreExecutors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+import it.niedermann.nextcloud.deck.TestUtil;
+import it.niedermann.nextcloud.deck.model.Label;
+import it.niedermann.nextcloud.deck.model.User;
+import it.niedermann.nextcloud.deck.model.enums.ECounterType;
+import it.niedermann.nextcloud.deck.model.enums.EDueType;
+import it.niedermann.nextcloud.deck.model.full.CardListItem;
+import it.niedermann.nextcloud.deck.model.internal.FilterInformation;
+import it.niedermann.nextcloud.deck.persistence.sync.adapters.db.util.InstrumentedOpenHelperFactory;
+import it.niedermann.nextcloud.deck.persistence.sync.adapters.db.util.QueryStatistics;
+
+/**
+ * Runs <code>EXPLAIN QUERY PLAN</code> for the hot queries of the card list, the filter and the upward synchronization and fails if one of them needs to scan a whole table or to sort the result in a temporary B-tree.
+ * <p>
+ * The queries are captured while calling the DAO methods, so the plans always match the SQL the app actually executes.
+ * Queries which are only selected by <code>status &lt;&gt; 1</code> over a whole join table (like <code>JoinCardWithLabelDao#getAllChangedJoins()</code>) are not listed here on purpose, since inequality constraints can not make use of any index.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class QueryPlanTest {
+
+    private static final Pattern FULL_SCAN = Pattern.compile("^SCAN (TABLE )?(?!SUBQUERY)\\w+(?!.* VIRTUAL TABLE INDEX ).*");
+    private static final Pattern TEMP_B_TREE = Pattern.compile(".*USE TEMP B-TREE.*");
+    /**
+     * Only the statements of the DAO itself, not the bookkeeping of Room's invalidation tracker
+     */
+    private static final Pattern DAO_STATEMENT = Pattern.compile("^\\s*(SELECT|UPDATE|DELETE)\\b(?!.*room_table_modification_log).*", Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+    @Rule
+    public InstantTaskExecutorRule instantTaskExecutorRule = new InstantTaskExecutorRule();
+
+    private final List<SimpleSQLiteQuery> executedQueries = new ArrayList<>();
+    private DeckDatabase db;
+    private DataBaseAdapter adapter;
+
+    @Before
+    public void createAdapter() throws NoSuchMethodException, IllegalAccessException, InvocationTargetException, InstantiationException {
+        final var statistics = new QueryStatistics(Long.MAX_VALUE) {
+            @Override
+            public void record(@NonNull String sql, @NonNull Supplier<Object[]> bindArgs, long durationNanos, int rows) {
+                if (DAO_STATEMENT.matcher(sql).matches()) {
+                    synchronized (executedQueries) {
+                        executedQueries.add(new SimpleSQLiteQuery(sql, bindArgs.get()));
+                    }
+                }
+            }
+        };
+        db = Room
+                .inMemoryDatabaseBuilder(ApplicationProvider.getApplicationContext(), DeckDatabase.class)
+                .openHelperFactory(new InstrumentedOpenHelperFactory(new FrameworkSQLiteOpenHelperFactory(), statistics))
+                .allowMainThreadQueries()
+                .addCallback(CounterTriggers.CALLBACK)
+                .build();
+        final var constructor = DataBaseAdapter.class.getDeclaredConstructor(Context.class, DeckDatabase.class, ExecutorService.class);
+        constructor.setAccessible(true);
+        adapter = constructor.newInstance(ApplicationProvider.getApplicationContext(), db, MoreExecutors.newDirectExecutorService());
+    }
+
+    @After
+    public void closeDb() {
+        db.close();
+    }
+
+    @Test
+    public void testCardDaoQueries() throws InterruptedException {
+        final var dao = db.getCardDao();
+        assertIndexed(() -> TestUtil.getOrAwaitValue(dao.getCardsForStack(1L)));
+        assertIndexed(() -> dao.getCardByLocalIdDirectly(1L, 1L));
+        assertIndexed(() -> dao.getCardByRemoteIdDirectly(1L, 1L));
+        assertIndexed(() -> dao.getFullCardsForStackDirectly(1L, 1L));
+        assertIndexed(() -> dao.getLocallyChangedCardsDirectly(1L));
+        assertIndexed(() -> dao.getLocallyChangedCardsByLocalStackIdDirectly(1L, 1L));
+        assertIndexed(() -> dao.getCardsWithLocallyChangedCommentsForStackDirectly(1L));
+        assertIndexed(() -> dao.getHighestOrderInStack(1L));
+        assertIndexed(() -> dao.getSyncStatesByRemoteIdsDirectly(1L, List.of(1L, 2L)));
+        assertIndexed(() -> dao.getSyncStatesForStackDirectly(1L, 1L));
+        assertIndexed(() -> db.getAttachmentDao().getImageAttachmentsForLocalCardIdsDirectly(List.of(1L, 2L)));
+    }
+
+    @Test
+    public void testStackDaoQueries() throws InterruptedException {
+        final var dao = db.getStackDao();
+        assertIndexed(() -> TestUtil.getOrAwaitValue(dao.getStacksForBoard(1L, 1L)));
+        assertIndexed(() -> dao.getFullStackByRemoteIdDirectly(1L, 1L, 1L));
+        assertIndexed(() -> dao.getLocallyChangedStacksForBoardDirectly(1L, 1L));
+        assertIndexed(() -> dao.getLocalStackIdByRemoteStackIdDirectly(1L, 1L));
+        assertIndexed(() -> dao.getHighestStackOrderInBoard(1L));
+        assertIndexed(() -> dao.getSyncStatesByRemoteIdsDirectly(1L, 1L, List.of(1L, 2L)));
+    }
+
+    @Test
+    public void testJoinCardWithLabelDaoQueries() throws InterruptedException {
+        final var dao = db.getJoinCardWithLabelDao();
+        assertIndexed(() -> dao.deleteByCardId(1L));
+        assertIndexed(() -> dao.getJoin(1L, 1L));
+        assertIndexed(() -> dao.getAllChangedJoinsForStack(1L));
+    }
+
+    @Test
+    public void testJoinCardWithUserDaoQueries() throws InterruptedException {
+        final var dao = db.getJoinCardWithUserDao();
+        assertIndexed(() -> dao.deleteByCardId(1L));
+        assertIndexed(() -> dao.getJoin(1L, 1L));
+        assertIndexed(() -> dao.getChangedJoinsWithRemoteIDsForStack(1L));
+    }
+
+    @Test
+    public void testCounterDaoQueries() throws InterruptedException {
+        assertIndexed(() -> db.getCounterDao().getCountDirectly(ECounterType.CARDS_IN_STACK, 1L));
+    }
+
+    @Test
+    public void testFilterQueries() throws NoSuchMethodException, InvocationTargetException, IllegalAccessException {
+        final var getQueryForFilter = DataBaseAdapter.class.getDeclaredMethod("getQueryForFilter", FilterInformation.class, long.class, long.class);
+        getQueryForFilter.setAccessible(true);
+
+        final var label = new Label();
+        label.setLocalId(1L);
+        final var user = new User();
+        user.setLocalId(1L);
+
+        final List<FilterInformation> filters = new ArrayList<>();
+        filters.add(new FilterInformation());
+
+        final var allArchiveStates = new FilterInformation();
+        allArchiveStates.setArchiveStatus(FilterInformation.EArchiveStatus.ALL);
+        filters.add(allArchiveStates);
+
+        final var labelsAndUsers = new FilterInformation();
+        labelsAndUsers.setLabels(Collections.singletonList(label));
+        labelsAndUsers.setUsers(Collections.singletonList(user));
+        labelsAndUsers.setNoAssignedUser(true);
+        filters.add(labelsAndUsers);
+
+        final var unassigned = new FilterInformation();
+        unassigned.setNoAssignedLabel(true);
+        unassigned.setNoAssignedUser(true);
+        unassigned.setNoAssignedProject(true);
+        filters.add(unassigned);
+
+        final var overdueWithText = new FilterInformation();
+        overdueWithText.setDueType(EDueType.OVERDUE);
+        overdueWithText.setFilterText("foo");
+        filters.add(overdueWithText);
+
+        final var getListItemQueryForFilter = DataBaseAdapter.class.getDeclaredMethod("getQueryForFilter", String.class, FilterInformation.class, List.class, List.class);
+        getListItemQueryForFilter.setAccessible(true);
+
+        for (FilterInformation filter : filters) {
+            assertIndexed((SimpleSQLiteQuery) getQueryForFilter.invoke(adapter, filter, 1L, 1L));
+            assertIndexed((SimpleSQLiteQuery) getListItemQueryForFilter.invoke(adapter, CardListItem.SELECT, filter, List.of(1L), List.of(1L)));
+        }
+    }
+
+    /**
+     * Asserts the plan of the first statement executed by the given DAO call. Following ones are executed by Room to fetch relations.
+     */
+    private void assertIndexed(@NonNull DaoCall daoCall) throws InterruptedException {
+        final SimpleSQLiteQuery query;
+        synchronized (executedQueries) {
+            executedQueries.clear();
+        }
+        daoCall.call();
+        synchronized (executedQueries) {
+            assertFalse("No statement has been executed", executedQueries.isEmpty());
+            query = executedQueries.get(0);
+        }
+        assertIndexed(query);
+    }
+
+    private void assertIndexed(@NonNull SupportSQLiteQuery query) {
+        final var plan = explain(query);
+        assertFalse("Empty query plan for " + query.getSql(), plan.isEmpty());
+        for (String detail : plan) {
+            if (FULL_SCAN.matcher(detail).matches() || TEMP_B_TREE.matcher(detail).matches()) {
+                fail("\"" + detail + "\" in query plan " + plan + " for " + query.getSql());
+            }
+        }
+    }
+
+    @NonNull
+    private List<String> explain(@NonNull SupportSQLiteQuery query) {
+        final List<String> plan = new ArrayList<>();
+        try (Cursor cursor = db.getOpenHelper().getReadableDatabase().query(new SupportSQLiteQuery() {
+            @Override
+            public String getSql() {
+                return "EXPLAIN QUERY PLAN " + query.getSql();
+            }
+
+            @Override
+            public void bindTo(SupportSQLiteProgram statement) {
+                query.bindTo(statement);
+            }
+
+            @Override
+            public int getArgCount() {
+                return query.getArgCount();
+            }
+        })) {
+            final int detailIndex = cursor.getColumnIndexOrThrow("detail");
+            while (cursor.moveToNext()) {
+                plan.add(cursor.getString(detailIndex));
+            }
+        }
+        return plan;
+    }
+
+    private interface DaoCall {
+        void call() throws InterruptedException;
+    }
+}
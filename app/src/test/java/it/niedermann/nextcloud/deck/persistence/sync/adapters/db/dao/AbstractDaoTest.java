@@ -10,6 +10,7 @@ import org.junit.Rule;
 import org.junit.runner.RunWith;
 import org.robolectric.RobolectricTestRunner;
 
+import it.niedermann.nextcloud.deck.persistence.sync.adapters.db.CounterTriggers;
 import it.niedermann.nextcloud.deck.persistence.sync.adapters.db.DeckDatabase;
 
 @RunWith(RobolectricTestRunner.class)
@@ -25,6 +26,7 @@ public abstract class AbstractDaoTest {
         db = Room
                 .inMemoryDatabaseBuilder(ApplicationProvider.getApplicationContext(), DeckDatabase.class)
                 .allowMainThreadQueries()
+                .addCallback(CounterTriggers.CALLBACK)
                 .build();
     }
 
@@ -0,0 +1,141 @@
+package it.niedermann.nextcloud.deck.persistence.sync.adapters.db.dao;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.time.Instant;
+import java.util.Collections;
+
+import it.niedermann.nextcloud.deck.model.Account;
+import it.niedermann.nextcloud.deck.model.JoinCardWithUser;
+import it.niedermann.nextcloud.deck.model.Stack;
+import it.niedermann.nextcloud.deck.model.enums.DBStatus;
+import it.niedermann.nextcloud.deck.model.enums.EOutboxEntityType;
+import it.niedermann.nextcloud.deck.model.enums.EOutboxOperation;
+import it.niedermann.nextcloud.deck.model.internal.OutboxEntry;
+import it.niedermann.nextcloud.deck.persistence.sync.adapters.db.DeckDatabaseTestUtil;
+
+@RunWith(RobolectricTestRunner.class)
+public class OutboxEntryDaoTest extends AbstractDaoTest {
+
+    private Account account;
+    private Stack stack;
+
+    @Before
+    public void setupAccount() {
+        account = DeckDatabaseTestUtil.createAccount(db.getAccountDao());
+        final var user = DeckDatabaseTestUtil.createUser(db.getUserDao(), account);
+        final var board = DeckDatabaseTestUtil.createBoard(db.getBoardDao(), account, user);
+        stack = DeckDatabaseTestUtil.createStack(db.getStackDao(), account, board);
+    }
+
+    @Test
+    public void testPendingEntries() {
+        final var editedCard = DeckDatabaseTestUtil.createCard(db.getCardDao(), account, stack);
+        final var settledCard = DeckDatabaseTestUtil.createCard(db.getCardDao(), account, stack);
+        editedCard.setStatusEnum(DBStatus.LOCAL_EDITED);
+        db.getCardDao().update(editedCard);
+
+        assertFalse(db.getOutboxEntryDao().hasPendingEntriesDirectly(account.getId()));
+
+        final long editedEntryId = db.getOutboxEntryDao().insert(new OutboxEntry(account.getId(), EOutboxEntityType.CARD, editedCard.getLocalId(), EOutboxOperation.UPDATE, Instant.now()));
+        db.getOutboxEntryDao().insert(new OutboxEntry(account.getId(), EOutboxEntityType.CARD, settledCard.getLocalId(), EOutboxOperation.UPDATE, Instant.now()));
+        db.getOutboxEntryDao().insert(new OutboxEntry(account.getId(), EOutboxEntityType.BOARD, 4711L, EOutboxOperation.DELETE, Instant.now()));
+
+        assertTrue(db.getOutboxEntryDao().hasPendingEntriesDirectly(account.getId()));
+        assertEquals(Collections.singletonList(account.getId()), db.getOutboxEntryDao().getAccountIdsWithEntriesDirectly());
+
+        assertEquals(editedEntryId, db.getOutboxEntryDao().getNextPendingEntryDirectly(account.getId(), 0L).getId());
+        assertNull(db.getOutboxEntryDao().getNextPendingEntryDirectly(account.getId(), editedEntryId));
+
+        assertEquals(2, db.getOutboxEntryDao().deleteSettledEntriesDirectly(account.getId()));
+        assertEquals(editedEntryId, db.getOutboxEntryDao().getNextPendingEntryDirectly(account.getId(), 0L).getId());
+
+        editedCard.setStatusEnum(DBStatus.UP_TO_DATE);
+        db.getCardDao().update(editedCard);
+
+        assertFalse(db.getOutboxEntryDao().hasPendingEntriesDirectly(account.getId()));
+        assertEquals(1, db.getOutboxEntryDao().deleteSettledEntriesDirectly(account.getId()));
+        assertTrue(db.getOutboxEntryDao().getAccountIdsWithEntriesDirectly().isEmpty());
+    }
+
+    @Test
+    public void testNextPendingEntryKeepsOrderAndCountsAttemptsPerEntry() {
+        final var firstCard = DeckDatabaseTestUtil.createCard(db.getCardDao(), account, stack);
+        final var secondCard = DeckDatabaseTestUtil.createCard(db.getCardDao(), account, stack);
+        firstCard.setStatusEnum(DBStatus.LOCAL_EDITED);
+        db.getCardDao().update(firstCard);
+        secondCard.setStatusEnum(DBStatus.LOCAL_EDITED);
+        db.getCardDao().update(secondCard);
+
+        final long secondEntryId = db.getOutboxEntryDao().insert(new OutboxEntry(account.getId(), EOutboxEntityType.CARD, secondCard.getLocalId(), EOutboxOperation.UPDATE, Instant.now()));
+        final long firstEntryId = db.getOutboxEntryDao().insert(new OutboxEntry(account.getId(), EOutboxEntityType.CARD, firstCard.getLocalId(), EOutboxOperation.UPDATE, Instant.now()));
+
+        final var next = db.getOutboxEntryDao().getNextPendingEntryDirectly(account.getId(), 0L);
+        assertEquals(secondEntryId, next.getId());
+        assertEquals(firstEntryId, db.getOutboxEntryDao().getNextPendingEntryDirectly(account.getId(), next.getId()).getId());
+
+        db.getOutboxEntryDao().incrementAttemptsDirectly(next.getId());
+        db.getOutboxEntryDao().incrementAttemptsDirectly(next.getId());
+
+        assertEquals(2, db.getOutboxEntryDao().getNextPendingEntryDirectly(account.getId(), 0L).getAttempts());
+        assertEquals(0, db.getOutboxEntryDao().getNextPendingEntryDirectly(account.getId(), secondEntryId).getAttempts());
+    }
+
+    @Test
+    public void testGivenUpEntriesAreSkipped() {
+        final var firstCard = DeckDatabaseTestUtil.createCard(db.getCardDao(), account, stack);
+        final var secondCard = DeckDatabaseTestUtil.createCard(db.getCardDao(), account, stack);
+        firstCard.setStatusEnum(DBStatus.LOCAL_EDITED);
+        db.getCardDao().update(firstCard);
+        secondCard.setStatusEnum(DBStatus.LOCAL_EDITED);
+        db.getCardDao().update(secondCard);
+
+        final long firstEntryId = db.getOutboxEntryDao().insert(new OutboxEntry(account.getId(), EOutboxEntityType.CARD, firstCard.getLocalId(), EOutboxOperation.UPDATE, Instant.now()));
+        final long secondEntryId = db.getOutboxEntryDao().insert(new OutboxEntry(account.getId(), EOutboxEntityType.CARD, secondCard.getLocalId(), EOutboxOperation.UPDATE, Instant.now()));
+        assertEquals(0, db.getOutboxEntryDao().countGivenUpEntriesDirectly(account.getId()));
+
+        db.getOutboxEntryDao().giveUpDirectly(firstEntryId);
+
+        assertEquals(secondEntryId, db.getOutboxEntryDao().getNextPendingEntryDirectly(account.getId(), 0L).getId());
+        assertEquals(1, db.getOutboxEntryDao().countGivenUpEntriesDirectly(account.getId()));
+
+        db.getOutboxEntryDao().giveUpDirectly(secondEntryId);
+
+        assertNull(db.getOutboxEntryDao().getNextPendingEntryDirectly(account.getId(), 0L));
+        assertFalse(db.getOutboxEntryDao().hasPendingEntriesDirectly(account.getId()));
+        assertEquals(2, db.getOutboxEntryDao().countGivenUpEntriesDirectly(account.getId()));
+
+        // Given up entries are removed as soon as a full synchronization uploaded their entities
+        firstCard.setStatusEnum(DBStatus.UP_TO_DATE);
+        db.getCardDao().update(firstCard);
+
+        assertEquals(1, db.getOutboxEntryDao().deleteSettledEntriesDirectly(account.getId()));
+        assertEquals(1, db.getOutboxEntryDao().countGivenUpEntriesDirectly(account.getId()));
+    }
+
+    @Test
+    public void testPendingJoins() {
+        final var card = DeckDatabaseTestUtil.createCard(db.getCardDao(), account, stack);
+        final var user = DeckDatabaseTestUtil.createUser(db.getUserDao(), account);
+        final var join = new JoinCardWithUser();
+        join.setCardId(card.getLocalId());
+        join.setUserId(user.getLocalId());
+        join.setStatusEnum(DBStatus.LOCAL_DELETED);
+        db.getJoinCardWithUserDao().insert(join);
+
+        final var entry = new OutboxEntry(account.getId(), EOutboxEntityType.CARD_USER, card.getLocalId(), user.getLocalId(), EOutboxOperation.DELETE, null, Instant.now());
+        db.getOutboxEntryDao().insert(entry);
+        assertTrue(db.getOutboxEntryDao().hasPendingEntriesDirectly(account.getId()));
+
+        db.getJoinCardWithUserDao().deleteByCardIdAndUserIdPhysically(card.getLocalId(), user.getLocalId());
+        assertFalse(db.getOutboxEntryDao().hasPendingEntriesDirectly(account.getId()));
+    }
+}
@@ -0,0 +1,84 @@
+package it.niedermann.nextcloud.deck.persistence.sync.adapters.db.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static it.niedermann.nextcloud.deck.persistence.sync.adapters.db.DeckDatabaseTestUtil.createAccount;
+import static it.niedermann.nextcloud.deck.persistence.sync.adapters.db.DeckDatabaseTestUtil.createBoard;
+import static it.niedermann.nextcloud.deck.persistence.sync.adapters.db.DeckDatabaseTestUtil.createCard;
+import static it.niedermann.nextcloud.deck.persistence.sync.adapters.db.DeckDatabaseTestUtil.createStack;
+import static it.niedermann.nextcloud.deck.persistence.sync.adapters.db.DeckDatabaseTestUtil.createUser;
+
+import androidx.annotation.NonNull;
+import androidx.room.Room;
+import androidx.sqlite.db.framework.FrameworkSQLiteOpenHelperFactory;
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import it.niedermann.nextcloud.deck.persistence.sync.adapters.db.CounterTriggers;
+import it.niedermann.nextcloud.deck.persistence.sync.adapters.db.DeckDatabase;
+
+@RunWith(RobolectricTestRunner.class)
+public class InstrumentedOpenHelperFactoryTest {
+
+    private QueryStatistics statistics;
+    private DeckDatabase db;
+
+    @Before
+    public void createDb() {
+        statistics = new QueryStatistics(Long.MAX_VALUE);
+        db = Room
+                .inMemoryDatabaseBuilder(ApplicationProvider.getApplicationContext(), DeckDatabase.class)
+                .allowMainThreadQueries()
+                .openHelperFactory(new InstrumentedOpenHelperFactory(new FrameworkSQLiteOpenHelperFactory(), statistics))
+                .addCallback(CounterTriggers.CALLBACK)
+                .build();
+    }
+
+    @After
+    public void closeDb() {
+        db.close();
+    }
+
+    @Test
+    public void testRecordsQueriesAndStatements() {
+        final var account = createAccount(db.getAccountDao());
+        final var board = createBoard(db.getBoardDao(), account, createUser(db.getUserDao(), account));
+        final var stack = createStack(db.getStackDao(), account, board);
+        final var card = createCard(db.getCardDao(), account, stack);
+        createCard(db.getCardDao(), account, stack);
+        statistics.reset();
+
+        db.getCardDao().getFullCardByLocalIdDirectly(account.getId(), card.getLocalId());
+        db.getCardDao().getFullCardByLocalIdDirectly(account.getId(), card.getLocalId());
+        final var select = findEntry("SELECT * FROM card WHERE accountId = ? and localId = ?");
+        assertEquals(2, select.getCount());
+        assertEquals(2, select.getRows());
+
+        card.setTitle("Foo");
+        db.getCardDao().update(card);
+        final var update = findEntry("`Card` SET");
+        assertEquals(1, update.getCount());
+        assertEquals(1, update.getRows());
+    }
+
+    @Test
+    public void testReport() {
+        createAccount(db.getAccountDao());
+        assertTrue(statistics.getReport().contains("INSERT"));
+    }
+
+    @NonNull
+    private QueryStatistics.Entry findEntry(@NonNull String sqlFragment) {
+        for (final var entry : statistics.getEntries()) {
+            if (entry.getSql().contains(sqlFragment)) {
+                return entry;
+            }
+        }
+        throw new AssertionError("No statement containing \"" + sqlFragment + "\" has been recorded in " + statistics.getEntries());
+    }
+}
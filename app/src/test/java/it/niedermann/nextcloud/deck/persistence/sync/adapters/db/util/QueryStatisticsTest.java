@@ -0,0 +1,77 @@
+package it.niedermann.nextcloud.deck.persistence.sync.adapters.db.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+public class QueryStatisticsTest {
+
+    private static final Object[] NO_ARGS = new Object[0];
+
+    @Test
+    public void testAggregation() {
+        final var statistics = new QueryStatistics(Long.MAX_VALUE);
+        for (int i = 1; i <= 100; i++) {
+            statistics.record("SELECT * FROM Card", () -> NO_ARGS, TimeUnit.MILLISECONDS.toNanos(i), 2);
+        }
+        statistics.record("DELETE FROM Card", () -> NO_ARGS, TimeUnit.MILLISECONDS.toNanos(1), 5);
+
+        final var entries = statistics.getEntries();
+        assertEquals(2, entries.size());
+
+        final var select = entries.get(0);
+        assertEquals("SELECT * FROM Card", select.getSql());
+        assertEquals(100, select.getCount());
+        assertEquals(200, select.getRows());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(5050), select.getTotalNanos());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(100), select.getMaxNanos());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(50), select.getPercentileNanos(50));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(95), select.getPercentileNanos(95));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(99), select.getPercentileNanos(99));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(1), select.getPercentileNanos(0));
+
+        final var delete = entries.get(1);
+        assertEquals(1, delete.getCount());
+        assertEquals(5, delete.getRows());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(1), delete.getPercentileNanos(99));
+
+        final String report = statistics.getReport();
+        assertTrue(report.startsWith("2 statements"));
+        assertTrue(report.indexOf("SELECT * FROM Card") < report.indexOf("DELETE FROM Card"));
+
+        statistics.reset();
+        assertTrue(statistics.getEntries().isEmpty());
+    }
+
+    @Test
+    public void testPercentilesUseMostRecentExecutions() {
+        final var statistics = new QueryStatistics(Long.MAX_VALUE);
+        for (int i = 0; i < QueryStatistics.SAMPLES_PER_STATEMENT; i++) {
+            statistics.record("SELECT 1", () -> NO_ARGS, 1_000, 1);
+        }
+        for (int i = 0; i < QueryStatistics.SAMPLES_PER_STATEMENT; i++) {
+            statistics.record("SELECT 1", () -> NO_ARGS, 2_000, 1);
+        }
+        final var entry = statistics.getEntries().get(0);
+        assertEquals(2L * QueryStatistics.SAMPLES_PER_STATEMENT, entry.getCount());
+        assertEquals(2_000, entry.getPercentileNanos(1));
+        assertEquals(2_000, entry.getMaxNanos());
+    }
+
+    @Test
+    public void testBindArgsOnlyEvaluatedForSlowQueries() {
+        final var statistics = new QueryStatistics(10);
+        statistics.record("SELECT ?", () -> {
+            throw new AssertionError("Bind arguments of fast queries must not be evaluated");
+        }, TimeUnit.MILLISECONDS.toNanos(9), 1);
+        final boolean[] evaluated = {false};
+        statistics.record("SELECT ?", () -> {
+            evaluated[0] = true;
+            return new Object[]{1};
+        }, TimeUnit.MILLISECONDS.toNanos(10), 1);
+        assertTrue(evaluated[0]);
+    }
+}
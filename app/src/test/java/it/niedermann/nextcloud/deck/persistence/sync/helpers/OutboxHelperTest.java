@@ -0,0 +1,265 @@
+package it.niedermann.nextcloud.deck.persistence.sync.helpers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import com.nextcloud.android.sso.exceptions.NextcloudHttpRequestFailedException;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.net.HttpURLConnection;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import it.niedermann.nextcloud.deck.api.ResponseCallback;
+import it.niedermann.nextcloud.deck.exceptions.ChangesNotUploadedException;
+import it.niedermann.nextcloud.deck.exceptions.OfflineException;
+import it.niedermann.nextcloud.deck.model.Account;
+import it.niedermann.nextcloud.deck.model.Board;
+import it.niedermann.nextcloud.deck.model.Card;
+import it.niedermann.nextcloud.deck.model.JoinCardWithLabel;
+import it.niedermann.nextcloud.deck.model.Label;
+import it.niedermann.nextcloud.deck.model.Stack;
+import it.niedermann.nextcloud.deck.model.enums.DBStatus;
+import it.niedermann.nextcloud.deck.model.enums.EOutboxEntityType;
+import it.niedermann.nextcloud.deck.model.enums.EOutboxOperation;
+import it.niedermann.nextcloud.deck.model.full.FullBoard;
+import it.niedermann.nextcloud.deck.model.full.FullCard;
+import it.niedermann.nextcloud.deck.model.full.FullStack;
+import it.niedermann.nextcloud.deck.model.internal.OutboxEntry;
+import it.niedermann.nextcloud.deck.persistence.sync.adapters.ServerAdapter;
+import it.niedermann.nextcloud.deck.persistence.sync.adapters.db.DataBaseAdapter;
+import it.niedermann.nextcloud.deck.persistence.sync.helpers.providers.BoardDataProvider;
+import it.niedermann.nextcloud.deck.persistence.sync.helpers.providers.CardDataProvider;
+
+@RunWith(RobolectricTestRunner.class)
+public class OutboxHelperTest {
+
+    private static final long ACCOUNT_ID = 1L;
+
+    private final ServerAdapter serverAdapter = mock(ServerAdapter.class);
+    private final DataBaseAdapter dataBaseAdapter = mock(DataBaseAdapter.class);
+    private final SyncHelper syncHelper = mock(SyncHelper.class);
+    private final List<ResponseCallback<Boolean>> entryCallbacks = new ArrayList<>();
+    private final List<Boolean> responses = new ArrayList<>();
+    private final List<Throwable> errors = new ArrayList<>();
+
+    private final FullBoard board = new FullBoard();
+    private final FullStack stack = new FullStack();
+    private final FullCard card = new FullCard();
+    private final OutboxEntry boardEntry = createEntry(1L, EOutboxEntityType.BOARD, 10L);
+    private final OutboxEntry cardEntry = createEntry(2L, EOutboxEntityType.CARD, 30L);
+
+    private OutboxHelper outboxHelper;
+
+    @Before
+    public void setup() {
+        when(syncHelper.setResponseCallback(any())).thenAnswer(invocation -> {
+            entryCallbacks.add(invocation.getArgument(0));
+            return syncHelper;
+        });
+        outboxHelper = new OutboxHelper(serverAdapter, dataBaseAdapter, MoreExecutors.newDirectExecutorService(), (s, d, lastSync) -> syncHelper);
+
+        final var boardEntity = new Board();
+        boardEntity.setLocalId(10L);
+        board.setBoard(boardEntity);
+        final var stackEntity = new Stack();
+        stackEntity.setLocalId(20L);
+        stackEntity.setBoardId(10L);
+        stack.setStack(stackEntity);
+        final var cardEntity = new Card();
+        cardEntity.setLocalId(30L);
+        cardEntity.setStackId(20L);
+        card.setCard(cardEntity);
+
+        when(dataBaseAdapter.getFullBoardByLocalIdDirectly(ACCOUNT_ID, 10L)).thenReturn(board);
+        when(dataBaseAdapter.getFullCardByLocalIdDirectly(ACCOUNT_ID, 30L)).thenReturn(card);
+        when(dataBaseAdapter.getFullStackByLocalIdDirectly(20L)).thenReturn(stack);
+        when(dataBaseAdapter.getBoardByLocalIdDirectly(10L)).thenReturn(boardEntity);
+        when(dataBaseAdapter.getNextPendingOutboxEntryDirectly(ACCOUNT_ID, 0L)).thenReturn(boardEntry);
+        when(dataBaseAdapter.getNextPendingOutboxEntryDirectly(ACCOUNT_ID, boardEntry.getId())).thenReturn(cardEntry);
+    }
+
+    @Test
+    public void testUploadsOnlyTheReferencedEntitiesInOrder() {
+        doAnswer(invocation -> {
+            entryCallbacks.get(entryCallbacks.size() - 1).onResponse(Boolean.TRUE);
+            return null;
+        }).when(syncHelper).doUpSyncWithoutGoingDeeperFor(any(), any());
+
+        drain();
+
+        final var inOrder = inOrder(syncHelper);
+        inOrder.verify(syncHelper).doUpSyncWithoutGoingDeeperFor(any(BoardDataProvider.class), eq(Collections.singletonList(board)));
+        inOrder.verify(syncHelper).doUpSyncWithoutGoingDeeperFor(any(CardDataProvider.class), eq(Collections.singletonList(card)));
+        verify(syncHelper, never()).doUpSyncFor(any());
+        verify(dataBaseAdapter, never()).getLocallyChangedBoards(anyLong());
+        verify(dataBaseAdapter, never()).getLocallyChangedCardsDirectly(anyLong());
+        verify(dataBaseAdapter, never()).incrementOutboxAttemptsDirectly(any());
+        assertEquals(Collections.singletonList(Boolean.TRUE), responses);
+        assertTrue(errors.isEmpty());
+    }
+
+    @Test
+    public void testStopsAtFirstFailingEntry() {
+        final var exception = new RuntimeException();
+        doAnswer(invocation -> {
+            entryCallbacks.get(entryCallbacks.size() - 1).onError(exception);
+            // Further results of the same entry must be ignored
+            entryCallbacks.get(entryCallbacks.size() - 1).onResponse(Boolean.TRUE);
+            return null;
+        }).when(syncHelper).doUpSyncWithoutGoingDeeperFor(any(), any());
+
+        drain();
+
+        verify(dataBaseAdapter).incrementOutboxAttemptsDirectly(boardEntry);
+        verify(dataBaseAdapter, never()).incrementOutboxAttemptsDirectly(cardEntry);
+        verify(dataBaseAdapter, never()).getNextPendingOutboxEntryDirectly(ACCOUNT_ID, boardEntry.getId());
+        verify(syncHelper, never()).doUpSyncWithoutGoingDeeperFor(any(CardDataProvider.class), any());
+        assertEquals(Collections.singletonList(exception), errors);
+        assertTrue(responses.isEmpty());
+    }
+
+    @Test
+    public void testCountsAttemptsOfEntriesWhichCanNotBeRead() {
+        when(dataBaseAdapter.getFullBoardByLocalIdDirectly(ACCOUNT_ID, 10L)).thenThrow(new IllegalStateException());
+
+        drain();
+
+        verify(dataBaseAdapter).incrementOutboxAttemptsDirectly(boardEntry);
+        assertEquals(1, errors.size());
+        assertTrue(errors.get(0) instanceof IllegalStateException);
+    }
+
+    @Test
+    public void testSkipsEntriesRejectedByTheServer() {
+        when(dataBaseAdapter.countGivenUpOutboxEntriesDirectly(ACCOUNT_ID)).thenReturn(1);
+        doAnswer(invocation -> {
+            final ResponseCallback<Boolean> entryCallback = entryCallbacks.get(entryCallbacks.size() - 1);
+            if (invocation.getArgument(0) instanceof BoardDataProvider) {
+                entryCallback.onError(new NextcloudHttpRequestFailedException(HttpURLConnection.HTTP_FORBIDDEN, new RuntimeException()));
+            } else {
+                entryCallback.onResponse(Boolean.TRUE);
+            }
+            return null;
+        }).when(syncHelper).doUpSyncWithoutGoingDeeperFor(any(), any());
+
+        drain();
+
+        verify(dataBaseAdapter).giveUpOutboxEntryDirectly(boardEntry);
+        verify(dataBaseAdapter, never()).incrementOutboxAttemptsDirectly(any());
+        verify(syncHelper).doUpSyncWithoutGoingDeeperFor(any(CardDataProvider.class), eq(Collections.singletonList(card)));
+        assertTrue(responses.isEmpty());
+        assertEquals(1, errors.size());
+        assertTrue(errors.get(0) instanceof ChangesNotUploadedException);
+    }
+
+    @Test
+    public void testGivesUpEntriesAfterMaxAttempts() {
+        boardEntry.setAttempts(OutboxEntry.MAX_ATTEMPTS - 1);
+        doAnswer(invocation -> {
+            final ResponseCallback<Boolean> entryCallback = entryCallbacks.get(entryCallbacks.size() - 1);
+            if (invocation.getArgument(0) instanceof BoardDataProvider) {
+                entryCallback.onError(new NextcloudHttpRequestFailedException(HttpURLConnection.HTTP_INTERNAL_ERROR, new RuntimeException()));
+            } else {
+                entryCallback.onResponse(Boolean.TRUE);
+            }
+            return null;
+        }).when(syncHelper).doUpSyncWithoutGoingDeeperFor(any(), any());
+
+        drain();
+
+        verify(dataBaseAdapter).giveUpOutboxEntryDirectly(boardEntry);
+        verify(syncHelper).doUpSyncWithoutGoingDeeperFor(any(CardDataProvider.class), eq(Collections.singletonList(card)));
+        assertEquals(Collections.singletonList(Boolean.TRUE), responses);
+    }
+
+    @Test
+    public void testDoesNotCountAttemptsWhileTheServerIsNotReachable() {
+        boardEntry.setAttempts(OutboxEntry.MAX_ATTEMPTS - 1);
+        doAnswer(invocation -> {
+            entryCallbacks.get(entryCallbacks.size() - 1).onError(new OfflineException());
+            return null;
+        }).when(syncHelper).doUpSyncWithoutGoingDeeperFor(any(), any());
+
+        drain();
+
+        verify(dataBaseAdapter, never()).incrementOutboxAttemptsDirectly(any());
+        verify(dataBaseAdapter, never()).giveUpOutboxEntryDirectly(any());
+        verify(syncHelper, never()).doUpSyncWithoutGoingDeeperFor(any(CardDataProvider.class), any());
+        assertEquals(1, errors.size());
+        assertTrue(errors.get(0) instanceof OfflineException);
+    }
+
+    @Test
+    public void testUploadsOnlyTheReferencedAssignment() {
+        final var labelEntry = new OutboxEntry(ACCOUNT_ID, EOutboxEntityType.CARD_LABEL, 30L, 40L, EOutboxOperation.CREATE, Instant.now(), Instant.now());
+        labelEntry.setId(3L);
+        when(dataBaseAdapter.getNextPendingOutboxEntryDirectly(ACCOUNT_ID, 0L)).thenReturn(labelEntry);
+        board.getBoard().setId(100L);
+        stack.getStack().setId(200L);
+        card.getCard().setId(300L);
+        when(dataBaseAdapter.getCardByLocalIdDirectly(ACCOUNT_ID, 30L)).thenReturn(card.getCard());
+        final var label = new Label();
+        label.setLocalId(40L);
+        label.setId(400L);
+        when(dataBaseAdapter.getLabelByLocalIdDirectly(40L)).thenReturn(label);
+        final var join = new JoinCardWithLabel();
+        join.setCardId(30L);
+        join.setLabelId(40L);
+        join.setStatusEnum(DBStatus.LOCAL_EDITED);
+        when(dataBaseAdapter.getJoinCardWithLabel(40L, 30L)).thenReturn(join);
+        final List<ResponseCallback<Void>> serverCallbacks = new ArrayList<>();
+        doAnswer(invocation -> serverCallbacks.add(invocation.getArgument(4)))
+                .when(serverAdapter).assignLabelToCard(eq(100L), eq(200L), eq(300L), eq(400L), any());
+
+        drain();
+
+        verify(dataBaseAdapter, never()).getAllChangedLabelJoinsForStack(anyLong());
+        verify(dataBaseAdapter, never()).getAllChangedUserJoinsWithRemoteIDsForStack(anyLong());
+        assertEquals(1, serverCallbacks.size());
+        // The entry must not be completed before the server responded
+        assertTrue(responses.isEmpty());
+
+        serverCallbacks.get(0).onResponse(null);
+
+        verify(dataBaseAdapter).setStatusForJoinCardWithLabel(30L, 40L, DBStatus.UP_TO_DATE.getId());
+        assertEquals(Collections.singletonList(Boolean.TRUE), responses);
+        assertTrue(errors.isEmpty());
+    }
+
+    private void drain() {
+        outboxHelper.drain(new ResponseCallback<>(new Account(ACCOUNT_ID)) {
+            @Override
+            public void onResponse(Boolean response) {
+                responses.add(response);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                errors.add(throwable);
+            }
+        });
+    }
+
+    private static OutboxEntry createEntry(long id, EOutboxEntityType type, long entityLocalId) {
+        final var entry = new OutboxEntry(ACCOUNT_ID, type, entityLocalId, EOutboxOperation.UPDATE, Instant.now());
+        entry.setId(id);
+        return entry;
+    }
+}
@@ -0,0 +1,287 @@
+package it.niedermann.nextcloud.deck.persistence.sync.helpers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import androidx.annotation.NonNull;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import it.niedermann.nextcloud.deck.api.ResponseCallback;
+import it.niedermann.nextcloud.deck.model.Account;
+import it.niedermann.nextcloud.deck.model.Board;
+import it.niedermann.nextcloud.deck.model.enums.DBStatus;
+import it.niedermann.nextcloud.deck.model.internal.EntitySyncState;
+import it.niedermann.nextcloud.deck.persistence.sync.adapters.ServerAdapter;
+import it.niedermann.nextcloud.deck.persistence.sync.adapters.db.DataBaseAdapter;
+import it.niedermann.nextcloud.deck.persistence.sync.helpers.providers.AbstractSyncDataProvider;
+
+@RunWith(RobolectricTestRunner.class)
+public class SyncHelperTest {
+
+    private final ServerAdapter serverAdapter = mock(ServerAdapter.class);
+    private final DataBaseAdapter dataBaseAdapter = mock(DataBaseAdapter.class);
+    private final List<String> events = new ArrayList<>();
+    private final List<Throwable> errors = new ArrayList<>();
+    private final List<Boolean> responses = new ArrayList<>();
+    private boolean inTransaction = false;
+
+    private SyncHelper syncHelper;
+
+    @Before
+    public void setup() {
+        when(serverAdapter.getMaxParallelBoardSyncs()).thenReturn(1);
+        doAnswer(invocation -> {
+            events.add("begin");
+            inTransaction = true;
+            try {
+                ((Runnable) invocation.getArgument(0)).run();
+            } finally {
+                inTransaction = false;
+                events.add("end");
+            }
+            return null;
+        }).when(dataBaseAdapter).runInTransaction(any());
+
+        final var account = new Account();
+        account.setId(1L);
+        syncHelper = new SyncHelper(serverAdapter, dataBaseAdapter, null)
+                .setResponseCallback(new ResponseCallback<>(account) {
+                    @Override
+                    public void onResponse(Boolean response) {
+                        responses.add(response);
+                    }
+
+                    @Override
+                    public void onError(Throwable throwable) {
+                        errors.add(throwable);
+                    }
+                });
+    }
+
+    @Test
+    public void testReconcilesResponseInOneTransactionBeforeGoingDeeper() {
+        final var provider = new TestDataProvider(List.of(createBoard(1), createBoard(2)));
+        provider.local.put(2L, createBoard(2));
+
+        syncHelper.doSyncFor(provider);
+
+        assertEquals(List.of("begin", "create 1", "update 2", "deletes", "end", "deeper 1", "deeper 2"), events);
+        assertEquals(List.of(true), responses);
+        assertEquals(0, errors.size());
+    }
+
+    @Test
+    public void testDoesNotGoDeeperIfReconciliationFailed() {
+        final var provider = new TestDataProvider(List.of(createBoard(1), createBoard(2)));
+        provider.failOnCreate = 2L;
+
+        syncHelper.doSyncFor(provider);
+
+        assertEquals(List.of("begin", "create 1", "end"), events);
+        assertEquals(1, errors.size());
+        assertSame(provider.failure, errors.get(0));
+        assertEquals(0, responses.size());
+    }
+
+    @Test
+    public void testGoesDeeperWithLocalIdsWithoutReadingEntitiesBack() {
+        final var provider = new TestDataProvider(List.of(createBoard(1), createBoard(2)));
+        final var existing = createBoard(2);
+        existing.setLocalId(42L);
+        provider.local.put(2L, existing);
+
+        syncHelper.doSyncFor(provider);
+
+        assertEquals(List.of(100L, 42L), provider.localIdsGoneDeeper);
+        assertEquals(0, provider.singleLookups);
+    }
+
+    @Test
+    public void testLooksUpEachEntityIfProviderDoesNotSupportBulkLookups() {
+        final var provider = new TestDataProvider(List.of(createBoard(1), createBoard(2), createBoard(3)));
+        provider.bulkLookups = false;
+        final var existing = createBoard(2);
+        existing.setLocalId(42L);
+        provider.local.put(2L, existing);
+
+        syncHelper.doSyncFor(provider);
+
+        assertEquals(List.of("begin", "create 1", "update 2", "create 3", "deletes", "end", "deeper 1", "deeper 2", "deeper 3"), events);
+        assertEquals(List.of(100L, 42L, 101L), provider.localIdsGoneDeeper);
+        assertEquals(3, provider.singleLookups);
+    }
+
+    @Test
+    public void testIncrementalSyncSkipsDeletesOfFilteredProviders() {
+        final var modifiedSince = Instant.parse("2021-10-18T08:00:00Z");
+        final var provider = new TestDataProvider(List.of(createBoard(1)));
+        provider.filteredByModifiedSince = true;
+
+        syncHelper.setModifiedSince(modifiedSince).doSyncFor(provider);
+
+        assertEquals(modifiedSince, provider.lastSync);
+        assertEquals(List.of("begin", "create 1", "end", "deeper 1"), events);
+    }
+
+    @Test
+    public void testIncrementalSyncPassesNoDateToUnfilteredProviders() {
+        final var provider = new TestDataProvider(List.of(createBoard(1)));
+
+        syncHelper.setModifiedSince(Instant.parse("2021-10-18T08:00:00Z")).doSyncFor(provider);
+
+        assertNull(provider.lastSync);
+        assertEquals(List.of("begin", "create 1", "deletes", "end", "deeper 1"), events);
+    }
+
+    private static Board createBoard(long remoteId) {
+        final var board = new Board();
+        board.setId(remoteId);
+        board.setAccountId(1L);
+        board.setTitle("Board " + remoteId);
+        board.setStatus(DBStatus.UP_TO_DATE.getId());
+        return board;
+    }
+
+    /**
+     * Serves the given {@link Board}s as server response, stores local {@link Board}s in memory and records every step of the synchronization
+     */
+    private class TestDataProvider extends AbstractSyncDataProvider<Board> {
+
+        private final List<Board> fromServer;
+        private final Map<Long, Board> local = new HashMap<>();
+        private final RuntimeException failure = new IllegalStateException("Creating failed");
+        private final List<Long> localIdsGoneDeeper = new ArrayList<>();
+        private Long failOnCreate = null;
+        private boolean bulkLookups = true;
+        private boolean filteredByModifiedSince = false;
+        private Instant lastSync = null;
+        private int singleLookups = 0;
+        private long nextLocalId = 100;
+
+        private TestDataProvider(@NonNull List<Board> fromServer) {
+            super(null);
+            this.fromServer = fromServer;
+        }
+
+        @Override
+        public void getAllFromServer(ServerAdapter serverAdapter, long accountId, ResponseCallback<List<Board>> responder, Instant lastSync) {
+            this.lastSync = lastSync;
+            // Like the request helper: exceptions thrown while handling a response are passed to onError
+            try {
+                responder.onResponse(new ArrayList<>(fromServer));
+            } catch (Throwable t) {
+                responder.onError(t);
+            }
+        }
+
+        @Override
+        public boolean isFilteredByModifiedSince() {
+            return filteredByModifiedSince;
+        }
+
+        @Override
+        public Board getSingleFromDB(DataBaseAdapter dataBaseAdapter, long accountId, Board entity) {
+            singleLookups++;
+            return local.get(entity.getId());
+        }
+
+        @Override
+        public Map<Object, EntitySyncState> getSyncStatesFromDB(DataBaseAdapter dataBaseAdapter, long accountId, List<Board> entitiesFromServer) {
+            if (!bulkLookups) {
+                return super.getSyncStatesFromDB(dataBaseAdapter, accountId, entitiesFromServer);
+            }
+            final var states = new HashMap<Object, EntitySyncState>();
+            for (Board board : entitiesFromServer) {
+                final var existing = local.get(board.getId());
+                if (existing != null) {
+                    states.put(board.getId(), EntitySyncState.of(existing));
+                }
+            }
+            return states;
+        }
+
+        @Override
+        public long createInDB(DataBaseAdapter dataBaseAdapter, long accountId, Board entity) {
+            assertTransaction();
+            if (failOnCreate != null && failOnCreate.equals(entity.getId())) {
+                throw failure;
+            }
+            events.add("create " + entity.getId());
+            // Only return the new local ID, passing it on is up to the SyncHelper
+            final long localId = nextLocalId++;
+            final var stored = createBoard(entity.getId());
+            stored.setLocalId(localId);
+            local.put(entity.getId(), stored);
+            return localId;
+        }
+
+        @Override
+        public void updateInDB(DataBaseAdapter dataBaseAdapter, long accountId, Board entity, boolean setStatus) {
+            assertTransaction();
+            events.add("update " + entity.getId());
+            local.put(entity.getId(), entity);
+        }
+
+        @Override
+        public void handleDeletes(ServerAdapter serverAdapter, DataBaseAdapter dataBaseAdapter, long accountId, List<Board> entitiesFromServer) {
+            assertTransaction();
+            events.add("deletes");
+        }
+
+        @Override
+        public void goDeeper(SyncHelper syncHelper, Board existingEntity, Board entityFromServer, ResponseCallback<Boolean> callback) {
+            assertFalse("Must not go deeper while the transaction is still open", inTransaction);
+            events.add("deeper " + existingEntity.getId());
+            localIdsGoneDeeper.add(existingEntity.getLocalId());
+            super.goDeeper(syncHelper, existingEntity, entityFromServer, callback);
+        }
+
+        private void assertTransaction() {
+            if (!inTransaction) {
+                throw new AssertionError("Must be called inside the transaction");
+            }
+        }
+
+        @Override
+        public void deleteInDB(DataBaseAdapter dataBaseAdapter, long accountId, Board board) {
+            local.remove(board.getId());
+        }
+
+        @Override
+        public List<Board> getAllChangedFromDB(DataBaseAdapter dataBaseAdapter, long accountId, Instant lastSync) {
+            return new ArrayList<>();
+        }
+
+        @Override
+        public void createOnServer(ServerAdapter serverAdapter, DataBaseAdapter dataBaseAdapter, long accountId, ResponseCallback<Board> responder, Board entity) {
+            fail("Unexpected up sync");
+        }
+
+        @Override
+        public void updateOnServer(ServerAdapter serverAdapter, DataBaseAdapter dataBaseAdapter, long accountId, ResponseCallback<Board> callback, Board entity) {
+            fail("Unexpected up sync");
+        }
+
+        @Override
+        public void deleteOnServer(ServerAdapter serverAdapter, long accountId, ResponseCallback<Void> callback, Board entity, DataBaseAdapter dataBaseAdapter) {
+            fail("Unexpected up sync");
+        }
+    }
+}
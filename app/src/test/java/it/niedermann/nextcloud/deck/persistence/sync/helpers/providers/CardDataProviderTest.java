@@ -0,0 +1,146 @@
+package it.niedermann.nextcloud.deck.persistence.sync.helpers.providers;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import it.niedermann.nextcloud.deck.api.ResponseCallback;
+import it.niedermann.nextcloud.deck.model.Account;
+import it.niedermann.nextcloud.deck.model.Board;
+import it.niedermann.nextcloud.deck.model.Card;
+import it.niedermann.nextcloud.deck.model.Stack;
+import it.niedermann.nextcloud.deck.model.full.FullCard;
+import it.niedermann.nextcloud.deck.model.full.FullStack;
+import it.niedermann.nextcloud.deck.model.internal.EntitySyncState;
+import it.niedermann.nextcloud.deck.persistence.sync.adapters.ServerAdapter;
+import it.niedermann.nextcloud.deck.persistence.sync.adapters.db.DataBaseAdapter;
+
+@RunWith(RobolectricTestRunner.class)
+public class CardDataProviderTest {
+
+    private static final long ACCOUNT_ID = 1L;
+    private static final long BOARD_ID = 10L;
+    private static final long STACK_ID = 20L;
+    private static final long LOCAL_STACK_ID = 200L;
+
+    private final ServerAdapter serverAdapter = mock(ServerAdapter.class);
+    private final DataBaseAdapter dataBaseAdapter = mock(DataBaseAdapter.class);
+    private final List<EntitySyncState> localStates = new ArrayList<>();
+    private final FullStack stack = new FullStack();
+
+    private CardDataProvider provider;
+
+    @Before
+    public void setup() {
+        final var board = new Board();
+        board.setId(BOARD_ID);
+        final var stackEntity = new Stack();
+        stackEntity.setId(STACK_ID);
+        stackEntity.setLocalId(LOCAL_STACK_ID);
+        stack.setStack(stackEntity);
+        stack.setCards(new ArrayList<>());
+        when(dataBaseAdapter.getCardSyncStatesForStackDirectly(ACCOUNT_ID, LOCAL_STACK_ID)).thenReturn(localStates);
+        provider = new CardDataProvider(null, board, stack, true);
+    }
+
+    @Test
+    public void testSendsModifiedSinceOnlyForKnownCards() {
+        final var lastSync = Instant.parse("2021-10-18T08:00:00Z");
+        final var knownCard = createCard(1, "changed");
+        localStates.add(createState(1, "outdated"));
+        stack.getCards().add(knownCard);
+        stack.getCards().add(createCard(2, "new"));
+
+        getAllFromServer(lastSync);
+
+        verify(serverAdapter).getCard(eq(BOARD_ID), eq(STACK_ID), eq(1L), eq(lastSync), isNull(), any());
+        verify(serverAdapter).getCard(eq(BOARD_ID), eq(STACK_ID), eq(2L), isNull(), isNull(), any());
+    }
+
+    @Test
+    public void testFetchesOnlyChangedCards() {
+        final var modified = Instant.parse("2021-10-18T08:00:00Z");
+        stack.getCards().addAll(List.of(
+                createCard(1, "same"),
+                createCard(2, "changed"),
+                createCard(3, "new"),
+                createCard(4, null, modified),
+                createCard(5, null, modified.plusSeconds(60))));
+        localStates.addAll(List.of(
+                createState(1, "same"),
+                createState(2, "outdated"),
+                createState(4, null, modified),
+                createState(5, null, modified)));
+
+        getAllFromServer(null);
+
+        verify(serverAdapter, never()).getCard(anyLong(), anyLong(), eq(1L), any(), any(), any());
+        verify(serverAdapter).getCard(anyLong(), anyLong(), eq(2L), any(), any(), any());
+        verify(serverAdapter).getCard(anyLong(), anyLong(), eq(3L), any(), any(), any());
+        verify(serverAdapter, never()).getCard(anyLong(), anyLong(), eq(4L), any(), any(), any());
+        verify(serverAdapter).getCard(anyLong(), anyLong(), eq(5L), any(), any(), any());
+    }
+
+    @Test
+    public void testRespondsWithoutRequestsIfNoCardChanged() {
+        stack.getCards().add(createCard(1, "same"));
+        localStates.add(createState(1, "same"));
+
+        final var responses = getAllFromServer(null);
+
+        verify(serverAdapter, never()).getCard(anyLong(), anyLong(), anyLong(), any(), any(), any());
+        assertEquals(1, responses.size());
+        assertEquals(0, responses.get(0).size());
+    }
+
+    private List<List<FullCard>> getAllFromServer(Instant lastSync) {
+        final List<List<FullCard>> responses = new ArrayList<>();
+        provider.getAllFromServer(serverAdapter, dataBaseAdapter, ACCOUNT_ID, new ResponseCallback<>(new Account(ACCOUNT_ID)) {
+            @Override
+            public void onResponse(List<FullCard> response) {
+                responses.add(response);
+            }
+        }, lastSync);
+        return responses;
+    }
+
+    private static Card createCard(long remoteId, String etag) {
+        return createCard(remoteId, etag, null);
+    }
+
+    private static Card createCard(long remoteId, String etag, Instant lastModified) {
+        final var card = new Card();
+        card.setId(remoteId);
+        card.setEtag(etag);
+        card.setLastModified(lastModified);
+        return card;
+    }
+
+    private static EntitySyncState createState(long remoteId, String etag) {
+        return createState(remoteId, etag, null);
+    }
+
+    private static EntitySyncState createState(long remoteId, String etag, Instant lastModified) {
+        final var state = new EntitySyncState();
+        state.setLocalId(remoteId * 100);
+        state.setId(remoteId);
+        state.setEtag(etag);
+        state.setLastModified(lastModified);
+        return state;
+    }
+}
@@ -0,0 +1,79 @@
+package it.niedermann.nextcloud.deck.persistence.sync.helpers.util;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class BoundedTaskQueueTest {
+
+    @Test
+    public void testLimitsParallelTasks() {
+        final var queue = new BoundedTaskQueue(2, Runnable::run);
+        final List<Integer> started = new ArrayList<>();
+
+        for (int i = 0; i < 4; i++) {
+            final int task = i;
+            queue.submit(() -> started.add(task));
+        }
+        assertEquals(Arrays.asList(0, 1), started);
+
+        queue.release();
+        assertEquals(Arrays.asList(0, 1, 2), started);
+        queue.release();
+        queue.release();
+        queue.release();
+        assertEquals(Arrays.asList(0, 1, 2, 3), started);
+
+        queue.submit(() -> started.add(4));
+        assertEquals(Arrays.asList(0, 1, 2, 3, 4), started);
+    }
+
+    @Test
+    public void testStartsQueuedTasksByPriority() {
+        final var queue = new BoundedTaskQueue(1, Runnable::run);
+        final List<String> started = new ArrayList<>();
+        final var focusedPriority = new AtomicInteger(BoundedTaskQueue.PRIORITY_DEFAULT);
+
+        queue.submit(() -> started.add("running"));
+        queue.submit(() -> started.add("a"));
+        queue.submit(() -> started.add("b"));
+        queue.submit(() -> started.add("focused"), focusedPriority::get);
+        queue.submit(() -> started.add("c"));
+
+        queue.release();
+        assertEquals(Arrays.asList("running", "a"), started);
+
+        // The priority is evaluated when a slot becomes free, so queued tasks can still be preferred
+        focusedPriority.set(SyncPriorities.PRIORITY_FOCUSED);
+        queue.release();
+        queue.release();
+        queue.release();
+        assertEquals(Arrays.asList("running", "a", "focused", "b", "c"), started);
+    }
+
+    @Test
+    public void testStartsQueuedTasksOnExecutor() {
+        final List<Runnable> handedOver = new ArrayList<>();
+        final var queue = new BoundedTaskQueue(1, handedOver::add);
+        final List<String> started = new ArrayList<>();
+
+        queue.submit(() -> started.add("running"));
+        queue.submit(() -> started.add("queued"));
+        assertEquals(List.of("running"), started);
+
+        // Releasing a slot must not run the next task on the releasing thread
+        queue.release();
+        assertEquals(List.of("running"), started);
+        assertEquals(1, handedOver.size());
+
+        handedOver.get(0).run();
+        assertEquals(Arrays.asList("running", "queued"), started);
+        assertEquals(1, queue.getRunning());
+        assertEquals(0, queue.getPending());
+    }
+}
@@ -0,0 +1,33 @@
+package it.niedermann.nextcloud.deck.persistence.sync.helpers.util;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class ETagStatisticsTest {
+
+    @Before
+    public void reset() {
+        ETagStatistics.reset();
+    }
+
+    @Test
+    public void testCountsHitsAndMisses() {
+        assertEquals("ETag hits: 0 / 0", ETagStatistics.getSummary());
+
+        ETagStatistics.recordHit();
+        ETagStatistics.recordHit();
+        ETagStatistics.recordHit();
+        ETagStatistics.recordMiss();
+
+        assertEquals(3, ETagStatistics.getHits());
+        assertEquals(1, ETagStatistics.getMisses());
+        assertEquals("ETag hits: 3 / 4 (75 %)", ETagStatistics.getSummary());
+
+        ETagStatistics.reset();
+
+        assertEquals(0, ETagStatistics.getHits());
+        assertEquals(0, ETagStatistics.getMisses());
+    }
+}
@@ -0,0 +1,104 @@
+package it.niedermann.nextcloud.deck.persistence.sync.helpers.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import it.niedermann.nextcloud.deck.model.Label;
+import it.niedermann.nextcloud.deck.persistence.sync.helpers.providers.AbstractSyncDataProvider;
+
+@RunWith(RobolectricTestRunner.class)
+public class EntityDeltaTest {
+
+    @Test
+    public void testPartitions() {
+        final var unchangedLocal = createLabel(1L, 10L, 100L, "a");
+        final var updatedLocal = createLabel(1L, 11L, 101L, "b");
+        final var deletedLocal = createLabel(1L, 12L, 102L, "c");
+
+        final var unchangedRemote = createLabel(1L, null, 100L, "a");
+        final var updatedRemote = createLabel(1L, null, 101L, "b2");
+        final var createdRemote = createLabel(1L, null, 103L, "d");
+
+        final var delta = EntityDelta.of(
+                Arrays.asList(unchangedRemote, updatedRemote, createdRemote),
+                Arrays.asList(unchangedLocal, updatedLocal, deletedLocal));
+
+        assertEquals(Collections.singletonList(createdRemote), delta.getCreated());
+        assertEquals(Collections.singletonList(updatedRemote), delta.getUpdated());
+        assertEquals(Collections.singletonList(unchangedRemote), delta.getUnchanged());
+        assertEquals(Collections.singletonList(deletedLocal), delta.getDeleted());
+    }
+
+    @Test
+    public void testMatchesByLocalIdBeforeRemoteId() {
+        final var local = createLabel(1L, 10L, null, null);
+        final var remote = createLabel(1L, 10L, null, null);
+
+        final var delta = EntityDelta.of(Collections.singletonList(remote), Collections.singletonList(local));
+
+        assertTrue(delta.getCreated().isEmpty());
+        assertTrue(delta.getDeleted().isEmpty());
+    }
+
+    @Test
+    public void testDistinguishesAccounts() {
+        final var local = createLabel(1L, 10L, 100L, "a");
+        final var remote = createLabel(2L, null, 100L, "a");
+
+        final var delta = EntityDelta.of(Collections.singletonList(remote), Collections.singletonList(local));
+
+        assertEquals(Collections.singletonList(remote), delta.getCreated());
+        assertEquals(Collections.singletonList(local), delta.getDeleted());
+    }
+
+    @Test
+    public void testSkipsNullEntries() {
+        final var local = createLabel(1L, 10L, 100L, "a");
+
+        final var delta = EntityDelta.of(Arrays.asList(null, null), Arrays.asList(local, null));
+
+        assertTrue(delta.getCreated().isEmpty());
+        assertEquals(Collections.singletonList(local), delta.getDeleted());
+        assertTrue(EntityDelta.<Label>of(null, null).getDeleted().isEmpty());
+    }
+
+    @Test
+    public void testFindDeltaMatchesNestedLoopSemantics() {
+        final List<Label> listA = new ArrayList<>();
+        final List<Label> listB = new ArrayList<>();
+        for (long i = 0; i < 2_000; i++) {
+            listA.add(createLabel(1L, i % 3 == 0 ? null : i, i, "a"));
+            if (i % 2 == 0) {
+                listB.add(createLabel(1L, i % 5 == 0 ? null : i, i, "a"));
+            }
+        }
+        listB.add(createLabel(1L, 5_000L, 5_000L, "a"));
+        listB.add(createLabel(1L, null, 6_000L, "a"));
+
+        final var delta = AbstractSyncDataProvider.findDelta(listA, listB);
+
+        assertEquals(2, delta.size());
+        assertEquals(Long.valueOf(5_000L), delta.get(0).getId());
+        assertEquals(Long.valueOf(6_000L), delta.get(1).getId());
+    }
+
+    private static Label createLabel(long accountId, Long localId, Long remoteId, String etag) {
+        final var label = new Label();
+        label.setAccountId(accountId);
+        label.setLocalId(localId);
+        label.setId(remoteId);
+        label.setEtag(etag);
+        label.setLastModified(Instant.ofEpochMilli(0));
+        return label;
+    }
+}
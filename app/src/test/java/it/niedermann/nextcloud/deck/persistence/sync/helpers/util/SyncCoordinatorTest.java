@@ -0,0 +1,125 @@
+package it.niedermann.nextcloud.deck.persistence.sync.helpers.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.schedulers.TestScheduler;
+import it.niedermann.nextcloud.deck.api.IResponseCallback;
+
+@RunWith(RobolectricTestRunner.class)
+public class SyncCoordinatorTest {
+
+    private static final long DEBOUNCE_MILLIS = 1_000L;
+
+    private final TestScheduler scheduler = new TestScheduler();
+    private final SyncCoordinator coordinator = new SyncCoordinator(scheduler, DEBOUNCE_MILLIS);
+    private final List<IResponseCallback<Boolean>> started = new ArrayList<>();
+    private final SyncCoordinator.Starter starter = (progress$, callback) -> started.add(callback);
+
+    @Test
+    public void testMergesBurstIntoOneSynchronization() {
+        final var first = mockCallback();
+        final var second = mockCallback();
+        final var third = mockCallback();
+
+        final var firstProgress$ = coordinator.request(1L, first, starter);
+        scheduler.advanceTimeBy(DEBOUNCE_MILLIS / 2, TimeUnit.MILLISECONDS);
+        final var secondProgress$ = coordinator.request(1L, second, starter);
+        final var thirdProgress$ = coordinator.request(1L, third, starter);
+
+        assertSame(firstProgress$, secondProgress$);
+        assertSame(firstProgress$, thirdProgress$);
+        assertTrue(coordinator.isSynchronizing(1L));
+        assertEquals("Must not start before the debounce time passed", 0, started.size());
+
+        scheduler.advanceTimeBy(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+        assertEquals(1, started.size());
+        verify(first, never()).onResponse(any());
+
+        started.get(0).onResponse(true);
+        // Further results of the same synchronization must be ignored
+        started.get(0).onError(new RuntimeException());
+        scheduler.advanceTimeBy(DEBOUNCE_MILLIS * 10, TimeUnit.MILLISECONDS);
+
+        assertEquals(1, started.size());
+        assertFalse(coordinator.isSynchronizing(1L));
+        for (IResponseCallback<Boolean> callback : List.of(first, second, third)) {
+            verify(callback, times(1)).onResponse(true);
+            verify(callback, never()).onError(any());
+        }
+    }
+
+    @Test
+    public void testRequestsWhileRunningResultInOneFollowUp() {
+        final var first = mockCallback();
+        final var second = mockCallback();
+        final var third = mockCallback();
+
+        coordinator.request(1L, first, starter);
+        scheduler.advanceTimeBy(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+        assertEquals(1, started.size());
+
+        // The running synchronization might already have missed the changes which caused these requests
+        coordinator.request(1L, second, starter);
+        coordinator.request(1L, third, starter);
+        scheduler.advanceTimeBy(DEBOUNCE_MILLIS * 10, TimeUnit.MILLISECONDS);
+        assertEquals("Must not start while another one is running", 1, started.size());
+
+        started.get(0).onResponse(true);
+        verify(first, times(1)).onResponse(true);
+        verify(second, never()).onResponse(any());
+        assertTrue(coordinator.isSynchronizing(1L));
+
+        scheduler.advanceTimeBy(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+        assertEquals(2, started.size());
+
+        started.get(1).onError(new RuntimeException());
+        verify(first, never()).onError(any());
+        verify(second, times(1)).onError(any());
+        verify(third, times(1)).onError(any());
+        assertFalse(coordinator.isSynchronizing(1L));
+    }
+
+    @Test
+    public void testAccountsAreIndependent() {
+        coordinator.request(1L, mockCallback(), starter);
+        coordinator.request(2L, mockCallback(), starter);
+        scheduler.advanceTimeBy(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+
+        assertEquals(2, started.size());
+        assertFalse(coordinator.isSynchronizing(3L));
+    }
+
+    @Test
+    public void testStarterThrowing() {
+        final var callback = mockCallback();
+
+        coordinator.request(1L, callback, (progress$, cb) -> {
+            throw new IllegalStateException();
+        });
+        scheduler.advanceTimeBy(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+
+        verify(callback, times(1)).onError(any(IllegalStateException.class));
+        assertFalse(coordinator.isSynchronizing(1L));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static IResponseCallback<Boolean> mockCallback() {
+        return mock(IResponseCallback.class);
+    }
+}
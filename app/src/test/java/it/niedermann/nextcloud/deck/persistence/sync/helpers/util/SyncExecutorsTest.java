@@ -0,0 +1,120 @@
+package it.niedermann.nextcloud.deck.persistence.sync.helpers.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+@RunWith(RobolectricTestRunner.class)
+public class SyncExecutorsTest {
+
+    @Test
+    public void testCallerRunsTaskIfAllWorkersAreBusy() throws InterruptedException {
+        final var executor = SyncExecutors.newBoundedExecutor(2);
+        final var gate = new CountDownLatch(1);
+        final var running = new AtomicInteger();
+        final var maxRunning = new AtomicInteger();
+        final var workersStarted = new CountDownLatch(2);
+        final var overflowThread = new AtomicReference<Thread>();
+        final var done = new CountDownLatch(1);
+
+        final var producer = new Thread(() -> {
+            for (int i = 0; i < 2; i++) {
+                executor.execute(() -> {
+                    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    workersStarted.countDown();
+                    try {
+                        gate.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    running.decrementAndGet();
+                });
+            }
+            try {
+                assertTrue(workersStarted.await(5, TimeUnit.SECONDS));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            // Both workers are busy, so the producer has to run this one itself
+            executor.execute(() -> overflowThread.set(Thread.currentThread()));
+            done.countDown();
+        });
+        producer.start();
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        gate.countDown();
+        assertSame(producer, overflowThread.get());
+        assertEquals(2, maxRunning.get());
+        executor.shutdown();
+    }
+
+    @Test
+    public void testMainThreadDoesNotRunTasksItself() throws InterruptedException {
+        final var executor = SyncExecutors.newBoundedExecutor(1);
+        final var gate = new CountDownLatch(1);
+        final var overflowThread = new AtomicReference<Thread>();
+        final var done = new CountDownLatch(1);
+
+        executor.execute(() -> {
+            try {
+                gate.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        executor.execute(() -> {
+            overflowThread.set(Thread.currentThread());
+            done.countDown();
+        });
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertNotEquals(Thread.currentThread(), overflowThread.get());
+        gate.countDown();
+        executor.shutdown();
+    }
+
+    @Test(timeout = 10_000L)
+    public void testMainThreadIsNeverBlockedByOverflowBacklog() throws InterruptedException {
+        final var executor = SyncExecutors.newBoundedExecutor(1);
+        final var gate = new CountDownLatch(1);
+        final int tasks = SyncExecutors.OVERFLOW_WARNING_THRESHOLD * 2;
+        final var done = new CountDownLatch(tasks);
+        final Runnable blocking = () -> {
+            try {
+                gate.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+
+        // Occupies the worker and the overflow thread
+        executor.execute(blocking);
+        executor.execute(blocking);
+        for (int i = 0; i < tasks; i++) {
+            executor.execute(done::countDown);
+        }
+        assertEquals(tasks, done.getCount());
+
+        gate.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        executor.shutdown();
+    }
+
+    @Test
+    public void testForAccount() {
+        assertSame(SyncExecutors.forAccount("foo@example.com"), SyncExecutors.forAccount("foo@example.com"));
+        assertSame(SyncExecutors.forAccount(null), SyncExecutors.forAccount(""));
+        assertNotSame(SyncExecutors.forAccount("foo@example.com"), SyncExecutors.forAccount("bar@example.com"));
+    }
+}
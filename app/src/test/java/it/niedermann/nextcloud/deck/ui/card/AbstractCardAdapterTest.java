@@ -0,0 +1,214 @@
+package it.niedermann.nextcloud.deck.ui.card;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.app.Activity;
+import android.graphics.Color;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.fragment.app.FragmentManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import it.niedermann.nextcloud.deck.model.Account;
+import it.niedermann.nextcloud.deck.model.Card;
+import it.niedermann.nextcloud.deck.model.full.FullCard;
+import it.niedermann.nextcloud.deck.ui.MainViewModel;
+
+@RunWith(RobolectricTestRunner.class)
+public class AbstractCardAdapterTest {
+
+    private final List<String> events = new ArrayList<>();
+    private final List<Object> payloads = new ArrayList<>();
+    private final FullCard a = createFullCard(1L);
+    private final FullCard b = createFullCard(2L);
+    private final FullCard c = createFullCard(3L);
+    private final FullCard d = createFullCard(4L);
+    private TestCardAdapter adapter;
+
+    @Before
+    public void setup() {
+        final var mainViewModel = mock(MainViewModel.class);
+        when(mainViewModel.getCurrentAccount()).thenReturn(new Account(1L));
+        adapter = new TestCardAdapter(Robolectric.buildActivity(Activity.class).create().get(), mock(FragmentManager.class), mainViewModel);
+        adapter.registerAdapterDataObserver(new RecyclerView.AdapterDataObserver() {
+            @Override
+            public void onChanged() {
+                events.add("changed");
+            }
+
+            @Override
+            public void onItemRangeChanged(int positionStart, int itemCount, @Nullable Object payload) {
+                events.add("changed " + positionStart + " " + itemCount);
+                payloads.add(payload);
+            }
+
+            @Override
+            public void onItemRangeInserted(int positionStart, int itemCount) {
+                events.add("inserted " + positionStart + " " + itemCount);
+            }
+
+            @Override
+            public void onItemRangeRemoved(int positionStart, int itemCount) {
+                events.add("removed " + positionStart + " " + itemCount);
+            }
+
+            @Override
+            public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+                events.add("moved " + fromPosition + " " + toPosition);
+            }
+        });
+    }
+
+    @Test
+    public void testForwardsUpdatesIfNotDragging() {
+        adapter.submit(List.of(a, b, c));
+
+        assertEquals(List.of("inserted 0 3"), events);
+        assertEquals(3, adapter.getItemCount());
+        assertEquals(List.of(a, b, c), adapter.getItemList());
+    }
+
+    @Test
+    public void testHoldsBackUpdatesWhileDragging() {
+        adapter.submit(List.of(a, b, c));
+        events.clear();
+
+        adapter.moveItem(0, 2);
+        assertEquals(List.of(b, c, a), adapter.getItemList());
+        assertEquals("The submitted data must not be modified", List.of(a, b, c), adapter.cards);
+
+        adapter.removeItem(0);
+        adapter.insertItem(d, 1);
+        assertEquals(List.of(c, d, a), adapter.getItemList());
+
+        adapter.submit(List.of(a, b, c, d));
+        assertEquals(List.of("moved 0 2", "removed 0 1", "inserted 1 1"), events);
+        assertEquals(List.of(c, d, a), adapter.getItemList());
+        assertEquals(3, adapter.getItemCount());
+
+        adapter.onDragEnded();
+        assertEquals("changed", events.get(events.size() - 1));
+        assertEquals(List.of(a, b, c, d), adapter.getItemList());
+        assertEquals(4, adapter.getItemCount());
+    }
+
+    @Test
+    public void testKeepsDraggedOrderUntilNextUpdate() {
+        adapter.submit(List.of(a, b, c));
+        adapter.moveItem(0, 2);
+        events.clear();
+
+        // The new order has not been persisted yet
+        adapter.onDragEnded();
+        assertTrue(events.isEmpty());
+        assertEquals(List.of(b, c, a), adapter.getItemList());
+
+        adapter.submit(List.of(b, c, a, d));
+        assertEquals("changed", events.get(0));
+        assertEquals(List.of(b, c, a, d), adapter.getItemList());
+    }
+
+    @Test
+    public void testApplyBrandOnlyRebindsBrand() {
+        adapter.submit(List.of(a, b));
+        events.clear();
+
+        adapter.applyBrand(Color.RED);
+        assertEquals(List.of("changed 0 2"), events);
+        final var brandPayload = payloads.get(0);
+        assertNotNull(brandPayload);
+
+        final var viewHolder = mock(AbstractCardViewHolder.class);
+        adapter.onBindViewHolder(viewHolder, 0, Collections.singletonList(brandPayload));
+        verify(viewHolder).applyBrand(anyInt());
+        verify(viewHolder, never()).bind(any(), any(), any(), anyBoolean(), anyInt(), any(), any(), anyInt(), anyBoolean());
+    }
+
+    @Test
+    public void testKeepCoverImagesPayload() {
+        adapter.submit(List.of(a));
+        final var viewHolder = mock(AbstractCardViewHolder.class);
+
+        adapter.onBindViewHolder(viewHolder, 0, Collections.singletonList(FullCardDiffCallback.PAYLOAD_KEEP_COVER_IMAGES));
+        verify(viewHolder).bind(eq(a), any(), any(), anyBoolean(), anyInt(), any(), any(), anyInt(), eq(false));
+        verify(viewHolder, never()).bind(any(), any(), any(), anyBoolean(), anyInt(), any(), any(), anyInt(), eq(true));
+
+        reset(viewHolder);
+        adapter.applyBrand(Color.RED);
+        adapter.onBindViewHolder(viewHolder, 0, List.of(payloads.get(0), FullCardDiffCallback.PAYLOAD_KEEP_COVER_IMAGES));
+        verify(viewHolder).bind(eq(a), any(), any(), anyBoolean(), anyInt(), any(), any(), anyInt(), eq(false));
+
+        reset(viewHolder);
+        adapter.onBindViewHolder(viewHolder, 0, List.of(FullCardDiffCallback.PAYLOAD_KEEP_COVER_IMAGES, new Object()));
+        verify(viewHolder).bind(eq(a), any(), any(), anyBoolean(), anyInt(), any(), any(), anyInt(), eq(true));
+    }
+
+    private static FullCard createFullCard(long localId) {
+        final var card = new Card();
+        card.setLocalId(localId);
+        card.setTitle(String.valueOf(localId));
+        final var fullCard = new FullCard();
+        fullCard.setCard(card);
+        return fullCard;
+    }
+
+    /**
+     * Holds the submitted data in a plain {@link List} and forwards each submission synchronously as removal of all old and insertion of all new items
+     */
+    private static class TestCardAdapter extends AbstractCardAdapter {
+
+        @NonNull
+        private List<FullCard> cards = Collections.emptyList();
+
+        private TestCardAdapter(@NonNull Activity activity, @NonNull FragmentManager fragmentManager, @NonNull MainViewModel mainViewModel) {
+            super(activity, fragmentManager, 0L, mainViewModel, null);
+        }
+
+        private void submit(@NonNull List<FullCard> cards) {
+            final int oldSize = this.cards.size();
+            this.cards = cards;
+            if (oldSize > 0) {
+                updateCallback.onRemoved(0, oldSize);
+            }
+            updateCallback.onInserted(0, cards.size());
+        }
+
+        @Override
+        protected FullCard getCurrentItem(int position) {
+            return cards.get(position);
+        }
+
+        @Override
+        protected int getCurrentItemCount() {
+            return cards.size();
+        }
+
+        @NonNull
+        @Override
+        protected List<FullCard> getCurrentList() {
+            return Collections.unmodifiableList(cards);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package it.niedermann.nextcloud.deck.ui.card;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import it.niedermann.nextcloud.deck.model.Attachment;
+import it.niedermann.nextcloud.deck.model.Card;
+import it.niedermann.nextcloud.deck.model.full.FullCard;
+
+public class FullCardDiffCallbackTest {
+
+    private final FullCardDiffCallback callback = new FullCardDiffCallback();
+
+    @Test
+    public void testItemsAreIdentifiedByLocalId() {
+        final var oldCard = createFullCard(1L, 10L, "Foo");
+        final var newCard = createFullCard(1L, 10L, "Bar");
+
+        assertTrue(callback.areItemsTheSame(oldCard, newCard));
+        assertFalse(callback.areContentsTheSame(oldCard, newCard));
+        assertFalse(callback.areItemsTheSame(oldCard, createFullCard(2L, 10L, "Foo")));
+        assertTrue(callback.areContentsTheSame(oldCard, createFullCard(1L, 10L, "Foo")));
+    }
+
+    @Test
+    public void testKeepCoverImagesIfAttachmentsDidNotChange() {
+        final var oldCard = createFullCard(1L, 10L, "Foo");
+        final var newCard = createFullCard(1L, 10L, "Bar");
+        oldCard.setAttachments(createAttachments(100L, 101L));
+        newCard.setAttachments(createAttachments(100L, 101L));
+
+        assertSame(FullCardDiffCallback.PAYLOAD_KEEP_COVER_IMAGES, callback.getChangePayload(oldCard, newCard));
+    }
+
+    @Test
+    public void testRebindCoverImagesIfAttachmentsChanged() {
+        final var oldCard = createFullCard(1L, 10L, "Foo");
+        final var newCard = createFullCard(1L, 10L, "Foo");
+        oldCard.setAttachments(createAttachments(100L, 101L));
+        newCard.setAttachments(createAttachments(100L));
+
+        assertNull(callback.getChangePayload(oldCard, newCard));
+    }
+
+    @Test
+    public void testRebindCoverImagesIfRemoteIdChanged() {
+        // A card which has been created locally gets its remote id with the first synchronization
+        final var oldCard = createFullCard(1L, null, "Foo");
+        final var newCard = createFullCard(1L, 10L, "Foo");
+        oldCard.setAttachments(createAttachments(100L));
+        newCard.setAttachments(createAttachments(100L));
+
+        assertNull(callback.getChangePayload(oldCard, newCard));
+    }
+
+    private static FullCard createFullCard(long localId, Long remoteId, String title) {
+        final var card = new Card();
+        card.setLocalId(localId);
+        card.setId(remoteId);
+        card.setTitle(title);
+        final var fullCard = new FullCard();
+        fullCard.setCard(card);
+        return fullCard;
+    }
+
+    private static List<Attachment> createAttachments(long... localIds) {
+        final List<Attachment> attachments = new ArrayList<>();
+        for (long localId : localIds) {
+            final var attachment = new Attachment();
+            attachment.setLocalId(localId);
+            attachment.setCreatedAt(Instant.ofEpochMilli(localId));
+            attachments.add(attachment);
+        }
+        return attachments;
+    }
+}
@@ -194,7 +194,8 @@ public class CrossTabDragAndDrop<
                             final List<ItemModel> itemList = itemAdapter.getItemList();
                             for (int i = 0; i < itemList.size(); i++) {
                                 final ItemModel c = itemList.get(i);
-                                if (itemToFind.getComparableId().equals(c.getComparableId())) {
+                                // Paged adapters might contain placeholders
+                                if (c != null && itemToFind.getComparableId().equals(c.getComparableId())) {
                                     itemAdapter.removeItem(i);
                                     itemAdapter.notifyItemRemoved(i);
                                     Log.v(TAG, "DnD removed dupe at tab " + tabPositionToCheck + ": " + c.toString());